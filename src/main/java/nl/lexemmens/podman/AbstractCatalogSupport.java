@@ -1,10 +1,15 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.helper.ContainerCatalog;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
@@ -26,8 +31,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -42,42 +51,180 @@ public abstract class AbstractCatalogSupport extends AbstractPodmanMojo {
     @Component
     public RepositorySystem repositorySystem;
 
+    /**
+     * The directory in which the container catalogs of releases are cached when the local repository is disabled for
+     * resolving catalogs. Catalogs of releases cannot change, so they only need to be downloaded once.
+     */
+    @Parameter(property = "podman.catalog.cacheDirectory", defaultValue = "${user.home}/.cache/podman-maven-plugin/catalogs")
+    File catalogCacheDirectory;
+
     protected List<String> readLocalCatalog() throws MojoExecutionException {
         String catalogFileName = String.format("%s.txt", CATALOG_ARTIFACT_NAME);
         Path catalogPath = Paths.get(project.getBuild().getDirectory(), catalogFileName);
         return readCatalogContent(catalogPath, true);
     }
 
-    protected List<String> readRemoteCatalog(RepositorySystemSession repositorySystemSession) throws MojoExecutionException {
-        List<RemoteRepository> remoteRepositories = getRemoteRepositories();
+    protected Path getLocalStructuredCatalogPath() {
+        return Paths.get(project.getBuild().getDirectory(), String.format("%s.json", CATALOG_ARTIFACT_NAME));
+    }
 
+    /**
+     * Reads the container-catalog.json file of the current module, which is absent when the images were built by an
+     * older version of this plugin.
+     *
+     * @return The structured catalog, or an empty Optional if it does not exist or cannot be read
+     */
+    protected Optional<ContainerCatalog> readLocalStructuredCatalog() {
         try {
-            DefaultArtifact artifact = new DefaultArtifact(
-                    project.getGroupId(),
-                    project.getArtifactId(),
-                    CATALOG_ARTIFACT_NAME,
-                    "txt",
-                    project.getVersion()
-            );
-
-            ArtifactRequest artifactRequest = new ArtifactRequest(artifact, remoteRepositories, null);
-
-            ArtifactResult artifactResult = repositorySystem.resolveArtifact(repositorySystemSession, artifactRequest);
-            if (artifactResult.isMissing()) {
-                return Collections.emptyList();
-            }
-            if (artifactResult.isResolved()) {
-                return readCatalogContent(Paths.get(artifactResult.getArtifact().getFile().toURI()), false);
+            return ContainerCatalog.read(getLocalStructuredCatalogPath());
+        } catch (MojoExecutionException e) {
+            getLog().warn("Ignoring container-catalog.json: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * <p>
+     * Reads the container-catalog.txt file of the current module from the remote repositories.
+     * </p>
+     * <p>
+     * When no module deploys in this build, such as when promoting images that were released before, the catalogs of
+     * all modules in the reactor that execute this goal are resolved together when the first module reads its catalog,
+     * so that they can be downloaded in parallel. Every module takes its own catalog from that batch once. Otherwise,
+     * the catalogs of the other modules may not have been deployed yet, so only the catalog of the current module is
+     * resolved.
+     * </p>
+     *
+     * @return The images in the catalog of the current module
+     * @throws MojoExecutionException In case the container-catalog.txt file of a module cannot be resolved
+     */
+    protected List<String> readRemoteCatalog() throws MojoExecutionException {
+        List<String> catalog = null;
+        if (!isDeployedInThisBuild()) {
+            String cacheKey = String.format("remote-catalogs:%s:%s:%s", mojoExecution == null ? "" : mojoExecution.getExecutionId(),
+                    skopeo.getCopy().getSourceCatalogRepository(), skopeo.getCopy().getDisableLocal());
+            Map<String, List<String>> catalogs = SessionCache.forSession(session).get(cacheKey,
+                    () -> new ConcurrentHashMap<>(resolveRemoteCatalogs(getReactorProjectsExecutingGoal())));
+            catalog = catalogs.remove(project.getId());
+        }
+
+        if (catalog == null) {
+            // Not part of the batch, e.g. because the goal is executed from another plugin or more than once
+            catalog = resolveRemoteCatalogs(Collections.singletonList(project)).get(project.getId());
+        }
+        return catalog;
+    }
+
+    private boolean isDeployedInThisBuild() {
+        if (session == null || session.getGoals() == null) {
+            return true;
+        }
+
+        // The deploy phase is the last phase of the default lifecycle, so no later phase needs to be considered
+        return session.getGoals().stream().anyMatch(goal -> "deploy".equals(goal) || goal.endsWith(":deploy"));
+    }
+
+    private List<MavenProject> getReactorProjectsExecutingGoal() {
+        if (session == null || session.getProjects() == null) {
+            return Collections.singletonList(project);
+        }
+
+        Set<String> projectIds = getProjectsExecutingGoal();
+        List<MavenProject> projects = session.getProjects().stream()
+                .filter(reactorProject -> projectIds.contains(reactorProject.getId()))
+                .collect(Collectors.toList());
+        return projects.isEmpty() ? Collections.singletonList(project) : projects;
+    }
+
+    private Map<String, List<String>> resolveRemoteCatalogs(List<MavenProject> projects) throws MojoExecutionException {
+        List<RemoteRepository> remoteRepositories = getRemoteRepositories();
+        boolean disableLocal = skopeo.getCopy().getDisableLocal();
+
+        // Catalogs of releases never change, so they can be cached across builds instead of being downloaded into a
+        // throwaway repository every time.
+        List<MavenProject> releases = new ArrayList<>();
+        List<MavenProject> snapshots = new ArrayList<>();
+        for (MavenProject reactorProject : projects) {
+            if (disableLocal && reactorProject.getVersion() != null && !ArtifactUtils.isSnapshot(reactorProject.getVersion())) {
+                releases.add(reactorProject);
             } else {
-                throw new MojoExecutionException("Failed to resolve the container catalog file.");
+                snapshots.add(reactorProject);
             }
+        }
+
+        Map<String, List<String>> catalogs = new HashMap<>();
+        if (!releases.isEmpty()) {
+            catalogs.putAll(resolveRemoteCatalogs(getCatalogCacheSession(), releases, remoteRepositories));
+        }
+        if (!snapshots.isEmpty()) {
+            PodmanSession tempSession = getTempSession(disableLocal);
+            try {
+                catalogs.putAll(resolveRemoteCatalogs(tempSession, snapshots, remoteRepositories));
+            } finally {
+                deleteTempRepository(tempSession.repo);
+            }
+        }
+        return catalogs;
+    }
+
+    private Map<String, List<String>> resolveRemoteCatalogs(PodmanSession podmanSession, List<MavenProject> projects,
+                                                            List<RemoteRepository> remoteRepositories) throws MojoExecutionException {
+        List<ArtifactRequest> requests = new ArrayList<>();
+        for (MavenProject reactorProject : projects) {
+            requests.add(new ArtifactRequest(getCatalogArtifact(reactorProject, "txt"), remoteRepositories, null));
+        }
 
+        getLog().info("Resolving the container catalogs of " + projects.size() + " module(s)...");
+        List<ArtifactResult> results;
+        try {
+            results = repositorySystem.resolveArtifacts(podmanSession.session, requests);
         } catch (ArtifactResolutionException e) {
-            if (e.getCause() instanceof ArtifactNotFoundException) {
-                return Collections.emptyList();
+            // Missing catalogs are expected, e.g. for modules that do not build any images
+            if (e.getResults() == null || e.getResults().isEmpty()) {
+                if (e.getCause() instanceof ArtifactNotFoundException) {
+                    results = Collections.emptyList();
+                } else {
+                    throw new MojoExecutionException("Failed retrieving container catalog file", e);
+                }
+            } else {
+                results = e.getResults();
             }
-            throw new MojoExecutionException("Failed retrieving container catalog file", e);
         }
+
+        Map<String, List<String>> catalogs = new HashMap<>();
+        for (int i = 0; i < projects.size(); i++) {
+            Optional<Path> catalogPath = getResolvedFile(results, i);
+            List<String> images = catalogPath.isPresent() ? readCatalogContent(catalogPath.get(), false) : Collections.emptyList();
+            catalogs.put(projects.get(i).getId(), images);
+        }
+        return catalogs;
+    }
+
+    private Optional<Path> getResolvedFile(List<ArtifactResult> results, int index) throws MojoExecutionException {
+        if (index >= results.size()) {
+            return Optional.empty();
+        }
+
+        ArtifactResult result = results.get(index);
+        if (result.isResolved()) {
+            return Optional.of(Paths.get(result.getArtifact().getFile().toURI()));
+        }
+
+        boolean missing = result.isMissing() || result.getExceptions().stream().allMatch(ArtifactNotFoundException.class::isInstance);
+        if (!missing) {
+            throw new MojoExecutionException("Failed retrieving container catalog file", result.getExceptions().get(0));
+        }
+        return Optional.empty();
+    }
+
+    private static DefaultArtifact getCatalogArtifact(MavenProject reactorProject, String extension) {
+        return new DefaultArtifact(
+                reactorProject.getGroupId(),
+                reactorProject.getArtifactId(),
+                CATALOG_ARTIFACT_NAME,
+                extension,
+                reactorProject.getVersion()
+        );
     }
 
     private List<String> readCatalogContent(Path catalogPath, boolean local) throws MojoExecutionException {
@@ -125,6 +272,32 @@ public abstract class AbstractCatalogSupport extends AbstractPodmanMojo {
         return RepositoryUtils.toRepos(remoteArtifactRepositories);
     }
 
+    private PodmanSession getCatalogCacheSession() {
+        DefaultRepositorySystemSession cacheSession = new DefaultRepositorySystemSession(repositorySystemSession);
+        try {
+            getLog().debug("Using catalog cache @ " + catalogCacheDirectory.getAbsolutePath());
+            cacheSession.setLocalRepositoryManager(localRepositoryManagerFactory.newInstance(cacheSession, new LocalRepository(catalogCacheDirectory)));
+        } catch (NoLocalRepositoryManagerException e) {
+            getLog().warn("Failed to use catalog cache " + catalogCacheDirectory + ". Using a temporary repository instead.", e);
+            return getTempSession(true);
+        }
+        cacheSession.setReadOnly();
+
+        return new PodmanSession(cacheSession, null);
+    }
+
+    private void deleteTempRepository(File tempRepo) {
+        if (tempRepo == null) {
+            return;
+        }
+
+        try {
+            FileUtils.deleteDirectory(tempRepo);
+        } catch (IOException e) {
+            getLog().warn("Failed to cleanup temporary repository directory: " + tempRepo);
+        }
+    }
+
     protected PodmanSession getTempSession(boolean disableLocalRepo) {
         // Use a customized repository session, setup to force a few behaviors we like.
         DefaultRepositorySystemSession tempSession = new DefaultRepositorySystemSession(repositorySystemSession);
@@ -4,10 +4,20 @@ import nl.lexemmens.podman.config.image.batch.BatchImageConfiguration;
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.helper.AtEndRegistry;
+import nl.lexemmens.podman.helper.ExecutionMetricsWriter;
+import nl.lexemmens.podman.helper.ExecutionTraceWriter;
 import nl.lexemmens.podman.helper.ImageNameHelper;
 import nl.lexemmens.podman.service.ServiceHub;
 import nl.lexemmens.podman.service.ServiceHubFactory;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -17,9 +27,15 @@ import org.apache.maven.settings.Settings;
 import org.apache.maven.settings.crypto.SettingsDecrypter;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public abstract class AbstractPodmanMojo extends AbstractMojo {
 
@@ -35,6 +51,18 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     protected MavenProject project;
 
+    /**
+     * The Maven session, used to share results between the modules and goals of a build
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    protected MavenSession session;
+
+    /**
+     * The current execution of this goal
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution mojoExecution;
+
     /**
      * Holds the authentication data from Maven.
      */
@@ -93,6 +121,30 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
     @Parameter(property = "podman.fail.on.missing.containerfile", defaultValue = "true")
     protected boolean failOnMissingContainerfile;
 
+    /**
+     * The file to which the wall time, status and output volume of the executed commands are written, per command
+     * and per image, in JSON format. The metrics of all goals executed for a module are kept in this file.
+     */
+    @Parameter(property = "podman.metrics.file", defaultValue = "${project.build.directory}/" + PODMAN_DIRECTORY + "/metrics.json")
+    protected File metricsFile;
+
+    /**
+     * An optional file to which the same metrics are written in the Prometheus text format, e.g. a file in the
+     * directory of the textfile collector of the Prometheus node exporter. Not written by default. Modules may share
+     * this file, as every module only replaces its own series.
+     */
+    @Parameter(property = "podman.metrics.prometheusFile")
+    protected File prometheusMetricsFile;
+
+    /**
+     * An optional file to which a timeline of the execution is written in the trace event format, which can be loaded
+     * in Perfetto or chrome://tracing. It shows a span per phase, per image and per command on a track per thread.
+     * The timelines of all goals and modules that use the same file during a build are combined, replacing the timeline
+     * of a previous build. Not written by default.
+     */
+    @Parameter(property = "podman.trace.file")
+    protected File traceFile;
+
     @Component
     private MavenFileFilter mavenFileFilter;
 
@@ -107,6 +159,11 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
 
     protected final List<SingleImageConfiguration> resolvedImages;
 
+    /**
+     * Collects the metrics of the current execution of this goal
+     */
+    protected ExecutionMetrics metrics;
+
     /**
      * Constructor. Initializes this abstract class with a concrete base class
      */
@@ -118,15 +175,31 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
     public final void execute() throws MojoExecutionException {
         if (skip) {
             getLog().info("The execution of the podman-maven-plugin is skipped.");
+            onSkip();
             return;
         }
         if (skipGoal()) {
             getLog().info("The execution of this goal is skipped.");
+            onSkip();
             return;
         }
 
-        initConfigurations();
+        ExecutionTrace trace = traceFile == null ? null : ExecutionTrace.start();
+        try {
+            ExecutionTrace.inSpan(getGoalName(), "goal", this::executeGoal);
+        } finally {
+            if (trace != null) {
+                trace.stop();
+                new ExecutionTraceWriter(getLog()).write(project.getArtifactId(), trace, traceFile, SessionCache.forSession(session));
+            }
+        }
+    }
+
+    private void executeGoal() throws MojoExecutionException {
+        ExecutionTrace.inSpan("initialize", "phase", this::initConfigurations);
 
+        metrics = new ExecutionMetrics();
+        SessionCache sessionCache = SessionCache.forSession(session);
         ServiceHub hub = serviceHubFactory.createServiceHub(
                 getLog(),
                 project,
@@ -135,15 +208,38 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
                 skopeo,
                 settings,
                 settingsDecrypter,
-                mavenProjectHelper
+                mavenProjectHelper,
+                metrics,
+                sessionCache
         );
 
-        printPodmanVersion(hub);
-        executeInternal(hub);
+        try {
+            printPodmanVersion(hub, sessionCache);
+            executeInternal(hub);
+        } finally {
+            writeMetrics();
+        }
+    }
+
+    /**
+     * Writes the metrics of this execution of the goal. Called at the end of every execution, but may be called again
+     * to update the metrics when work of this execution is done later.
+     */
+    protected final void writeMetrics() {
+        if (metricsFile != null) {
+            new ExecutionMetricsWriter(getLog()).write(project.getArtifactId(), getGoalName(), metrics, metricsFile, prometheusMetricsFile);
+        }
+    }
+
+    private String getGoalName() {
+        // BuildMojo -> build
+        return getClass().getSimpleName().replaceFirst("Mojo$", "").toLowerCase(Locale.ROOT);
     }
 
-    private void printPodmanVersion(ServiceHub hub) throws MojoExecutionException {
-        if (getLog().isDebugEnabled()) {
+    private void printPodmanVersion(ServiceHub hub, SessionCache sessionCache) throws MojoExecutionException {
+        // The version only needs to be printed once per session for every Podman installation or service
+        String podmanKey = "podman-version:" + podman.getServiceUrl() + ":" + podman.getRoot() + ":" + podman.getRunRoot();
+        if (getLog().isDebugEnabled() && sessionCache.markDone(podmanKey)) {
             hub.getPodmanExecutorService().version();
         }
     }
@@ -229,6 +325,106 @@ public abstract class AbstractPodmanMojo extends AbstractMojo {
      */
     public abstract void executeInternal(ServiceHub hub) throws MojoExecutionException;
 
+    /**
+     * Called instead of {@link #executeInternal(ServiceHub)} when the execution of this goal is skipped
+     *
+     * @throws MojoExecutionException In case anything happens which prevents execution from continuing
+     */
+    protected void onSkip() throws MojoExecutionException {
+        // Nothing to do by default
+    }
+
+    /**
+     * Returns the ids of the projects in the reactor that execute the same goal as this execution, i.e. all projects
+     * when the goal was invoked from the command line and otherwise the projects that bind the goal in their build.
+     *
+     * @return The ids of the projects executing this goal, in reactor order
+     */
+    protected Set<String> getProjectsExecutingGoal() {
+        if (session == null || mojoExecution == null) {
+            return Collections.singleton(project.getId());
+        }
+
+        boolean invokedFromCommandLine = mojoExecution.getSource() == MojoExecution.Source.CLI;
+        String pluginKey = mojoExecution.getMojoDescriptor().getPluginDescriptor().getPluginLookupKey();
+        String goal = mojoExecution.getGoal();
+
+        Set<String> projects = new LinkedHashSet<>();
+        for (MavenProject reactorProject : session.getProjects()) {
+            if (invokedFromCommandLine || executesGoal(reactorProject, pluginKey, goal)) {
+                projects.add(reactorProject.getId());
+            }
+        }
+        return projects;
+    }
+
+    /**
+     * <p>
+     * Registers work that is deferred until all projects in the reactor that execute this goal have executed it, in
+     * every execution of the goal. See {@link AtEndRegistry}.
+     * </p>
+     * <p>
+     * When the last of these projects registers while other projects have finished without registering, nothing is
+     * processed and an exception is thrown, rather than silently leaving the deferred work undone.
+     * </p>
+     *
+     * @param work The deferred work of this project. May be null if this project has nothing to do.
+     * @param <T>  The type of the deferred work
+     * @return The work of all projects when the reactor is complete, or an empty list otherwise
+     * @throws MojoExecutionException In case projects that were expected to register have finished without registering
+     */
+    protected <T> List<T> registerAtEnd(T work) throws MojoExecutionException {
+        String goal = mojoExecution == null ? getClass().getSimpleName() : mojoExecution.getGoal();
+        AtEndRegistry<T> registry = SessionCache.forSession(session).get("at-end:" + goal, AtEndRegistry::new);
+
+        Set<String> expectedProjects = getProjectsExecutingGoal();
+        List<T> allWork = registry.register(project.getId(), work, expectedProjects);
+
+        List<String> orderedProjects = new ArrayList<>(expectedProjects);
+        boolean lastProject = orderedProjects.isEmpty() || Objects.equals(orderedProjects.get(orderedProjects.size() - 1), project.getId());
+        if (allWork.isEmpty() && lastProject) {
+            verifyPendingProjectsAreRunning(goal, registry.getPendingProjects(expectedProjects));
+        }
+        return allWork;
+    }
+
+    private void verifyPendingProjectsAreRunning(String goal, Set<String> pendingProjects) throws MojoExecutionException {
+        if (pendingProjects.isEmpty()) {
+            return;
+        }
+
+        // In a parallel build, the remaining projects may still be running. The last of them completes the reactor.
+        List<String> finishedProjects = new ArrayList<>();
+        for (MavenProject reactorProject : session.getProjects()) {
+            if (pendingProjects.contains(reactorProject.getId()) && session.getResult() != null && session.getResult().getBuildSummary(reactorProject) != null) {
+                finishedProjects.add(reactorProject.getId());
+            }
+        }
+
+        if (finishedProjects.isEmpty()) {
+            getLog().info("Waiting for " + String.join(", ", pendingProjects) + " to execute the " + goal + " goal.");
+            return;
+        }
+
+        String msg = "The deferred " + goal + " of the reactor cannot complete, because the following projects finished without executing the "
+                + goal + " goal: " + String.join(", ", finishedProjects);
+        getLog().error(msg);
+        throw new MojoExecutionException(msg);
+    }
+
+    private static boolean executesGoal(MavenProject reactorProject, String pluginKey, String goal) {
+        for (Plugin plugin : reactorProject.getBuildPlugins()) {
+            if (pluginKey.equals(plugin.getKey())) {
+                for (PluginExecution execution : plugin.getExecutions()) {
+                    if (execution.getGoals().contains(goal)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Check if the execution of the mojo should be skipped
      *
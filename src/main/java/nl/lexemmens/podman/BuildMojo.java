@@ -1,8 +1,14 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.config.image.AbstractImageBuildConfiguration;
 import nl.lexemmens.podman.config.image.AbstractImageConfiguration;
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
-import nl.lexemmens.podman.helper.MultiStageBuildOutputHelper;
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.executor.ParallelTaskExecutor;
+import nl.lexemmens.podman.helper.BuildOutputCollector;
+import nl.lexemmens.podman.helper.ContainerCatalog;
+import nl.lexemmens.podman.helper.ImageDependencyHelper;
+import nl.lexemmens.podman.service.ImageFingerprintService;
 import nl.lexemmens.podman.service.ServiceHub;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -13,9 +19,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
@@ -25,7 +38,8 @@ import java.util.stream.Collectors;
 @Mojo(name = "build", defaultPhase = LifecyclePhase.INSTALL)
 public class BuildMojo extends AbstractPodmanMojo {
 
-    private final MultiStageBuildOutputHelper buildOutputHelper;
+    private static final String CACHE_REPOSITORY_SUFFIX = "-cache";
+
     /**
      * Indicates if building container images should be skipped
      */
@@ -37,39 +51,71 @@ public class BuildMojo extends AbstractPodmanMojo {
     @Parameter(property = "podman.skip.tag", defaultValue = "false")
     boolean skipTag;
     /**
-     * Indicates if attaching the container-catalog.txt file to the build should be skipped.
+     * Indicates if attaching the container-catalog.txt and container-catalog.json files to the build should be skipped.
      */
     @Parameter(property = "podman.skip.catalog", defaultValue = "false")
     boolean skipCatalog;
 
     /**
-     * Constructor
+     * The number of container images that may be built concurrently. Defaults to 1, which means that images
+     * are built one after another. Images that use another image of this build as base image are always built after
+     * that image.
      */
-    public BuildMojo() {
-        super();
+    @Parameter(property = "podman.build.threads", defaultValue = "1")
+    int buildThreads;
 
-        this.buildOutputHelper = new MultiStageBuildOutputHelper();
-    }
+    /**
+     * Indicates if building and tagging a container image should be skipped when none of its inputs (filtered
+     * Containerfile, build arguments, labels, build options, image names and the files in the build context) have
+     * changed since the last build and the image still exists locally. Images built with noCache or pullAlways are
+     * always built.
+     */
+    @Parameter(property = "podman.build.incremental", defaultValue = "false")
+    boolean incrementalBuild;
+
+    /**
+     * Indicates if the images of all modules in the reactor should be built together at the end of the reactor build,
+     * similar to deployAtEnd of the Maven Deploy Plugin. Every module then only filters its Containerfiles, after
+     * which the last module builds the images of all modules in a single pool of podman.build.threads threads,
+     * respecting the dependencies between images of different modules. Catalogs are attached once the images of a
+     * module have been built, so this option should be combined with installAtEnd and deployAtEnd.
+     */
+    @Parameter(property = "podman.build.atEnd", defaultValue = "false")
+    boolean buildAtEnd;
+
+    // Images are built concurrently
+    private final Map<SingleImageConfiguration, Long> buildDurations = Collections.synchronizedMap(new IdentityHashMap<>());
 
     @Override
     public void executeInternal(ServiceHub hub) throws MojoExecutionException {
         checkAuthentication(hub);
 
+        List<SingleImageConfiguration> imagesToBuild = new ArrayList<>();
         for (SingleImageConfiguration image : resolvedImages) {
-            if (!image.isValid()) {
+            if (image.isValid()) {
+                imagesToBuild.add(image);
+            } else {
                 getLog().warn("Skipping build of container image with name " + image.getImageName()
                         + ". Configuration is not valid for this module!");
-                continue;
             }
+        }
 
+        // All Containerfiles are filtered up front, so that the base images of every image are known before any build starts.
+        for (SingleImageConfiguration image : imagesToBuild) {
             decorateContainerfile(image, hub);
-            buildContainerImage(image, hub);
-            tagContainerImage(image, hub);
-
-            getLog().info("Built container image.");
         }
 
-        catalogContainers(resolvedImages, hub);
+        DeferredBuild build = new DeferredBuild(this, hub, imagesToBuild);
+        if (buildAtEnd) {
+            List<DeferredBuild> deferredBuilds = registerAtEnd(build);
+            if (deferredBuilds.isEmpty()) {
+                getLog().info("Deferring the build of " + imagesToBuild.size() + " container image(s) until the end of the reactor build.");
+            } else {
+                buildImages(deferredBuilds);
+            }
+        } else {
+            buildImages(Collections.singletonList(build));
+        }
     }
 
     @Override
@@ -77,27 +123,229 @@ public class BuildMojo extends AbstractPodmanMojo {
         return skipBuild;
     }
 
+    @Override
+    protected void onSkip() throws MojoExecutionException {
+        // A skipped module must still register, so that the reactor is known to be complete
+        if (buildAtEnd) {
+            List<DeferredBuild> deferredBuilds = this.<DeferredBuild>registerAtEnd(null);
+            if (!deferredBuilds.isEmpty()) {
+                buildImages(deferredBuilds);
+            }
+        }
+    }
+
+    private void buildImages(List<DeferredBuild> builds) throws MojoExecutionException {
+        List<SingleImageConfiguration> imagesToBuild = new ArrayList<>();
+        Map<SingleImageConfiguration, DeferredBuild> buildPerImage = new IdentityHashMap<>();
+        int threads = buildThreads;
+        for (DeferredBuild build : builds) {
+            imagesToBuild.addAll(build.images);
+            build.images.forEach(image -> buildPerImage.put(image, build));
+            threads = Math.max(threads, build.mojo.buildThreads);
+        }
+
+        if (threads > 1 && imagesToBuild.size() > 1) {
+            // The output of builds running in parallel is interleaved
+            imagesToBuild.forEach(image -> image.getBuild().setOutputPrefix("[" + describe(image) + "] "));
+        }
+
+        if (builds.size() > 1) {
+            getLog().info("Building " + imagesToBuild.size() + " container image(s) of " + builds.size() + " modules.");
+        }
+
+        // Every module may push to its own registry
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> baseImages = new ImageDependencyHelper(getLog(),
+                (image, imageName) -> buildPerImage.get(image).mojo.getFullImageNameWithPushRegistry(imageName)).determineDependencies(imagesToBuild);
+
+        try {
+            new ParallelTaskExecutor(getLog(), threads, "podman-build")
+                    .execute(imagesToBuild, baseImages, BuildMojo::describe, image -> {
+                        DeferredBuild build = buildPerImage.get(image);
+                        build.mojo.metrics.forImage(image.getImageName(), () -> build.mojo.buildImage(image, baseImages.get(image), build.hub));
+                    });
+
+            for (DeferredBuild build : builds) {
+                // Always catalog in the order of the configuration, regardless of the order in which the images were built.
+                ExecutionTrace.inSpan("catalog", "phase", () -> build.mojo.catalogContainers(build.mojo.resolvedImages, build.hub));
+            }
+        } finally {
+            // The metrics of the current module are written when its execution ends
+            for (DeferredBuild build : builds) {
+                if (build.mojo != this) {
+                    build.mojo.writeMetrics();
+                }
+            }
+        }
+    }
+
+    private void buildImage(SingleImageConfiguration image, List<SingleImageConfiguration> baseImages, ServiceHub hub) throws MojoExecutionException {
+        String fingerprint = null;
+        if (incrementalBuild && hub.getImageFingerprintService().isFingerprintSupported(image)) {
+            fingerprint = hub.getImageFingerprintService().fingerprint(image, getImageIds(baseImages));
+            if (reusePreviousBuild(image, fingerprint, hub)) {
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        buildContainerImage(image, hub);
+        ExecutionTrace.inSpan("tag", "phase", () -> tagContainerImage(image, hub));
+        buildDurations.put(image, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (fingerprint != null) {
+            hub.getImageFingerprintService().recordBuild(image, fingerprint);
+        }
+
+        getLog().info("Built container image.");
+    }
+
+    private boolean reusePreviousBuild(SingleImageConfiguration image, String fingerprint, ServiceHub hub) throws MojoExecutionException {
+        Optional<ImageFingerprintService.BuildRecord> buildRecord = hub.getImageFingerprintService().findBuildRecord(image, fingerprint);
+        if (!buildRecord.isPresent()) {
+            return false;
+        }
+
+        List<String> requiredImages = new ArrayList<>();
+        requiredImages.add(buildRecord.get().getImageId());
+        requiredImages.addAll(buildRecord.get().getImageHashPerStage().values());
+        for (String requiredImage : requiredImages) {
+            if (!hub.getPodmanExecutorService().imageExists(requiredImage)) {
+                getLog().info("Inputs of " + describe(image) + " are unchanged, but image " + requiredImage + " no longer exists locally.");
+                return false;
+            }
+        }
+
+        image.setFinalImageHash(buildRecord.get().getImageId());
+        image.getImageHashPerStage().putAll(buildRecord.get().getImageHashPerStage());
+        if (!skipTag) {
+            retagMovedTags(image, hub);
+        }
+
+        getLog().info("Container image " + describe(image) + " is up to date (" + buildRecord.get().getImageId() + "). Skipping build and tag.");
+        return true;
+    }
+
+    // Tags may have been moved to another image outside of Maven, e.g. by building or tagging manually
+    private void retagMovedTags(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
+        Map<String, List<String>> tagsPerImageId = new LinkedHashMap<>();
+        if (image.getBuild().isMultistageContainerFile() && image.useCustomImageNameForMultiStageContainerfile()) {
+            for (Map.Entry<String, String> stageImage : image.getImageHashPerStage().entrySet()) {
+                for (String imageName : image.getImageNamesByStage(stageImage.getKey())) {
+                    tagsPerImageId.computeIfAbsent(stageImage.getValue(), imageId -> new ArrayList<>()).add(getFullImageNameWithPushRegistry(imageName));
+                }
+            }
+        } else if (!image.getBuild().getAllTags().isEmpty()) {
+            for (String imageName : image.getImageNames()) {
+                tagsPerImageId.computeIfAbsent(image.getFinalImageHash().get(), imageId -> new ArrayList<>()).add(getFullImageNameWithPushRegistry(imageName));
+            }
+        }
+
+        for (Map.Entry<String, List<String>> imageTags : tagsPerImageId.entrySet()) {
+            List<String> movedTags = new ArrayList<>();
+            for (String fullImageName : imageTags.getValue()) {
+                Optional<String> currentImageId = hub.getPodmanExecutorService().getImageId(fullImageName);
+                if (!currentImageId.isPresent() || !isSameImageId(currentImageId.get(), imageTags.getKey())) {
+                    getLog().info("Container image " + fullImageName + " no longer refers to " + imageTags.getKey() + ". Tagging it again.");
+                    movedTags.add(fullImageName);
+                }
+            }
+
+            if (!movedTags.isEmpty()) {
+                hub.getPodmanExecutorService().tag(imageTags.getKey(), movedTags);
+            }
+        }
+    }
+
+    // The build output may contain abbreviated IDs
+    private static boolean isSameImageId(String imageId, String otherImageId) {
+        String id = imageId.replaceFirst("^sha256:", "");
+        String otherId = otherImageId.replaceFirst("^sha256:", "");
+        return !id.isEmpty() && !otherId.isEmpty() && (id.startsWith(otherId) || otherId.startsWith(id));
+    }
+
+    private static List<String> getImageIds(List<SingleImageConfiguration> images) {
+        List<String> imageIds = new ArrayList<>();
+        for (SingleImageConfiguration image : images) {
+            image.getFinalImageHash().ifPresent(imageIds::add);
+        }
+        return imageIds;
+    }
+
+    private static String describe(SingleImageConfiguration image) {
+        if (image.getImageName() == null) {
+            return image.getBuild().getSourceContainerFileDir().toString();
+        }
+        return image.getImageName();
+    }
+
     private void decorateContainerfile(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
         getLog().info("Filtering Containerfile...");
-        hub.getContainerfileDecorator().decorateContainerfile(image);
+        ExecutionTrace.inSpan("decorate " + describe(image), "phase", () -> hub.getContainerfileDecorator().decorateContainerfile(image));
     }
 
     private void buildContainerImage(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
         getLog().info("Setting security context...");
-        hub.getSecurityContextService().setSecurityContext();
+        ExecutionTrace.inSpan("selinux context", "phase", () -> hub.getSecurityContextService().setSecurityContext());
 
-        getLog().info("Building container image...");
-        List<String> processOutput = hub.getPodmanExecutorService().build(image);
+        if (image.getBuild().isRemoteCache()) {
+            setDefaultCacheRepository(image);
+        }
 
-        // Read the final image hash
-        String finalImageHash = processOutput.get(processOutput.size() - 1);
-        getLog().debug("Determined final image hash as " + finalImageHash);
-        image.setFinalImageHash(finalImageHash);
+        if (image.getBuild().isStageContext()) {
+            ExecutionTrace.inSpan("stage context", "phase", () -> hub.getBuildContextStager().stageContext(image));
+        }
+
+        getLog().info("Building container image...");
+        BuildOutputCollector buildOutput = new BuildOutputCollector(getLog(), image);
+        ExecutionTrace.inSpan("build", "phase", () -> hub.getPodmanExecutorService().build(image, getBuildTimeTags(image), buildOutput));
 
         if (image.getBuild().isMultistageContainerFile()) {
             getLog().info("Detected multistage Containerfile...");
-            buildOutputHelper.recordImageHashes(getLog(), image, processOutput);
         }
+
+        // Read the final image hash
+        Optional<String> finalImageHash = buildOutput.complete();
+        if (!finalImageHash.isPresent()) {
+            String msg = "Unable to determine the image hash, as the build of " + describe(image) + " did not produce any output.";
+            getLog().error(msg);
+            throw new MojoExecutionException(msg);
+        }
+
+        getLog().debug("Determined final image hash as " + finalImageHash.get());
+        image.setFinalImageHash(finalImageHash.get());
+    }
+
+    private void setDefaultCacheRepository(SingleImageConfiguration image) {
+        AbstractImageBuildConfiguration build = image.getBuild();
+        if (!build.getCacheFrom().isEmpty() && build.getCacheTo().isPresent()) {
+            return;
+        }
+
+        if (pushRegistry == null || image.getImageName() == null) {
+            getLog().warn("Unable to determine the remote cache repository of " + describe(image) + ". Configure a pushRegistry and image name, or cacheFrom and cacheTo.");
+            return;
+        }
+
+        String cacheRepository = getFullImageNameWithPushRegistry(image.getImageName() + CACHE_REPOSITORY_SUFFIX);
+        if (build.getCacheFrom().isEmpty()) {
+            build.setCacheFrom(new String[]{cacheRepository});
+        }
+        if (!build.getCacheTo().isPresent()) {
+            build.setCacheTo(cacheRepository);
+        }
+        getLog().info("Using remote layer cache " + cacheRepository + " for " + describe(image));
+    }
+
+    private List<String> getBuildTimeTags(SingleImageConfiguration image) {
+        // Images of individual stages can only be tagged once their hashes are known, i.e. after the build
+        if (skipTag || image.getBuild().getAllTags().isEmpty()
+                || image.getBuild().isMultistageContainerFile() && image.useCustomImageNameForMultiStageContainerfile()) {
+            return Collections.emptyList();
+        }
+
+        return image.getImageNames().stream()
+                .map(this::getFullImageNameWithPushRegistry)
+                .collect(Collectors.toList());
     }
 
     private void tagContainerImage(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
@@ -115,9 +363,9 @@ public class BuildMojo extends AbstractPodmanMojo {
             tagImagesOfMultiStageContainerfile(image, hub);
         } else if (image.getBuild().isMultistageContainerFile()) {
             getLog().warn("Missing container names for multistage Containerfile. Falling back to tagging the final container image.");
-            tagFinalImage(image, hub);
+            tagFinalImage(image);
         } else {
-            tagFinalImage(image, hub);
+            tagFinalImage(image);
         }
     }
 
@@ -128,26 +376,25 @@ public class BuildMojo extends AbstractPodmanMojo {
             if (imageNamesByStage.isEmpty()) {
                 getLog().warn("No image name configured for build stage: " + stageImage.getKey() + ". Image " + stageImage.getValue() + " not tagged!");
             } else {
+                List<String> fullImageNames = new ArrayList<>();
                 for (String imageName : imageNamesByStage) {
                     String fullImageName = getFullImageNameWithPushRegistry(imageName);
 
                     getLog().info("Tagging container image " + stageImage.getValue() + " from stage " + stageImage.getKey() + " as " + fullImageName);
-
-                    hub.getPodmanExecutorService().tag(stageImage.getValue(), fullImageName);
+                    fullImageNames.add(fullImageName);
                 }
+
+                hub.getPodmanExecutorService().tag(stageImage.getValue(), fullImageNames);
             }
         }
     }
 
-    private void tagFinalImage(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
+    private void tagFinalImage(SingleImageConfiguration image) {
+        // The final image is tagged by the build itself, see getBuildTimeTags
         if (image.getFinalImageHash().isPresent()) {
             String imageHash = image.getFinalImageHash().get();
             for (String imageNameWithTag : image.getImageNames()) {
-                String fullImageName = getFullImageNameWithPushRegistry(imageNameWithTag);
-
-                getLog().info("Tagging container image " + imageHash + " as " + fullImageName);
-
-                hub.getPodmanExecutorService().tag(imageHash, fullImageName);
+                getLog().info("Tagged container image " + imageHash + " as " + getFullImageNameWithPushRegistry(imageNameWithTag));
             }
         } else {
             getLog().info("No image hash available. Skipping tagging container image.");
@@ -177,7 +424,67 @@ public class BuildMojo extends AbstractPodmanMojo {
 
             getLog().info("Attaching catalog artifact: " + catalogPath);
             hub.getMavenProjectHelper().attachArtifact(project, "txt", CATALOG_ARTIFACT_NAME, catalogPath.toFile());
+
+            Path structuredCatalogPath = Paths.get(project.getBuild().getDirectory(), String.format("%s.json", CATALOG_ARTIFACT_NAME));
+            getStructuredContainerCatalog(images, hub, structuredCatalogPath).write(structuredCatalogPath);
+
+            getLog().info("Attaching catalog artifact: " + structuredCatalogPath);
+            hub.getMavenProjectHelper().attachArtifact(project, "json", CATALOG_ARTIFACT_NAME, structuredCatalogPath.toFile());
+        }
+    }
+
+    private ContainerCatalog getStructuredContainerCatalog(List<SingleImageConfiguration> images, ServiceHub hub, Path catalogPath) {
+        // Digests of images that have not been rebuilt remain valid
+        ContainerCatalog previousCatalog = null;
+        try {
+            previousCatalog = ContainerCatalog.read(catalogPath).orElse(null);
+        } catch (MojoExecutionException e) {
+            getLog().debug("Ignoring previous container catalog: " + e.getMessage());
+        }
+
+        ContainerCatalog catalog = new ContainerCatalog(project.getGroupId(), project.getArtifactId(), project.getVersion());
+        Map<String, Optional<Long>> sizePerImageId = new HashMap<>();
+        for (SingleImageConfiguration image : images) {
+            if (!image.isValid()) {
+                continue;
+            }
+
+            Long buildDuration = buildDurations.get(image);
+            for (ContainerCatalog.Entry entry : getCatalogEntries(image)) {
+                entry.setBuildDurationMillis(buildDuration);
+                if (entry.getImageId().isPresent()) {
+                    String imageId = entry.getImageId().get();
+                    entry.setSize(sizePerImageId.computeIfAbsent(imageId, id -> hub.getPodmanExecutorService().getImageSize(id)).orElse(null));
+
+                    if (previousCatalog != null) {
+                        previousCatalog.getImage(entry.getName())
+                                .filter(previousEntry -> previousEntry.getImageId().equals(entry.getImageId()))
+                                .flatMap(ContainerCatalog.Entry::getDigest)
+                                .ifPresent(entry::setDigest);
+                    }
+                }
+                catalog.add(entry);
+            }
+        }
+        return catalog;
+    }
+
+    private List<ContainerCatalog.Entry> getCatalogEntries(SingleImageConfiguration image) {
+        List<ContainerCatalog.Entry> entries = new ArrayList<>();
+        if (image.getBuild().isMultistageContainerFile() && image.useCustomImageNameForMultiStageContainerfile()) {
+            // Mirrors singleImageConfigurationToFullImageList, which has already warned about stages without a name
+            for (Map.Entry<String, String> stageImage : image.getImageHashPerStage().entrySet()) {
+                for (String imageName : image.getImageNamesByStage(stageImage.getKey())) {
+                    entries.add(new ContainerCatalog.Entry(getFullImageNameWithPushRegistry(imageName), stageImage.getValue(), stageImage.getKey()));
+                }
+            }
+        } else {
+            String imageId = image.getFinalImageHash().orElse(null);
+            for (String imageNameWithTag : image.getImageNames()) {
+                entries.add(new ContainerCatalog.Entry(getFullImageNameWithPushRegistry(imageNameWithTag), imageId, null));
+            }
         }
+        return entries;
     }
 
     private List<String> getContainerCatalog(List<SingleImageConfiguration> images) {
@@ -187,4 +494,16 @@ public class BuildMojo extends AbstractPodmanMojo {
                 .flatMap(Collection::stream)
                 .collect(Collectors.toList());
     }
+
+    private static final class DeferredBuild {
+        private final BuildMojo mojo;
+        private final ServiceHub hub;
+        private final List<SingleImageConfiguration> images;
+
+        private DeferredBuild(BuildMojo mojo, ServiceHub hub, List<SingleImageConfiguration> images) {
+            this.mojo = mojo;
+            this.hub = hub;
+            this.images = images;
+        }
+    }
 }
@@ -1,17 +1,30 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.config.skopeo.copy.SkopeoCopyConfiguration;
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.executor.ParallelTaskExecutor;
+import nl.lexemmens.podman.executor.RegistryConcurrencyLimiter;
+import nl.lexemmens.podman.executor.RetryPolicy;
+import nl.lexemmens.podman.helper.CopyReport;
+import nl.lexemmens.podman.helper.SkopeoSyncHelper;
 import nl.lexemmens.podman.service.ServiceHub;
-import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Executes a Skopeo copy command, that allows to copy containers from one location
@@ -42,35 +55,148 @@ public class CopyMojo extends AbstractCatalogSupport {
         return false;
     }
 
-    private void copyImage(ServiceHub hub, String sourceImage, String targetImage) throws MojoExecutionException {
+    private void copyImages(ServiceHub hub, Map<String, String> transformedImages, CopyReport report) throws MojoExecutionException {
+        SkopeoCopyConfiguration copyConfig = skopeo.getCopy();
+
+        Map<String, String> imagesToCopy = new LinkedHashMap<>();
+        for (Map.Entry<String, String> imageEntry : transformedImages.entrySet()) {
+            if (imageEntry.getKey().equals(imageEntry.getValue())) {
+                getLog().warn("Not copying image " + imageEntry.getKey() + ", because source and target are identical.");
+                report.skipped(imageEntry.getKey(), imageEntry.getValue(), "source and target are identical");
+            } else {
+                imagesToCopy.put(imageEntry.getKey(), imageEntry.getValue());
+            }
+        }
+
+        if (copyConfig.getSkipExisting()) {
+            imagesToCopy = removePresentImages(hub, imagesToCopy, report);
+        }
+
+        List<CopyTask> tasks = new ArrayList<>();
+        if (copyConfig.getSync()) {
+            SkopeoSyncHelper.SyncPlan syncPlan = new SkopeoSyncHelper(copyConfig.getSrcTlsVerify()).plan(imagesToCopy);
+            syncPlan.getSyncGroups().forEach((destination, images) -> tasks.add(new CopyTask(destination, images)));
+            syncPlan.getRemainingImages().forEach((source, target) -> tasks.add(new CopyTask(null, Collections.singletonMap(source, target))));
+        } else {
+            imagesToCopy.forEach((source, target) -> tasks.add(new CopyTask(null, Collections.singletonMap(source, target))));
+        }
+
+        RetryPolicy retryPolicy = new RetryPolicy(getLog(), copyConfig.getRetries(), copyConfig.getRetryDelay(), copyConfig.getRetryMaxDelay(), metrics);
+        RegistryConcurrencyLimiter registryLimiter = new RegistryConcurrencyLimiter(copyConfig.getThreadsPerRegistry());
+
+        new ParallelTaskExecutor(getLog(), copyConfig.getThreads(), "skopeo-copy").execute(tasks, CopyTask::toString, task -> metrics.forImage(task.toString(), () -> {
+            if (task.destination == null) {
+                Map.Entry<String, String> image = task.images.entrySet().iterator().next();
+                copyImage(hub, image.getKey(), image.getValue(), retryPolicy, registryLimiter, report);
+            } else {
+                syncImages(hub, task.destination, task.images, retryPolicy, registryLimiter, report);
+            }
+        }));
+    }
+
+    private Map<String, String> removePresentImages(ServiceHub hub, Map<String, String> images, CopyReport report) throws MojoExecutionException {
+        SkopeoCopyConfiguration copyConfig = skopeo.getCopy();
+        getLog().info("Determining digests of " + images.size() + " source and target images...");
+
+        // Digests are resolved once per image during this execution
+        Map<String, Optional<String>> sourceDigests = new ConcurrentHashMap<>();
+        Map<String, Optional<String>> targetDigests = new ConcurrentHashMap<>();
+        Set<String> presentImages = ConcurrentHashMap.newKeySet();
+
+        new ParallelTaskExecutor(getLog(), copyConfig.getThreads(), "skopeo-inspect").execute(new ArrayList<>(images.keySet()), Function.identity(), sourceImage -> {
+            String targetImage = images.get(sourceImage);
+            Optional<String> sourceDigest = sourceDigests.computeIfAbsent(sourceImage,
+                    image -> hub.getSkopeoExecutorService().getDigest(image, copyConfig.getSrcTlsVerify()));
+            if (!sourceDigest.isPresent()) {
+                return;
+            }
+
+            Optional<String> targetDigest = targetDigests.computeIfAbsent(targetImage,
+                    image -> hub.getSkopeoExecutorService().getDigest(image, copyConfig.getDestTlsVerify()));
+            if (sourceDigest.equals(targetDigest)) {
+                getLog().info(String.format("Image %s is already present as %s (%s). Skipping copy.", sourceImage, targetImage, sourceDigest.get()));
+                presentImages.add(sourceImage);
+            }
+        });
+
+        Map<String, String> remainingImages = new LinkedHashMap<>();
+        images.forEach((sourceImage, targetImage) -> {
+            if (presentImages.contains(sourceImage)) {
+                report.skipped(sourceImage, targetImage, "already present with digest " + sourceDigests.get(sourceImage).get());
+            } else {
+                remainingImages.put(sourceImage, targetImage);
+            }
+        });
+        return remainingImages;
+    }
+
+    private void copyImage(ServiceHub hub, String sourceImage, String targetImage, RetryPolicy retryPolicy,
+                           RegistryConcurrencyLimiter registryLimiter, CopyReport report) throws MojoExecutionException {
         getLog().info(String.format("Copying image %s to %s...", sourceImage, targetImage));
-        hub.getSkopeoExecutorService().copy(sourceImage, targetImage);
+        try {
+            retryPolicy.execute("copy image " + sourceImage,
+                    () -> registryLimiter.execute(targetImage,
+                            () -> ExecutionTrace.inSpan("copy", "phase", () -> hub.getSkopeoExecutorService().copy(sourceImage, targetImage))));
+        } catch (MojoExecutionException e) {
+            report.failed(sourceImage, targetImage, e.getMessage());
+            throw e;
+        }
+        report.copied(sourceImage, targetImage);
+    }
+
+    private void syncImages(ServiceHub hub, String destination, Map<String, String> images, RetryPolicy retryPolicy,
+                            RegistryConcurrencyLimiter registryLimiter, CopyReport report) throws MojoExecutionException {
+        getLog().info(String.format("Copying %d images to %s using skopeo sync...", images.size(), destination));
+
+        Path syncFile = null;
+        try {
+            syncFile = Files.createTempFile("skopeo-sync", ".yaml");
+            Files.write(syncFile, new SkopeoSyncHelper(skopeo.getCopy().getSrcTlsVerify()).toYaml(images.keySet()));
+
+            Path sourceFile = syncFile;
+            retryPolicy.execute("copy images to " + destination,
+                    () -> registryLimiter.execute(destination + "/",
+                            () -> ExecutionTrace.inSpan("sync", "phase", () -> hub.getSkopeoExecutorService().sync(sourceFile, destination))));
+        } catch (IOException | MojoExecutionException e) {
+            images.forEach((source, target) -> report.failed(source, target, e.getMessage()));
+            if (e instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e;
+            }
+            throw new MojoExecutionException("Failed to create skopeo sync file: " + e.getMessage(), e);
+        } finally {
+            deleteSyncFile(syncFile);
+        }
+
+        images.forEach(report::copied);
+    }
+
+    private void deleteSyncFile(Path syncFile) {
+        if (syncFile == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(syncFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to cleanup skopeo sync file: " + syncFile);
+        }
     }
 
     private void performCopyUsingCatalogFile(ServiceHub hub) throws MojoExecutionException {
         getLog().info("Using container-catalog.txt to perform Skopeo copy.");
 
-        // Use a customized repository session, setup to force a few behaviors we like.
-        PodmanSession tempSession = getTempSession(skopeo.getCopy().getDisableLocal());
-        File tempRepo = tempSession.repo;
-
-        List<String> cataloguedImages = readRemoteCatalog(tempSession.session);
+        List<String> cataloguedImages = readRemoteCatalog();
         if (cataloguedImages.isEmpty()) {
             getLog().info("Not copying container images, because no container-catalog.txt artifact was " +
                 "found.");
         } else {
             Map<String, String> transformedImages = performTransformation(cataloguedImages);
 
-            for (Map.Entry<String, String> imageEntry : transformedImages.entrySet()) {
-                copyImage(hub, imageEntry.getKey(), imageEntry.getValue());
-            }
-
-            if (skopeo.getCopy().getDisableLocal() && tempRepo != null) {
-                try {
-                    FileUtils.deleteDirectory(tempRepo);
-                } catch (IOException e) {
-                    getLog().warn("Failed to cleanup temporary repository directory: " + tempRepo);
-                }
+            CopyReport report = new CopyReport();
+            try {
+                copyImages(hub, transformedImages, report);
+            } finally {
+                report.log(getLog());
             }
         }
     }
@@ -80,7 +206,7 @@ public class CopyMojo extends AbstractCatalogSupport {
     }
 
     private Map<String, String> performTransformation(List<String> cataloguedImages) {
-        Map<String, String> transformedImages = new HashMap<>(cataloguedImages.size());
+        Map<String, String> transformedImages = new LinkedHashMap<>(cataloguedImages.size());
         for (String image : cataloguedImages) {
             transformedImages.put(
                     image,
@@ -89,4 +215,23 @@ public class CopyMojo extends AbstractCatalogSupport {
         }
         return transformedImages;
     }
+
+    /**
+     * Either a single image to copy or a group of images to copy using skopeo sync
+     */
+    private static final class CopyTask {
+
+        private final String destination;
+        private final Map<String, String> images;
+
+        private CopyTask(String destination, Map<String, String> images) {
+            this.destination = destination;
+            this.images = images;
+        }
+
+        @Override
+        public String toString() {
+            return destination == null ? images.keySet().iterator().next() : destination + " (skopeo sync)";
+        }
+    }
 }
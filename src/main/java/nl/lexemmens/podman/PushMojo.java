@@ -1,12 +1,25 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.executor.ParallelTaskExecutor;
+import nl.lexemmens.podman.executor.RegistryConcurrencyLimiter;
+import nl.lexemmens.podman.executor.RetryPolicy;
+import nl.lexemmens.podman.helper.ContainerCatalog;
 import nl.lexemmens.podman.service.ServiceHub;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * PushMojo for pushing container images to a registry/repository
@@ -33,6 +46,71 @@ public class PushMojo extends AbstractCatalogSupport {
     @Parameter(property = "podman.push.retries", defaultValue = "0", required = true)
     int retries;
 
+    /**
+     * The delay in milliseconds before the first retry of a failed push. The delay doubles with every next retry
+     * (up to {@link #retryMaxDelay}) and is randomised by up to half its value. A value of 0 retries immediately.
+     */
+    @Parameter(property = "podman.push.retryDelay", defaultValue = "1000")
+    long retryDelay;
+
+    /**
+     * The maximum delay in milliseconds between two attempts to push an image.
+     */
+    @Parameter(property = "podman.push.retryMaxDelay", defaultValue = "30000")
+    long retryMaxDelay;
+
+    /**
+     * The number of container images that may be pushed concurrently. Defaults to 1, which means that images are
+     * pushed one after another and the first failure stops the push. When pushing concurrently, every repository is
+     * pushed and all failures are reported together once the other pushes have completed, unless
+     * {@link #failFast} is enabled. In every case, the tags of the failing repository that were pushed before the
+     * failure remain published.
+     */
+    @Parameter(property = "podman.push.threads", defaultValue = "1")
+    int pushThreads;
+
+    /**
+     * Indicates if no further repositories should be pushed once a push has failed, when pushing concurrently.
+     * Pushes that are already in progress are still completed, so these may end up published. Defaults to false,
+     * which means that all repositories are pushed and the failures are reported together. Always enabled when
+     * pushing at the end of the reactor build.
+     */
+    @Parameter(property = "podman.push.failFast", defaultValue = "false")
+    boolean failFast;
+
+    /**
+     * The maximum number of container images that may be pushed concurrently to the same registry. A value of 0
+     * (the default) means only {@link #pushThreads} applies. When pushing at the end of the reactor build, the limit
+     * is shared by all modules that configure the same value.
+     */
+    @Parameter(property = "podman.push.threadsPerRegistry", defaultValue = "0")
+    int pushThreadsPerRegistry;
+
+    /**
+     * Indicates if the images of all modules in the reactor should be pushed together at the end of the reactor build,
+     * similar to deployAtEnd of the Maven Deploy Plugin. Every module then only contributes its container-catalog.txt,
+     * after which the last module pushes every image of the reactor once, using a single pool of podman.push.threads
+     * threads. Nothing is pushed when the build of any module has failed or when an image does not exist locally.
+     * Retries and the limit per registry are taken from the configuration of the module that catalogued the image.
+     * No further repositories are pushed once a push has failed, as described for podman.push.failFast, but a failing
+     * push can still leave the reactor partially published.
+     */
+    @Parameter(property = "podman.push.atEnd", defaultValue = "false")
+    boolean pushAtEnd;
+
+    /**
+     * Indicates if images that have already been pushed should be skipped. An image has been pushed when the
+     * container-catalog.json file records the digest of its manifest, which is kept by the build goal only as long as
+     * the image is not rebuilt. Defaults to false, which means every catalogued image is pushed.
+     * <p>
+     * The digests are recorded in the container-catalog.json file in the build directory. Because the push goal runs
+     * in the deploy phase, after the Maven Deploy Plugin by default, the deployed catalog only contains them when this
+     * goal is bound to an earlier phase, such as install.
+     * </p>
+     */
+    @Parameter(property = "podman.push.skipUnchanged", defaultValue = "false")
+    boolean skipUnchanged;
+
     @Override
     public void executeInternal(ServiceHub hub) throws MojoExecutionException {
         checkAuthentication(hub);
@@ -50,9 +128,18 @@ public class PushMojo extends AbstractCatalogSupport {
 
         if (cataloguedImages.isEmpty()) {
             getLog().info("Not pushing container images, because no container-catalog.txt file was found.");
-        } else {
-            pushContainerImages(hub, cataloguedImages);
-            getLog().info("All images have been successfully pushed to the registry");
+        }
+
+        DeferredPush push = cataloguedImages.isEmpty() ? null : new DeferredPush(this, hub, cataloguedImages, readLocalStructuredCatalog().orElse(null));
+        if (pushAtEnd) {
+            List<DeferredPush> deferredPushes = registerAtEnd(push);
+            if (!deferredPushes.isEmpty()) {
+                pushAtEnd(deferredPushes);
+            } else if (push != null) {
+                getLog().info("Deferring the push of " + cataloguedImages.size() + " container image(s) until the end of the reactor build.");
+            }
+        } else if (push != null) {
+            pushContainerImages(Collections.singletonList(push), failFast);
         }
     }
 
@@ -61,30 +148,120 @@ public class PushMojo extends AbstractCatalogSupport {
         return skipPush;
     }
 
-    private void pushContainerImages(ServiceHub hub, List<String> images) throws MojoExecutionException {
-        getLog().info("Pushing container images to registry ...");
+    @Override
+    protected void onSkip() throws MojoExecutionException {
+        // A skipped module must still register, so that the reactor is known to be complete
+        if (pushAtEnd) {
+            List<DeferredPush> deferredPushes = this.<DeferredPush>registerAtEnd(null);
+            if (!deferredPushes.isEmpty()) {
+                pushAtEnd(deferredPushes);
+            }
+        }
+    }
+
+    private void pushAtEnd(List<DeferredPush> pushes) throws MojoExecutionException {
+        try {
+            // Pushing nothing is better than publishing a random subset of the modules
+            if (session != null && session.getResult() != null && session.getResult().hasExceptions()) {
+                String msg = "Not pushing the container images of the reactor, because the build of one or more modules has failed.";
+                getLog().error(msg);
+                throw new MojoExecutionException(msg);
+            }
+
+            List<String> missingImages = new ArrayList<>();
+            for (DeferredPush push : pushes) {
+                push.images.stream()
+                        .filter(image -> !push.hub.getPodmanExecutorService().imageExists(image))
+                        .forEach(missingImages::add);
+            }
 
-        for (String fullImage : images) {
-            pushImage(hub, fullImage);
+            if (!missingImages.isEmpty()) {
+                String msg = "Not pushing the container images of the reactor, because the following images do not exist locally: " + String.join(", ", missingImages);
+                getLog().error(msg);
+                throw new MojoExecutionException(msg);
+            }
+
+            // Stop at the first failure, so that as little as possible of a failed reactor gets published
+            pushContainerImages(pushes, true);
+        } finally {
+            // The metrics of the current module are written when its execution ends
+            for (DeferredPush push : pushes) {
+                if (push.mojo != this) {
+                    push.mojo.writeMetrics();
+                }
+            }
         }
     }
 
-    private void pushImage(ServiceHub hub, String fullImageName) throws MojoExecutionException {
-        getLog().info("Pushing image: " + fullImageName + " to " + pushRegistry);
+    private void pushContainerImages(List<DeferredPush> pushes, boolean stopOnFailure) throws MojoExecutionException {
+        getLog().info("Pushing container images to registry ...");
 
-        for (int i = 0; i <= retries; i++) {
-            try {
-                hub.getPodmanExecutorService().push(fullImageName);
-                break;
-            } catch (MojoExecutionException e) {
-                if (i != retries) {
-                    getLog().warn("Failed to push image " + fullImageName + ", retrying...");
+        // Every image is pushed once, by the module that catalogued it first
+        Map<String, DeferredPush> pushPerImage = new LinkedHashMap<>();
+        int threads = pushThreads;
+        for (DeferredPush push : pushes) {
+            for (String image : push.images) {
+                if (push.mojo.skipUnchanged && push.getDigest(image).isPresent()) {
+                    getLog().info("Container image " + image + " has already been pushed (" + push.getDigest(image).get() + "). Skipping push.");
                 } else {
-                    throw e;
+                    pushPerImage.putIfAbsent(image, push);
                 }
             }
+            threads = Math.max(threads, push.mojo.pushThreads);
+        }
+
+        // The tags of a repository share their layers. Pushing them one after another lets the first push upload the
+        // layers, while the next pushes only find them present and upload a manifest.
+        List<List<String>> imagesPerRepository = new ArrayList<>(pushPerImage.keySet().stream()
+                .collect(Collectors.groupingBy(PushMojo::getRepository, LinkedHashMap::new, Collectors.toList()))
+                .values());
+
+        // Modules that configure the same limit share it, so that the limit holds across the reactor
+        Map<Integer, RegistryConcurrencyLimiter> registryLimiters = new HashMap<>();
+        Map<DeferredPush, RetryPolicy> retryPolicies = new IdentityHashMap<>();
+        for (DeferredPush push : pushes) {
+            PushMojo mojo = push.mojo;
+            retryPolicies.put(push, new RetryPolicy(mojo.getLog(), mojo.retries, mojo.retryDelay, mojo.retryMaxDelay, mojo.metrics));
+            registryLimiters.computeIfAbsent(mojo.pushThreadsPerRegistry, RegistryConcurrencyLimiter::new);
+        }
+
+        try {
+            new ParallelTaskExecutor(getLog(), threads, "podman-push", stopOnFailure)
+                    .execute(imagesPerRepository, images -> String.join(", ", images), images -> {
+                        for (String fullImageName : images) {
+                            DeferredPush push = pushPerImage.get(fullImageName);
+                            RetryPolicy retryPolicy = retryPolicies.get(push);
+                            RegistryConcurrencyLimiter registryLimiter = registryLimiters.get(push.mojo.pushThreadsPerRegistry);
+                            push.mojo.metrics.forImage(fullImageName, () -> push.mojo.pushImage(push, fullImageName, retryPolicy, registryLimiter));
+                        }
+                    });
+        } finally {
+            // Also records the digests of the images that were pushed before a push failed
+            for (DeferredPush push : pushes) {
+                push.mojo.writeStructuredCatalog(push.catalog);
+            }
         }
 
+        getLog().info("All images have been successfully pushed to the registry");
+    }
+
+    private void pushImage(DeferredPush push, String fullImageName, RetryPolicy retryPolicy, RegistryConcurrencyLimiter registryLimiter) throws MojoExecutionException {
+        ServiceHub hub = push.hub;
+        getLog().info("Pushing image: " + fullImageName + " to " + pushRegistry);
+
+        // The registry slot is released while waiting to retry, so other images can use it in the meantime
+        Optional<ContainerCatalog.Entry> catalogEntry = push.catalog == null ? Optional.empty() : push.catalog.getImage(fullImageName);
+        retryPolicy.execute("push image " + fullImageName,
+                () -> registryLimiter.execute(fullImageName,
+                        () -> ExecutionTrace.inSpan("push", "phase", () -> {
+                            if (catalogEntry.isPresent()) {
+                                // Only determine the digest when it can be recorded
+                                hub.getPodmanExecutorService().pushAndGetDigest(fullImageName).ifPresent(catalogEntry.get()::setDigest);
+                            } else {
+                                hub.getPodmanExecutorService().push(fullImageName);
+                            }
+                        })));
+
         if (deleteLocalImageAfterPush) {
             getLog().info("Removing image " + fullImageName + " from the local repository");
             hub.getPodmanExecutorService().removeLocalImage(fullImageName);
@@ -92,4 +269,45 @@ public class PushMojo extends AbstractCatalogSupport {
 
         getLog().info("Successfully pushed container image " + fullImageName + " to " + pushRegistry);
     }
+
+    private void writeStructuredCatalog(ContainerCatalog catalog) {
+        if (catalog == null) {
+            return;
+        }
+
+        try {
+            catalog.write(getLocalStructuredCatalogPath());
+        } catch (MojoExecutionException e) {
+            getLog().warn("Failed to record the digests of the pushed images: " + e.getMessage());
+        }
+    }
+
+    private static String getRepository(String fullImageName) {
+        int lastSlash = fullImageName.lastIndexOf('/');
+        int digest = fullImageName.indexOf('@', lastSlash + 1);
+        if (digest >= 0) {
+            return fullImageName.substring(0, digest);
+        }
+
+        int tag = fullImageName.indexOf(':', lastSlash + 1);
+        return tag < 0 ? fullImageName : fullImageName.substring(0, tag);
+    }
+
+    private static final class DeferredPush {
+        private final PushMojo mojo;
+        private final ServiceHub hub;
+        private final List<String> images;
+        private final ContainerCatalog catalog;
+
+        private DeferredPush(PushMojo mojo, ServiceHub hub, List<String> images, ContainerCatalog catalog) {
+            this.mojo = mojo;
+            this.hub = hub;
+            this.images = images;
+            this.catalog = catalog;
+        }
+
+        private Optional<String> getDigest(String image) {
+            return catalog == null ? Optional.empty() : catalog.getImage(image).flatMap(ContainerCatalog.Entry::getDigest);
+        }
+    }
 }
@@ -2,16 +2,35 @@ package nl.lexemmens.podman;
 
 import nl.lexemmens.podman.config.image.StageConfiguration;
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.enumeration.SaveCompression;
+import nl.lexemmens.podman.enumeration.SaveMode;
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.executor.ParallelTaskExecutor;
+import nl.lexemmens.podman.helper.CompressedArchiveWriter;
 import nl.lexemmens.podman.service.ServiceHub;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * SaveMojo for exporting container images to the file system
@@ -19,16 +38,66 @@ import java.nio.file.Path;
 @Mojo(name = "save", defaultPhase = LifecyclePhase.NONE)
 public class SaveMojo extends AbstractPodmanMojo {
 
+    private static final String OCI_INDEX_FILE = "index.json";
+    private static final String DIGEST_FIELD = "digest";
+    private static final String LOCAL_DIGEST_FIELD = "localDigest";
+    private static final String OCI_REF_NAME_ANNOTATION = "org.opencontainers.image.ref.name";
+
     @Parameter(property = "podman.skip.save", defaultValue = "false")
     boolean skipSave;
 
     @Parameter(property = "podman.save.directory", defaultValue = "${project.build.directory}/" + PODMAN_DIRECTORY)
     File targetDirectory;
 
+    /**
+     * The compression applied to the saved archives. Either GZIP (the default), ZSTD or NONE.
+     */
+    @Parameter(property = "podman.save.compression", defaultValue = "GZIP")
+    SaveCompression compression;
+
+    /**
+     * The compression level, ranging from 1 (fastest) to 9 (smallest archive). Defaults to 6.
+     */
+    @Parameter(property = "podman.save.compressionLevel", defaultValue = "6")
+    int compressionLevel;
+
+    /**
+     * Indicates whether a file containing the SHA-256 checksum of each archive (in the format of sha256sum) should be
+     * written next to the archive.
+     */
+    @Parameter(property = "podman.save.checksum", defaultValue = "true")
+    boolean writeChecksum;
+
+    /**
+     * The number of container images that may be saved concurrently. Defaults to 1, which means that images are
+     * saved one after another.
+     */
+    @Parameter(property = "podman.save.threads", defaultValue = "1")
+    int saveThreads;
+
+    /**
+     * Defines how the container images are exported. Either ARCHIVE_PER_IMAGE (the default), which saves every image
+     * into its own archive, MULTI_IMAGE_ARCHIVE, which saves all images into a single archive, or OCI_LAYOUT, which
+     * copies all images into a single OCI image layout directory. The latter two store layers that are shared by
+     * several images only once and write an index file that maps the image names to their digests. For a multi image
+     * archive, these are the digests of the images in local storage, recorded as localDigest, as the archive does not
+     * contain image manifests.
+     */
+    @Parameter(property = "podman.save.mode", defaultValue = "ARCHIVE_PER_IMAGE")
+    SaveMode mode;
+
+    /**
+     * The name of the archive or OCI image layout directory when images are not saved into an archive per image.
+     * Also used as the base name of the index file.
+     */
+    @Parameter(property = "podman.save.archiveName", defaultValue = "${project.artifactId}")
+    String archiveName;
+
     @Override
     public void executeInternal(ServiceHub hub) throws MojoExecutionException {
         checkAuthentication(hub);
 
+        List<String> imagesToExport = new ArrayList<>();
         for (SingleImageConfiguration image : resolvedImages) {
             if (!image.isValid()) {
                 getLog().warn("Skipping save of container image with name " + image.getImageName()
@@ -37,54 +106,167 @@ public class SaveMojo extends AbstractPodmanMojo {
             }
 
             // No need to check if the image names are empty here - this is checked by the image configuration.
-            exportContainerImages(image, hub);
+            imagesToExport.addAll(getImagesToExport(image));
         }
-    }
 
-    @Override
-    protected boolean skipGoal() {
-        return skipSave;
-    }
+        // Exporting the same image twice would write the same archive concurrently
+        imagesToExport = new ArrayList<>(new LinkedHashSet<>(imagesToExport));
+
+        if (imagesToExport.isEmpty()) {
+            return;
+        }
 
-    private void exportContainerImages(SingleImageConfiguration image, ServiceHub hub) throws MojoExecutionException {
         getLog().info("Exporting container images to local disk ...");
 
         Path targetPodmanDir = targetDirectory.toPath().normalize().toAbsolutePath();
         createTargetFolder(targetPodmanDir);
 
+        CompressedArchiveWriter archiveWriter = new CompressedArchiveWriter(getLog(), compression, compressionLevel, writeChecksum);
+        switch (mode) {
+            case MULTI_IMAGE_ARCHIVE:
+                exportToMultiImageArchive(hub, imagesToExport, targetPodmanDir, archiveWriter);
+                break;
+            case OCI_LAYOUT:
+                exportToOciLayout(hub, imagesToExport, targetPodmanDir);
+                break;
+            default:
+                new ParallelTaskExecutor(getLog(), saveThreads, "podman-save")
+                        .execute(imagesToExport, Function.identity(), imageNameWithTag -> metrics.forImage(imageNameWithTag,
+                                () -> doExportContainerImage(hub, imageNameWithTag, targetPodmanDir, archiveWriter)));
+                break;
+        }
+
+        getLog().info("Container images exported successfully.");
+    }
+
+    @Override
+    protected boolean skipGoal() {
+        return skipSave;
+    }
+
+    private List<String> getImagesToExport(SingleImageConfiguration image) {
         if (image.getBuild().isMultistageContainerFile() && image.useCustomImageNameForMultiStageContainerfile()) {
+            List<String> imagesToExport = new ArrayList<>();
             for (StageConfiguration stage : image.getStages()) {
-                for (String imageNameWithTag : image.getImageNamesByStage(stage.getName())) {
-                    doExportContainerImage(hub, imageNameWithTag, targetPodmanDir);
-                }
+                imagesToExport.addAll(image.getImageNamesByStage(stage.getName()));
             }
+            return imagesToExport;
         } else if (image.getBuild().isMultistageContainerFile()) {
             getLog().warn("Detected multistage Containerfile, but no custom image names have been specified. Falling back to exporting final image.");
+        }
+
+        // The image configuration cannot produce an empty list of image names.
+        return image.getImageNames();
+    }
+
+    private void doExportContainerImage(ServiceHub hub, String imageNameWithTag, Path targetPodmanDir, CompressedArchiveWriter archiveWriter) throws MojoExecutionException {
+        String fullImageName = getFullImageNameWithPushRegistry(imageNameWithTag);
+
+        String archiveName = String.format("%s.%s", normaliseImageName(imageNameWithTag), compression.getExtension());
+        Path saveImageTargetPath = targetPodmanDir.resolve(archiveName).normalize();
 
-            // The image configuration cannot produce an empty list of image names.
-            exportContainerImage(image, hub, targetPodmanDir);
-        } else {
-            // The image configuration cannot produce an empty list of image names.
-            exportContainerImage(image, hub, targetPodmanDir);
+        getLog().info("Exporting image " + imageNameWithTag + " to " + saveImageTargetPath);
+        ExecutionTrace.inSpan("save", "phase",
+                () -> archiveWriter.write(saveImageTargetPath, outputStream -> hub.getPodmanExecutorService().save(outputStream, fullImageName)));
+    }
+
+    private void exportToMultiImageArchive(ServiceHub hub, List<String> imagesToExport, Path targetPodmanDir, CompressedArchiveWriter archiveWriter) throws MojoExecutionException {
+        List<String> fullImageNames = new ArrayList<>();
+        for (String imageNameWithTag : imagesToExport) {
+            fullImageNames.add(getFullImageNameWithPushRegistry(imageNameWithTag));
         }
 
-        getLog().info("Container images exported successfully.");
+        Path archivePath = targetPodmanDir.resolve(String.format("%s.%s", archiveName, compression.getExtension())).normalize();
+        getLog().info("Exporting " + fullImageNames.size() + " images to " + archivePath);
+        ExecutionTrace.inSpan("save", "phase",
+                () -> archiveWriter.write(archivePath, outputStream -> hub.getPodmanExecutorService().save(outputStream, fullImageNames)));
+
+        // The archive does not contain image manifests, so only the digests of the images in local storage are known
+        Map<String, String> digests = new HashMap<>();
+        for (String fullImageName : fullImageNames) {
+            hub.getPodmanExecutorService().getImageDigest(fullImageName).ifPresent(digest -> digests.put(fullImageName, digest));
+        }
+        writeIndex(targetPodmanDir, archivePath, fullImageNames, LOCAL_DIGEST_FIELD, digests);
     }
 
-    private void exportContainerImage(SingleImageConfiguration image, ServiceHub hub, Path targetPodmanDir) throws MojoExecutionException {
-        for (String imageNameWithTag : image.getImageNames()) {
-            doExportContainerImage(hub, imageNameWithTag, targetPodmanDir);
+    private void exportToOciLayout(ServiceHub hub, List<String> imagesToExport, Path targetPodmanDir) throws MojoExecutionException {
+        Path layoutDir = targetPodmanDir.resolve(archiveName).normalize();
+        deleteDirectory(layoutDir);
+
+        // Images are copied one after another, because an OCI image layout does not support concurrent writers.
+        List<String> fullImageNames = new ArrayList<>();
+        for (String imageNameWithTag : imagesToExport) {
+            String fullImageName = getFullImageNameWithPushRegistry(imageNameWithTag);
+            getLog().info("Exporting image " + imageNameWithTag + " to OCI image layout " + layoutDir);
+            ExecutionTrace.inSpan("save " + fullImageName, "phase", () -> hub.getPodmanExecutorService().pushToOciLayout(fullImageName, layoutDir));
+            fullImageNames.add(fullImageName);
         }
+
+        writeIndex(targetPodmanDir, layoutDir, fullImageNames, DIGEST_FIELD, readOciLayoutDigests(layoutDir));
     }
 
-    private void doExportContainerImage(ServiceHub hub, String imageNameWithTag, Path targetPodmanDir) throws MojoExecutionException {
-        String fullImageName = getFullImageNameWithPushRegistry(imageNameWithTag);
+    private Map<String, String> readOciLayoutDigests(Path layoutDir) throws MojoExecutionException {
+        Path indexPath = layoutDir.resolve(OCI_INDEX_FILE);
+        Map<String, String> digests = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            JSONArray manifests = new JSONObject(new JSONTokener(reader)).optJSONArray("manifests");
+            if (manifests != null) {
+                for (int i = 0; i < manifests.length(); i++) {
+                    JSONObject manifest = manifests.getJSONObject(i);
+                    JSONObject annotations = manifest.optJSONObject("annotations");
+                    if (annotations != null && annotations.has(OCI_REF_NAME_ANNOTATION)) {
+                        digests.put(annotations.getString(OCI_REF_NAME_ANNOTATION), manifest.getString("digest"));
+                    }
+                }
+            }
+        } catch (IOException | JSONException e) {
+            String msg = "Failed to read the index of OCI image layout " + layoutDir + ": " + e.getMessage();
+            getLog().error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+        return digests;
+    }
 
-        String archiveName = String.format("%s.tar.gz", normaliseImageName(imageNameWithTag));
-        Path saveImageTargetPath = targetPodmanDir.resolve(archiveName).normalize();
+    private void writeIndex(Path targetPodmanDir, Path exportPath, List<String> fullImageNames, String digestField, Map<String, String> digests) throws MojoExecutionException {
+        JSONArray images = new JSONArray();
+        for (String fullImageName : fullImageNames) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", fullImageName);
 
-        getLog().info("Exporting image " + imageNameWithTag + " to " + saveImageTargetPath);
-        hub.getPodmanExecutorService().save(saveImageTargetPath.toString(), fullImageName);
+            String digest = digests.get(fullImageName);
+            if (digest != null) {
+                entry.put(digestField, digest);
+            } else {
+                getLog().warn("Unable to determine the digest of image " + fullImageName + ". It is listed in the index without a digest.");
+            }
+            images.put(new JSONObject(entry));
+        }
+
+        JSONObject index = new JSONObject();
+        index.put("mode", mode.name());
+        index.put("path", exportPath.getFileName().toString());
+        index.put("images", images);
+
+        Path indexPath = targetPodmanDir.resolve(archiveName + "-index.json");
+        try {
+            Files.write(indexPath, index.toString(2).getBytes(StandardCharsets.UTF_8));
+            getLog().info("Written index of exported images to " + indexPath);
+        } catch (IOException e) {
+            String msg = "Failed to write index file '" + indexPath + "'. An IOException occurred: " + e.getMessage();
+            getLog().error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+    }
+
+    private void deleteDirectory(Path directory) throws MojoExecutionException {
+        try {
+            // Removes images exported by previous runs. Does not fail if the directory does not exist.
+            FileUtils.deleteDirectory(directory.toFile());
+        } catch (IOException e) {
+            String msg = "Failed to delete directory '" + directory + "'. An IOException occurred: " + e.getMessage();
+            getLog().error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
     }
 
     private void createTargetFolder(Path targetPodmanDir) throws MojoExecutionException {
@@ -1,13 +1,17 @@
 package nl.lexemmens.podman.command;
 
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
+import nl.lexemmens.podman.executor.ExecutionTrace;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.zeroturnaround.exec.ProcessExecutor;
+import org.zeroturnaround.exec.stream.LogOutputStream;
 import org.zeroturnaround.exec.stream.slf4j.Slf4jStream;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -16,12 +20,13 @@ import java.util.List;
 public abstract class AbstractCommand implements Command {
 
     private static final File BASE_DIR = new File(".");
+    private static final List<String> EXECUTABLES_WITH_SUBCOMMANDS = Arrays.asList("podman", "buildah", "skopeo");
 
     protected final Log log;
 
     private final CommandExecutorDelegate delegate;
     private final File workDir;
-
+    private String outputPrefix;
 
     /**
      * Constructor. Creates a new instance of the command using the default working directory
@@ -45,6 +50,61 @@ public abstract class AbstractCommand implements Command {
 
     @Override
     public List<String> execute() throws MojoExecutionException {
+        ExecutionTrace.Span span = ExecutionTrace.span(getCommandName(getCommand()), "command");
+        try {
+            return delegate.executeCommand(createProcessExecutor());
+        } finally {
+            span.close();
+        }
+    }
+
+    @Override
+    public void execute(CommandOutputListener listener) throws MojoExecutionException {
+        ExecutionTrace.inSpan(getCommandName(getCommand()), "command", () -> delegate.executeCommand(createProcessExecutor(), listener));
+    }
+
+    @Override
+    public void execute(OutputStream outputStream) throws MojoExecutionException {
+        ExecutionTrace.inSpan(getCommandName(getCommand()), "command", () -> delegate.executeCommand(createProcessExecutor(), outputStream));
+    }
+
+    /**
+     * Returns the name of the executable of a command, followed by the subcommand for executables that have
+     * subcommands, e.g. <code>podman build</code>. Global options in between are skipped. Other arguments are left
+     * out, as they may contain credentials.
+     *
+     * @param command The command, starting with the executable
+     * @return The name of the command
+     */
+    public static String getCommandName(List<String> command) {
+        if (command == null || command.isEmpty()) {
+            return "unknown";
+        }
+
+        String executable = new File(command.get(0)).getName();
+        if (!EXECUTABLES_WITH_SUBCOMMANDS.contains(executable)) {
+            return executable;
+        }
+
+        return command.stream()
+                .skip(1)
+                .filter(argument -> !argument.startsWith("-"))
+                .findFirst()
+                .map(subCommand -> executable + " " + subCommand)
+                .orElse(executable);
+    }
+
+    /**
+     * Sets a prefix that is put in front of every line of output that is logged, so that the output of commands
+     * running in parallel can be told apart. By default, output is logged as is.
+     *
+     * @param outputPrefix The prefix of every line of output
+     */
+    protected void setOutputPrefix(String outputPrefix) {
+        this.outputPrefix = outputPrefix;
+    }
+
+    private ProcessExecutor createProcessExecutor() {
         String msg = String.format("Executing command '%s' from basedir %s", StringUtils.join(getCommand(), " "), BASE_DIR.getAbsolutePath());
         log.debug(msg);
         ProcessExecutor processExecutor = new ProcessExecutor()
@@ -61,7 +121,21 @@ public abstract class AbstractCommand implements Command {
             processExecutor.redirectError(Slf4jStream.of(getClass().getSimpleName()).asError());
         }
 
-        return delegate.executeCommand(processExecutor);
+        if (outputPrefix != null) {
+            processExecutor.redirectOutput(new LogOutputStream() {
+                @Override
+                protected void processLine(String line) {
+                    log.info(outputPrefix + line);
+                }
+            }).redirectError(new LogOutputStream() {
+                @Override
+                protected void processLine(String line) {
+                    log.error(outputPrefix + line);
+                }
+            });
+        }
+
+        return processExecutor;
     }
 
     /**
@@ -2,6 +2,7 @@ package nl.lexemmens.podman.command;
 
 import org.apache.maven.plugin.MojoExecutionException;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -17,4 +18,22 @@ public interface Command {
      */
     List<String> execute() throws MojoExecutionException;
 
+    /**
+     * Executes the command and passes every line of output to the provided listener as soon as it is available,
+     * instead of collecting all output in memory.
+     *
+     * @param listener The listener that receives the output lines
+     * @throws MojoExecutionException If the command execution fails
+     */
+    void execute(CommandOutputListener listener) throws MojoExecutionException;
+
+    /**
+     * Executes the command and writes its standard output, unaltered, to the provided stream. This is intended for
+     * commands that produce binary output. The stream is not closed.
+     *
+     * @param outputStream The stream that receives the standard output of the command
+     * @throws MojoExecutionException If the command execution fails
+     */
+    void execute(OutputStream outputStream) throws MojoExecutionException;
+
 }
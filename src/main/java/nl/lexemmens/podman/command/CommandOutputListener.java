@@ -0,0 +1,15 @@
+package nl.lexemmens.podman.command;
+
+/**
+ * Listener that receives the output of a command line by line, while the command is running.
+ */
+@FunctionalInterface
+public interface CommandOutputListener {
+
+    /**
+     * Invoked for every line the command writes to its standard output. Implementations should not throw exceptions.
+     *
+     * @param line The line, without line separator
+     */
+    void onLine(String line);
+}
@@ -6,18 +6,14 @@ import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.logging.Log;
 
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Properties;
-
-import static org.apache.commons.lang3.StringUtils.isEmpty;
+import java.util.TreeMap;
 
 /**
  * Implementation of the <code>podman build</code> command
  */
 public class PodmanBuildCommand extends AbstractPodmanCommand {
 
-    private static final String PODMAN_ARG_PREFIX = "podman.buildArg.";
     private static final String SQUASH_CMD = "--squash";
     private static final String SQUASH_ALL_CMD = "--squash-all";
     private static final String LAYERS_CMD = "--layers";
@@ -29,6 +25,11 @@ public class PodmanBuildCommand extends AbstractPodmanCommand {
     private static final String BUILD_ARG_CMD = "--build-arg";
     private static final String PLATFORM_CMD = "--platform";
     private static final String TARGET_STAGE_CMD = "--target";
+    private static final String TAG_CMD = "--tag";
+    private static final String LABEL_CMD = "--label";
+    private static final String CACHE_FROM_CMD = "--cache-from";
+    private static final String CACHE_TO_CMD = "--cache-to";
+    private static final String CACHE_TTL_CMD = "--cache-ttl";
     private static final String SUBCOMMAND = "build";
 
     private PodmanBuildCommand(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate) {
@@ -41,6 +42,7 @@ public class PodmanBuildCommand extends AbstractPodmanCommand {
     public static class Builder {
 
         private final PodmanBuildCommand command;
+        private String contextDir = ".";
 
         /**
          * Construct a new instance of this builder
@@ -161,33 +163,96 @@ public class PodmanBuildCommand extends AbstractPodmanCommand {
             return this;
         }
 
-        public Builder addBuildArgs(Map<String, String> args) {
-            Map<String, String> allBuildArgs = new HashMap<>(args);
-            allBuildArgs.putAll(getBuildArgsFromSystem());
+        /**
+         * Adds a name the resulting image should be tagged with
+         *
+         * @param fullImageName The full name of the image, including registry and tag
+         * @return This builder instance
+         */
+        public Builder addTag(String fullImageName) {
+            command.withOption(TAG_CMD, fullImageName);
+            return this;
+        }
 
+        /**
+         * Adds a repository to look for cached layers in
+         *
+         * @param repository The repository containing cached layers
+         * @return This builder instance
+         */
+        public Builder addCacheFrom(String repository) {
+            command.withOption(CACHE_FROM_CMD, repository);
+            return this;
+        }
 
-            for (Map.Entry<String, String> arg : allBuildArgs.entrySet()) {
-                command.withOption(BUILD_ARG_CMD, String.format("%s=%s", arg.getKey(), arg.getValue()));
-            }
+        /**
+         * Sets the repository the built layers should be pushed to, to be used as cache by subsequent builds
+         *
+         * @param repository The repository to push the layers to
+         * @return This builder instance
+         */
+        public Builder setCacheTo(String repository) {
+            command.withOption(CACHE_TO_CMD, repository);
             return this;
         }
 
-        private Map<String, String> getBuildArgsFromSystem() {
-            Map<String, String> buildArgsFromSystem = new HashMap<>();
-            Properties properties = System.getProperties();
-            for (Object keyObj : properties.keySet()) {
-                String key = (String) keyObj;
-                if (key.startsWith(PODMAN_ARG_PREFIX)) {
-                    String argKey = key.replaceFirst(PODMAN_ARG_PREFIX, "");
-                    String value = properties.getProperty(key);
+        /**
+         * Sets the maximum age of cached layers to use
+         *
+         * @param cacheTtl The maximum age, e.g. 168h
+         * @return This builder instance
+         */
+        public Builder setCacheTtl(String cacheTtl) {
+            command.withOption(CACHE_TTL_CMD, cacheTtl);
+            return this;
+        }
 
-                    if (!isEmpty(value)) {
-                        buildArgsFromSystem.put(argKey, value);
-                    }
-                }
+        /**
+         * Adds labels that should be applied to the resulting image
+         *
+         * @param labels The labels to apply
+         * @return This builder instance
+         */
+        public Builder addLabels(Map<String, String> labels) {
+            for (Map.Entry<String, String> label : new TreeMap<>(labels).entrySet()) {
+                command.withOption(LABEL_CMD, String.format("%s=%s", label.getKey(), label.getValue()));
             }
+            return this;
+        }
+
+        /**
+         * Sets the directory to use as build context. Defaults to the current directory.
+         *
+         * @param contextDir The directory to use as build context
+         * @return This builder instance
+         */
+        public Builder setContextDir(Path contextDir) {
+            this.contextDir = contextDir.toString();
+            return this;
+        }
 
-            return buildArgsFromSystem;
+        /**
+         * Sets the prefix of every line of build output that is logged. By default, the output is logged as is.
+         *
+         * @param outputPrefix The prefix of every line of build output
+         * @return This builder instance
+         */
+        public Builder setOutputPrefix(String outputPrefix) {
+            command.setOutputPrefix(outputPrefix);
+            return this;
+        }
+
+        /**
+         * Adds the provided build arguments
+         *
+         * @param args The build arguments, see {@link nl.lexemmens.podman.config.image.AbstractImageBuildConfiguration#getAllBuildArgs()}
+         * @return This builder instance
+         */
+        public Builder addBuildArgs(Map<String, String> args) {
+            for (Map.Entry<String, String> arg : args.entrySet()) {
+                command.withOption(BUILD_ARG_CMD, String.format("%s=%s", arg.getKey(), arg.getValue()));
+            }
+            return this;
         }
 
         /**
@@ -196,8 +261,8 @@ public class PodmanBuildCommand extends AbstractPodmanCommand {
          * @return The constructed command
          */
         public Command build() {
-            // Add current directory
-            command.withOption(".", null);
+            // Add the build context, which is the current directory unless specified otherwise
+            command.withOption(contextDir, null);
             return command;
         }
 
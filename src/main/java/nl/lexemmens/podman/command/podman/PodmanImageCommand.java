@@ -0,0 +1,65 @@
+package nl.lexemmens.podman.command.podman;
+
+import nl.lexemmens.podman.command.Command;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.executor.CommandExecutorDelegate;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Implementation of the <code>podman image</code> command
+ */
+public class PodmanImageCommand extends AbstractPodmanCommand {
+
+    private static final String SUBCOMMAND = "image";
+    private static final String EXISTS = "exists";
+    private static final String INSPECT = "inspect";
+    private static final String FORMAT_CMD = "--format";
+
+    private PodmanImageCommand(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate) {
+        super(log, podmanConfig, delegate, SUBCOMMAND, true);
+    }
+
+    /**
+     * Builder class for the Podman Image command
+     */
+    public static class Builder {
+
+        private final PodmanImageCommand command;
+
+        public Builder(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate) {
+            this.command = new PodmanImageCommand(log, podmanConfig, delegate);
+        }
+
+        /**
+         * Checks whether an image exists in local storage. The command exits with a non-zero exit code when the
+         * image does not exist.
+         *
+         * @param image The name or ID of the image
+         * @return This builder instance
+         */
+        public Builder exists(String image) {
+            command.withOption(EXISTS, null);
+            command.withOption(image, null);
+            return this;
+        }
+
+        /**
+         * Inspects an image in local storage, formatting the output using the provided Go template
+         *
+         * @param image  The name or ID of the image
+         * @param format The Go template to format the output with, e.g. <code>{{.Digest}}</code>
+         * @return This builder instance
+         */
+        public Builder inspect(String image, String format) {
+            command.withOption(INSPECT, null);
+            command.withOption(FORMAT_CMD, format);
+            command.withOption(image, null);
+            return this;
+        }
+
+        public Command build() {
+            return command;
+        }
+
+    }
+}
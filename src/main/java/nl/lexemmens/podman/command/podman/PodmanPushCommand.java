@@ -5,12 +5,15 @@ import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.logging.Log;
 
+import java.nio.file.Path;
+
 /**
  * Implementation of the <code>podman push</code> command
  */
 public class PodmanPushCommand extends AbstractPodmanCommand {
 
     private static final String SUBCOMMAND = "push";
+    private static final String DIGESTFILE_CMD = "--digestfile";
 
     private PodmanPushCommand(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate) {
         super(log, podmanConfig, delegate, SUBCOMMAND, false);
@@ -27,11 +30,34 @@ public class PodmanPushCommand extends AbstractPodmanCommand {
             this.command = new PodmanPushCommand(log, podmanConfig, delegate);
         }
 
+        /**
+         * Sets the file to write the digest of the pushed manifest to. Must be set before the image name.
+         *
+         * @param digestFile The file to write the digest to
+         * @return This builder instance
+         */
+        public Builder setDigestFile(Path digestFile) {
+            command.withOption(DIGESTFILE_CMD, digestFile.toString());
+            return this;
+        }
+
         public Builder setFullImageName(String fullImageName) {
             command.withOption(fullImageName, null);
             return this;
         }
 
+        /**
+         * Sets the destination to push to, including its transport, e.g. <code>oci:/path/to/layout:name</code>. When
+         * omitted, the image is pushed to the registry in its name. Must be set after the image name.
+         *
+         * @param destination The destination of the image
+         * @return This builder instance
+         */
+        public Builder setDestination(String destination) {
+            command.withOption(destination, null);
+            return this;
+        }
+
         public Command build() {
             return command;
         }
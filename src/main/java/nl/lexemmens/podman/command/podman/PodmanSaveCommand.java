@@ -5,6 +5,9 @@ import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.logging.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Implementation of the <code>podman save</code> command
  */
@@ -12,6 +15,8 @@ public class PodmanSaveCommand extends AbstractPodmanCommand {
 
     private static final String SAVE_FORMAT_CMD = "--format";
     private static final String OCI_ARCHIVE = "oci-archive";
+    private static final String DOCKER_ARCHIVE = "docker-archive";
+    private static final String MULTI_IMAGE_ARCHIVE_CMD = "--multi-image-archive";
     private static final String OUTPUT_CMD = "--output";
 
     private static final String SUBCOMMAND = "save";
@@ -26,23 +31,50 @@ public class PodmanSaveCommand extends AbstractPodmanCommand {
     public static class Builder {
 
         private final PodmanSaveCommand command;
+        private final List<String> fullImageNames = new ArrayList<>();
+        private String archiveName;
+        private boolean multiImageArchive;
 
         public Builder(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate) {
             this.command = new PodmanSaveCommand(log, podmanConfig, delegate);
-            this.command.withOption(SAVE_FORMAT_CMD, OCI_ARCHIVE);
         }
 
         public Builder setArchiveName(String archiveName) {
-            command.withOption(OUTPUT_CMD, archiveName);
+            this.archiveName = archiveName;
             return this;
         }
 
         public Builder setFullImageName(String fullImageName) {
-            command.withOption(fullImageName, null);
+            fullImageNames.add(fullImageName);
+            return this;
+        }
+
+        /**
+         * Saves all images into a single archive, in which layers shared by the images are stored only once. Podman
+         * only supports this for the docker-archive format.
+         *
+         * @param fullImageNames The images to save
+         * @return This builder instance
+         */
+        public Builder setMultiImageArchive(List<String> fullImageNames) {
+            this.multiImageArchive = true;
+            this.fullImageNames.addAll(fullImageNames);
             return this;
         }
 
         public Command build() {
+            if (multiImageArchive) {
+                command.withOption(SAVE_FORMAT_CMD, DOCKER_ARCHIVE);
+                command.withOption(MULTI_IMAGE_ARCHIVE_CMD, null);
+            } else {
+                command.withOption(SAVE_FORMAT_CMD, OCI_ARCHIVE);
+            }
+
+            if (archiveName != null) {
+                command.withOption(OUTPUT_CMD, archiveName);
+            }
+
+            fullImageNames.forEach(fullImageName -> command.withOption(fullImageName, null));
             return command;
         }
 
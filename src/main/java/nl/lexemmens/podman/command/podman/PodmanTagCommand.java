@@ -5,6 +5,8 @@ import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.logging.Log;
 
+import java.util.List;
+
 /**
  * Implementation of the <code>podman tag</code> command
  */
@@ -37,6 +39,17 @@ public class PodmanTagCommand extends AbstractPodmanCommand {
             return this;
         }
 
+        /**
+         * Sets all names the image should be tagged with, so that a single command tags the image with all of them.
+         *
+         * @param fullImageNames The full names of the image, including registry and tag
+         * @return This builder instance
+         */
+        public Builder setFullImageNames(List<String> fullImageNames) {
+            fullImageNames.forEach(this::setFullImageName);
+            return this;
+        }
+
         public Command build() {
             return command;
         }
@@ -0,0 +1,112 @@
+package nl.lexemmens.podman.command.skopeo;
+
+import nl.lexemmens.podman.command.AbstractCommand;
+import nl.lexemmens.podman.command.Command;
+import nl.lexemmens.podman.executor.CommandExecutorDelegate;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the <code>skopeo inspect</code> command
+ */
+public class SkopeoInspectCommand extends AbstractCommand {
+
+    private static final String TLS_VERIFY_CMD = "--tls-verify";
+    private static final String FORMAT_CMD = "--format";
+    private static final String NO_TAGS_CMD = "--no-tags";
+    private static final String IMAGE_PREFIX = "docker://";
+
+    private static final String BASE_COMMAND = "skopeo";
+
+    private final List<String> command;
+
+    private SkopeoInspectCommand(Log log, CommandExecutorDelegate delegate) {
+        super(log, delegate);
+        this.command = new ArrayList<>();
+        this.command.add(BASE_COMMAND);
+
+        withOption("inspect", null);
+    }
+
+    @Override
+    protected List<String> getCommand() {
+        return command;
+    }
+
+    @Override
+    protected boolean redirectError() {
+        return false;
+    }
+
+    /**
+     * Specifies a specific option to pass to the skopeo inspect command.
+     */
+    private void withOption(String option, String optionValue) {
+        final String subCommand;
+        if (optionValue == null) {
+            subCommand = option;
+        } else {
+            subCommand = String.format("%s=%s", option, optionValue);
+        }
+
+        command.add(subCommand);
+    }
+
+    /**
+     * Builder class for the Skopeo Inspect command
+     */
+    public static class Builder {
+
+        private final SkopeoInspectCommand command;
+
+        /**
+         * Constructor. Creates a new instance of the builder for the skopeo inspect command
+         */
+        public Builder(Log log, CommandExecutorDelegate delegate) {
+            this.command = new SkopeoInspectCommand(log, delegate);
+        }
+
+        /**
+         * Sets whether the TLS connection to the registry should be verified
+         */
+        public Builder setTlsVerify(boolean tlsVerify) {
+            command.withOption(TLS_VERIFY_CMD, "" + tlsVerify);
+            return this;
+        }
+
+        /**
+         * Sets the Go template used to format the output, e.g. <code>{{.Digest}}</code>
+         */
+        public Builder setFormat(String format) {
+            command.withOption(FORMAT_CMD, format);
+            return this;
+        }
+
+        /**
+         * Prevents skopeo from listing all tags of the repository, which takes one or more extra requests to the
+         * registry and is not needed to determine the digest of an image
+         */
+        public Builder setNoTags() {
+            command.withOption(NO_TAGS_CMD, null);
+            return this;
+        }
+
+        /**
+         * Sets the image to inspect. This must be the last option.
+         */
+        public Builder setImage(String fullImageName) {
+            command.withOption(IMAGE_PREFIX + fullImageName, null);
+            return this;
+        }
+
+        /**
+         * Builds the skopeo inspect command
+         */
+        public Command build() {
+            return command;
+        }
+
+    }
+}
@@ -0,0 +1,98 @@
+package nl.lexemmens.podman.command.stat;
+
+import nl.lexemmens.podman.command.AbstractCommand;
+import nl.lexemmens.podman.command.Command;
+import nl.lexemmens.podman.executor.CommandExecutorDelegate;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the Linux <code>stat</code> command.
+ */
+public class StatCommand extends AbstractCommand {
+
+    private static final String BASE_COMMAND = "stat";
+    private static final String SECURITY_CONTEXT_FORMAT = "%C";
+
+    private final List<String> command;
+
+    /**
+     * Private constructor
+     *
+     * @param log      The Maven log
+     * @param delegate The executor delegate
+     */
+    private StatCommand(Log log, CommandExecutorDelegate delegate) {
+        super(log, delegate);
+        this.command = new ArrayList<>();
+        this.command.add(BASE_COMMAND);
+    }
+
+    @Override
+    protected List<String> getCommand() {
+        return command;
+    }
+
+    @Override
+    protected boolean redirectError() {
+        return false;
+    }
+
+    protected void withOption(String option, String optionValue) {
+        command.add(option);
+        if (optionValue != null) {
+            command.add(optionValue);
+        }
+    }
+
+    /**
+     * Builder class to build an instance of this {@link StatCommand}
+     */
+    public static class Builder {
+
+        private final StatCommand command;
+
+        /**
+         * Create a new instance of this builder
+         *
+         * @param log      The Maven Log
+         * @param delegate The executor delegate
+         */
+        public Builder(Log log, CommandExecutorDelegate delegate) {
+            this.command = new StatCommand(log, delegate);
+        }
+
+        /**
+         * Prints only the SELinux security context of the files, e.g. <code>system_u:object_r:data_home_t:s0</code>
+         *
+         * @return this builder instance
+         */
+        public Builder withSecurityContextFormat() {
+            this.command.withOption("-c", SECURITY_CONTEXT_FORMAT);
+            return this;
+        }
+
+        /**
+         * Adds the file to print the status of
+         *
+         * @param file The file or directory
+         * @return this builder instance
+         */
+        public Builder withFile(String file) {
+            this.command.withOption(file, null);
+            return this;
+        }
+
+        /**
+         * Returns the constructed command
+         *
+         * @return The constructed command
+         */
+        public Command build() {
+            return command;
+        }
+
+    }
+}
@@ -1,6 +1,9 @@
 package nl.lexemmens.podman.config.image;
 
+import nl.lexemmens.podman.containerfile.Containerfile;
+import nl.lexemmens.podman.containerfile.ContainerfileParser;
 import nl.lexemmens.podman.enumeration.ContainerFormat;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -12,10 +15,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static nl.lexemmens.podman.enumeration.ContainerFormat.OCI;
 
@@ -25,19 +24,13 @@ import static nl.lexemmens.podman.enumeration.ContainerFormat.OCI;
  */
 public abstract class AbstractImageBuildConfiguration {
 
-    /**
-     * This is the regular expression to be used to determine a multistage Containerfile. For now we only support
-     * named stages.
-     */
-    protected static final Pattern MULTISTAGE_CONTAINERFILE_REGEX = Pattern.compile(
-            "(FROM\\s[a-zA-Z0-9./:_\\-${}]{0,255}\\s)([ASas]{2}\\s)([a-zA-Z0-9./:_\\-]{1,128})"
-    );
-
     /**
      * The default name of the Containerfile to build.
      */
     protected static final String DEFAULT_CONTAINERFILE = "Containerfile";
 
+    private static final String PODMAN_ARG_PREFIX = "podman.buildArg.";
+
     /**
      * Directory containing the Containerfile
      */
@@ -118,6 +111,12 @@ public abstract class AbstractImageBuildConfiguration {
     @Parameter
     protected ContainerFormat format;
 
+    /**
+     * Specifies how the labels are applied to the container image. Defaults to adding them to the Containerfile.
+     */
+    @Parameter
+    protected LabelMode labelMode;
+
     /**
      * Squash all of the image’s new layers into a single new layer; any preexisting layers are not squashed.
      * <p>
@@ -165,16 +164,77 @@ public abstract class AbstractImageBuildConfiguration {
     @Parameter
     protected String targetStage;
 
+    /**
+     * Whether a minimal build context should be staged for this image, containing only the files referenced by the
+     * COPY and ADD instructions of the Containerfile. Defaults to false, in which case the run directory is used.
+     */
+    @Parameter
+    protected boolean stageContext;
+
+    /**
+     * Whether a remote layer cache should be used. When set to true, <code>cacheFrom</code> and <code>cacheTo</code>
+     * default to a repository named after the image, with the suffix <code>-cache</code>, in the push registry.
+     */
+    @Parameter
+    protected boolean remoteCache;
+
+    /**
+     * Repositories to look for cached layers in. It is passed to the "--cache-from" option of podman.
+     *
+     * @see "https://docs.podman.io/en/latest/markdown/podman-build.1.html"
+     */
+    @Parameter
+    protected String[] cacheFrom;
+
+    /**
+     * Repository to push the built layers to, so they can be used as cache by subsequent builds. It is passed to the
+     * "--cache-to" option of podman.
+     *
+     * @see "https://docs.podman.io/en/latest/markdown/podman-build.1.html"
+     */
+    @Parameter
+    protected String cacheTo;
+
+    /**
+     * Limits the use of cached layers to layers that are not older than the specified duration, e.g. <code>168h</code>.
+     * It is passed to the "--cache-ttl" option of podman.
+     *
+     * @see "https://docs.podman.io/en/latest/markdown/podman-build.1.html"
+     */
+    @Parameter
+    protected String cacheTtl;
+
     /**
      * Will be set when this class is validated using the #initAndValidate() method
      */
     protected File outputDirectory;
 
+    /**
+     * Directory, relative to the output directory, in which the filtered Containerfile is written. Set for images that
+     * are resolved from a batch configuration, so that every image gets its own target Containerfile.
+     */
+    protected String targetContainerFileDir;
+
     /**
      * Will be set to true when the Containerfile is a multistage Containerfile.
      */
     private boolean isMultistageContainerFile;
 
+    /**
+     * The parsed source Containerfile. Will be set when this class is validated.
+     */
+    private Containerfile parsedContainerFile;
+
+    /**
+     * The directory containing the staged build context. Will be set when the build context is staged.
+     */
+    private Path stagedContextDir;
+
+    /**
+     * The prefix of every line of build output that is logged. Will be set when images are built in parallel.
+     */
+    private String outputPrefix;
+
     /**
      * Represents the validity of this configuration
      */
@@ -220,6 +280,10 @@ public abstract class AbstractImageBuildConfiguration {
             format = OCI;
         }
 
+        if (labelMode == null) {
+            labelMode = LabelMode.CONTAINERFILE;
+        }
+
         this.mavenProjectVersion = project.getVersion();
         this.outputDirectory = new File(project.getBuild().getDirectory());
 
@@ -259,7 +323,11 @@ public abstract class AbstractImageBuildConfiguration {
      * @return Returns a path to the target Containerfile
      */
     public Path getTargetContainerFile() {
-        return Paths.get(outputDirectory.toURI()).resolve(containerFile);
+        Path targetDirectory = Paths.get(outputDirectory.toURI());
+        if (targetContainerFileDir != null) {
+            targetDirectory = targetDirectory.resolve(targetContainerFileDir);
+        }
+        return targetDirectory.resolve(containerFile);
     }
 
     /**
@@ -304,12 +372,13 @@ public abstract class AbstractImageBuildConfiguration {
     }
 
     /**
-     * Returns the Pattern that is used to determine if a line matches a multi-stage Containerfile
+     * Returns the parsed source Containerfile, which contains its build stages
      *
-     * @return The pattern to determine if a line matches the expected pattern for a multi-stage Containerfile.
+     * @return The parsed Containerfile, or an empty Optional when this configuration has not been validated or there
+     * is no Containerfile
      */
-    public Pattern getMultistageContainerfilePattern() {
-        return MULTISTAGE_CONTAINERFILE_REGEX;
+    public Optional<Containerfile> getParsedContainerFile() {
+        return Optional.ofNullable(parsedContainerFile);
     }
 
     /**
@@ -387,29 +456,19 @@ public abstract class AbstractImageBuildConfiguration {
     }
 
     protected void determineBuildStages(Log log, Path fullContainerFilePath) throws MojoExecutionException {
-        boolean foundTargetStage = false;
-        try (Stream<String> containerFileStream = Files.lines(fullContainerFilePath)) {
-            List<String> content = containerFileStream.filter(c -> !c.matches("^\\s*#.*"))
-                                                      .collect(Collectors.toList());
-            for (String line : content) {
-                Matcher matcher = MULTISTAGE_CONTAINERFILE_REGEX.matcher(line);
-                if (matcher.find()) {
-                    isMultistageContainerFile = true;
-
-                    String stage = matcher.group(3);
-                    if (Objects.equals(stage, targetStage)) {
-                        foundTargetStage = true;
-                    }
-                    log.debug("Found a stage named: " + stage);
-                }
-            }
+        try {
+            parsedContainerFile = ContainerfileParser.parse(fullContainerFilePath);
         } catch (IOException e) {
             String msg = "Unable to determine if Containerfile is a multistage Containerfile.";
             log.error(msg, e);
             throw new MojoExecutionException(msg, e);
         }
 
-        if (targetStage != null  && isMultistageContainerFile && !foundTargetStage) {
+        List<String> stageNames = parsedContainerFile.getStageNames();
+        stageNames.forEach(stage -> log.debug("Found a stage named: " + stage));
+        isMultistageContainerFile = !stageNames.isEmpty();
+
+        if (targetStage != null && isMultistageContainerFile && !parsedContainerFile.getStage(targetStage).isPresent()) {
             String msg = String.format("Target stage '%s' was not found in the given Containerfile.", targetStage);
             log.error(msg);
             throw new MojoExecutionException(msg);
@@ -526,6 +585,24 @@ public abstract class AbstractImageBuildConfiguration {
         this.createLatestTag = createLatestTag;
     }
 
+    /**
+     * Returns how the labels are applied to the container image
+     *
+     * @return How the labels are applied to the container image
+     */
+    public LabelMode getLabelMode() {
+        return labelMode;
+    }
+
+    /**
+     * Sets how the labels are applied to the container image
+     *
+     * @param labelMode How the labels should be applied
+     */
+    public void setLabelMode(LabelMode labelMode) {
+        this.labelMode = labelMode;
+    }
+
     /**
      * The format of the container image to use.
      *
@@ -544,6 +621,15 @@ public abstract class AbstractImageBuildConfiguration {
         this.containerFileDir = containerFileDir;
     }
 
+    /**
+     * Sets the directory, relative to the output directory, in which the filtered Containerfile should be written.
+     *
+     * @param targetContainerFileDir The relative directory to set
+     */
+    public void setTargetContainerFileDir(String targetContainerFileDir) {
+        this.targetContainerFileDir = targetContainerFileDir;
+    }
+
     /**
      * Sets the final target stage to build.
      *
@@ -562,6 +648,28 @@ public abstract class AbstractImageBuildConfiguration {
         return args;
     }
 
+    /**
+     * Retrieves the build arguments that are provided to podman build: the configured build arguments, overridden by
+     * the <code>podman.buildArg.*</code> system properties that have a value.
+     *
+     * @return All build arguments to provide to podman build
+     */
+    public Map<String, String> getAllBuildArgs() {
+        Map<String, String> allBuildArgs = new HashMap<>();
+        if (args != null) {
+            allBuildArgs.putAll(args);
+        }
+
+        Properties properties = System.getProperties();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            if (key.startsWith(PODMAN_ARG_PREFIX) && value != null && !value.isEmpty()) {
+                allBuildArgs.put(key.substring(PODMAN_ARG_PREFIX.length()), value);
+            }
+        }
+        return allBuildArgs;
+    }
+
     /**
      * The build arguments to set for use during Podman build
      *
@@ -570,4 +678,134 @@ public abstract class AbstractImageBuildConfiguration {
     public void setArgs(Map<String, String> args) {
         this.args = args;
     }
+
+    /**
+     * Returns whether a minimal build context should be staged for this image
+     *
+     * @return true when a minimal build context should be staged
+     */
+    public boolean isStageContext() {
+        return stageContext;
+    }
+
+    /**
+     * Sets whether a minimal build context should be staged for this image
+     *
+     * @param stageContext Whether a minimal build context should be staged
+     */
+    public void setStageContext(boolean stageContext) {
+        this.stageContext = stageContext;
+    }
+
+    /**
+     * Returns the directory containing the staged build context, if the build context has been staged
+     *
+     * @return The directory containing the staged build context
+     */
+    public Optional<Path> getStagedContextDir() {
+        return Optional.ofNullable(stagedContextDir);
+    }
+
+    /**
+     * Sets the directory containing the staged build context, which is used as context directory instead of the run
+     * directory.
+     *
+     * @param stagedContextDir The directory containing the staged build context
+     */
+    public void setStagedContextDir(Path stagedContextDir) {
+        this.stagedContextDir = stagedContextDir;
+    }
+
+    /**
+     * Returns the prefix of every line of build output that is logged, if the output must be told apart from the
+     * output of other builds
+     *
+     * @return The prefix of every line of build output
+     */
+    public Optional<String> getOutputPrefix() {
+        return Optional.ofNullable(outputPrefix);
+    }
+
+    /**
+     * Sets the prefix of every line of build output that is logged, so that the output of builds running in parallel
+     * can be told apart.
+     *
+     * @param outputPrefix The prefix of every line of build output
+     */
+    public void setOutputPrefix(String outputPrefix) {
+        this.outputPrefix = outputPrefix;
+    }
+
+    /**
+     * Returns whether a remote layer cache should be used, in a repository derived from the push registry and the
+     * image name when no cache repositories are configured.
+     *
+     * @return true when a remote layer cache should be used
+     */
+    public boolean isRemoteCache() {
+        return remoteCache;
+    }
+
+    /**
+     * Sets whether a remote layer cache should be used
+     *
+     * @param remoteCache Whether a remote layer cache should be used
+     */
+    public void setRemoteCache(boolean remoteCache) {
+        this.remoteCache = remoteCache;
+    }
+
+    /**
+     * Returns the repositories to look for cached layers in
+     *
+     * @return The repositories to pass to the --cache-from option. May be empty.
+     */
+    public List<String> getCacheFrom() {
+        return cacheFrom == null ? Collections.emptyList() : Arrays.asList(cacheFrom);
+    }
+
+    /**
+     * Sets the repositories to look for cached layers in
+     *
+     * @param cacheFrom The repositories to set
+     */
+    public void setCacheFrom(String[] cacheFrom) {
+        this.cacheFrom = cacheFrom;
+    }
+
+    /**
+     * Returns the repository to push built layers to
+     *
+     * @return The repository to pass to the --cache-to option, if configured
+     */
+    public Optional<String> getCacheTo() {
+        return Optional.ofNullable(cacheTo);
+    }
+
+    /**
+     * Sets the repository to push built layers to
+     *
+     * @param cacheTo The repository to set
+     */
+    public void setCacheTo(String cacheTo) {
+        this.cacheTo = cacheTo;
+    }
+
+    /**
+     * Returns the maximum age of cached layers to use
+     *
+     * @return The duration to pass to the --cache-ttl option, if configured
+     */
+    public Optional<String> getCacheTtl() {
+        return Optional.ofNullable(cacheTtl);
+    }
+
+    /**
+     * Sets the maximum age of cached layers to use
+     *
+     * @param cacheTtl The duration to set, e.g. 168h
+     */
+    public void setCacheTtl(String cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
 }
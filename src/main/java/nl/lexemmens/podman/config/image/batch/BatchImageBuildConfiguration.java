@@ -1,38 +1,86 @@
 package nl.lexemmens.podman.config.image.batch;
 
 import nl.lexemmens.podman.config.image.AbstractImageBuildConfiguration;
+import nl.lexemmens.podman.helper.ContainerfileFinder;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Parameter;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Contains the configuration for batch image processing.
  */
 public class BatchImageBuildConfiguration extends AbstractImageBuildConfiguration {
 
+    private static final String INDEX_DIRECTORY = "podman/batch-index";
+
+    /**
+     * Glob patterns, relative to the {@link #containerFileDir}, that the path of a Containerfile must match one of in
+     * order to be built, e.g. <code>services/**</code>. By default, all Containerfiles are built.
+     */
+    @Parameter
+    protected String[] includes;
+
+    /**
+     * Glob patterns, relative to the {@link #containerFileDir}, of directories that should not be searched and
+     * Containerfiles that should not be built, e.g. <code>legacy</code> or <code>**&#47;examples</code>.
+     */
+    @Parameter
+    protected String[] excludes;
+
+    /**
+     * The maximum number of directory levels below the {@link #containerFileDir} to search for Containerfiles.
+     * 0 only searches the {@link #containerFileDir} itself. By default, all levels are searched.
+     */
+    @Parameter
+    protected Integer maxDepth;
+
     /**
-     * Takes the {@link #containerFileDir} and looks for Containerfiles in that directory.
+     * Whether directories that are well known not to contain Containerfiles to build, such as <code>target</code>,
+     * <code>.git</code> and <code>node_modules</code>, should be skipped when searching for Containerfiles.
+     * Defaults to true.
+     */
+    @Parameter
+    protected Boolean useDefaultExcludes;
+
+    /**
+     * The number of threads to search for Containerfiles with. Defaults to 1.
+     */
+    @Parameter
+    protected int discoveryThreads;
+
+    /**
+     * Takes the {@link #containerFileDir} and looks for Containerfiles in that directory, taking the includes,
+     * excludes and maximum depth into account. The directories searched are indexed in the output directory, so that
+     * a next search only needs to list the directories that have changed.
      *
+     * @param log Access to Maven's log system
      * @return A collection of Containefiles found. May be an empty list, but is never <code>null</code>
      * @throws MojoExecutionException In case an IOException occurs during the search.
      */
-    public List<Path> getAllContainerFiles() throws MojoExecutionException {
-        List<Path> allContainerFiles;
-        try (Stream<Path> pathStream = Files.walk(Paths.get(containerFileDir.toURI()))) {
-            allContainerFiles = pathStream.filter(Files::isRegularFile)
-                    .filter(path -> path.getFileName().toString().equals(containerFile))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new MojoExecutionException("Failed to find Containerfiles with name '" + containerFile + "' in directory " + containerFileDir, e);
-        }
+    public List<Path> getAllContainerFiles(Log log) throws MojoExecutionException {
+        return new ContainerfileFinder.Builder(log, containerFileDir.toPath(), containerFile)
+                .setIncludes(includes)
+                .setExcludes(excludes)
+                .setMaxDepth(maxDepth)
+                .setUseDefaultExcludes(useDefaultExcludes == null || useDefaultExcludes, outputDirectory == null ? null : outputDirectory.toPath())
+                .setIndexDirectory(outputDirectory == null ? null : outputDirectory.toPath().resolve(INDEX_DIRECTORY))
+                .setThreads(discoveryThreads)
+                .build()
+                .find();
+    }
 
-        return allContainerFiles;
+    /**
+     * Returns the directory containing the provided Containerfile, relative to the {@link #containerFileDir}.
+     *
+     * @param containerFile A Containerfile found by {@link #getAllContainerFiles(Log)}
+     * @return The relative directory. Empty when the Containerfile is located directly in the {@link #containerFileDir}
+     */
+    protected String getRelativeContainerFileDir(Path containerFile) {
+        return Paths.get(containerFileDir.toURI()).normalize().relativize(containerFile.getParent()).toString();
     }
 
     /**
@@ -52,4 +100,49 @@ public class BatchImageBuildConfiguration extends AbstractImageBuildConfiguratio
     protected boolean isTagWithMavenProjectVersion() {
         return tagWithMavenProjectVersion;
     }
+
+    /**
+     * Sets the glob patterns the path of a Containerfile must match one of in order to be built
+     *
+     * @param includes The patterns to set
+     */
+    public void setIncludes(String[] includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * Sets the glob patterns of directories that should not be searched and Containerfiles that should not be built
+     *
+     * @param excludes The patterns to set
+     */
+    public void setExcludes(String[] excludes) {
+        this.excludes = excludes;
+    }
+
+    /**
+     * Sets the maximum number of directory levels to search for Containerfiles
+     *
+     * @param maxDepth The maximum depth to set
+     */
+    public void setMaxDepth(Integer maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Sets whether well known directories without Containerfiles to build should be skipped
+     *
+     * @param useDefaultExcludes The value to set
+     */
+    public void setUseDefaultExcludes(Boolean useDefaultExcludes) {
+        this.useDefaultExcludes = useDefaultExcludes;
+    }
+
+    /**
+     * Sets the number of threads to search for Containerfiles with
+     *
+     * @param discoveryThreads The number of threads to set
+     */
+    public void setDiscoveryThreads(int discoveryThreads) {
+        this.discoveryThreads = discoveryThreads;
+    }
 }
@@ -51,7 +51,7 @@ public class BatchImageConfiguration extends AbstractImageConfiguration<BatchIma
      * @throws MojoExecutionException In case of an IOException during querying all Containerfiles
      */
     public List<SingleImageConfiguration> resolve(Log log) throws MojoExecutionException {
-        List<Path> allContainerFiles = getBuild().getAllContainerFiles();
+        List<Path> allContainerFiles = getBuild().getAllContainerFiles(log);
         if (allContainerFiles == null || allContainerFiles.isEmpty()) {
             throw new MojoExecutionException("Invalid batch configuration found!");
         }
@@ -63,7 +63,7 @@ public class BatchImageConfiguration extends AbstractImageConfiguration<BatchIma
         List<SingleImageConfiguration> imageConfigurations = new ArrayList<>();
 
         log.info("[BATCH] Found " + allContainerFiles.size() + " Containerfiles");
-        for (Path containerFile : getBuild().getAllContainerFiles()) {
+        for (Path containerFile : allContainerFiles) {
             SingleImageConfiguration imageConfiguration = new SingleImageConfiguration();
             imageConfiguration.setImageName(getImageName());
             imageConfiguration.setCustomImageNameForMultiStageContainerfile(useCustomImageNameForMultiStageContainerfile());
@@ -72,9 +72,11 @@ public class BatchImageConfiguration extends AbstractImageConfiguration<BatchIma
             SingleImageBuildConfiguration buildConfiguration = new SingleImageBuildConfiguration();
             buildConfiguration.setContainerFile(containerFile.getFileName().toString());
             buildConfiguration.setContainerFileDir(containerFile.getParent().toFile());
+            buildConfiguration.setTargetContainerFileDir(getBuild().getRelativeContainerFileDir(containerFile));
             buildConfiguration.setFormat(getBuild().getFormat());
             buildConfiguration.setCreateLatestTag(getBuild().isCreateLatestTag());
             buildConfiguration.setLabels(getBuild().getLabels());
+            buildConfiguration.setLabelMode(getBuild().getLabelMode());
 
             if(getBuild().getPull().isPresent()) {
                 buildConfiguration.setPull(getBuild().getPull().get());
@@ -88,6 +90,11 @@ public class BatchImageConfiguration extends AbstractImageConfiguration<BatchIma
             }
 
             buildConfiguration.setTagWithMavenProjectVersion(getBuild().isTagWithMavenProjectVersion());
+            buildConfiguration.setStageContext(getBuild().isStageContext());
+            buildConfiguration.setRemoteCache(getBuild().isRemoteCache());
+            buildConfiguration.setCacheFrom(getBuild().getCacheFrom().toArray(new String[0]));
+            buildConfiguration.setCacheTo(getBuild().getCacheTo().orElse(null));
+            buildConfiguration.setCacheTtl(getBuild().getCacheTtl().orElse(null));
 
             imageConfiguration.setBuild(buildConfiguration);
             imageConfigurations.add(imageConfiguration);
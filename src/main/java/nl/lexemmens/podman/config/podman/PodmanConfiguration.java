@@ -54,6 +54,16 @@ public class PodmanConfiguration {
     @Parameter(property = "podman.run.dir")
     protected File runDirectory;
 
+    /**
+     * The URL of a running Podman service (<code>podman system service</code>), e.g. <code>tcp://localhost:8888</code>.
+     * <p>
+     * When set, images are built, tagged, pushed, saved and removed via the Libpod REST API of the service instead
+     * of by starting a new Podman process for every command. Storage options, such as root and runroot, must then be
+     * configured on the service. Not set by default.
+     */
+    @Parameter(property = "podman.service.url")
+    protected String serviceUrl;
+
     /**
      * Constructor
      */
@@ -97,6 +107,15 @@ public class PodmanConfiguration {
         return runDirectory;
     }
 
+    /**
+     * Returns the URL of the Podman service to use instead of the Podman command line.
+     *
+     * @return The URL of the Podman service, or null when the Podman command line should be used
+     */
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
     /**
      * Returns the cgroupManager that should be used when executing Podman
      * @return The cgroupManager to use
@@ -137,5 +156,16 @@ public class PodmanConfiguration {
         } else {
             log.info("Setting Podman's run directory " + runDirectory.getAbsolutePath());
         }
+
+        if (serviceUrl == null || serviceUrl.isEmpty()) {
+            serviceUrl = null;
+        } else if (serviceUrl.startsWith("unix:")) {
+            // Unix domain sockets cannot be used from Java 8 without native libraries
+            log.warn("Unix domain sockets are not supported for podman.service.url. Expose the Podman service on a TCP "
+                    + "address instead, e.g. 'podman system service tcp://localhost:8888'. Falling back to the Podman command line.");
+            serviceUrl = null;
+        } else {
+            log.info("Using Podman service at: " + serviceUrl);
+        }
     }
 }
@@ -44,6 +44,54 @@ public class SkopeoCopyConfiguration {
     @Parameter(property = "skopeo.copy.destTlsVerify", defaultValue = "true")
     protected boolean destTlsVerify;
 
+    /**
+     * The number of container images that may be copied concurrently. Defaults to 1, which means that images are
+     * copied one after another.
+     */
+    @Parameter(property = "skopeo.copy.threads", defaultValue = "1")
+    protected int threads;
+
+    /**
+     * The maximum number of container images that may be copied concurrently to the same destination registry. A
+     * value of 0 (the default) means only the number of threads applies.
+     */
+    @Parameter(property = "skopeo.copy.threadsPerRegistry", defaultValue = "0")
+    protected int threadsPerRegistry;
+
+    /**
+     * The number of times a failed copy is retried.
+     */
+    @Parameter(property = "skopeo.copy.retries", defaultValue = "0")
+    protected int retries;
+
+    /**
+     * The delay in milliseconds before the first retry of a failed copy. The delay doubles with every next retry, up
+     * to the maximum delay, and is randomised by up to half its value.
+     */
+    @Parameter(property = "skopeo.copy.retryDelay", defaultValue = "1000")
+    protected long retryDelay;
+
+    /**
+     * The maximum delay in milliseconds between two attempts to copy an image.
+     */
+    @Parameter(property = "skopeo.copy.retryMaxDelay", defaultValue = "30000")
+    protected long retryMaxDelay;
+
+    /**
+     * Use a single <code>skopeo sync</code> invocation per destination to copy all images that keep their name and
+     * tag. Images that cannot be copied this way are copied one by one.
+     */
+    @Parameter(property = "skopeo.copy.sync", defaultValue = "false")
+    protected boolean sync;
+
+    /**
+     * Skip copying images that are already present at the destination with the same manifest digest. The digests are
+     * determined using <code>skopeo inspect</code>, which takes two extra requests per image. Defaults to false, which
+     * means every image is copied.
+     */
+    @Parameter(property = "skopeo.copy.skipExisting", defaultValue = "false")
+    protected boolean skipExisting;
+
     public String getSearchString() {
         return searchString;
     }
@@ -67,4 +115,32 @@ public class SkopeoCopyConfiguration {
     public boolean getDestTlsVerify() {
         return destTlsVerify;
     }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getThreadsPerRegistry() {
+        return threadsPerRegistry;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public boolean getSync() {
+        return sync;
+    }
+
+    public boolean getSkipExisting() {
+        return skipExisting;
+    }
 }
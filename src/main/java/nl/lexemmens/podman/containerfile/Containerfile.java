@@ -0,0 +1,84 @@
+package nl.lexemmens.podman.containerfile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * The parsed contents of a Containerfile: its instructions, the build arguments declared before the first
+ * <code>FROM</code> instruction and its build stages.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and are obtained using the {@link ContainerfileParser}, which shares them
+ * between all Containerfiles with the same contents.
+ * </p>
+ */
+public final class Containerfile {
+
+    private final List<Instruction> instructions;
+    private final Map<String, String> globalArgs;
+    private final List<Stage> stages;
+
+    Containerfile(List<Instruction> instructions, Map<String, String> globalArgs, List<Stage> stages) {
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.globalArgs = Collections.unmodifiableMap(globalArgs);
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Returns all instructions in this Containerfile
+     *
+     * @return The instructions, in the order they appear in the Containerfile
+     */
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Returns the build arguments declared using <code>ARG</code> before the first <code>FROM</code> instruction,
+     * which may be used in <code>FROM</code> instructions.
+     *
+     * @return The build arguments and their default values, in the order they are declared. The value is null for
+     * build arguments without a default value.
+     */
+    public Map<String, String> getGlobalArgs() {
+        return globalArgs;
+    }
+
+    /**
+     * Returns the build stages in this Containerfile
+     *
+     * @return The build stages, in the order they appear in the Containerfile
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns a named build stage
+     *
+     * @param name The name of the stage. Stage names are not case sensitive.
+     * @return The stage, or an empty Optional if there is no stage with the given name
+     */
+    public Optional<Stage> getStage(String name) {
+        return stages.stream()
+                .filter(stage -> stage.getName().filter(stageName -> stageName.equalsIgnoreCase(name)).isPresent())
+                .findFirst();
+    }
+
+    /**
+     * Returns the names of the named build stages in this Containerfile
+     *
+     * @return The names of the stages, in the order they appear in the Containerfile
+     */
+    public List<String> getStageNames() {
+        return stages.stream()
+                .map(Stage::getName)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+}
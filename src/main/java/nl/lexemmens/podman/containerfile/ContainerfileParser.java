@@ -0,0 +1,272 @@
+package nl.lexemmens.podman.containerfile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Parses Containerfiles into a {@link Containerfile}. The parser supports:
+ * </p>
+ * <ul>
+ *     <li>Instructions in any case, e.g. <code>FROM</code> as well as <code>from</code></li>
+ *     <li>Comments, also between continued lines</li>
+ *     <li>Lines continued using the escape character, including the <code># escape=</code> parser directive</li>
+ *     <li>Heredocs in <code>RUN</code>, <code>COPY</code> and <code>ADD</code> instructions</li>
+ * </ul>
+ * <p>
+ * The result is cached by the SHA-256 hash of the contents, so that a Containerfile is parsed only once, no matter how
+ * many images are built from it and how often it is inspected. This class is thread safe.
+ * </p>
+ */
+public final class ContainerfileParser {
+
+    private static final int MAX_CACHED_CONTAINERFILES = 64;
+    private static final char DEFAULT_ESCAPE_CHARACTER = '\\';
+    private static final Pattern PARSER_DIRECTIVE_PATTERN = Pattern.compile("^#\\s*([a-zA-Z]+)\\s*=\\s*(\\S+)\\s*$");
+    private static final Pattern HEREDOC_PATTERN = Pattern.compile("<<(-?)([\"']?)([a-zA-Z_][a-zA-Z0-9_]*)\\2");
+
+    private static final Map<String, Containerfile> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, Containerfile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Containerfile> eldest) {
+            return size() > MAX_CACHED_CONTAINERFILES;
+        }
+    });
+
+    private ContainerfileParser() {
+        // Utility class
+    }
+
+    /**
+     * Parses a Containerfile
+     *
+     * @param containerfile The Containerfile to parse, encoded in UTF-8
+     * @return The parsed Containerfile
+     * @throws IOException In case the Containerfile cannot be read
+     */
+    public static Containerfile parse(Path containerfile) throws IOException {
+        return parse(new String(Files.readAllBytes(containerfile), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the contents of a Containerfile
+     *
+     * @param contents The contents to parse
+     * @return The parsed Containerfile
+     */
+    public static Containerfile parse(String contents) {
+        String key = toHex(newDigest().digest(contents.getBytes(StandardCharsets.UTF_8)));
+        Containerfile containerfile = CACHE.get(key);
+        if (containerfile == null) {
+            // Parsing the same contents concurrently is harmless, as the results are equal
+            containerfile = doParse(readLines(contents));
+            CACHE.put(key, containerfile);
+        }
+        return containerfile;
+    }
+
+    private static Containerfile doParse(List<String> lines) {
+        char escapeCharacter = readEscapeCharacter(lines);
+
+        List<Instruction> instructions = new ArrayList<>();
+        int lineIndex = 0;
+        while (lineIndex < lines.size()) {
+            String trimmed = lines.get(lineIndex).trim();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+                lineIndex++;
+                continue;
+            }
+
+            int firstLine = lineIndex;
+            StringBuilder logicalLine = new StringBuilder();
+            while (true) {
+                String line = stripTrailingWhitespace(lines.get(lineIndex));
+                if (line.isEmpty() || line.charAt(line.length() - 1) != escapeCharacter) {
+                    logicalLine.append(line);
+                    break;
+                }
+
+                logicalLine.append(line, 0, line.length() - 1);
+                lineIndex = skipCommentsAndEmptyLines(lines, lineIndex + 1);
+                if (lineIndex >= lines.size()) {
+                    lineIndex--;
+                    break;
+                }
+            }
+
+            String instructionLine = logicalLine.toString().trim();
+            int separatorIndex = indexOfWhitespace(instructionLine);
+            String keyword = (separatorIndex < 0 ? instructionLine : instructionLine.substring(0, separatorIndex)).toUpperCase();
+            String arguments = separatorIndex < 0 ? "" : instructionLine.substring(separatorIndex).trim();
+
+            List<String> heredocs = new ArrayList<>();
+            if ("RUN".equals(keyword) || "COPY".equals(keyword) || "ADD".equals(keyword)) {
+                lineIndex = readHeredocs(lines, lineIndex, arguments, heredocs);
+            }
+
+            instructions.add(new Instruction(keyword, arguments, heredocs, firstLine + 1, lineIndex + 1));
+            lineIndex++;
+        }
+
+        return toContainerfile(instructions);
+    }
+
+    private static Containerfile toContainerfile(List<Instruction> instructions) {
+        Map<String, String> globalArgs = new LinkedHashMap<>();
+        List<Stage> stages = new ArrayList<>();
+        FromInstruction currentFrom = null;
+        List<Instruction> currentInstructions = new ArrayList<>();
+
+        for (Instruction instruction : instructions) {
+            if (instruction.is("FROM")) {
+                if (currentFrom != null) {
+                    stages.add(new Stage(stages.size(), currentFrom, currentInstructions));
+                }
+                currentFrom = FromInstruction.parse(instruction.getArguments()).orElse(null);
+                currentInstructions = new ArrayList<>();
+            } else if (currentFrom == null && instruction.is("ARG")) {
+                addGlobalArgs(globalArgs, instruction.getArguments());
+            }
+
+            if (currentFrom != null) {
+                currentInstructions.add(instruction);
+            }
+        }
+
+        if (currentFrom != null) {
+            stages.add(new Stage(stages.size(), currentFrom, currentInstructions));
+        }
+        return new Containerfile(instructions, globalArgs, stages);
+    }
+
+    private static void addGlobalArgs(Map<String, String> globalArgs, String arguments) {
+        for (String declaration : arguments.split("\\s+")) {
+            int separatorIndex = declaration.indexOf('=');
+            if (separatorIndex < 0) {
+                globalArgs.put(declaration, null);
+                continue;
+            }
+
+            String value = declaration.substring(separatorIndex + 1);
+            if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'"))) {
+                value = value.substring(1, value.length() - 1);
+            }
+            globalArgs.put(declaration.substring(0, separatorIndex), value);
+        }
+    }
+
+    private static int readHeredocs(List<String> lines, int lineIndex, String arguments, List<String> heredocs) {
+        Matcher matcher = HEREDOC_PATTERN.matcher(arguments);
+        while (matcher.find()) {
+            boolean stripTabs = !matcher.group(1).isEmpty();
+            String delimiter = matcher.group(3);
+
+            StringBuilder body = new StringBuilder();
+            while (++lineIndex < lines.size()) {
+                String line = stripTabs ? stripLeadingTabs(lines.get(lineIndex)) : lines.get(lineIndex);
+                if (line.equals(delimiter)) {
+                    break;
+                }
+                body.append(line).append('\n');
+            }
+            heredocs.add(body.toString());
+        }
+        return Math.min(lineIndex, lines.size() - 1);
+    }
+
+    private static char readEscapeCharacter(List<String> lines) {
+        // Parser directives must precede everything else, including empty lines
+        for (String line : lines) {
+            Matcher matcher = PARSER_DIRECTIVE_PATTERN.matcher(line.trim());
+            if (!matcher.matches()) {
+                break;
+            }
+
+            String value = matcher.group(2);
+            if ("escape".equalsIgnoreCase(matcher.group(1)) && ("`".equals(value) || "\\".equals(value))) {
+                return value.charAt(0);
+            }
+        }
+        return DEFAULT_ESCAPE_CHARACTER;
+    }
+
+    private static int skipCommentsAndEmptyLines(List<String> lines, int lineIndex) {
+        while (lineIndex < lines.size()) {
+            String trimmed = lines.get(lineIndex).trim();
+            if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                break;
+            }
+            lineIndex++;
+        }
+        return lineIndex;
+    }
+
+    private static List<String> readLines(String contents) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(contents))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            // Cannot happen when reading from a String
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    private static int indexOfWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String stripTrailingWhitespace(String value) {
+        int end = value.length();
+        while (end > 0 && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    private static String stripLeadingTabs(String value) {
+        int start = 0;
+        while (start < value.length() && value.charAt(start) == '\t') {
+            start++;
+        }
+        return value.substring(start);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package nl.lexemmens.podman.containerfile;
+
+import java.util.Optional;
+
+/**
+ * <p>
+ * The arguments of a <code>FROM</code> instruction: <code>FROM [--platform=&lt;platform&gt;] &lt;image&gt; [AS &lt;name&gt;]</code>.
+ * </p>
+ * <p>
+ * References to build arguments in the image are not resolved, as their values are only known when the image is
+ * built. Instances of this class are immutable.
+ * </p>
+ */
+public final class FromInstruction {
+
+    private static final String PLATFORM_FLAG = "--platform=";
+
+    private final String baseImage;
+    private final String stageName;
+    private final String platform;
+
+    private FromInstruction(String baseImage, String stageName, String platform) {
+        this.baseImage = baseImage;
+        this.stageName = stageName;
+        this.platform = platform;
+    }
+
+    /**
+     * Parses the arguments of a <code>FROM</code> instruction. Besides the arguments in a Containerfile, this also
+     * accepts the instruction as it is reported in the output of a build.
+     *
+     * @param arguments The arguments, i.e. everything after the <code>FROM</code> keyword
+     * @return The parsed instruction, or an empty Optional if the arguments do not contain an image
+     */
+    public static Optional<FromInstruction> parse(String arguments) {
+        String[] tokens = arguments.trim().split("\\s+");
+
+        String platform = null;
+        int index = 0;
+        while (index < tokens.length && tokens[index].startsWith("--")) {
+            if (tokens[index].startsWith(PLATFORM_FLAG)) {
+                platform = tokens[index].substring(PLATFORM_FLAG.length());
+            }
+            index++;
+        }
+
+        if (index >= tokens.length || tokens[index].isEmpty()) {
+            return Optional.empty();
+        }
+
+        String stageName = null;
+        if (index + 2 < tokens.length && "AS".equalsIgnoreCase(tokens[index + 1])) {
+            stageName = tokens[index + 2];
+        }
+        return Optional.of(new FromInstruction(tokens[index], stageName, platform));
+    }
+
+    /**
+     * Returns the image the stage is based on, which may also be the name of an earlier stage
+     *
+     * @return The base image, as written in the instruction
+     */
+    public String getBaseImage() {
+        return baseImage;
+    }
+
+    /**
+     * Returns the name of the stage, as specified using <code>AS &lt;name&gt;</code>
+     *
+     * @return The name of the stage, or an empty Optional if the stage is not named
+     */
+    public Optional<String> getStageName() {
+        return Optional.ofNullable(stageName);
+    }
+
+    /**
+     * Returns the platform specified using <code>--platform</code>
+     *
+     * @return The platform, or an empty Optional if no platform is specified
+     */
+    public Optional<String> getPlatform() {
+        return Optional.ofNullable(platform);
+    }
+}
@@ -0,0 +1,91 @@
+package nl.lexemmens.podman.containerfile;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A single instruction in a Containerfile, such as <code>FROM</code>, <code>ARG</code> or <code>RUN</code>.
+ * </p>
+ * <p>
+ * Lines continued using the escape character are joined into a single instruction, without the escape character and
+ * without the comments and empty lines in between. The bodies of heredocs used by the instruction are part of the
+ * instruction as well. Instances of this class are immutable.
+ * </p>
+ */
+public final class Instruction {
+
+    private final String keyword;
+    private final String arguments;
+    private final List<String> heredocs;
+    private final int firstLine;
+    private final int lastLine;
+
+    Instruction(String keyword, String arguments, List<String> heredocs, int firstLine, int lastLine) {
+        this.keyword = keyword;
+        this.arguments = arguments;
+        this.heredocs = Collections.unmodifiableList(heredocs);
+        this.firstLine = firstLine;
+        this.lastLine = lastLine;
+    }
+
+    /**
+     * Returns the keyword of this instruction
+     *
+     * @return The keyword, in upper case, e.g. <code>FROM</code>
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Returns the arguments of this instruction, i.e. everything after the keyword
+     *
+     * @return The arguments. Empty if the instruction has no arguments.
+     */
+    public String getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns the bodies of the heredocs used by this instruction, in the order they are declared
+     *
+     * @return The bodies of the heredocs, with lines separated by <code>\n</code>
+     */
+    public List<String> getHeredocs() {
+        return heredocs;
+    }
+
+    /**
+     * Returns the line this instruction starts on
+     *
+     * @return The line number, starting at 1
+     */
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    /**
+     * Returns the line this instruction ends on, including continuation lines and heredocs
+     *
+     * @return The line number, starting at 1
+     */
+    public int getLastLine() {
+        return lastLine;
+    }
+
+    /**
+     * Returns whether this instruction has the given keyword
+     *
+     * @param keyword The keyword to compare with, ignoring case
+     * @return true if this instruction has the given keyword
+     */
+    public boolean is(String keyword) {
+        return this.keyword.equalsIgnoreCase(keyword);
+    }
+
+    @Override
+    public String toString() {
+        return arguments.isEmpty() ? keyword : keyword + " " + arguments;
+    }
+}
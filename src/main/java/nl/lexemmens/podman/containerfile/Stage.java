@@ -0,0 +1,58 @@
+package nl.lexemmens.podman.containerfile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A build stage in a Containerfile, starting at a <code>FROM</code> instruction and ending before the next one.
+ * Instances of this class are immutable.
+ */
+public final class Stage {
+
+    private final int index;
+    private final FromInstruction from;
+    private final List<Instruction> instructions;
+
+    Stage(int index, FromInstruction from, List<Instruction> instructions) {
+        this.index = index;
+        this.from = from;
+        this.instructions = Collections.unmodifiableList(instructions);
+    }
+
+    /**
+     * Returns the position of this stage in the Containerfile
+     *
+     * @return The index of this stage, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name of this stage
+     *
+     * @return The name of this stage, or an empty Optional if the stage is not named
+     */
+    public Optional<String> getName() {
+        return from.getStageName();
+    }
+
+    /**
+     * Returns the parsed <code>FROM</code> instruction that starts this stage
+     *
+     * @return The <code>FROM</code> instruction
+     */
+    public FromInstruction getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the instructions of this stage, starting with its <code>FROM</code> instruction
+     *
+     * @return The instructions of this stage
+     */
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+}
@@ -0,0 +1,20 @@
+package nl.lexemmens.podman.enumeration;
+
+/**
+ * Defines how the configured labels are applied to a container image.
+ */
+public enum LabelMode {
+
+    /**
+     * A <code>LABEL</code> instruction is added to the Containerfile directly after every <code>FROM</code>
+     * instruction. This is the default. Note that a changing label value invalidates the layer cache of every
+     * subsequent instruction.
+     */
+    CONTAINERFILE,
+
+    /**
+     * The labels are passed to Podman using <code>podman build --label</code> and are only applied to the final
+     * image. The Containerfile is left untouched, so changing label values do not invalidate the layer cache.
+     */
+    BUILD_OPTION
+}
@@ -0,0 +1,41 @@
+package nl.lexemmens.podman.enumeration;
+
+/**
+ * Defines how container image archives created by the save goal are compressed.
+ */
+public enum SaveCompression {
+
+    /**
+     * The archive is not compressed.
+     */
+    NONE("tar"),
+
+    /**
+     * The archive is compressed using gzip. This is the default.
+     */
+    GZIP("tar.gz"),
+
+    /**
+     * The archive is compressed using Zstandard, which requires the native library of zstd-jni to be available for
+     * the platform Maven runs on.
+     */
+    ZSTD("tar.zst");
+
+    private final String extension;
+
+    /**
+     * Constructor
+     * @param extension The file extension of archives using this compression
+     */
+    SaveCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file extension of archives using this compression
+     * @return the file extension, without leading dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,23 @@
+package nl.lexemmens.podman.enumeration;
+
+/**
+ * Defines how the save goal exports the container images of a module.
+ */
+public enum SaveMode {
+
+    /**
+     * Every image is saved into its own OCI archive. This is the default.
+     */
+    ARCHIVE_PER_IMAGE,
+
+    /**
+     * All images are saved into a single (docker) archive, using <code>podman save --multi-image-archive</code>.
+     * Layers shared by the images are stored only once.
+     */
+    MULTI_IMAGE_ARCHIVE,
+
+    /**
+     * All images are copied into a single OCI image layout directory. Layers shared by the images are stored only once.
+     */
+    OCI_LAYOUT
+}
@@ -1,8 +1,10 @@
 package nl.lexemmens.podman.executor;
 
+import nl.lexemmens.podman.command.CommandOutputListener;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.zeroturnaround.exec.ProcessExecutor;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -23,4 +25,44 @@ public interface CommandExecutorDelegate {
      * @throws MojoExecutionException In case execution of the command fails
      */
     List<String> executeCommand(ProcessExecutor processExecutor) throws MojoExecutionException;
+
+    /**
+     * <p>
+     * Executes the command as configured in the provided ProcessExecutor and passes every line of output to the
+     * provided listener.
+     * </p>
+     * <p>
+     * The default implementation collects all output using {@link #executeCommand(ProcessExecutor)} and passes it to
+     * the listener once the command has finished. Implementations should override this method to pass lines to the
+     * listener as soon as they are available.
+     * </p>
+     *
+     * @param processExecutor The process executor carrying the command to execute
+     * @param listener        The listener receiving the output lines
+     * @throws MojoExecutionException In case execution of the command fails
+     */
+    default void executeCommand(ProcessExecutor processExecutor, CommandOutputListener listener) throws MojoExecutionException {
+        for (String line : executeCommand(processExecutor)) {
+            listener.onLine(line);
+        }
+    }
+
+    /**
+     * <p>
+     * Executes the command as configured in the provided ProcessExecutor and writes its standard output, unaltered,
+     * to the provided stream.
+     * </p>
+     * <p>
+     * The output is typically binary, such as an image archive, so it cannot be derived from the lines returned by
+     * {@link #executeCommand(ProcessExecutor)}. The default implementation therefore fails; implementations that
+     * support streaming output must override this method.
+     * </p>
+     *
+     * @param processExecutor The process executor carrying the command to execute
+     * @param outputStream    The stream receiving the standard output of the command. The stream is not closed.
+     * @throws MojoExecutionException In case execution of the command fails or streaming output is not supported
+     */
+    default void executeCommand(ProcessExecutor processExecutor, OutputStream outputStream) throws MojoExecutionException {
+        throw new MojoExecutionException("Streaming the output of a command is not supported by " + getClass().getName());
+    }
 }
@@ -1,10 +1,15 @@
 package nl.lexemmens.podman.executor;
 
+import nl.lexemmens.podman.command.CommandOutputListener;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.zeroturnaround.exec.ProcessExecutor;
 import org.zeroturnaround.exec.ProcessResult;
+import org.zeroturnaround.exec.stream.LogOutputStream;
 
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -13,6 +18,11 @@ import java.util.List;
  */
 public final class CommandExecutorDelegateImpl implements CommandExecutorDelegate {
 
+    /**
+     * The number of output lines that is kept in memory when streaming output, in order to report them when the command fails.
+     */
+    private static final int MAX_TAIL_LINES = 50;
+
     @Override
     public List<String> executeCommand(ProcessExecutor processExecutor) throws MojoExecutionException {
         try {
@@ -28,4 +38,87 @@ public final class CommandExecutorDelegateImpl implements CommandExecutorDelegat
         }
     }
 
+    @Override
+    public void executeCommand(ProcessExecutor processExecutor, CommandOutputListener listener) throws MojoExecutionException {
+        OutputTail tail = new OutputTail();
+        try {
+            // Do not collect the output, but pass it on line by line. Only the last lines are kept for error reporting.
+            processExecutor.readOutput(false)
+                    .redirectOutputAlsoTo(new LogOutputStream() {
+                        @Override
+                        protected void processLine(String line) {
+                            tail.add(line);
+                            listener.onLine(line);
+                        }
+                    })
+                    .redirectErrorAlsoTo(new LogOutputStream() {
+                        @Override
+                        protected void processLine(String line) {
+                            tail.add(line);
+                        }
+                    })
+                    .execute();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            String msg = String.format("Failed to execute command '%s' - caught %s", StringUtils.join(processExecutor.getCommand(), " "), e.getMessage());
+            if (!tail.isEmpty()) {
+                msg += String.format("%nLast lines of output:%n%s", tail);
+            }
+            throw new MojoExecutionException(msg);
+        }
+    }
+
+    @Override
+    public void executeCommand(ProcessExecutor processExecutor, OutputStream outputStream) throws MojoExecutionException {
+        OutputTail tail = new OutputTail();
+        try {
+            // Standard output may be binary, so only the error output is kept for error reporting.
+            processExecutor.readOutput(false)
+                    .redirectOutput(outputStream)
+                    .redirectErrorAlsoTo(new LogOutputStream() {
+                        @Override
+                        protected void processLine(String line) {
+                            tail.add(line);
+                        }
+                    })
+                    .execute();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            String msg = String.format("Failed to execute command '%s' - caught %s", StringUtils.join(processExecutor.getCommand(), " "), e.getMessage());
+            if (!tail.isEmpty()) {
+                msg += String.format("%nLast lines of error output:%n%s", tail);
+            }
+            throw new MojoExecutionException(msg);
+        }
+    }
+
+    /**
+     * Bounded buffer holding the most recent output lines of a command
+     */
+    private static final class OutputTail {
+
+        private final Deque<String> lines = new ArrayDeque<>();
+
+        private synchronized void add(String line) {
+            if (lines.size() == MAX_TAIL_LINES) {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+        }
+
+        private synchronized boolean isEmpty() {
+            return lines.isEmpty();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.join(System.lineSeparator(), lines);
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Collects metrics about the commands executed by a single execution of a goal of this plugin: the number of
+ * executions and failures, the wall time and the volume of output per command, and the wall time, command time and
+ * number of retries per image.
+ * </p>
+ * <p>
+ * Commands are attributed to the image that is being processed by the current thread, see
+ * {@link #forImage(String, RetryPolicy.Operation)}, which also records a span for the image in the active
+ * {@link ExecutionTrace}. This class is thread safe.
+ * </p>
+ */
+public final class ExecutionMetrics {
+
+    private final long startNanos = System.nanoTime();
+    private final ThreadLocal<String> currentImage = new ThreadLocal<>();
+    private final Map<String, CommandStats> commands = new LinkedHashMap<>();
+    private final Map<String, ImageStats> images = new LinkedHashMap<>();
+    private long retries;
+
+    /**
+     * Executes an operation on behalf of an image. All commands executed and retries made by the current thread during
+     * the operation are attributed to the image, as is the wall time of the operation.
+     *
+     * @param image     The name of the image
+     * @param operation The operation to execute
+     * @throws MojoExecutionException In case the operation fails
+     */
+    public void forImage(String image, RetryPolicy.Operation operation) throws MojoExecutionException {
+        String previousImage = currentImage.get();
+        currentImage.set(image);
+        long start = System.nanoTime();
+        boolean success = false;
+        ExecutionTrace.Span span = ExecutionTrace.span(image, "image");
+        try {
+            operation.execute();
+            success = true;
+        } finally {
+            span.close();
+            long duration = System.nanoTime() - start;
+            synchronized (this) {
+                ImageStats stats = getImageStats(image);
+                stats.durationNanos += duration;
+                if (!success) {
+                    stats.failures++;
+                }
+            }
+
+            if (previousImage == null) {
+                currentImage.remove();
+            } else {
+                currentImage.set(previousImage);
+            }
+        }
+    }
+
+    /**
+     * Records the execution of a command
+     *
+     * @param command       The name of the command, such as <code>podman build</code>
+     * @param durationNanos The wall time of the command in nanoseconds
+     * @param success       Whether the command completed successfully
+     * @param outputLines   The number of lines of output of the command
+     * @param outputBytes   The number of bytes of output of the command
+     */
+    public synchronized void recordCommand(String command, long durationNanos, boolean success, long outputLines, long outputBytes) {
+        CommandStats stats = commands.computeIfAbsent(command, key -> new CommandStats());
+        stats.executions++;
+        stats.failures += success ? 0 : 1;
+        stats.durationNanos += durationNanos;
+        stats.maxDurationNanos = Math.max(stats.maxDurationNanos, durationNanos);
+        stats.outputLines += outputLines;
+        stats.outputBytes += outputBytes;
+
+        String image = currentImage.get();
+        if (image != null) {
+            ImageStats imageStats = getImageStats(image);
+            imageStats.commands++;
+            imageStats.commandDurationNanos += durationNanos;
+        }
+    }
+
+    /**
+     * Records a retry of a failed operation, attributed to the image that is processed by the current thread
+     */
+    public synchronized void recordRetry() {
+        retries++;
+
+        String image = currentImage.get();
+        if (image != null) {
+            getImageStats(image).retries++;
+        }
+    }
+
+    /**
+     * Returns the collected metrics as JSON, including the wall time since this instance was created.
+     *
+     * @return The collected metrics
+     */
+    public synchronized JSONObject toJson() {
+        JSONObject commandsJson = new JSONObject();
+        for (Map.Entry<String, CommandStats> entry : commands.entrySet()) {
+            CommandStats stats = entry.getValue();
+            commandsJson.put(entry.getKey(), new JSONObject()
+                    .put("executions", stats.executions)
+                    .put("failures", stats.failures)
+                    .put("durationMillis", toMillis(stats.durationNanos))
+                    .put("maxDurationMillis", toMillis(stats.maxDurationNanos))
+                    .put("outputLines", stats.outputLines)
+                    .put("outputBytes", stats.outputBytes));
+        }
+
+        JSONObject imagesJson = new JSONObject();
+        for (Map.Entry<String, ImageStats> entry : images.entrySet()) {
+            ImageStats stats = entry.getValue();
+            imagesJson.put(entry.getKey(), new JSONObject()
+                    .put("durationMillis", toMillis(stats.durationNanos))
+                    .put("commands", stats.commands)
+                    .put("commandDurationMillis", toMillis(stats.commandDurationNanos))
+                    .put("retries", stats.retries)
+                    .put("failures", stats.failures));
+        }
+
+        return new JSONObject()
+                .put("durationMillis", toMillis(System.nanoTime() - startNanos))
+                .put("retries", retries)
+                .put("commands", commandsJson)
+                .put("images", imagesJson);
+    }
+
+    private ImageStats getImageStats(String image) {
+        return images.computeIfAbsent(image, key -> new ImageStats());
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class CommandStats {
+        private long executions;
+        private long failures;
+        private long durationNanos;
+        private long maxDurationNanos;
+        private long outputLines;
+        private long outputBytes;
+    }
+
+    private static final class ImageStats {
+        private long durationNanos;
+        private long commands;
+        private long commandDurationNanos;
+        private long retries;
+        private long failures;
+    }
+}
@@ -0,0 +1,204 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Records a timeline of the work done by a single execution of a goal of this plugin as spans, in the trace event
+ * format that can be loaded in Perfetto or <code>chrome://tracing</code>. Every thread appears as a separate track, so
+ * that work done concurrently is shown side by side.
+ * </p>
+ * <p>
+ * A trace is active for the thread that started it and for all threads created by that thread after it was started,
+ * such as the worker threads of the {@link ParallelTaskExecutor}. Spans opened while no trace is active are not
+ * recorded, so code can open spans regardless of whether tracing is enabled. This class is thread safe.
+ * </p>
+ */
+public final class ExecutionTrace {
+
+    private static final InheritableThreadLocal<ExecutionTrace> ACTIVE_TRACE = new InheritableThreadLocal<>();
+    private static final Track NO_TRACK = new Track(null, 0);
+    private static final Span NO_SPAN = new Span(null, 0, null, null);
+
+    private final long originMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private final long originNanos = System.nanoTime();
+    private final List<JSONObject> events = new ArrayList<>();
+    private final Map<Long, String> threadNames = new LinkedHashMap<>();
+
+    private ExecutionTrace() {
+        // Instances are created using start()
+    }
+
+    /**
+     * Starts a new trace, which becomes the active trace of the current thread and of the threads it creates.
+     *
+     * @return The trace that was started
+     */
+    public static ExecutionTrace start() {
+        ExecutionTrace trace = new ExecutionTrace();
+        ACTIVE_TRACE.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stops recording of this trace by the current thread. Spans that are already open are still recorded when they
+     * are closed.
+     */
+    public void stop() {
+        if (ACTIVE_TRACE.get() == this) {
+            ACTIVE_TRACE.remove();
+        }
+    }
+
+    /**
+     * Opens a span on the track of the current thread. The span ends when it is closed.
+     *
+     * @param name     The name of the span, e.g. the name of an image or a command
+     * @param category The category of the span, such as <code>phase</code>, <code>image</code> or <code>command</code>
+     * @return The opened span
+     */
+    public static Span span(String name, String category) {
+        return track().begin(name, category);
+    }
+
+    /**
+     * Executes an operation within a span on the track of the current thread
+     *
+     * @param name      The name of the span
+     * @param category  The category of the span
+     * @param operation The operation to execute
+     * @throws MojoExecutionException In case the operation fails
+     */
+    public static void inSpan(String name, String category, RetryPolicy.Operation operation) throws MojoExecutionException {
+        Span span = span(name, category);
+        try {
+            operation.execute();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Returns the track of the current thread, which can be used to open spans on behalf of the current thread from
+     * another thread, e.g. from a thread that processes the output of a command.
+     *
+     * @return The track of the current thread
+     */
+    public static Track track() {
+        ExecutionTrace trace = ACTIVE_TRACE.get();
+        if (trace == null) {
+            return NO_TRACK;
+        }
+
+        Thread thread = Thread.currentThread();
+        synchronized (trace) {
+            trace.threadNames.putIfAbsent(thread.getId(), thread.getName());
+        }
+        return new Track(trace, thread.getId());
+    }
+
+    /**
+     * Returns the recorded spans as trace events, preceded by the names of the tracks.
+     *
+     * @param pid The process id to use for the events, which allows traces of different modules to be combined
+     * @return The recorded trace events
+     */
+    public synchronized JSONArray getEvents(int pid) {
+        JSONArray result = new JSONArray();
+        for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+            result.put(new JSONObject()
+                    .put("name", "thread_name")
+                    .put("ph", "M")
+                    .put("pid", pid)
+                    .put("tid", threadName.getKey())
+                    .put("args", new JSONObject().put("name", threadName.getValue())));
+        }
+
+        for (JSONObject event : events) {
+            result.put(new JSONObject(event.toMap()).put("pid", pid));
+        }
+        return result;
+    }
+
+    private long now() {
+        return originMicros + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - originNanos);
+    }
+
+    private synchronized void addEvent(JSONObject event) {
+        events.add(event);
+    }
+
+    /**
+     * The track of a single thread
+     */
+    public static final class Track {
+
+        private final ExecutionTrace trace;
+        private final long tid;
+
+        private Track(ExecutionTrace trace, long tid) {
+            this.trace = trace;
+            this.tid = tid;
+        }
+
+        /**
+         * Opens a span on this track. The span ends when it is closed.
+         *
+         * @param name     The name of the span
+         * @param category The category of the span
+         * @return The opened span
+         */
+        public Span begin(String name, String category) {
+            if (trace == null) {
+                return NO_SPAN;
+            }
+            return new Span(trace, tid, name, category);
+        }
+    }
+
+    /**
+     * A span of time on a track. Closing a span more than once has no effect.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final ExecutionTrace trace;
+        private final long tid;
+        private final String name;
+        private final String category;
+        private final long startMicros;
+        private boolean closed;
+
+        private Span(ExecutionTrace trace, long tid, String name, String category) {
+            this.trace = trace;
+            this.tid = tid;
+            this.name = name;
+            this.category = category;
+            this.startMicros = trace == null ? 0 : trace.now();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (trace == null || closed) {
+                return;
+            }
+            closed = true;
+
+            JSONObject event = new JSONObject()
+                    .put("name", name)
+                    .put("cat", category)
+                    .put("ph", "X")
+                    .put("ts", startMicros)
+                    .put("dur", trace.now() - startMicros)
+                    .put("tid", tid);
+            trace.addEvent(event);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package nl.lexemmens.podman.executor;
+
+import nl.lexemmens.podman.command.AbstractCommand;
+import nl.lexemmens.podman.command.CommandOutputListener;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.zeroturnaround.exec.ProcessExecutor;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delegate that records the wall time, status and output volume of every command in {@link ExecutionMetrics},
+ * while the actual execution is done by another delegate.
+ */
+public final class MeteredCommandExecutorDelegate implements CommandExecutorDelegate {
+
+    private final CommandExecutorDelegate delegate;
+    private final ExecutionMetrics metrics;
+
+    /**
+     * Constructs a new instance of this class
+     *
+     * @param delegate The delegate that executes the commands
+     * @param metrics  Receives the metrics of the executed commands
+     */
+    public MeteredCommandExecutorDelegate(CommandExecutorDelegate delegate, ExecutionMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<String> executeCommand(ProcessExecutor processExecutor) throws MojoExecutionException {
+        long start = System.nanoTime();
+        List<String> output = null;
+        try {
+            output = delegate.executeCommand(processExecutor);
+            return output;
+        } finally {
+            long lines = output == null ? 0 : output.size();
+            long bytes = output == null ? 0 : output.stream().mapToLong(line -> line.getBytes(StandardCharsets.UTF_8).length + 1L).sum();
+            metrics.recordCommand(getCommandName(processExecutor), System.nanoTime() - start, output != null, lines, bytes);
+        }
+    }
+
+    @Override
+    public void executeCommand(ProcessExecutor processExecutor, CommandOutputListener listener) throws MojoExecutionException {
+        AtomicLong lines = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.executeCommand(processExecutor, line -> {
+                lines.incrementAndGet();
+                bytes.addAndGet(line.getBytes(StandardCharsets.UTF_8).length + 1L);
+                listener.onLine(line);
+            });
+            success = true;
+        } finally {
+            metrics.recordCommand(getCommandName(processExecutor), System.nanoTime() - start, success, lines.get(), bytes.get());
+        }
+    }
+
+    @Override
+    public void executeCommand(ProcessExecutor processExecutor, OutputStream outputStream) throws MojoExecutionException {
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.executeCommand(processExecutor, countingOutputStream);
+            success = true;
+        } finally {
+            // Binary output has no meaningful number of lines
+            metrics.recordCommand(getCommandName(processExecutor), System.nanoTime() - start, success, 0, countingOutputStream.getByteCount());
+        }
+    }
+
+    static String getCommandName(ProcessExecutor processExecutor) {
+        return AbstractCommand.getCommandName(processExecutor.getCommand());
+    }
+}
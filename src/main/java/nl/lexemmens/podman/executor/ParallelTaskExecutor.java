@@ -0,0 +1,394 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Executes a task for each item in a collection using a bounded pool of worker threads.
+ * </p>
+ * <p>
+ * When configured with a single thread, items are processed one after another on the calling thread and the first
+ * failure is thrown immediately. When multiple threads are used, all items are processed and failures are collected
+ * and reported once every task has finished, so that one failing item does not hide the status of the others.
+ * Optionally, no new tasks are started once a task has failed, for work that should rather not be done at all than
+ * partially, such as publishing images.
+ * </p>
+ * <p>
+ * Optionally, dependencies between items can be provided. Items are then processed in topological order and items
+ * that depend on a failed item are skipped.
+ * </p>
+ */
+public final class ParallelTaskExecutor {
+
+    private final Log log;
+    private final int threads;
+    private final String threadNamePrefix;
+    private final boolean stopOnFailure;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param log              Access to Maven's log system
+     * @param threads          The maximum number of tasks to run concurrently. Values lower than 1 are treated as 1.
+     * @param threadNamePrefix The prefix to use for the names of the worker threads
+     */
+    public ParallelTaskExecutor(Log log, int threads, String threadNamePrefix) {
+        this(log, threads, threadNamePrefix, false);
+    }
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param log              Access to Maven's log system
+     * @param threads          The maximum number of tasks to run concurrently. Values lower than 1 are treated as 1.
+     * @param threadNamePrefix The prefix to use for the names of the worker threads
+     * @param stopOnFailure    Whether tasks that have not started yet should be skipped once a task has failed. Tasks
+     *                         that are already running are always completed.
+     */
+    public ParallelTaskExecutor(Log log, int threads, String threadNamePrefix, boolean stopOnFailure) {
+        this.log = log;
+        this.threads = Math.max(1, threads);
+        this.threadNamePrefix = threadNamePrefix;
+        this.stopOnFailure = stopOnFailure;
+    }
+
+    /**
+     * Executes the provided task for all items.
+     *
+     * @param items     The items to process
+     * @param describer Function that returns a human readable description of an item, used for error reporting
+     * @param task      The task to execute for each item
+     * @param <T>       The type of the items
+     * @throws MojoExecutionException In case the task failed for one or more items
+     */
+    public <T> void execute(List<T> items, Function<T, String> describer, Task<T> task) throws MojoExecutionException {
+        execute(items, Collections.<T, List<T>>emptyMap(), describer, task);
+    }
+
+    /**
+     * <p>
+     * Executes the provided task for all items, respecting the dependencies between the items.
+     * </p>
+     * <p>
+     * The task for an item is only started once the tasks of all items it depends on have completed successfully.
+     * Items that do not depend on each other are processed concurrently. When the task for an item fails, the items
+     * that (transitively) depend on it are skipped and reported as such.
+     * </p>
+     *
+     * @param items        The items to process
+     * @param dependencies The items each item depends on. Items without an entry do not have any dependencies.
+     *                     Dependencies that are not part of the items to process are ignored.
+     * @param describer    Function that returns a human readable description of an item, used for error reporting
+     * @param task         The task to execute for each item
+     * @param <T>          The type of the items
+     * @throws MojoExecutionException In case the task failed for one or more items or the dependencies contain a cycle
+     */
+    public <T> void execute(List<T> items, Map<T, ? extends Collection<T>> dependencies, Function<T, String> describer, Task<T> task) throws MojoExecutionException {
+        DependencyGraph<T> graph = new DependencyGraph<>(items, dependencies);
+
+        if (threads == 1 || items.size() <= 1) {
+            for (int index : graph.topologicalOrder(describer)) {
+                task.execute(items.get(index));
+            }
+            return;
+        }
+
+        int poolSize = Math.min(threads, items.size());
+        log.info("Processing " + items.size() + " items using " + poolSize + " threads.");
+
+        // Fail before starting any task when the dependencies cannot be satisfied
+        graph.topologicalOrder(describer);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(poolSize, new NamedThreadFactory(threadNamePrefix));
+        try {
+            CompletionService<Integer> completionService = new ExecutorCompletionService<>(executorService);
+            int[] remainingDependencies = graph.dependencyCounts();
+            boolean[] skipped = new boolean[items.size()];
+            boolean[] finished = new boolean[items.size()];
+            AtomicBoolean failed = new AtomicBoolean();
+            Task<T> guardedTask = !stopOnFailure ? task : item -> {
+                if (failed.get()) {
+                    throw new NotStarted();
+                }
+                try {
+                    task.execute(item);
+                } catch (Exception | Error e) {
+                    // Set by the worker itself, so that it does not pick up the next task before noticing the failure
+                    failed.set(true);
+                    throw e;
+                }
+            };
+
+            int running = 0;
+            for (int index = 0; index < items.size(); index++) {
+                if (remainingDependencies[index] == 0) {
+                    submit(completionService, items, index, guardedTask);
+                    running++;
+                }
+            }
+
+            // Keyed by index, so failures are reported in the order of the items
+            Map<Integer, MojoExecutionException> failuresByIndex = new TreeMap<>();
+            while (running > 0) {
+                Future<Integer> completed = completionService.take();
+                running--;
+
+                int index;
+                try {
+                    index = completed.get();
+                } catch (ExecutionException e) {
+                    TaskFailure failure = (TaskFailure) e.getCause();
+                    if (failure.getCause() instanceof NotStarted) {
+                        continue;
+                    }
+
+                    finished[failure.index] = true;
+                    failuresByIndex.put(failure.index, toMojoExecutionException(describer.apply(items.get(failure.index)), failure.getCause()));
+                    skipDependents(graph, failure.index, skipped, items, describer);
+                    continue;
+                }
+
+                finished[index] = true;
+                for (int dependent : graph.dependents(index)) {
+                    remainingDependencies[dependent]--;
+                    if (remainingDependencies[dependent] == 0 && !skipped[dependent]) {
+                        submit(completionService, items, dependent, guardedTask);
+                        running++;
+                    }
+                }
+            }
+
+            List<String> failedItems = new ArrayList<>();
+            for (int index : failuresByIndex.keySet()) {
+                failedItems.add(describer.apply(items.get(index)));
+            }
+            List<String> skippedItems = new ArrayList<>();
+            List<String> notStartedItems = new ArrayList<>();
+            for (int index = 0; index < items.size(); index++) {
+                if (skipped[index]) {
+                    skippedItems.add(describer.apply(items.get(index)));
+                } else if (!finished[index]) {
+                    notStartedItems.add(describer.apply(items.get(index)));
+                }
+            }
+
+            reportFailures(items.size(), failedItems, new ArrayList<>(failuresByIndex.values()), skippedItems, notStartedItems);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for tasks to complete.", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static <T> void submit(CompletionService<Integer> completionService, List<T> items, int index, Task<T> task) {
+        completionService.submit(() -> {
+            try {
+                task.execute(items.get(index));
+            } catch (Exception | Error e) {
+                throw new TaskFailure(index, e);
+            }
+            return index;
+        });
+    }
+
+    private <T> void skipDependents(DependencyGraph<T> graph, int failedIndex, boolean[] skipped, List<T> items, Function<T, String> describer) {
+        Deque<Integer> toVisit = new ArrayDeque<>(graph.dependents(failedIndex));
+        while (!toVisit.isEmpty()) {
+            int dependent = toVisit.pop();
+            if (!skipped[dependent]) {
+                skipped[dependent] = true;
+                log.warn("Skipping " + describer.apply(items.get(dependent)) + " because " + describer.apply(items.get(failedIndex)) + " failed.");
+                toVisit.addAll(graph.dependents(dependent));
+            }
+        }
+    }
+
+    private void reportFailures(int total, List<String> failedItems, List<MojoExecutionException> failures, List<String> skippedItems,
+                                List<String> notStartedItems) throws MojoExecutionException {
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        if (failures.size() == 1 && skippedItems.isEmpty() && notStartedItems.isEmpty()) {
+            throw failures.get(0);
+        }
+
+        for (int i = 0; i < failures.size(); i++) {
+            log.error("Failed to process " + failedItems.get(i) + ": " + failures.get(i).getMessage());
+        }
+
+        String msg = String.format("%d of %d items failed: %s", failures.size(), total, String.join(", ", failedItems));
+        if (!skippedItems.isEmpty()) {
+            msg += String.format(". Skipped %d dependent items: %s", skippedItems.size(), String.join(", ", skippedItems));
+        }
+        if (!notStartedItems.isEmpty()) {
+            msg += String.format(". Did not start %d items: %s", notStartedItems.size(), String.join(", ", notStartedItems));
+        }
+        MojoExecutionException exception = new MojoExecutionException(msg);
+        failures.forEach(exception::addSuppressed);
+        throw exception;
+    }
+
+    private static MojoExecutionException toMojoExecutionException(String description, Throwable cause) {
+        if (cause instanceof MojoExecutionException) {
+            return (MojoExecutionException) cause;
+        }
+        return new MojoExecutionException("Unexpected failure while processing " + description + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * A task that is executed for a single item.
+     *
+     * @param <T> The type of item the task processes
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+
+        /**
+         * Executes the task for the provided item.
+         *
+         * @param item The item to process
+         * @throws MojoExecutionException In case processing the item fails
+         */
+        void execute(T item) throws MojoExecutionException;
+    }
+
+    // Thrown instead of executing a task once another task has failed
+    private static final class NotStarted extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class TaskFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        private TaskFailure(int index, Throwable cause) {
+            super(cause);
+            this.index = index;
+        }
+    }
+
+    /**
+     * Index based representation of the dependencies between the items to process.
+     */
+    private static final class DependencyGraph<T> {
+
+        private final List<T> items;
+        private final List<List<Integer>> dependents = new ArrayList<>();
+        private final int[] dependencyCounts;
+
+        private DependencyGraph(List<T> items, Map<T, ? extends Collection<T>> dependencies) {
+            this.items = items;
+            this.dependencyCounts = new int[items.size()];
+
+            Map<T, Integer> indexes = new IdentityHashMap<>();
+            for (int index = 0; index < items.size(); index++) {
+                indexes.put(items.get(index), index);
+                dependents.add(new ArrayList<>());
+            }
+
+            for (int index = 0; index < items.size(); index++) {
+                Collection<T> itemDependencies = dependencies.get(items.get(index));
+                if (itemDependencies == null) {
+                    continue;
+                }
+
+                for (T dependency : new LinkedHashSet<>(itemDependencies)) {
+                    Integer dependencyIndex = indexes.get(dependency);
+                    if (dependencyIndex != null && dependencyIndex != index) {
+                        dependents.get(dependencyIndex).add(index);
+                        dependencyCounts[index]++;
+                    }
+                }
+            }
+        }
+
+        private List<Integer> dependents(int index) {
+            return dependents.get(index);
+        }
+
+        private int[] dependencyCounts() {
+            return dependencyCounts.clone();
+        }
+
+        /**
+         * Returns the indexes of the items in an order in which every item comes after its dependencies. Items that
+         * do not depend on each other keep their original order.
+         */
+        private List<Integer> topologicalOrder(Function<T, String> describer) throws MojoExecutionException {
+            int[] remaining = dependencyCounts();
+            PriorityQueue<Integer> ready = new PriorityQueue<>();
+            for (int index = 0; index < items.size(); index++) {
+                if (remaining[index] == 0) {
+                    ready.add(index);
+                }
+            }
+
+            List<Integer> order = new ArrayList<>();
+            while (!ready.isEmpty()) {
+                int index = ready.poll();
+                order.add(index);
+                for (int dependent : dependents.get(index)) {
+                    if (--remaining[dependent] == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+
+            if (order.size() != items.size()) {
+                List<String> unresolved = new ArrayList<>();
+                for (int index = 0; index < items.size(); index++) {
+                    if (remaining[index] > 0) {
+                        unresolved.add(describer.apply(items.get(index)));
+                    }
+                }
+                throw new MojoExecutionException("Cyclic dependency detected between: " + String.join(", ", unresolved));
+            }
+            return order;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
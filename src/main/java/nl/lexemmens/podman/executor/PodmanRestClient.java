@@ -0,0 +1,363 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Client for the Libpod REST API of a Podman service, as started by <code>podman system service</code>.
+ * </p>
+ * <p>
+ * Connections are kept alive and reused between requests by the JDK's HTTP client, so all requests of a build share
+ * a small pool of connections to the service. Streams of every response are read completely, as a connection can
+ * only be reused once its response has been consumed.
+ * </p>
+ */
+public class PodmanRestClient {
+
+    private static final String API_PREFIX = "/v4.0.0/libpod";
+    private static final String TCP_SCHEME = "tcp://";
+    private static final String HTTP_SCHEME = "http://";
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final String DELETE = "DELETE";
+
+    private static final String IMAGES_PATH = "/images/";
+    private static final String IMAGES_EXPORT_PATH = "/images/export";
+    private static final List<String> IMAGE_OPERATIONS = Arrays.asList("exists", "get", "json", "push", "tag");
+
+    private final Log log;
+    private final String baseUrl;
+    private final ExecutionMetrics metrics;
+
+    /**
+     * Constructs a new instance of this client
+     *
+     * @param log        Access to Maven's log system
+     * @param serviceUrl The URL of the Podman service, either <code>tcp://host:port</code> or <code>http://host:port</code>
+     * @param metrics    Receives the wall time and status of every request
+     */
+    public PodmanRestClient(Log log, String serviceUrl, ExecutionMetrics metrics) {
+        this.log = log;
+        this.metrics = metrics;
+
+        String url = serviceUrl.startsWith(TCP_SCHEME) ? HTTP_SCHEME + serviceUrl.substring(TCP_SCHEME.length()) : serviceUrl;
+        this.baseUrl = (url.endsWith("/") ? url.substring(0, url.length() - 1) : url) + API_PREFIX;
+    }
+
+    /**
+     * Executes a GET request and returns the response, which must be a JSON object
+     *
+     * @param path The path of the endpoint, relative to the Libpod API
+     * @return The response
+     * @throws MojoExecutionException In case the request fails
+     */
+    public JSONObject getJson(String path) throws MojoExecutionException {
+        return metered(GET, path, () -> {
+            HttpURLConnection connection = open(GET, path, new Query());
+            try (InputStream in = readResponse(GET, path, connection)) {
+                return new JSONObject(new String(readFully(in), StandardCharsets.UTF_8));
+            } catch (IOException | JSONException e) {
+                throw failed(GET, path, e);
+            }
+        });
+    }
+
+    /**
+     * Executes a GET request that only reports whether a resource exists
+     *
+     * @param path The path of the endpoint, relative to the Libpod API
+     * @return true if the service responds with a 2xx status code, false if it responds with 404
+     * @throws MojoExecutionException In case the request fails for another reason
+     */
+    public boolean exists(String path) throws MojoExecutionException {
+        return metered(GET, path, () -> {
+            HttpURLConnection connection = open(GET, path, new Query());
+            try {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                    drain(connection.getErrorStream());
+                    return false;
+                }
+                drain(readResponse(GET, path, connection));
+                return true;
+            } catch (IOException e) {
+                throw failed(GET, path, e);
+            }
+        });
+    }
+
+    /**
+     * Executes a POST request without a request body, ignoring the response body
+     *
+     * @param path  The path of the endpoint, relative to the Libpod API
+     * @param query The query parameters
+     * @throws MojoExecutionException In case the request fails
+     */
+    public void post(String path, Query query) throws MojoExecutionException {
+        metered(POST, path, () -> {
+            HttpURLConnection connection = open(POST, path, query);
+            try {
+                drain(readResponse(POST, path, connection));
+                return null;
+            } catch (IOException e) {
+                throw failed(POST, path, e);
+            }
+        });
+    }
+
+    /**
+     * Executes a DELETE request, ignoring the response body
+     *
+     * @param path The path of the endpoint, relative to the Libpod API
+     * @throws MojoExecutionException In case the request fails
+     */
+    public void delete(String path) throws MojoExecutionException {
+        metered(DELETE, path, () -> {
+            HttpURLConnection connection = open(DELETE, path, new Query());
+            try {
+                drain(readResponse(DELETE, path, connection));
+                return null;
+            } catch (IOException e) {
+                throw failed(DELETE, path, e);
+            }
+        });
+    }
+
+    /**
+     * Executes a GET request and copies the (binary) response to the provided stream while it is being received
+     *
+     * @param path         The path of the endpoint, relative to the Libpod API
+     * @param query        The query parameters
+     * @param outputStream The stream to write the response to. The stream is not closed.
+     * @throws MojoExecutionException In case the request fails
+     */
+    public void download(String path, Query query, OutputStream outputStream) throws MojoExecutionException {
+        metered(GET, path, () -> {
+            HttpURLConnection connection = open(GET, path, query);
+            try (InputStream in = readResponse(GET, path, connection)) {
+                IOUtils.copyLarge(in, outputStream, new byte[STREAMING_CHUNK_SIZE]);
+                return null;
+            } catch (IOException e) {
+                throw failed(GET, path, e);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Executes a POST request of which the response is a stream of JSON messages, one per line, such as the
+     * response of a build or push. Every message is passed to the provided consumer as soon as it is received.
+     * </p>
+     * <p>
+     * A message containing an <code>error</code> field fails the request after the stream has been read.
+     * </p>
+     *
+     * @param path            The path of the endpoint, relative to the Libpod API
+     * @param query           The query parameters
+     * @param body            Writes the request body. May be null, in which case no body is sent.
+     * @param contentType     The content type of the request body
+     * @param messageConsumer Receives the messages of the response
+     * @throws MojoExecutionException In case the request fails or the service reports an error
+     */
+    public void postStreaming(String path, Query query, RequestBody body, String contentType, Consumer<JSONObject> messageConsumer) throws MojoExecutionException {
+        metered(POST, path, () -> {
+            HttpURLConnection connection = open(POST, path, query);
+            List<String> errors = new ArrayList<>();
+
+            try {
+                if (body != null) {
+                    connection.setDoOutput(true);
+                    connection.setChunkedStreamingMode(STREAMING_CHUNK_SIZE);
+                    connection.setRequestProperty("Content-Type", contentType);
+                    try (OutputStream out = connection.getOutputStream()) {
+                        body.writeTo(out);
+                    }
+                }
+
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(readResponse(POST, path, connection), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().isEmpty()) {
+                            continue;
+                        }
+
+                        JSONObject message = new JSONObject(line);
+                        if (message.has("error")) {
+                            errors.add(message.optString("error"));
+                        }
+                        messageConsumer.accept(message);
+                    }
+                }
+            } catch (IOException | JSONException e) {
+                throw failed(POST, path, e);
+            }
+
+            if (!errors.isEmpty()) {
+                String msg = "Podman service reported an error for " + POST + " " + path + ": " + String.join(", ", errors);
+                log.error(msg);
+                throw new MojoExecutionException(msg);
+            }
+            return null;
+        });
+    }
+
+    private <T> T metered(String method, String path, Request<T> request) throws MojoExecutionException {
+        String name = "podman service " + method + " " + getEndpoint(path);
+        long start = System.nanoTime();
+        boolean success = false;
+        ExecutionTrace.Span span = ExecutionTrace.span(name, "command");
+        try {
+            T result = request.execute();
+            success = true;
+            return result;
+        } finally {
+            span.close();
+            metrics.recordCommand(name, System.nanoTime() - start, success, 0, 0);
+        }
+    }
+
+    /**
+     * Replaces the image name in a path by a placeholder, so that requests for different images are recorded as
+     * requests to the same endpoint.
+     */
+    static String getEndpoint(String path) {
+        if (!path.startsWith(IMAGES_PATH) || path.equals(IMAGES_EXPORT_PATH)) {
+            return path;
+        }
+
+        int lastSlash = path.lastIndexOf('/');
+        String operation = path.substring(lastSlash + 1);
+        return IMAGE_OPERATIONS.contains(operation) ? IMAGES_PATH + "{name}/" + operation : IMAGES_PATH + "{name}";
+    }
+
+    private HttpURLConnection open(String method, String path, Query query) throws MojoExecutionException {
+        String url = baseUrl + path + query;
+        log.debug("Executing " + method + " " + url);
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            // Builds and pushes may take a long time without producing output
+            connection.setReadTimeout(0);
+            return connection;
+        } catch (IOException e) {
+            throw failed(method, path, e);
+        }
+    }
+
+    private InputStream readResponse(String method, String path, HttpURLConnection connection) throws IOException, MojoExecutionException {
+        int status = connection.getResponseCode();
+        if (status >= 200 && status < 300) {
+            return connection.getInputStream();
+        }
+
+        String message = "";
+        InputStream errorStream = connection.getErrorStream();
+        if (errorStream != null) {
+            String body = new String(readFully(errorStream), StandardCharsets.UTF_8);
+            try {
+                message = ": " + new JSONObject(body).optString("message", body);
+            } catch (JSONException e) {
+                message = ": " + body;
+            }
+        }
+
+        String msg = "Podman service returned HTTP " + status + " for " + method + " " + path + message;
+        log.error(msg);
+        throw new MojoExecutionException(msg);
+    }
+
+    private MojoExecutionException failed(String method, String path, Exception cause) {
+        String msg = "Failed to execute " + method + " " + path + " on Podman service " + baseUrl + ": " + cause.getMessage();
+        log.error(msg, cause);
+        return new MojoExecutionException(msg, cause);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in != null) {
+            readFully(in);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+        T execute() throws MojoExecutionException;
+    }
+
+    /**
+     * Writes the body of a request
+     */
+    @FunctionalInterface
+    public interface RequestBody {
+
+        /**
+         * Writes the body to the provided stream
+         *
+         * @param outputStream The stream of the request. Must not be closed.
+         * @throws IOException In case the body cannot be written
+         */
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * The query parameters of a request. Parameters are encoded in the order in which they are added.
+     */
+    public static class Query {
+
+        private final StringBuilder query = new StringBuilder();
+
+        /**
+         * Adds a parameter. Parameters may be added more than once.
+         *
+         * @param name  The name of the parameter
+         * @param value The value of the parameter
+         * @return This instance
+         */
+        public Query add(String name, Object value) {
+            query.append(query.length() == 0 ? '?' : '&').append(encode(name)).append('=').append(encode(String.valueOf(value)));
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return query.toString();
+        }
+
+        private static String encode(String value) {
+            try {
+                return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException e) {
+                // UTF-8 is always supported
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
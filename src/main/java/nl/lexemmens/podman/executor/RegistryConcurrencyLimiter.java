@@ -0,0 +1,80 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * <p>
+ * Limits the number of operations that run concurrently against a single registry.
+ * </p>
+ * <p>
+ * The registry is derived from the full name of an image, i.e. the part before the first <code>/</code>, provided
+ * that part looks like a host name. Images without an explicit registry are considered to be hosted on
+ * <code>docker.io</code>.
+ * </p>
+ */
+public final class RegistryConcurrencyLimiter {
+
+    private static final String DEFAULT_REGISTRY = "docker.io";
+
+    private final int permitsPerRegistry;
+    private final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param permitsPerRegistry The maximum number of concurrent operations per registry. Values lower than 1 disable
+     *                           the limit.
+     */
+    public RegistryConcurrencyLimiter(int permitsPerRegistry) {
+        this.permitsPerRegistry = permitsPerRegistry;
+    }
+
+    /**
+     * Executes the provided operation as soon as the registry of the provided image allows another concurrent operation.
+     *
+     * @param fullImageName The full name of the image the operation applies to
+     * @param operation     The operation to execute
+     * @throws MojoExecutionException In case the operation fails or the thread is interrupted while waiting
+     */
+    public void execute(String fullImageName, RetryPolicy.Operation operation) throws MojoExecutionException {
+        if (permitsPerRegistry < 1) {
+            operation.execute();
+            return;
+        }
+
+        Semaphore semaphore = semaphores.computeIfAbsent(getRegistry(fullImageName), registry -> new Semaphore(permitsPerRegistry, true));
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for access to registry of " + fullImageName, e);
+        }
+
+        try {
+            operation.execute();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Returns the registry an image is hosted on.
+     *
+     * @param fullImageName The full name of an image
+     * @return The registry of the image
+     */
+    public static String getRegistry(String fullImageName) {
+        int slashIndex = fullImageName.indexOf('/');
+        if (slashIndex > 0) {
+            String candidate = fullImageName.substring(0, slashIndex);
+            if (candidate.contains(".") || candidate.contains(":") || "localhost".equals(candidate)) {
+                return candidate;
+            }
+        }
+        return DEFAULT_REGISTRY;
+    }
+}
@@ -0,0 +1,123 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * Retries an operation that failed with a {@link MojoExecutionException}, waiting between attempts.
+ * </p>
+ * <p>
+ * The delay before a retry doubles with every failed attempt, starting at the initial delay, until it reaches the
+ * maximum delay. A random jitter of up to half the delay is applied, so that concurrent operations that failed at the
+ * same time, for example because a registry was briefly unavailable, do not all retry at the same moment.
+ * </p>
+ */
+public final class RetryPolicy {
+
+    private final Log log;
+    private final int retries;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Sleeper sleeper;
+    private final ExecutionMetrics metrics;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param log                Access to Maven's log system
+     * @param retries            The number of times a failed operation is retried. Values lower than 0 are treated as 0.
+     * @param initialDelayMillis The delay before the first retry in milliseconds. A value of 0 retries immediately.
+     * @param maxDelayMillis     The maximum delay between two attempts in milliseconds
+     * @param metrics            Receives the number of retries
+     */
+    public RetryPolicy(Log log, int retries, long initialDelayMillis, long maxDelayMillis, ExecutionMetrics metrics) {
+        this(log, retries, initialDelayMillis, maxDelayMillis, Thread::sleep, metrics);
+    }
+
+    RetryPolicy(Log log, int retries, long initialDelayMillis, long maxDelayMillis, Sleeper sleeper) {
+        this(log, retries, initialDelayMillis, maxDelayMillis, sleeper, new ExecutionMetrics());
+    }
+
+    RetryPolicy(Log log, int retries, long initialDelayMillis, long maxDelayMillis, Sleeper sleeper, ExecutionMetrics metrics) {
+        this.log = log;
+        this.retries = Math.max(0, retries);
+        this.initialDelayMillis = Math.max(0, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.sleeper = sleeper;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Executes the provided operation, retrying it when it fails until the number of retries is exhausted.
+     *
+     * @param description A human readable description of the operation, used for logging
+     * @param operation   The operation to execute
+     * @throws MojoExecutionException The failure of the last attempt, in case all attempts failed
+     */
+    public void execute(String description, Operation operation) throws MojoExecutionException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                operation.execute();
+                return;
+            } catch (MojoExecutionException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+
+                long delay = getDelay(attempt);
+                log.warn("Failed to " + description + ", retrying in " + delay + " ms (attempt " + (attempt + 2) + " of " + (retries + 1) + ")...");
+                metrics.recordRetry();
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Returns the delay before the next attempt, after the provided (zero based) attempt failed.
+     */
+    long getDelay(int attempt) {
+        if (initialDelayMillis == 0) {
+            return 0;
+        }
+
+        // Cap the exponent to prevent overflow; the maximum delay applies long before that
+        long delay = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempt, 30));
+        long halfDelay = delay / 2;
+        return halfDelay + ThreadLocalRandom.current().nextLong(delay - halfDelay + 1);
+    }
+
+    private void sleep(long delay) throws MojoExecutionException {
+        if (delay == 0) {
+            return;
+        }
+
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting to retry.", e);
+        }
+    }
+
+    /**
+     * An operation that may be retried.
+     */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Executes the operation.
+         *
+         * @throws MojoExecutionException In case the operation fails
+         */
+        void execute() throws MojoExecutionException;
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,78 @@
+package nl.lexemmens.podman.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Collects the work that the modules of a reactor build defer until the end of the build, similar to the
+ * <code>deployAtEnd</code> option of the Maven Deploy Plugin. Every module that executes a goal registers its work,
+ * or registers that it has nothing to do. The registration that completes the reactor receives the work of all
+ * modules, which it should then process.
+ * </p>
+ * <p>
+ * The reactor is complete once all expected modules have registered. A module may register more than once, e.g. when
+ * it executes the goal in multiple executions. Work registered after the reactor is complete is returned right away,
+ * so that it is not lost. This class is thread safe, as modules may be built in parallel.
+ * </p>
+ *
+ * @param <T> The type of the deferred work
+ */
+public final class AtEndRegistry<T> {
+
+    private final Map<String, List<T>> registrations = new LinkedHashMap<>();
+    private boolean completed;
+
+    /**
+     * Registers the deferred work of a module
+     *
+     * @param projectId        The id of the module
+     * @param work             The deferred work. May be null if the module has nothing to do.
+     * @param expectedProjects The ids of all modules that are expected to register
+     * @return The work of all modules when this registration completes the reactor, the work of this module when the
+     * reactor was already complete, or an empty list otherwise
+     */
+    public synchronized List<T> register(String projectId, T work, Collection<String> expectedProjects) {
+        if (completed) {
+            return work == null ? Collections.emptyList() : Collections.singletonList(work);
+        }
+
+        List<T> projectWork = registrations.computeIfAbsent(projectId, id -> new ArrayList<>());
+        if (work != null) {
+            projectWork.add(work);
+        }
+        if (!registrations.keySet().containsAll(expectedProjects)) {
+            return Collections.emptyList();
+        }
+
+        completed = true;
+        List<T> allWork = registrations.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new));
+        registrations.clear();
+        return allWork;
+    }
+
+    /**
+     * Returns the modules that are expected to register, but have not registered yet
+     *
+     * @param expectedProjects The ids of all modules that are expected to register
+     * @return The ids of the modules that have not registered yet. Empty once the reactor is complete.
+     */
+    public synchronized Set<String> getPendingProjects(Collection<String> expectedProjects) {
+        if (completed) {
+            return Collections.emptySet();
+        }
+
+        Set<String> pendingProjects = new LinkedHashSet<>(expectedProjects);
+        pendingProjects.removeAll(registrations.keySet());
+        return pendingProjects;
+    }
+}
@@ -0,0 +1,39 @@
+package nl.lexemmens.podman.helper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files that may be read by other processes at any time, such as the textfile collector of the Prometheus
+ * node exporter or a trace viewer, so that these never see a partially written file.
+ */
+public final class AtomicFileWriter {
+
+    private AtomicFileWriter() {
+        // Utility class
+    }
+
+    /**
+     * Replaces the content of a file by writing it to a temporary file next to it, which is then moved in place.
+     * Missing parent directories are created.
+     *
+     * @param target  The file to write
+     * @param content The content to write, encoded as UTF-8
+     * @throws IOException In case the file cannot be written
+     */
+    public static void write(Path target, String content) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tempFile = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
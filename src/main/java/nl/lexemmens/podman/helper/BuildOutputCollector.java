@@ -0,0 +1,229 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.command.CommandOutputListener;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.containerfile.Containerfile;
+import nl.lexemmens.podman.containerfile.FromInstruction;
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Processes the output of a Podman build command line by line, while the build is running, in order to determine
+ * the image hash of the final image and, in case of a multistage Containerfile, the image hash of every stage.
+ * </p>
+ * <p>
+ * The last line of the output of a Podman build contains the hash of the final image. As it is not known in advance
+ * which line is the last one, every line is only processed when the next line arrives. The remaining line is the
+ * final image hash.
+ * </p>
+ * <p>
+ * For multistage Containerfiles, identification of stage hashes starts at a line that reports a <code>FROM</code>
+ * instruction of a stage named in the Containerfile, i.e. <code>STEP 1: FROM [something] AS stageName</code>. The
+ * instruction is parsed the same way as the Containerfile itself. Every next line is inspected for an image hash until the next stage
+ * starts or the output ends, whatever comes first. The last image hash found is associated with the stage. Image
+ * hashes must be between 11 and 64 characters in length in order to be detected. A STEP definition in a
+ * Containerfile may produce multiline output.
+ * </p>
+ * <p>
+ * Only the state required to determine the hashes is kept in memory, regardless of the amount of output.
+ * </p>
+ * <p>
+ * For every step that produces a layer, i.e. every <code>STEP</code> except <code>FROM</code>, it is logged whether
+ * its layer was taken from the (local or remote) layer cache. This is logged at debug level, only a summary is logged
+ * at info level when the build completes.
+ * </p>
+ * <p>
+ * Every stage is recorded as a span in the active {@link ExecutionTrace}, on the track of the thread that created
+ * this collector, as the output is processed by another thread.
+ * </p>
+ * <p>
+ * When the image has an output prefix, because images are built in parallel, the prefix is put in front of every line
+ * logged by this collector.
+ * </p>
+ */
+public final class BuildOutputCollector implements CommandOutputListener {
+
+    private static final Pattern IMAGE_HASH_PATTERN = Pattern.compile("\\b([A-Fa-f0-9]{11,64})\\b");
+    private static final Pattern FROM_INSTRUCTION_PATTERN = Pattern.compile("(?i)(?:^|:\\s*)FROM\\s+(.+)$");
+    private static final Pattern STEP_PATTERN = Pattern.compile("^STEP \\d+(?:/\\d+)?: (\\S+)");
+    private static final String CACHE_HIT_PREFIX = "--> Using cache";
+    private static final String REMOTE_CACHE_HIT_PREFIX = "--> Cache pulled from remote";
+
+    private final Log log;
+    private final SingleImageConfiguration image;
+    private final List<String> stageNames;
+    private final String outputPrefix;
+    private final ExecutionTrace.Track track;
+
+    private String pendingLine;
+    private String currentStage;
+    private String lastKnownImageHash;
+    private ExecutionTrace.Span stageSpan;
+
+    private String currentStep;
+    private boolean currentStepCached;
+    private boolean currentStepPulled;
+    private int steps;
+    private int cachedSteps;
+    private int pulledSteps;
+
+    /**
+     * Constructs a new instance of this collector
+     *
+     * @param log   Maven's logger for log output
+     * @param image The image that is being built. Stage hashes are recorded in this configuration.
+     */
+    public BuildOutputCollector(Log log, SingleImageConfiguration image) {
+        this.log = log;
+        this.image = image;
+        this.stageNames = image.getBuild().isMultistageContainerFile()
+                ? image.getBuild().getParsedContainerFile().map(Containerfile::getStageNames).orElse(Collections.emptyList())
+                : Collections.emptyList();
+        this.track = ExecutionTrace.track();
+        this.outputPrefix = image.getBuild().getOutputPrefix().orElse("");
+
+        if (!stageNames.isEmpty()) {
+            log.debug("Looking for stages: " + stageNames);
+        }
+    }
+
+    @Override
+    public void onLine(String line) {
+        processCacheUsage(line);
+
+        if (pendingLine != null && !stageNames.isEmpty()) {
+            processLine(pendingLine);
+        }
+        pendingLine = line;
+    }
+
+    /**
+     * <p>
+     * Completes processing of the build output. Must be called once the build has finished.
+     * </p>
+     * <p>
+     * Records the image hash of the last stage and returns the hash of the final image.
+     * </p>
+     *
+     * @return The last line of the build output, usually containing the image hash of the final image. Empty when the
+     * build did not produce any output.
+     */
+    public Optional<String> complete() {
+        completeStep();
+        if (steps > 0) {
+            log.info(outputPrefix + String.format("Layer cache: %d of %d steps cached, %d of which pulled from a remote cache.", cachedSteps, steps, pulledSteps));
+        }
+
+        if (currentStage != null) {
+            recordImageHash();
+            stageSpan.close();
+            currentStage = null;
+        }
+
+        if (!stageNames.isEmpty()) {
+            log.debug("Collected hashes: " + image.getImageHashPerStage());
+        }
+
+        return Optional.ofNullable(pendingLine);
+    }
+
+    private void processCacheUsage(String line) {
+        Matcher stepMatcher = STEP_PATTERN.matcher(line);
+        if (stepMatcher.find()) {
+            completeStep();
+            // A FROM instruction does not produce a layer
+            currentStep = "FROM".equalsIgnoreCase(stepMatcher.group(1)) ? null : line;
+            currentStepCached = false;
+            currentStepPulled = false;
+        } else if (currentStep != null && line.startsWith(REMOTE_CACHE_HIT_PREFIX)) {
+            currentStepCached = true;
+            currentStepPulled = true;
+        } else if (currentStep != null && line.startsWith(CACHE_HIT_PREFIX)) {
+            currentStepCached = true;
+        }
+    }
+
+    private void completeStep() {
+        if (currentStep == null) {
+            return;
+        }
+
+        steps++;
+        if (currentStepCached) {
+            cachedSteps++;
+            if (currentStepPulled) {
+                pulledSteps++;
+            }
+            log.debug(outputPrefix + "Layer cache hit" + (currentStepPulled ? " (remote)" : "") + ": " + currentStep);
+        } else {
+            log.debug(outputPrefix + "Layer cache miss: " + currentStep);
+        }
+        currentStep = null;
+    }
+
+    private void processLine(String line) {
+        if (currentStage == null) {
+            log.debug("Processing line: '" + line + "'");
+            startStageIfDefined(line);
+            return;
+        }
+
+        log.debug("Processing candidate: '" + line + "'");
+        Optional<String> stage = getStartedStage(line);
+        if (stage.isPresent()) {
+            recordImageHash();
+            stageSpan.close();
+
+            log.debug("Processing line: '" + line + "'");
+            startStage(stage.get());
+            return;
+        }
+
+        Matcher hashMatcher = IMAGE_HASH_PATTERN.matcher(line);
+        if (hashMatcher.find()) {
+            lastKnownImageHash = hashMatcher.group(1);
+            log.debug("Derived hash: '" + lastKnownImageHash + "' from:     " + line);
+        } else {
+            log.debug("No stage or image hash on line: " + line);
+        }
+    }
+
+    private void startStageIfDefined(String line) {
+        getStartedStage(line).ifPresent(this::startStage);
+    }
+
+    private Optional<String> getStartedStage(String line) {
+        Matcher fromMatcher = FROM_INSTRUCTION_PATTERN.matcher(line);
+        if (!fromMatcher.find()) {
+            return Optional.empty();
+        }
+
+        // Report the stage by the name used in the Containerfile, as stage names are not case sensitive
+        return FromInstruction.parse(fromMatcher.group(1))
+                .flatMap(FromInstruction::getStageName)
+                .flatMap(name -> stageNames.stream().filter(name::equalsIgnoreCase).findFirst());
+    }
+
+    private void startStage(String stage) {
+        log.debug("Processing stage in Containerfile: " + stage);
+        currentStage = stage;
+        lastKnownImageHash = null;
+        stageSpan = track.begin("stage " + stage, "stage");
+    }
+
+    private void recordImageHash() {
+        if (lastKnownImageHash == null) {
+            log.warn(outputPrefix + "No image hash found for stage: '" + currentStage + "'");
+        } else {
+            log.info(outputPrefix + "Final image for stage " + currentStage + " is: " + lastKnownImageHash);
+            image.getImageHashPerStage().put(currentStage, lastKnownImageHash);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.enumeration.SaveCompression;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>
+ * Writes an archive to disk while it is being produced, compressing it on the fly and computing its SHA-256 checksum
+ * over the bytes written to disk.
+ * </p>
+ * <p>
+ * The archive is first written to a temporary file next to the target file, which is moved into place once the
+ * archive is complete. This prevents partially written archives from being mistaken for complete ones. When enabled,
+ * the checksum is written to a file with the name of the archive and the <code>.sha256</code> extension, in the
+ * format used by <code>sha256sum</code>.
+ * </p>
+ */
+public final class CompressedArchiveWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CHECKSUM_EXTENSION = ".sha256";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Log log;
+    private final SaveCompression compression;
+    private final int compressionLevel;
+    private final boolean writeChecksum;
+
+    /**
+     * Constructs a new instance of this class
+     *
+     * @param log              Access to Maven's log system
+     * @param compression      The compression to apply
+     * @param compressionLevel The compression level, from 1 (fastest) to 9 (smallest)
+     * @param writeChecksum    Whether a checksum file should be written next to the archive
+     * @throws MojoExecutionException In case the compression is not available on this platform
+     */
+    public CompressedArchiveWriter(Log log, SaveCompression compression, int compressionLevel, boolean writeChecksum) throws MojoExecutionException {
+        if (compression == SaveCompression.ZSTD && !ZstdUtils.isZstdCompressionAvailable()) {
+            String msg = "Zstandard compression is not available, as the native library of zstd-jni cannot be loaded on this platform. Use GZIP or NONE compression instead.";
+            log.error(msg);
+            throw new MojoExecutionException(msg);
+        }
+
+        this.log = log;
+        this.compression = compression;
+        this.compressionLevel = Math.max(1, Math.min(9, compressionLevel));
+        this.writeChecksum = writeChecksum;
+    }
+
+    /**
+     * Writes the archive produced by the provided source to the provided path
+     *
+     * @param archive The path to write the archive to
+     * @param source  Produces the contents of the archive
+     * @throws MojoExecutionException In case the archive cannot be produced or written
+     */
+    public void write(Path archive, ArchiveSource source) throws MojoExecutionException {
+        Path tempArchive = archive.resolveSibling(archive.getFileName() + TEMP_EXTENSION);
+        MessageDigest digest = createDigest();
+
+        try {
+            try (DigestOutputStream digestStream = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tempArchive), BUFFER_SIZE), digest);
+                 OutputStream archiveStream = compress(digestStream)) {
+                source.writeTo(archiveStream);
+            }
+
+            Files.move(tempArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+            if (writeChecksum) {
+                String checksum = toHex(digest.digest()) + "  " + archive.getFileName() + "\n";
+                Files.write(archive.resolveSibling(archive.getFileName() + CHECKSUM_EXTENSION), checksum.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            String msg = "Failed to write archive " + archive + ": " + e.getMessage();
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        } finally {
+            deleteQuietly(tempArchive);
+        }
+    }
+
+    private OutputStream compress(OutputStream outputStream) throws IOException {
+        if (compression == SaveCompression.GZIP) {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
+        } else if (compression == SaveCompression.ZSTD) {
+            return new ZstdCompressorOutputStream(outputStream, compressionLevel);
+        }
+        return outputStream;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file " + path);
+        }
+    }
+
+    private static MessageDigest createDigest() throws MojoExecutionException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new MojoExecutionException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Produces the contents of an archive
+     */
+    @FunctionalInterface
+    public interface ArchiveSource {
+
+        /**
+         * Writes the contents of the archive to the provided stream
+         *
+         * @param outputStream The stream to write to. Must not be closed by the source.
+         * @throws MojoExecutionException In case the contents cannot be produced
+         */
+        void writeTo(OutputStream outputStream) throws MojoExecutionException;
+    }
+}
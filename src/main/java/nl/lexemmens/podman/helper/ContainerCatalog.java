@@ -0,0 +1,245 @@
+package nl.lexemmens.podman.helper;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>
+ * The structured counterpart of <code>container-catalog.txt</code>, stored as <code>container-catalog.json</code>.
+ * Next to the names of the images built by a module, it records what is known about every image, such as its local
+ * image ID, the build stage it was produced by and the manifest digest it was pushed with.
+ * </p>
+ * <p>
+ * Only the local catalog of a module is read, by the build goal, which keeps the digests of images that did not
+ * change, and by the push goal, to skip images that have already been pushed. The copy and save goals do not read
+ * this file: the copy goal resolves <code>container-catalog.txt</code> and inspects the source images, and the save
+ * goal needs the digests of the images in local storage rather than those of the pushed manifests.
+ * </p>
+ * <p>
+ * Information that is unknown is omitted from the file. Digests are recorded by the push goal, which by default runs
+ * after the catalog has been deployed. The deployed catalog therefore only contains digests when the push goal is bound
+ * to an earlier phase, such as <code>install</code>.
+ * </p>
+ */
+public final class ContainerCatalog {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final Map<String, Entry> images = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new, empty catalog
+     *
+     * @param groupId    The groupId of the module that built the images
+     * @param artifactId The artifactId of the module that built the images
+     * @param version    The version of the module that built the images
+     */
+    public ContainerCatalog(String groupId, String artifactId, String version) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+    }
+
+    /**
+     * Reads a catalog from a file
+     *
+     * @param catalogPath The file to read
+     * @return The catalog, or an empty Optional if the file does not exist
+     * @throws MojoExecutionException In case the file cannot be read or is not a valid catalog
+     */
+    public static Optional<ContainerCatalog> read(Path catalogPath) throws MojoExecutionException {
+        if (!Files.exists(catalogPath)) {
+            return Optional.empty();
+        }
+
+        try (Reader reader = Files.newBufferedReader(catalogPath, StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            JSONObject module = json.optJSONObject("module");
+            ContainerCatalog catalog = module == null
+                    ? new ContainerCatalog(null, null, null)
+                    : new ContainerCatalog(module.optString("groupId", null), module.optString("artifactId", null), module.optString("version", null));
+
+            JSONArray images = json.optJSONArray("images");
+            if (images != null) {
+                for (int i = 0; i < images.length(); i++) {
+                    JSONObject image = images.getJSONObject(i);
+                    Entry entry = new Entry(image.getString("name"), image.optString("imageId", null), image.optString("stage", null));
+                    entry.setDigest(image.optString("digest", null));
+                    entry.setSize(image.has("size") ? image.getLong("size") : null);
+                    entry.setBuildDurationMillis(image.has("buildDurationMillis") ? image.getLong("buildDurationMillis") : null);
+                    catalog.add(entry);
+                }
+            }
+            return Optional.of(catalog);
+        } catch (IOException | JSONException e) {
+            throw new MojoExecutionException("Failed to read container catalog " + catalogPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes this catalog to a file
+     *
+     * @param catalogPath The file to write to
+     * @throws MojoExecutionException In case the file cannot be written
+     */
+    public void write(Path catalogPath) throws MojoExecutionException {
+        JSONArray imagesJson = new JSONArray();
+        for (Entry entry : images.values()) {
+            imagesJson.put(new JSONObject()
+                    .put("name", entry.name)
+                    .putOpt("imageId", entry.imageId)
+                    .putOpt("stage", entry.stage)
+                    .putOpt("digest", entry.digest)
+                    .putOpt("size", entry.size)
+                    .putOpt("buildDurationMillis", entry.buildDurationMillis));
+        }
+
+        JSONObject json = new JSONObject()
+                .put("formatVersion", FORMAT_VERSION)
+                .put("module", new JSONObject()
+                        .putOpt("groupId", groupId)
+                        .putOpt("artifactId", artifactId)
+                        .putOpt("version", version))
+                .put("images", imagesJson);
+
+        try {
+            Files.write(catalogPath, json.toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write container catalog " + catalogPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds an image to this catalog, replacing an image with the same name
+     *
+     * @param entry The image to add
+     */
+    public void add(Entry entry) {
+        images.put(entry.name, entry);
+    }
+
+    /**
+     * Returns an image in this catalog
+     *
+     * @param name The full name of the image
+     * @return The image, or an empty Optional if this catalog does not contain an image with the given name
+     */
+    public Optional<Entry> getImage(String name) {
+        return Optional.ofNullable(images.get(name));
+    }
+
+    /**
+     * Returns all images in this catalog, in the order they were added
+     *
+     * @return The images in this catalog
+     */
+    public List<Entry> getImages() {
+        return new ArrayList<>(images.values());
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * A single image in the catalog
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final String imageId;
+        private final String stage;
+        private String digest;
+        private Long size;
+        private Long buildDurationMillis;
+
+        /**
+         * Constructs a new entry
+         *
+         * @param name    The full name of the image, including the registry and tag
+         * @param imageId The ID of the image in local storage. May be null.
+         * @param stage   The name of the build stage that produced the image, or null for the final image
+         */
+        public Entry(String name, String imageId, String stage) {
+            this.name = name;
+            this.imageId = imageId;
+            this.stage = stage;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Optional<String> getImageId() {
+            return Optional.ofNullable(imageId);
+        }
+
+        public Optional<String> getStage() {
+            return Optional.ofNullable(stage);
+        }
+
+        /**
+         * Returns the manifest digest the image was pushed with
+         *
+         * @return The digest, or an empty Optional if the image has not been pushed
+         */
+        public Optional<String> getDigest() {
+            return Optional.ofNullable(digest);
+        }
+
+        public void setDigest(String digest) {
+            this.digest = digest;
+        }
+
+        /**
+         * Returns the size of the image in local storage
+         *
+         * @return The size in bytes, or an empty Optional if unknown
+         */
+        public Optional<Long> getSize() {
+            return Optional.ofNullable(size);
+        }
+
+        public void setSize(Long size) {
+            this.size = size;
+        }
+
+        /**
+         * Returns the time it took to build the image
+         *
+         * @return The duration in milliseconds, or an empty Optional if the image was not built, but reused
+         */
+        public Optional<Long> getBuildDurationMillis() {
+            return Optional.ofNullable(buildDurationMillis);
+        }
+
+        public void setBuildDurationMillis(Long buildDurationMillis) {
+            this.buildDurationMillis = buildDurationMillis;
+        }
+    }
+}
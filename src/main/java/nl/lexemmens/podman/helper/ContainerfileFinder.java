@@ -0,0 +1,456 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.executor.ParallelTaskExecutor;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Finds the Containerfiles with a given name in a directory tree, as used by batch image configurations.
+ * </p>
+ * <p>
+ * The tree is walked once. Directories that match an exclude pattern, that are deeper than the maximum depth or that
+ * are well known to contain many files but no Containerfiles to build, such as <code>target</code>, <code>.git</code>
+ * and <code>node_modules</code>, are not searched. Subtrees can be searched in parallel.
+ * </p>
+ * <p>
+ * The contents of every directory searched are recorded in an index file together with the modification time of the
+ * directory, which changes whenever an entry is added to, removed from or renamed in the directory. The next search
+ * only lists the directories whose modification time has changed, and otherwise only checks the modification time of
+ * every directory.
+ * </p>
+ */
+public final class ContainerfileFinder {
+
+    private static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(Arrays.asList(
+            ".git", ".hg", ".svn", ".idea", ".gradle", "node_modules", "target"
+    ));
+
+    // Directories modified this close to the moment they are listed may change again within the same timestamp
+    private static final long RACY_INTERVAL_MILLIS = 2000;
+    private static final long NOT_REUSABLE = -1;
+    private static final int FORMAT_VERSION = 1;
+    private static final int DIRECTORIES_PER_THREAD = 4;
+
+    private final Log log;
+    private final Path configuredRootDirectory;
+    private final Path rootDirectory;
+    private final String containerFileName;
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final List<PathMatcher> includeMatchers;
+    private final List<PathMatcher> excludeMatchers;
+    private final int maxDepth;
+    private final boolean useDefaultExcludes;
+    private final Path outputDirectory;
+    private final Path indexDirectory;
+    private final int threads;
+
+    private ContainerfileFinder(Builder builder) {
+        this.log = builder.log;
+        this.configuredRootDirectory = builder.rootDirectory;
+        this.rootDirectory = builder.rootDirectory.toAbsolutePath().normalize();
+        this.containerFileName = builder.containerFileName;
+        this.includes = builder.includes;
+        this.excludes = builder.excludes;
+        this.includeMatchers = toMatchers(builder.includes);
+        this.excludeMatchers = toMatchers(builder.excludes);
+        this.maxDepth = builder.maxDepth;
+        this.useDefaultExcludes = builder.useDefaultExcludes;
+        this.outputDirectory = builder.outputDirectory == null ? null : builder.outputDirectory.toAbsolutePath().normalize();
+        this.indexDirectory = builder.indexDirectory;
+        this.threads = builder.threads;
+    }
+
+    /**
+     * Finds the Containerfiles
+     *
+     * @return The Containerfiles found, sorted by path. May be an empty list, but is never <code>null</code>
+     * @throws MojoExecutionException In case a directory cannot be searched
+     */
+    public List<Path> find() throws MojoExecutionException {
+        long start = System.currentTimeMillis();
+        Path indexFile = getIndexFile();
+        Search search = new Search(readIndex(indexFile), start);
+
+        Deque<DirectoryToSearch> pending = new ArrayDeque<>();
+        pending.add(new DirectoryToSearch(rootDirectory, 0));
+
+        if (threads > 1) {
+            // Search breadth first until there are enough subtrees to divide over the threads
+            while (!pending.isEmpty() && pending.size() < threads * DIRECTORIES_PER_THREAD) {
+                pending.addAll(search.searchDirectory(pending.poll()));
+            }
+
+            new ParallelTaskExecutor(log, threads, "podman-find").execute(new ArrayList<>(pending), directory -> directory.path.toString(), search::searchTree);
+        } else {
+            search.searchTree(pending.poll());
+        }
+
+        writeIndex(indexFile, search.index);
+
+        List<Path> containerFiles = new ArrayList<>(search.containerFiles);
+        Collections.sort(containerFiles);
+        log.debug("Searched " + search.index.size() + " directories in " + (System.currentTimeMillis() - start) + " ms, "
+                + search.reusedListings.get() + " of which did not change since the previous search.");
+        return containerFiles;
+    }
+
+    private boolean isExcludedDirectory(Path directory, Path relativePath) {
+        if (useDefaultExcludes && (DEFAULT_EXCLUDES.contains(directory.getFileName().toString()) || directory.equals(outputDirectory))) {
+            return true;
+        }
+        return matchesAny(excludeMatchers, relativePath);
+    }
+
+    private boolean isIncludedContainerFile(Path relativePath) {
+        return (includeMatchers.isEmpty() || matchesAny(includeMatchers, relativePath)) && !matchesAny(excludeMatchers, relativePath);
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path relativePath) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> toMatchers(List<String> patterns) {
+        return patterns.stream()
+                .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+                .collect(Collectors.toList());
+    }
+
+    private String toKey(Path directory) {
+        return rootDirectory.relativize(directory).toString().replace('\\', '/');
+    }
+
+    private Path getIndexFile() {
+        if (indexDirectory == null) {
+            return null;
+        }
+
+        // Searches with different settings use different indexes
+        String settings = rootDirectory + "|" + containerFileName + "|" + includes + "|" + excludes + "|" + maxDepth + "|" + useDefaultExcludes;
+        return indexDirectory.resolve(String.format("containerfiles-%s.json", toHex(newDigest().digest(settings.getBytes(StandardCharsets.UTF_8))).substring(0, 12)));
+    }
+
+    private Map<String, Listing> readIndex(Path indexFile) {
+        if (indexFile == null || !Files.exists(indexFile)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Listing> index = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            if (json.optInt("formatVersion") != FORMAT_VERSION) {
+                return Collections.emptyMap();
+            }
+
+            JSONObject directories = json.getJSONObject("directories");
+            for (String key : directories.keySet()) {
+                JSONObject directory = directories.getJSONObject(key);
+                index.put(key, new Listing(directory.getLong("lastModified"),
+                        toList(directory.getJSONArray("directories")),
+                        toList(directory.getJSONArray("containerFiles"))));
+            }
+        } catch (IOException | JSONException e) {
+            log.debug("Ignoring unreadable Containerfile index " + indexFile + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+        return index;
+    }
+
+    private void writeIndex(Path indexFile, Map<String, Listing> index) {
+        if (indexFile == null) {
+            return;
+        }
+
+        JSONObject directories = new JSONObject();
+        for (Map.Entry<String, Listing> entry : index.entrySet()) {
+            directories.put(entry.getKey(), new JSONObject()
+                    .put("lastModified", entry.getValue().lastModified)
+                    .put("directories", new JSONArray(entry.getValue().directories))
+                    .put("containerFiles", new JSONArray(entry.getValue().containerFiles)));
+        }
+
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Files.write(indexFile, new JSONObject()
+                    .put("formatVersion", FORMAT_VERSION)
+                    .put("directories", directories)
+                    .toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Failed to write Containerfile index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    private static List<String> toList(JSONArray array) {
+        List<String> values = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            values.add(array.getString(i));
+        }
+        return values;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The state of a single search, which may be shared by multiple threads
+     */
+    private final class Search {
+
+        private final Map<String, Listing> previousIndex;
+        private final long start;
+        private final Map<String, Listing> index = new ConcurrentHashMap<>();
+        private final List<Path> containerFiles = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger reusedListings = new AtomicInteger();
+
+        private Search(Map<String, Listing> previousIndex, long start) {
+            this.previousIndex = previousIndex;
+            this.start = start;
+        }
+
+        private void searchTree(DirectoryToSearch root) throws MojoExecutionException {
+            Deque<DirectoryToSearch> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                searchDirectory(pending.pop()).forEach(pending::push);
+            }
+        }
+
+        private List<DirectoryToSearch> searchDirectory(DirectoryToSearch directory) throws MojoExecutionException {
+            Listing listing = getListing(directory.path);
+
+            for (String containerFile : listing.containerFiles) {
+                Path path = directory.path.resolve(containerFile);
+                if (isIncludedContainerFile(rootDirectory.relativize(path))) {
+                    containerFiles.add(path);
+                }
+            }
+
+            List<DirectoryToSearch> subdirectories = new ArrayList<>();
+            if (directory.depth < maxDepth) {
+                for (String name : listing.directories) {
+                    Path path = directory.path.resolve(name);
+                    if (!isExcludedDirectory(path, rootDirectory.relativize(path))) {
+                        subdirectories.add(new DirectoryToSearch(path, directory.depth + 1));
+                    }
+                }
+            }
+            return subdirectories;
+        }
+
+        private Listing getListing(Path directory) throws MojoExecutionException {
+            String key = toKey(directory);
+            try {
+                long lastModified = Files.getLastModifiedTime(directory).toMillis();
+                Listing listing = previousIndex.get(key);
+                if (listing != null && listing.lastModified == lastModified) {
+                    reusedListings.incrementAndGet();
+                } else {
+                    listing = list(directory, lastModified >= start - RACY_INTERVAL_MILLIS ? NOT_REUSABLE : lastModified);
+                }
+
+                index.put(key, listing);
+                return listing;
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to find Containerfiles with name '" + containerFileName + "' in directory " + configuredRootDirectory, e);
+            }
+        }
+
+        private Listing list(Path directory, long lastModified) throws IOException {
+            List<String> directories = new ArrayList<>();
+            List<String> files = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    // Like Files.walk, symbolic links to directories are not followed
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        directories.add(name);
+                    } else if (name.equals(containerFileName) && Files.isRegularFile(entry)) {
+                        files.add(name);
+                    }
+                }
+            }
+            return new Listing(lastModified, directories, files);
+        }
+    }
+
+    private static final class DirectoryToSearch {
+
+        private final Path path;
+        private final int depth;
+
+        private DirectoryToSearch(Path path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Listing {
+
+        private final long lastModified;
+        private final List<String> directories;
+        private final List<String> containerFiles;
+
+        private Listing(long lastModified, List<String> directories, List<String> containerFiles) {
+            this.lastModified = lastModified;
+            this.directories = directories;
+            this.containerFiles = containerFiles;
+        }
+    }
+
+    /**
+     * Builder class that can be used to construct a {@link ContainerfileFinder}
+     */
+    public static class Builder {
+
+        private final Log log;
+        private final Path rootDirectory;
+        private final String containerFileName;
+        private List<String> includes = Collections.emptyList();
+        private List<String> excludes = Collections.emptyList();
+        private int maxDepth = Integer.MAX_VALUE;
+        private boolean useDefaultExcludes = true;
+        private Path outputDirectory;
+        private Path indexDirectory;
+        private int threads = 1;
+
+        /**
+         * Constructs a new instance of this builder
+         *
+         * @param log               Access to Maven's log system
+         * @param rootDirectory     The directory to search
+         * @param containerFileName The file name of the Containerfiles to find
+         */
+        public Builder(Log log, Path rootDirectory, String containerFileName) {
+            this.log = log;
+            this.rootDirectory = rootDirectory;
+            this.containerFileName = containerFileName;
+        }
+
+        /**
+         * Sets the glob patterns the path of a Containerfile, relative to the root directory, must match one of. When
+         * not set, all Containerfiles are included.
+         *
+         * @param includes The patterns to set. May be null.
+         * @return This builder instance
+         */
+        public Builder setIncludes(String[] includes) {
+            this.includes = includes == null ? Collections.emptyList() : Arrays.asList(includes);
+            return this;
+        }
+
+        /**
+         * Sets the glob patterns for directories and Containerfiles to skip, relative to the root directory
+         *
+         * @param excludes The patterns to set. May be null.
+         * @return This builder instance
+         */
+        public Builder setExcludes(String[] excludes) {
+            this.excludes = excludes == null ? Collections.emptyList() : Arrays.asList(excludes);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of directory levels below the root directory to search
+         *
+         * @param maxDepth The maximum depth. 0 only searches the root directory. May be null to search all levels.
+         * @return This builder instance
+         */
+        public Builder setMaxDepth(Integer maxDepth) {
+            this.maxDepth = maxDepth == null ? Integer.MAX_VALUE : maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets whether directories such as <code>target</code>, <code>.git</code> and <code>node_modules</code>, as
+         * well as the output directory, should be skipped
+         *
+         * @param useDefaultExcludes Whether to skip the default excludes
+         * @param outputDirectory    The output directory of the project. May be null.
+         * @return This builder instance
+         */
+        public Builder setUseDefaultExcludes(boolean useDefaultExcludes, Path outputDirectory) {
+            this.useDefaultExcludes = useDefaultExcludes;
+            this.outputDirectory = outputDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the directory to store the index of the searched directories in
+         *
+         * @param indexDirectory The directory to set. May be null to not use an index.
+         * @return This builder instance
+         */
+        public Builder setIndexDirectory(Path indexDirectory) {
+            this.indexDirectory = indexDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads to search with
+         *
+         * @param threads The number of threads to use
+         * @return This builder instance
+         */
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Builds the finder
+         *
+         * @return The finder
+         */
+        public ContainerfileFinder build() {
+            return new ContainerfileFinder(this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package nl.lexemmens.podman.helper;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Keeps track of the outcome of copying container images, so that a summary can be reported once all copies have
+ * been attempted.
+ * </p>
+ * <p>
+ * Instances of this class are safe to use from multiple threads.
+ * </p>
+ */
+public final class CopyReport {
+
+    private final List<String> copied = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Records that an image has been copied
+     *
+     * @param sourceImage The source image
+     * @param targetImage The target image
+     */
+    public void copied(String sourceImage, String targetImage) {
+        copied.add(describe(sourceImage, targetImage));
+    }
+
+    /**
+     * Records that copying an image has been skipped
+     *
+     * @param sourceImage The source image
+     * @param targetImage The target image
+     * @param reason      Why the copy was skipped
+     */
+    public void skipped(String sourceImage, String targetImage, String reason) {
+        skipped.add(describe(sourceImage, targetImage) + " (" + reason + ")");
+    }
+
+    /**
+     * Records that copying an image failed
+     *
+     * @param sourceImage The source image
+     * @param targetImage The target image
+     * @param reason      The cause of the failure
+     */
+    public void failed(String sourceImage, String targetImage, String reason) {
+        failed.add(describe(sourceImage, targetImage) + " (" + reason + ")");
+    }
+
+    /**
+     * @return The number of images that have been copied
+     */
+    public int getCopiedCount() {
+        return copied.size();
+    }
+
+    /**
+     * @return The number of images that have been skipped
+     */
+    public int getSkippedCount() {
+        return skipped.size();
+    }
+
+    /**
+     * @return The number of images that failed to copy
+     */
+    public int getFailedCount() {
+        return failed.size();
+    }
+
+    /**
+     * Logs a summary of the outcome of all copies
+     *
+     * @param log Maven's logger
+     */
+    public void log(Log log) {
+        log.info(String.format("Copy summary: %d copied, %d skipped, %d failed.", copied.size(), skipped.size(), failed.size()));
+        synchronized (copied) {
+            copied.forEach(image -> log.info("  Copied:  " + image));
+        }
+        synchronized (skipped) {
+            skipped.forEach(image -> log.info("  Skipped: " + image));
+        }
+        synchronized (failed) {
+            failed.forEach(image -> log.error("  Failed:  " + image));
+        }
+    }
+
+    private static String describe(String sourceImage, String targetImage) {
+        return sourceImage + " -> " + targetImage;
+    }
+}
@@ -0,0 +1,211 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Writes the {@link ExecutionMetrics} of a goal to a JSON file and, optionally, to a file in the Prometheus text
+ * format, which can be picked up by the textfile collector of the Prometheus node exporter.
+ * </p>
+ * <p>
+ * Both files contain the metrics of all goals that were executed for a module. The metrics of a goal replace the
+ * metrics of a previous execution of the same goal. Failing to write the metrics does not fail the build.
+ * </p>
+ * <p>
+ * As the node exporter reads a single file per configuration, the modules of a reactor typically share the Prometheus
+ * file. The series of other modules, identified by their <code>module</code> label, are therefore kept when a module
+ * writes its metrics.
+ * </p>
+ */
+public final class ExecutionMetricsWriter {
+
+    private static final String PREFIX = "podman_maven_plugin_";
+    private static final String GOALS = "goals";
+    private static final String COMMANDS = "commands";
+    private static final String IMAGES = "images";
+
+    // Modules built in parallel share the Prometheus file
+    private static final Object PROMETHEUS_FILE_LOCK = new Object();
+
+    private final Log log;
+
+    /**
+     * Constructs a new instance of this class
+     *
+     * @param log Access to Maven's log system
+     */
+    public ExecutionMetricsWriter(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Writes the metrics of a goal
+     *
+     * @param module         The name of the module, added as label to the Prometheus metrics
+     * @param goal           The name of the goal the metrics belong to
+     * @param metrics        The metrics to write
+     * @param jsonFile       The JSON file to write the metrics to
+     * @param prometheusFile The file to write the metrics to in the Prometheus text format. May be null.
+     */
+    public void write(String module, String goal, ExecutionMetrics metrics, File jsonFile, File prometheusFile) {
+        JSONObject allMetrics = read(jsonFile.toPath());
+        if (!allMetrics.has(GOALS)) {
+            allMetrics.put(GOALS, new JSONObject());
+        }
+        allMetrics.getJSONObject(GOALS).put(goal, metrics.toJson());
+
+        try {
+            AtomicFileWriter.write(jsonFile.toPath(), allMetrics.toString(2));
+            log.debug("Written execution metrics to " + jsonFile);
+
+            if (prometheusFile != null) {
+                synchronized (PROMETHEUS_FILE_LOCK) {
+                    List<String> otherModules = readSamplesOfOtherModules(prometheusFile.toPath(), module);
+                    AtomicFileWriter.write(prometheusFile.toPath(), toPrometheus(module, allMetrics.getJSONObject(GOALS), otherModules));
+                }
+                log.debug("Written execution metrics to " + prometheusFile);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write execution metrics: " + e.getMessage(), e);
+        }
+    }
+
+    private JSONObject read(Path jsonFile) {
+        if (!Files.exists(jsonFile)) {
+            return new JSONObject();
+        }
+
+        try (Reader reader = Files.newBufferedReader(jsonFile, StandardCharsets.UTF_8)) {
+            return new JSONObject(new JSONTokener(reader));
+        } catch (IOException | JSONException e) {
+            log.debug("Ignoring unreadable execution metrics in " + jsonFile + ": " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    private List<String> readSamplesOfOtherModules(Path prometheusFile, String module) {
+        if (!Files.exists(prometheusFile)) {
+            return Collections.emptyList();
+        }
+
+        String moduleLabel = "{module=\"" + escape(module) + "\",";
+        try {
+            return Files.readAllLines(prometheusFile, StandardCharsets.UTF_8).stream()
+                    .filter(line -> line.startsWith(PREFIX) && line.indexOf('{') > 0)
+                    .filter(line -> !line.startsWith(moduleLabel, line.indexOf('{')))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable execution metrics in " + prometheusFile + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private static String toPrometheus(String module, JSONObject goals, List<String> otherModules) {
+        StringBuilder out = new StringBuilder();
+        Metric goalDuration = new Metric("goal_duration_seconds", "Wall time of the goal.");
+        Metric goalRetries = new Metric("goal_retries", "Number of retries of failed operations.");
+        Metric executions = new Metric("command_executions", "Number of executions of the command.");
+        Metric failures = new Metric("command_failures", "Number of failed executions of the command.");
+        Metric duration = new Metric("command_duration_seconds", "Total wall time of all executions of the command.");
+        Metric maxDuration = new Metric("command_max_duration_seconds", "Wall time of the slowest execution of the command.");
+        Metric outputLines = new Metric("command_output_lines", "Number of lines of output of all executions of the command.");
+        Metric outputBytes = new Metric("command_output_bytes", "Number of bytes of output of all executions of the command.");
+        Metric imageDuration = new Metric("image_duration_seconds", "Wall time spent on the image.");
+        Metric imageCommandDuration = new Metric("image_command_duration_seconds", "Wall time of the commands executed for the image.");
+        Metric imageRetries = new Metric("image_retries", "Number of retries of failed operations for the image.");
+
+        Map<String, Metric> metricsByName = new HashMap<>();
+        for (Metric metric : new Metric[]{goalDuration, goalRetries, executions, failures, duration, maxDuration,
+                outputLines, outputBytes, imageDuration, imageCommandDuration, imageRetries}) {
+            metricsByName.put(metric.name, metric);
+        }
+        for (String sample : otherModules) {
+            Metric metric = metricsByName.get(sample.substring(0, sample.indexOf('{')));
+            if (metric != null) {
+                metric.samples.append(sample).append('\n');
+            }
+        }
+
+        for (String goal : new TreeSet<>(goals.keySet())) {
+            JSONObject goalMetrics = goals.getJSONObject(goal);
+            String goalLabels = "module=\"" + escape(module) + "\",goal=\"" + escape(goal) + "\"";
+            goalDuration.add(goalLabels, seconds(goalMetrics.optLong("durationMillis")));
+            goalRetries.add(goalLabels, goalMetrics.optLong("retries"));
+
+            JSONObject commands = goalMetrics.optJSONObject(COMMANDS);
+            for (String command : commands == null ? new TreeSet<String>() : new TreeSet<>(commands.keySet())) {
+                JSONObject commandMetrics = commands.getJSONObject(command);
+                String labels = goalLabels + ",command=\"" + escape(command) + "\"";
+                executions.add(labels, commandMetrics.optLong("executions"));
+                failures.add(labels, commandMetrics.optLong("failures"));
+                duration.add(labels, seconds(commandMetrics.optLong("durationMillis")));
+                maxDuration.add(labels, seconds(commandMetrics.optLong("maxDurationMillis")));
+                outputLines.add(labels, commandMetrics.optLong("outputLines"));
+                outputBytes.add(labels, commandMetrics.optLong("outputBytes"));
+            }
+
+            JSONObject images = goalMetrics.optJSONObject(IMAGES);
+            for (String image : images == null ? new TreeSet<String>() : new TreeSet<>(images.keySet())) {
+                JSONObject imageMetrics = images.getJSONObject(image);
+                String labels = goalLabels + ",image=\"" + escape(image) + "\"";
+                imageDuration.add(labels, seconds(imageMetrics.optLong("durationMillis")));
+                imageCommandDuration.add(labels, seconds(imageMetrics.optLong("commandDurationMillis")));
+                imageRetries.add(labels, imageMetrics.optLong("retries"));
+            }
+        }
+
+        for (Metric metric : new Metric[]{goalDuration, goalRetries, executions, failures, duration, maxDuration,
+                outputLines, outputBytes, imageDuration, imageCommandDuration, imageRetries}) {
+            metric.appendTo(out);
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long millis) {
+        return String.valueOf(millis / 1000.0);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Metric {
+        private final String name;
+        private final String help;
+        private final StringBuilder samples = new StringBuilder();
+
+        private Metric(String name, String help) {
+            this.name = PREFIX + name;
+            this.help = help;
+        }
+
+        private void add(String labels, Object value) {
+            samples.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+        }
+
+        private void appendTo(StringBuilder out) {
+            if (samples.length() > 0) {
+                out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                out.append(samples);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * Writes an {@link ExecutionTrace} to a file in the trace event format, which can be loaded in Perfetto or
+ * <code>chrome://tracing</code>.
+ * </p>
+ * <p>
+ * Within a Maven session, the events are added to the events already present in the file, so that all goals executed
+ * for a module, and all modules that write to the same file, appear on a single timeline. Every module is shown as a
+ * separate process. The first write of a session replaces the trace of a previous session. Failing to write the trace
+ * does not fail the build.
+ * </p>
+ */
+public final class ExecutionTraceWriter {
+
+    private static final String TRACE_EVENTS = "traceEvents";
+    private static final String PROCESS_NAME = "process_name";
+    private static final String SESSION_KEY_PREFIX = "execution-trace:";
+
+    // Modules built in parallel may write to the same file
+    private static final Object LOCK = new Object();
+
+    private final Log log;
+
+    /**
+     * Constructs a new instance of this class
+     *
+     * @param log Access to Maven's log system
+     */
+    public ExecutionTraceWriter(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Adds the events of a trace to a trace file
+     *
+     * @param module       The name of the module, used as name of the process the events belong to
+     * @param trace        The trace to write
+     * @param traceFile    The file to write the trace to
+     * @param sessionCache The cache of the current Maven session, which records whether the file was written before
+     */
+    public void write(String module, ExecutionTrace trace, File traceFile, SessionCache sessionCache) {
+        synchronized (LOCK) {
+            boolean firstWrite = sessionCache.markDone(SESSION_KEY_PREFIX + traceFile.getAbsolutePath());
+            JSONArray events = firstWrite ? new JSONArray() : read(traceFile.toPath());
+            int pid = getProcessId(events, module);
+            events.putAll(trace.getEvents(pid));
+
+            try {
+                AtomicFileWriter.write(traceFile.toPath(), new JSONObject()
+                        .put(TRACE_EVENTS, events)
+                        .put("displayTimeUnit", "ms")
+                        .toString());
+                log.info("Written execution trace to " + traceFile);
+            } catch (IOException e) {
+                log.warn("Failed to write execution trace: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private JSONArray read(Path traceFile) {
+        if (!Files.exists(traceFile)) {
+            return new JSONArray();
+        }
+
+        try (Reader reader = Files.newBufferedReader(traceFile, StandardCharsets.UTF_8)) {
+            JSONArray events = new JSONObject(new JSONTokener(reader)).optJSONArray(TRACE_EVENTS);
+            return events == null ? new JSONArray() : events;
+        } catch (IOException | JSONException e) {
+            log.debug("Ignoring unreadable execution trace in " + traceFile + ": " + e.getMessage());
+            return new JSONArray();
+        }
+    }
+
+    private static int getProcessId(JSONArray events, String module) {
+        int maxPid = 0;
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.optJSONObject(i);
+            if (event == null) {
+                continue;
+            }
+
+            int pid = event.optInt("pid");
+            maxPid = Math.max(maxPid, pid);
+            JSONObject args = event.optJSONObject("args");
+            if (PROCESS_NAME.equals(event.optString("name")) && args != null && module.equals(args.optString("name"))) {
+                return pid;
+            }
+        }
+
+        int pid = maxPid + 1;
+        events.put(new JSONObject()
+                .put("name", PROCESS_NAME)
+                .put("ph", "M")
+                .put("pid", pid)
+                .put("args", new JSONObject().put("name", module)));
+        return pid;
+    }
+}
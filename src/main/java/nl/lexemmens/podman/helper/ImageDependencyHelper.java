@@ -0,0 +1,232 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.config.image.StageConfiguration;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.containerfile.Containerfile;
+import nl.lexemmens.podman.containerfile.ContainerfileParser;
+import nl.lexemmens.podman.containerfile.FromInstruction;
+import nl.lexemmens.podman.containerfile.Stage;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Helper class that determines which of the container images that are built by a single execution of this plugin
+ * use one another as a base image.
+ * </p>
+ * <p>
+ * For each image, the <code>FROM</code> instructions in its Containerfile are compared to the names of the other
+ * images. References to build stages in the same Containerfile and to <code>scratch</code> are ignored. Build
+ * arguments in a reference are resolved using the default values of <code>ARG</code> instructions, the configured
+ * build arguments and the <code>podman.buildArg.*</code> system properties, in that order.
+ * </p>
+ */
+public final class ImageDependencyHelper {
+
+    private static final String SCRATCH = "scratch";
+    private static final String LATEST = "latest";
+    private static final Pattern ARG_REFERENCE_PATTERN = Pattern.compile("\\$\\{([a-zA-Z_][a-zA-Z0-9_]*)}|\\$([a-zA-Z_][a-zA-Z0-9_]*)");
+
+    private final Log log;
+    private final BiFunction<SingleImageConfiguration, String, String> fullImageNameResolver;
+
+    /**
+     * Constructs a new instance of this helper
+     *
+     * @param log                   Access to Maven's log system
+     * @param fullImageNameResolver Function that returns the full image name (including the registry) for an image name
+     */
+    public ImageDependencyHelper(Log log, Function<String, String> fullImageNameResolver) {
+        this(log, (image, imageName) -> fullImageNameResolver.apply(imageName));
+    }
+
+    /**
+     * Constructs a new instance of this helper for images that are pushed to different registries, e.g. images of
+     * different modules.
+     *
+     * @param log                   Access to Maven's log system
+     * @param fullImageNameResolver Function that returns the full image name (including the registry) for an image
+     *                              name of the provided image
+     */
+    public ImageDependencyHelper(Log log, BiFunction<SingleImageConfiguration, String, String> fullImageNameResolver) {
+        this.log = log;
+        this.fullImageNameResolver = fullImageNameResolver;
+    }
+
+    /**
+     * <p>
+     * Determines, for every image, which of the provided images must be built before it can be built.
+     * </p>
+     * <p>
+     * References that cannot be resolved, for example because a build argument without a value is used, are reported
+     * as a warning and are not taken into account. Such references are assumed to point to an external image.
+     * </p>
+     *
+     * @param images The images to determine the dependencies for
+     * @return A map containing the images each image depends on, in the same order as the provided images
+     * @throws MojoExecutionException In case a Containerfile cannot be read or the images depend on each other in a cycle
+     */
+    public Map<SingleImageConfiguration, List<SingleImageConfiguration>> determineDependencies(List<SingleImageConfiguration> images) throws MojoExecutionException {
+        Map<String, SingleImageConfiguration> imagesByName = new HashMap<>();
+        for (SingleImageConfiguration image : images) {
+            for (String imageName : getProducedImageNames(image)) {
+                imagesByName.put(normalise(imageName), image);
+                imagesByName.put(normalise(fullImageNameResolver.apply(image, imageName)), image);
+            }
+        }
+
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies = new LinkedHashMap<>();
+        for (SingleImageConfiguration image : images) {
+            List<SingleImageConfiguration> baseImages = new ArrayList<>();
+            for (String reference : getBaseImageReferences(image)) {
+                SingleImageConfiguration baseImage = imagesByName.get(normalise(reference));
+                if (baseImage != null && baseImage != image && !baseImages.contains(baseImage)) {
+                    log.debug("Image " + image.getImageName() + " uses image " + baseImage.getImageName() + " as base image.");
+                    baseImages.add(baseImage);
+                }
+            }
+            dependencies.put(image, baseImages);
+        }
+
+        verifyNoCycles(dependencies);
+        return dependencies;
+    }
+
+    private List<String> getProducedImageNames(SingleImageConfiguration image) {
+        List<String> imageNames = new ArrayList<>(image.getImageNames());
+        if (image.useCustomImageNameForMultiStageContainerfile() && image.getStages() != null) {
+            for (StageConfiguration stage : image.getStages()) {
+                imageNames.addAll(image.getImageNamesByStage(stage.getName()));
+            }
+        }
+        return imageNames;
+    }
+
+    private List<String> getBaseImageReferences(SingleImageConfiguration image) throws MojoExecutionException {
+        Path containerFile = image.getBuild().getTargetContainerFile();
+        if (!Files.exists(containerFile)) {
+            containerFile = image.getBuild().getSourceContainerFileDir();
+        }
+
+        Containerfile parsedContainerFile;
+        try {
+            parsedContainerFile = ContainerfileParser.parse(containerFile);
+        } catch (IOException e) {
+            String msg = "Failed to read Containerfile " + containerFile + " to determine its base images.";
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+
+        Map<String, String> argValues = resolveArgValues(image, parsedContainerFile.getGlobalArgs());
+        Set<String> stageNames = new HashSet<>();
+        List<String> references = new ArrayList<>();
+        for (Stage stage : parsedContainerFile.getStages()) {
+            processFromInstruction(containerFile, stage.getFrom(), argValues, stageNames, references);
+        }
+        return references;
+    }
+
+    private void processFromInstruction(Path containerFile, FromInstruction from, Map<String, String> argValues, Set<String> stageNames, List<String> references) {
+        String reference = resolveArgReferences(from.getBaseImage(), argValues);
+        boolean isStageReference = reference != null && stageNames.contains(reference.toLowerCase());
+        from.getStageName().ifPresent(stageName -> stageNames.add(stageName.toLowerCase()));
+
+        if (reference == null) {
+            log.warn("Unable to resolve base image " + from.getBaseImage() + " in " + containerFile + ". It is not taken into account to determine the build order.");
+        } else if (!SCRATCH.equalsIgnoreCase(reference) && !isStageReference) {
+            references.add(reference);
+        }
+    }
+
+    private static Map<String, String> resolveArgValues(SingleImageConfiguration image, Map<String, String> argDefaults) {
+        Map<String, String> argValues = new HashMap<>(argDefaults);
+        argValues.putAll(image.getBuild().getAllBuildArgs());
+        return argValues;
+    }
+
+    private static String resolveArgReferences(String reference, Map<String, String> argValues) {
+        Matcher matcher = ARG_REFERENCE_PATTERN.matcher(reference);
+        StringBuffer resolved = new StringBuffer();
+        while (matcher.find()) {
+            String argName = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            String value = argValues.get(argName);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(resolved);
+
+        // Any remaining placeholder cannot be resolved
+        return resolved.indexOf("$") < 0 ? resolved.toString() : null;
+    }
+
+    private static String normalise(String imageName) {
+        // An image without a tag or digest refers to the 'latest' tag
+        int lastSlash = imageName.lastIndexOf('/');
+        if (imageName.indexOf('@') < 0 && imageName.indexOf(':', lastSlash + 1) < 0) {
+            return imageName + ":" + LATEST;
+        }
+        return imageName;
+    }
+
+    private void verifyNoCycles(Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies) throws MojoExecutionException {
+        Map<SingleImageConfiguration, Boolean> visited = new IdentityHashMap<>();
+        for (SingleImageConfiguration image : dependencies.keySet()) {
+            List<SingleImageConfiguration> path = new ArrayList<>();
+            if (hasCycle(image, dependencies, visited, path)) {
+                List<String> cycle = new ArrayList<>();
+                for (SingleImageConfiguration imageInCycle : path) {
+                    cycle.add(imageInCycle.getImageName());
+                }
+
+                String msg = "Detected a cycle in the base images of the container images to build: " + String.join(" -> ", cycle);
+                log.error(msg);
+                throw new MojoExecutionException(msg);
+            }
+        }
+    }
+
+    // visited contains false for images that are being processed and true for images that are completely processed
+    private static boolean hasCycle(SingleImageConfiguration image, Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies,
+                                    Map<SingleImageConfiguration, Boolean> visited, List<SingleImageConfiguration> path) {
+        Boolean state = visited.get(image);
+        if (Boolean.TRUE.equals(state)) {
+            return false;
+        }
+
+        if (Boolean.FALSE.equals(state)) {
+            // Only keep the images that are part of the cycle
+            path.subList(0, path.indexOf(image)).clear();
+            path.add(image);
+            return true;
+        }
+
+        visited.put(image, false);
+        path.add(image);
+        for (SingleImageConfiguration baseImage : dependencies.get(image)) {
+            if (hasCycle(baseImage, dependencies, visited, path)) {
+                return true;
+            }
+        }
+        path.remove(path.size() - 1);
+        visited.put(image, true);
+        return false;
+    }
+}
@@ -0,0 +1,154 @@
+package nl.lexemmens.podman.helper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Helper class that determines which image copies can be combined into a single <code>skopeo sync</code> invocation
+ * and generates the YAML source file for it.
+ * </p>
+ * <p>
+ * Skopeo sync copies an image <code>registry/path/name:tag</code> to <code>destination/name:tag</code>. A copy can
+ * therefore only be performed using sync when the source image has an explicit registry and a tag and the target
+ * image has the same name and tag as the source image. Copies are grouped by destination, so that a single sync is
+ * performed per destination. All other copies must be performed one by one.
+ * </p>
+ */
+public final class SkopeoSyncHelper {
+
+    private final boolean srcTlsVerify;
+
+    /**
+     * Constructs a new instance of this helper
+     *
+     * @param srcTlsVerify Whether TLS should be verified when connecting to the source registries
+     */
+    public SkopeoSyncHelper(boolean srcTlsVerify) {
+        this.srcTlsVerify = srcTlsVerify;
+    }
+
+    /**
+     * Divides the provided copies in copies that can be performed using sync, grouped by destination, and copies that
+     * must be performed one by one.
+     *
+     * @param images The images to copy, mapping the source image to the target image
+     * @return The plan describing how to copy the images
+     */
+    public SyncPlan plan(Map<String, String> images) {
+        SyncPlan plan = new SyncPlan();
+        for (Map.Entry<String, String> image : images.entrySet()) {
+            String destination = getSyncDestination(image.getKey(), image.getValue());
+            if (destination == null) {
+                plan.remainingImages.put(image.getKey(), image.getValue());
+            } else {
+                plan.syncGroups.computeIfAbsent(destination, d -> new LinkedHashMap<>()).put(image.getKey(), image.getValue());
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Generates the contents of a YAML file that can be used as source for <code>skopeo sync</code>.
+     *
+     * @param sourceImages The source images to include. These must all be valid for sync, see {@link #plan(Map)}.
+     * @return The lines of the YAML file
+     */
+    public List<String> toYaml(Iterable<String> sourceImages) {
+        // registry -> repository -> tags
+        Map<String, Map<String, List<String>>> imagesPerRegistry = new LinkedHashMap<>();
+        for (String sourceImage : sourceImages) {
+            ImageReference reference = ImageReference.parse(sourceImage);
+            imagesPerRegistry.computeIfAbsent(reference.registry, r -> new LinkedHashMap<>())
+                    .computeIfAbsent(reference.repository, r -> new ArrayList<>())
+                    .add(reference.tag);
+        }
+
+        List<String> yaml = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<String>>> registry : imagesPerRegistry.entrySet()) {
+            yaml.add(registry.getKey() + ":");
+            yaml.add("  tls-verify: " + srcTlsVerify);
+            yaml.add("  images:");
+            for (Map.Entry<String, List<String>> repository : registry.getValue().entrySet()) {
+                yaml.add("    " + repository.getKey() + ":");
+                for (String tag : repository.getValue()) {
+                    yaml.add("      - \"" + tag + "\"");
+                }
+            }
+        }
+        return yaml;
+    }
+
+    private static String getSyncDestination(String sourceImage, String targetImage) {
+        ImageReference reference = ImageReference.parse(sourceImage);
+        if (reference == null) {
+            return null;
+        }
+
+        String suffix = "/" + reference.getName() + ":" + reference.tag;
+        if (!targetImage.endsWith(suffix) || targetImage.length() == suffix.length()) {
+            return null;
+        }
+        return targetImage.substring(0, targetImage.length() - suffix.length());
+    }
+
+    /**
+     * Describes how a set of images is copied.
+     */
+    public static final class SyncPlan {
+
+        private final Map<String, Map<String, String>> syncGroups = new LinkedHashMap<>();
+        private final Map<String, String> remainingImages = new LinkedHashMap<>();
+
+        /**
+         * @return The images that can be copied using sync, mapping the destination to the source and target images
+         */
+        public Map<String, Map<String, String>> getSyncGroups() {
+            return syncGroups;
+        }
+
+        /**
+         * @return The images that must be copied one by one, mapping the source image to the target image
+         */
+        public Map<String, String> getRemainingImages() {
+            return remainingImages;
+        }
+    }
+
+    private static final class ImageReference {
+
+        private final String registry;
+        private final String repository;
+        private final String tag;
+
+        private ImageReference(String registry, String repository, String tag) {
+            this.registry = registry;
+            this.repository = repository;
+            this.tag = tag;
+        }
+
+        /**
+         * Parses an image name of the form registry/repository:tag. Returns null for names without an explicit
+         * registry or tag and for names referring to a digest.
+         */
+        private static ImageReference parse(String image) {
+            int slashIndex = image.indexOf('/');
+            int tagIndex = image.lastIndexOf(':');
+            if (image.indexOf('@') >= 0 || slashIndex <= 0 || tagIndex < slashIndex) {
+                return null;
+            }
+
+            String registry = image.substring(0, slashIndex);
+            if (!registry.contains(".") && !registry.contains(":") && !"localhost".equals(registry)) {
+                return null;
+            }
+            return new ImageReference(registry, image.substring(slashIndex + 1, tagIndex), image.substring(tagIndex + 1));
+        }
+
+        private String getName() {
+            return repository.substring(repository.lastIndexOf('/') + 1);
+        }
+    }
+}
@@ -52,9 +52,14 @@ public class AuthenticationService {
      */
     private static final String DOCKER_CONFIG_FILE = ".docker/config.json";
 
+    private static final String AUTH_CONFIG_FACTORY_KEY = "auth-config-factory";
+    private static final String AUTHENTICATED_REGISTRIES_KEY = "authenticated-registries";
+
     private final Log log;
     private final PodmanExecutorService podmanExecutorService;
-    private final AuthConfigFactory authConfigFactory;
+    private final Settings mavenSettings;
+    private final SettingsDecrypter settingsDecrypter;
+    private final SessionCache sessionCache;
 
     /**
      * Constructs a new instance of this service
@@ -65,9 +70,25 @@ public class AuthenticationService {
      * @param settingsDecrypter     Provides access to Maven's SettingsDecrypter service from Maven core
      */
     public AuthenticationService(Log log, PodmanExecutorService podmanExecutorService, Settings mavenSetings, SettingsDecrypter settingsDecrypter) {
+        this(log, podmanExecutorService, mavenSetings, settingsDecrypter, new SessionCache());
+    }
+
+    /**
+     * Constructs a new instance of this service, which shares the decrypted Maven settings and the contents of the
+     * authentication files with other executions in the same Maven session.
+     *
+     * @param log                   Provides access to Maven's log system
+     * @param podmanExecutorService Service for executing commands with Podman
+     * @param mavenSettings         Provides access to the Maven Settings
+     * @param settingsDecrypter     Provides access to Maven's SettingsDecrypter service from Maven core
+     * @param sessionCache          The cache of the current Maven session
+     */
+    public AuthenticationService(Log log, PodmanExecutorService podmanExecutorService, Settings mavenSettings, SettingsDecrypter settingsDecrypter, SessionCache sessionCache) {
         this.podmanExecutorService = podmanExecutorService;
         this.log = log;
-        this.authConfigFactory = new AuthConfigFactory(mavenSetings, settingsDecrypter);
+        this.mavenSettings = mavenSettings;
+        this.settingsDecrypter = settingsDecrypter;
+        this.sessionCache = sessionCache;
     }
 
     /**
@@ -173,6 +194,8 @@ public class AuthenticationService {
 
     private void authenticateRegistries(String[] registries) throws MojoExecutionException {
         for (String registry : registries) {
+            // The settings are only decrypted when credentials are needed, and only once per session
+            AuthConfigFactory authConfigFactory = sessionCache.get(AUTH_CONFIG_FACTORY_KEY, () -> new AuthConfigFactory(mavenSettings, settingsDecrypter));
             Optional<AuthConfig> authConfigOptional = authConfigFactory.getAuthConfigForRegistry(registry);
             if (authConfigOptional.isPresent()) {
                 AuthConfig authConfig = authConfigOptional.get();
@@ -192,6 +215,19 @@ public class AuthenticationService {
     }
 
     private Set<String> getAuthenticatedRegistries(List<Path> registryAuthFilePaths) throws MojoExecutionException {
+        // The files are only read again when one of them has changed, e.g. after a login
+        StringBuilder key = new StringBuilder(AUTHENTICATED_REGISTRIES_KEY);
+        for (Path registryAuthFilePath : registryAuthFilePaths) {
+            File file = registryAuthFilePath.toFile();
+            key.append(':').append(file.getAbsolutePath()).append('@').append(file.lastModified()).append('/').append(file.length());
+        }
+
+        Set<String> authenticatedRegistries = sessionCache.get(key.toString(), () -> readAuthenticatedRegistries(registryAuthFilePaths));
+        log.debug("Found authentication details for the following registries: " + authenticatedRegistries);
+        return authenticatedRegistries;
+    }
+
+    private Set<String> readAuthenticatedRegistries(List<Path> registryAuthFilePaths) throws MojoExecutionException {
         Set<String> authenticatedRegistries = new HashSet<>();
         for(Path registryAuthFilePath : registryAuthFilePaths) {
             JSONObject podmanConfigJson = readPodmanConfig(registryAuthFilePath);
@@ -207,8 +243,7 @@ public class AuthenticationService {
             }
         }
 
-        log.debug("Found authentication details for the following registries: " + authenticatedRegistries);
-        return authenticatedRegistries;
+        return Collections.unmodifiableSet(authenticatedRegistries);
     }
 
     private static JSONObject readPodmanConfig(Path registryAuthFilePath) throws MojoExecutionException {
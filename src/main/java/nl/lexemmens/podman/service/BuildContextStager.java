@@ -0,0 +1,519 @@
+package nl.lexemmens.podman.service;
+
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.containerfile.Containerfile;
+import nl.lexemmens.podman.containerfile.ContainerfileParser;
+import nl.lexemmens.podman.containerfile.Instruction;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * Stages a minimal build context for an image, so that Podman does not have to scan and transfer the complete run
+ * directory, including <code>target</code> and IDE folders, for every image.
+ * </p>
+ * <p>
+ * The staged context contains the files referenced by the <code>COPY</code> and <code>ADD</code> instructions of the
+ * filtered Containerfile, except for the files excluded by the <code>.containerignore</code> (or
+ * <code>.dockerignore</code>) file in the run directory. It is written to <code>target/podman/context</code> using
+ * hard links, falling back to copies when hard links are not supported, and is updated incrementally on subsequent
+ * builds.
+ * </p>
+ * <p>
+ * When the files that are used cannot be determined, e.g. because a source refers to a build argument or the complete
+ * context is copied, the image is built using the complete run directory as before.
+ * </p>
+ */
+public class BuildContextStager {
+
+    private static final String CONTEXT_DIRECTORY = "podman/context";
+    private static final List<String> IGNORE_FILES = Collections.unmodifiableList(Arrays.asList(".containerignore", ".dockerignore"));
+    private static final String GLOB_CHARACTERS = "*?[";
+
+    private final Log log;
+    private final MavenProject mavenProject;
+    private final PodmanConfiguration podmanConfig;
+
+    // All images of an execution share the same run directory, so its size is only determined once.
+    private ContextSize fullContextSize;
+
+    /**
+     * Constructs a new instance of this class
+     *
+     * @param log          Access to Maven's log system
+     * @param mavenProject The Maven project that is being built
+     * @param podmanConfig Holds global configuration for Podman, including the run directory
+     */
+    public BuildContextStager(Log log, MavenProject mavenProject, PodmanConfiguration podmanConfig) {
+        this.log = log;
+        this.mavenProject = mavenProject;
+        this.podmanConfig = podmanConfig;
+    }
+
+    /**
+     * Stages the build context of an image. When staging succeeds, the staged directory is set as the context
+     * directory of the image. The Containerfile must have been filtered already.
+     *
+     * @param image The image to stage the build context for
+     * @throws MojoExecutionException In case the Containerfile cannot be read or the context cannot be staged
+     */
+    public void stageContext(SingleImageConfiguration image) throws MojoExecutionException {
+        Path contextDir = podmanConfig.getRunDirectory().toPath().toAbsolutePath().normalize();
+        Path stagingDir = getStagingDirectory(image);
+
+        Optional<ContextFiles> contextFiles = resolveContextFiles(image, contextDir, stagingDir);
+        if (!contextFiles.isPresent()) {
+            log.info("Unable to determine the files used by " + image.getBuild().getTargetContainerFile() + ". Using the complete build context " + contextDir + ".");
+            return;
+        }
+
+        try {
+            ContextSize stagedSize = synchronise(contextDir, stagingDir, contextFiles.get().files, contextFiles.get().directories);
+            ContextSize fullSize = getFullContextSize(contextDir, contextFiles.get().ignoreRules);
+            log.info("Staged build context in " + stagingDir + ": " + stagedSize + " instead of " + fullSize + ".");
+        } catch (IOException e) {
+            String msg = "Failed to stage build context in " + stagingDir + ": " + e.getMessage();
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+
+        image.getBuild().setStagedContextDir(stagingDir);
+    }
+
+    /**
+     * Determines the files of the run directory that are used by the <code>COPY</code> and <code>ADD</code>
+     * instructions of an image, except for the files excluded by the <code>.containerignore</code> file. These are
+     * the files that would be staged. The Containerfile must have been filtered already.
+     *
+     * @param image The image to determine the files for
+     * @return The files relative to the run directory, or an empty Optional when the files that are used cannot be
+     * determined
+     * @throws MojoExecutionException In case the Containerfile or the run directory cannot be read
+     */
+    public Optional<Set<Path>> getContextFiles(SingleImageConfiguration image) throws MojoExecutionException {
+        Path contextDir = podmanConfig.getRunDirectory().toPath().toAbsolutePath().normalize();
+        return resolveContextFiles(image, contextDir, getStagingDirectory(image)).map(contextFiles -> contextFiles.files);
+    }
+
+    /**
+     * Lists the contents of a build context directory, except for the paths excluded by the
+     * <code>.containerignore</code> (or <code>.dockerignore</code>) file in that directory. This is the build context
+     * Podman uses when building from that directory.
+     *
+     * @param contextDir The build context directory
+     * @return The files, directories and symbolic links in the build context, relative to the context directory.
+     * Directories are listed before their contents.
+     * @throws MojoExecutionException In case the build context or its ignore file cannot be read
+     */
+    public List<Path> listContext(Path contextDir) throws MojoExecutionException {
+        IgnoreRules ignoreRules = IgnoreRules.read(contextDir);
+        try (Stream<Path> paths = Files.walk(contextDir)) {
+            return paths.map(contextDir::relativize)
+                    .filter(relativePath -> !relativePath.toString().isEmpty() && !ignoreRules.isIgnored(relativePath))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            String msg = "Failed to read the build context in " + contextDir + ": " + e.getMessage();
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+    }
+
+    private Optional<ContextFiles> resolveContextFiles(SingleImageConfiguration image, Path contextDir, Path stagingDir) throws MojoExecutionException {
+        Path containerFile = image.getBuild().getTargetContainerFile();
+
+        Containerfile parsedContainerFile;
+        try {
+            parsedContainerFile = ContainerfileParser.parse(containerFile);
+        } catch (IOException e) {
+            String msg = "Failed to read Containerfile " + containerFile + " to determine its build context.";
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+
+        Optional<List<String>> sources = getSources(parsedContainerFile);
+        if (!sources.isPresent()) {
+            return Optional.empty();
+        }
+
+        ContextFiles contextFiles = new ContextFiles(IgnoreRules.read(contextDir));
+        try {
+            for (String source : sources.get()) {
+                collect(contextDir, source, stagingDir, contextFiles.ignoreRules, contextFiles.files, contextFiles.directories);
+            }
+        } catch (IOException e) {
+            String msg = "Failed to determine the build context in " + contextDir + ": " + e.getMessage();
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+        return Optional.of(contextFiles);
+    }
+
+    private Optional<List<String>> getSources(Containerfile containerFile) {
+        List<String> sources = new ArrayList<>();
+        for (Instruction instruction : containerFile.getInstructions()) {
+            if (!instruction.is("COPY") && !instruction.is("ADD")) {
+                continue;
+            }
+
+            Optional<List<String>> instructionSources = getSources(instruction);
+            if (!instructionSources.isPresent()) {
+                return Optional.empty();
+            }
+
+            for (String source : instructionSources.get()) {
+                if (source.contains("$")) {
+                    log.debug("Source " + source + " of instruction '" + instruction + "' refers to a variable.");
+                    return Optional.empty();
+                }
+
+                String cleanSource = clean(source);
+                if (cleanSource.isEmpty()) {
+                    log.debug("Instruction '" + instruction + "' copies the complete build context.");
+                    return Optional.empty();
+                }
+                sources.add(cleanSource);
+            }
+        }
+        return Optional.of(sources);
+    }
+
+    private static Optional<List<String>> getSources(Instruction instruction) {
+        String arguments = instruction.getArguments();
+        List<String> tokens = new ArrayList<>();
+        for (String token : arguments.split("\\s+")) {
+            if (token.startsWith("--from")) {
+                // Copies from another stage or image, not from the build context
+                return Optional.of(Collections.emptyList());
+            } else if (token.startsWith("--")) {
+                continue;
+            } else if (token.startsWith("[")) {
+                // The exec form, e.g. COPY ["source", "destination"]
+                try {
+                    new JSONArray(arguments.substring(arguments.indexOf('['))).toList().forEach(value -> tokens.add(String.valueOf(value)));
+                } catch (JSONException e) {
+                    return Optional.empty();
+                }
+                break;
+            }
+            tokens.add(token);
+        }
+
+        return Optional.of(tokens.stream()
+                .limit(Math.max(0, tokens.size() - 1))
+                .filter(token -> !token.startsWith("<<"))
+                .filter(token -> !(instruction.is("ADD") && (token.contains("://") || token.startsWith("git@"))))
+                .collect(Collectors.toList()));
+    }
+
+    private static String clean(String source) {
+        String cleanSource = Paths.get(source.replace('\\', '/')).normalize().toString().replace('\\', '/');
+        while (cleanSource.startsWith("/")) {
+            cleanSource = cleanSource.substring(1);
+        }
+        return ".".equals(cleanSource) ? "" : cleanSource;
+    }
+
+    private void collect(Path contextDir, String source, Path stagingDir, IgnoreRules ignoreRules, Set<Path> files, Set<Path> directories) throws IOException {
+        int globIndex = indexOfGlob(source);
+        if (globIndex < 0) {
+            addPath(contextDir, contextDir.resolve(source).normalize(), stagingDir, ignoreRules, files, directories);
+            return;
+        }
+
+        // Only the directory before the first wildcard needs to be searched
+        int baseEnd = source.lastIndexOf('/', globIndex);
+        Path baseDir = baseEnd < 0 ? contextDir : contextDir.resolve(source.substring(0, baseEnd)).normalize();
+        if (!Files.isDirectory(baseDir) || !baseDir.startsWith(contextDir)) {
+            return;
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + source);
+        String pattern = source.substring(baseEnd + 1);
+        int depth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("/").length;
+        List<Path> matches;
+        try (Stream<Path> paths = Files.walk(baseDir, depth)) {
+            matches = paths.filter(path -> matcher.matches(contextDir.relativize(path))).collect(Collectors.toList());
+        }
+        for (Path match : matches) {
+            addPath(contextDir, match, stagingDir, ignoreRules, files, directories);
+        }
+    }
+
+    private void addPath(Path contextDir, Path path, Path stagingDir, IgnoreRules ignoreRules, Set<Path> files, Set<Path> directories) throws IOException {
+        if (!path.startsWith(contextDir) || path.startsWith(stagingDir) || !Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            // Podman reports sources that do not exist in the build context
+            return;
+        }
+
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            Path relativePath = contextDir.relativize(path);
+            if (!ignoreRules.isIgnored(relativePath)) {
+                files.add(relativePath);
+            }
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path child : (Iterable<Path>) paths::iterator) {
+                Path relativePath = contextDir.relativize(child);
+                if (child.startsWith(stagingDir) || relativePath.toString().isEmpty() || ignoreRules.isIgnored(relativePath)) {
+                    continue;
+                }
+
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    directories.add(relativePath);
+                } else {
+                    files.add(relativePath);
+                }
+            }
+        }
+    }
+
+    // Brings the staging directory in line with the files to stage, only touching files that have changed
+    private ContextSize synchronise(Path contextDir, Path stagingDir, Set<Path> files, Set<Path> directories) throws IOException {
+        if (Files.exists(stagingDir)) {
+            List<Path> stagedPaths;
+            try (Stream<Path> paths = Files.walk(stagingDir)) {
+                stagedPaths = paths.sorted(Collections.reverseOrder()).collect(Collectors.toList());
+            }
+
+            for (Path stagedPath : stagedPaths) {
+                Path relativePath = stagingDir.relativize(stagedPath);
+                boolean isDirectory = Files.isDirectory(stagedPath, LinkOption.NOFOLLOW_LINKS);
+                boolean wanted = isDirectory
+                        ? relativePath.toString().isEmpty() || directories.contains(relativePath) || files.stream().anyMatch(file -> file.startsWith(relativePath))
+                        : files.contains(relativePath);
+                if (!wanted) {
+                    Files.delete(stagedPath);
+                }
+            }
+        }
+
+        Files.createDirectories(stagingDir);
+        for (Path directory : directories) {
+            Files.createDirectories(stagingDir.resolve(directory));
+        }
+
+        long bytes = 0;
+        int linked = 0;
+        for (Path file : files) {
+            Path source = contextDir.resolve(file);
+            Path target = stagingDir.resolve(file);
+            bytes += Files.size(source);
+            if (isStaged(source, target)) {
+                continue;
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            if (link(source, target)) {
+                linked++;
+            } else {
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            }
+        }
+
+        log.debug("Staged " + files.size() + " files in " + stagingDir + ", " + linked + " of which were (re)linked.");
+        return new ContextSize(files.size(), bytes);
+    }
+
+    private static boolean isStaged(Path source, Path target) throws IOException {
+        if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+
+        if (Files.isSymbolicLink(source) || Files.isSymbolicLink(target)) {
+            return Files.isSymbolicLink(source) && Files.isSymbolicLink(target)
+                    && Files.readSymbolicLink(source).equals(Files.readSymbolicLink(target));
+        }
+
+        // A hard link is the same file. A copy is up to date when its size and modification time match.
+        return Files.isSameFile(source, target) || Files.size(source) == Files.size(target)
+                && Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(target));
+    }
+
+    private boolean link(Path source, Path target) {
+        if (Files.isSymbolicLink(source)) {
+            return false;
+        }
+
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Unable to create a hard link for " + source + ", copying instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized ContextSize getFullContextSize(Path contextDir, IgnoreRules ignoreRules) throws IOException {
+        if (fullContextSize == null) {
+            Path podmanDir = Paths.get(mavenProject.getBuild().getDirectory(), "podman").toAbsolutePath().normalize();
+            int fileCount = 0;
+            long bytes = 0;
+            try (Stream<Path> paths = Files.walk(contextDir)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) && !path.startsWith(podmanDir) && !ignoreRules.isIgnored(contextDir.relativize(path))) {
+                        fileCount++;
+                        bytes += Files.size(path);
+                    }
+                }
+            }
+            fullContextSize = new ContextSize(fileCount, bytes);
+        }
+        return fullContextSize;
+    }
+
+    private Path getStagingDirectory(SingleImageConfiguration image) {
+        // The target Containerfile makes the directory unique for images resolved from a batch configuration
+        String key = image.getImageName() + "|" + image.getBuild().getTargetContainerFile().toAbsolutePath().normalize();
+        String name = image.getImageName() == null ? "image" : image.getImageName().replaceAll("[^a-zA-Z0-9._-]", "_");
+        String directoryName = String.format("%s-%s", name, toHex(newDigest().digest(key.getBytes(StandardCharsets.UTF_8))).substring(0, 12));
+
+        return Paths.get(mavenProject.getBuild().getDirectory(), CONTEXT_DIRECTORY, directoryName).toAbsolutePath().normalize();
+    }
+
+    private static int indexOfGlob(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(source.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The rules of a <code>.containerignore</code> file. As in Podman, the last rule that matches a path, or one of
+     * its parent directories, determines whether the path is ignored. Rules starting with <code>!</code> include
+     * paths again.
+     */
+    private static final class IgnoreRules {
+
+        private final List<PathMatcher> matchers = new ArrayList<>();
+        private final List<Boolean> exceptions = new ArrayList<>();
+
+        private static IgnoreRules read(Path contextDir) throws MojoExecutionException {
+            IgnoreRules rules = new IgnoreRules();
+            for (String ignoreFileName : IGNORE_FILES) {
+                Path ignoreFile = contextDir.resolve(ignoreFileName);
+                if (!Files.exists(ignoreFile)) {
+                    continue;
+                }
+
+                try {
+                    for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+                        rules.add(line.trim());
+                    }
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Failed to read " + ignoreFile + ": " + e.getMessage(), e);
+                }
+                break;
+            }
+            return rules;
+        }
+
+        private void add(String rule) {
+            if (rule.isEmpty() || rule.startsWith("#")) {
+                return;
+            }
+
+            boolean exception = rule.startsWith("!");
+            String pattern = clean(exception ? rule.substring(1).trim() : rule);
+            if (!pattern.isEmpty()) {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                exceptions.add(exception);
+            }
+        }
+
+        private boolean isIgnored(Path relativePath) {
+            boolean ignored = false;
+            for (int i = 0; i < matchers.size(); i++) {
+                if (matches(matchers.get(i), relativePath)) {
+                    ignored = !exceptions.get(i);
+                }
+            }
+            return ignored;
+        }
+
+        private static boolean matches(PathMatcher matcher, Path relativePath) {
+            for (Path path = relativePath; path != null; path = path.getParent()) {
+                if (matcher.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class ContextFiles {
+
+        private final IgnoreRules ignoreRules;
+        private final Set<Path> files = new TreeSet<>();
+        private final Set<Path> directories = new TreeSet<>();
+
+        private ContextFiles(IgnoreRules ignoreRules) {
+            this.ignoreRules = ignoreRules;
+        }
+    }
+
+    private static final class ContextSize {
+
+        private final int fileCount;
+        private final long bytes;
+
+        private ContextSize(int fileCount, long bytes) {
+            this.fileCount = fileCount;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return fileCount + " files (" + FileUtils.byteCountToDisplaySize(bytes) + ")";
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package nl.lexemmens.podman.service;
 
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.containerfile.ContainerfileParser;
+import nl.lexemmens.podman.containerfile.Instruction;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.shared.filtering.FilterWrapper;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.apache.maven.shared.filtering.MavenFileFilterRequest;
 import org.apache.maven.shared.filtering.MavenFilteringException;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * <p>
@@ -24,7 +32,8 @@ import java.util.stream.Stream;
  * </p>
  * <ul>
  *     <li>Decorate a specified source Containerfile by resolving properties configured in the {@link MavenProject}</li>
- *     <li>Decorate a specified source Containerfile by adding one or more label commands to the Containerfile</li>
+ *     <li>Decorate a specified source Containerfile by adding one or more label commands to the Containerfile, unless
+ *     the labels are passed to Podman as build option</li>
  * </ul>
  *
  * <p>
@@ -35,7 +44,7 @@ import java.util.stream.Stream;
 public class ContainerfileDecorator {
 
     private static final String LABEL_ATTRIBUTE = "LABEL ";
-    private static final String BASE_IMAGE_ATTRIBUTE = "FROM";
+    private static final String BASE_IMAGE_INSTRUCTION = "FROM";
 
     /**
      * Logger instance
@@ -67,79 +76,113 @@ public class ContainerfileDecorator {
 
     /**
      * <p>
-     * Decorates a Dockerfile by executing a series of actions to get to the final Dockerfile:
+     * Decorates a Dockerfile in a single pass over the source Dockerfile:
      * </p>
      * <ul>
-     *     <li>Use the {@link MavenFileFilter} service to filter the source Dockerfile and copy it to the target location.</li>
-     *     <li>Add labels to the target Dockerfile using the LABELS command.</li>
+     *     <li>Use the filters of the {@link MavenFileFilter} service to filter the source Dockerfile.</li>
+     *     <li>Add labels to the filtered Dockerfile using the LABELS command, directly after every FROM instruction.</li>
      * </ul>
+     * <p>
+     * The target Dockerfile is only written when its contents change, so that its modification time can be relied
+     * upon to detect changes.
+     * </p>
      *
      * @param image The BuildContext that contains the source and target Dockerfile paths
      * @throws MojoExecutionException When the Dockerfile cannot be filtered.
      */
     public void decorateContainerfile(SingleImageConfiguration image) throws MojoExecutionException {
-        filterContainerfile(image);
-        addLabelsToContainerfile(image);
-    }
-
-    private void filterContainerfile(SingleImageConfiguration image) throws MojoExecutionException {
         log.debug("Filtering Containerfile. Source: " + image.getBuild().getSourceContainerFileDir() + ", target: " + image.getBuild().getTargetContainerFile());
-        try {
-            MavenFileFilterRequest fileFilterRequest = new MavenFileFilterRequest();
-            fileFilterRequest.setEncoding("UTF8");
-            fileFilterRequest.setFiltering(true);
-            fileFilterRequest.setFrom(image.getBuild().getSourceContainerFileDir().toFile());
-            fileFilterRequest.setTo(image.getBuild().getTargetContainerFile().toFile());
-            fileFilterRequest.setMavenProject(mavenProject);
 
-            // If the parent directories of the targetContainerFile do not exist, create them
-            Path targetContainerFileParent = image.getBuild().getTargetContainerFile().getParent();
-            if (!Files.exists(targetContainerFileParent)) {
-                Files.createDirectories(targetContainerFileParent);
-            }
-
-            mavenFileFilter.copyFile(fileFilterRequest);
-        } catch (MavenFilteringException e) {
+        String targetLabels = getTargetLabels(image);
+        byte[] decoratedContainerfile;
+        try (Reader reader = getFilteredReader(image)) {
+            decoratedContainerfile = decorate(reader, targetLabels).getBytes(StandardCharsets.UTF_8);
+        } catch (MavenFilteringException | IOException e) {
             String msg = "Failed to filter Containerfile! " + e.getMessage();
             log.error(msg, e);
             throw new MojoExecutionException(msg, e);
-        } catch (IOException e) {
-            String msg = "Failed to create target directory for Containerfile! " + e.getMessage();
-            log.error(msg, e);
-            throw new MojoExecutionException(msg, e);
         }
+
+        writeIfChanged(image.getBuild().getTargetContainerFile(), decoratedContainerfile);
+    }
+
+    private Reader getFilteredReader(SingleImageConfiguration image) throws MavenFilteringException, IOException {
+        MavenFileFilterRequest fileFilterRequest = new MavenFileFilterRequest();
+        fileFilterRequest.setEncoding("UTF8");
+        fileFilterRequest.setFiltering(true);
+        fileFilterRequest.setFrom(image.getBuild().getSourceContainerFileDir().toFile());
+        fileFilterRequest.setTo(image.getBuild().getTargetContainerFile().toFile());
+        fileFilterRequest.setMavenProject(mavenProject);
+
+        // The same filters MavenFileFilter.copyFile would apply, without writing an intermediate file
+        List<FilterWrapper> filterWrappers = mavenFileFilter.getDefaultFilterWrappers(fileFilterRequest);
+        Reader reader = Files.newBufferedReader(image.getBuild().getSourceContainerFileDir(), StandardCharsets.UTF_8);
+        for (FilterWrapper filterWrapper : filterWrappers) {
+            reader = filterWrapper.getReader(reader);
+        }
+        return reader;
     }
 
-    private void addLabelsToContainerfile(SingleImageConfiguration image) throws MojoExecutionException {
+    private String getTargetLabels(SingleImageConfiguration image) {
         if (image.getBuild().getLabels().isEmpty()) {
             log.debug("No labels to add to the Containerfile");
-            return;
+            return null;
+        }
+
+        if (image.getBuild().getLabelMode() == LabelMode.BUILD_OPTION) {
+            log.debug("Labels are passed to Podman as build option and are not added to the Containerfile");
+            return null;
         }
 
         StringBuilder labelBuilder = new StringBuilder(LABEL_ATTRIBUTE);
         for (Map.Entry<String, String> label : image.getBuild().getLabels().entrySet()) {
             labelBuilder.append(label.getKey()).append("=\"").append(label.getValue()).append("\" ");
         }
-        String targetLabels = labelBuilder.toString();
+        return labelBuilder.toString();
+    }
 
-        try (Stream<String> containerFileStream = Files.lines(image.getBuild().getTargetContainerFile())) {
-            List<String> containerFileContents = containerFileStream.collect(Collectors.toList());
-            List<String> targetContainerFileContents = new ArrayList<>();
+    private static String decorate(Reader reader, String targetLabels) throws IOException {
+        String filteredContainerfile = IOUtils.toString(reader);
+        if (targetLabels == null) {
+            return filteredContainerfile;
+        }
 
-            for(String line : containerFileContents) {
-                targetContainerFileContents.add(line);
+        // LABEL declaration after an entry point or run declaration are not always supported.
+        // Therefore, we add the labels directly after the base image declaration
+        Set<Integer> baseImageDeclarationEnds = ContainerfileParser.parse(filteredContainerfile).getInstructions().stream()
+                .filter(instruction -> instruction.is(BASE_IMAGE_INSTRUCTION))
+                .map(Instruction::getLastLine)
+                .collect(Collectors.toSet());
+
+        StringBuilder targetContainerFileContents = new StringBuilder();
+        BufferedReader lineReader = new BufferedReader(new StringReader(filteredContainerfile));
+        int lineNumber = 0;
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            targetContainerFileContents.append(line).append(System.lineSeparator());
+            if (baseImageDeclarationEnds.contains(++lineNumber)) {
+                targetContainerFileContents.append(targetLabels).append(System.lineSeparator());
+            }
+        }
+        return targetContainerFileContents.toString();
+    }
+
+    private void writeIfChanged(Path targetContainerFile, byte[] contents) throws MojoExecutionException {
+        try {
+            if (Files.exists(targetContainerFile) && Arrays.equals(contents, Files.readAllBytes(targetContainerFile))) {
+                log.debug("Containerfile " + targetContainerFile + " is up to date.");
+                return;
+            }
 
-                // LABEL declaration after an entry point or run declaration are not always supported.
-                // Therefore, we add the labels directly after the base image declaration
-                // Lines are never <null> at this point
-                if(line.startsWith(BASE_IMAGE_ATTRIBUTE)) {
-                    targetContainerFileContents.add(targetLabels);
-                }
+            // If the parent directories of the targetContainerFile do not exist, create them
+            Path targetContainerFileParent = targetContainerFile.getParent();
+            if (!Files.exists(targetContainerFileParent)) {
+                Files.createDirectories(targetContainerFileParent);
             }
 
-            Files.write(image.getBuild().getTargetContainerFile(), targetContainerFileContents, StandardOpenOption.TRUNCATE_EXISTING);
+            Files.write(targetContainerFile, contents);
         } catch (IOException e) {
-            String msg = "Failed to add labels (" + targetLabels + ") to Containerfile: " + e.getMessage();
+            String msg = "Failed to write Containerfile " + targetContainerFile + ": " + e.getMessage();
             log.error(msg, e);
             throw new MojoExecutionException(msg, e);
         }
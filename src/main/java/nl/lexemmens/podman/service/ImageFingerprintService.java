@@ -0,0 +1,373 @@
+package nl.lexemmens.podman.service;
+
+import nl.lexemmens.podman.config.image.AbstractImageBuildConfiguration;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * Service that computes a fingerprint over all inputs of a container image build and records the result of a build,
+ * so that a build can be skipped when none of its inputs have changed.
+ * </p>
+ * <p>
+ * The fingerprint covers the filtered Containerfile, the build arguments (including <code>podman.buildArg.*</code>
+ * system properties), labels, build options, the names the image is tagged with, the IDs of base images that are
+ * built in the same execution and the content of the files in the build context that the image uses. Changes to
+ * external base images are not detected, which is why builds using <code>noCache</code> or <code>pullAlways</code>
+ * are never skipped.
+ * </p>
+ * <p>
+ * The files in the build context that are used are the sources of the <code>COPY</code> and <code>ADD</code>
+ * instructions, as determined by the {@link BuildContextStager}. When these cannot be determined, all files in the
+ * run directory are used instead, except for the files in the build directory of the project. Changes to those files
+ * are then not detected.
+ * </p>
+ */
+public class ImageFingerprintService {
+
+    private static final String FINGERPRINT_DIRECTORY = "podman/fingerprints";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String IMAGE_ID_KEY = "imageId";
+    private static final String STAGE_KEY_PREFIX = "stage.";
+    private static final String CATALOG_FILE_PREFIX = "container-catalog";
+    private static final String GIT_DIRECTORY = ".git";
+
+    private final Log log;
+    private final MavenProject mavenProject;
+    private final PodmanConfiguration podmanConfig;
+    private final BuildContextStager buildContextStager;
+
+    // Images of an execution often share files of the build context, so every file is only hashed once.
+    private final Map<Path, String> contextFileHashes = new HashMap<>();
+    private String fullContextFingerprint;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param log                Access to Maven's log system
+     * @param mavenProject       The MavenProject that is being built
+     * @param podmanConfig       Holds global configuration for Podman
+     * @param buildContextStager Determines the files in the build context that are used by an image
+     */
+    public ImageFingerprintService(Log log, MavenProject mavenProject, PodmanConfiguration podmanConfig, BuildContextStager buildContextStager) {
+        this.log = log;
+        this.mavenProject = mavenProject;
+        this.podmanConfig = podmanConfig;
+        this.buildContextStager = buildContextStager;
+    }
+
+    /**
+     * Returns whether the build of the provided image may be skipped based on its fingerprint.
+     *
+     * @param image The image to check
+     * @return false when the image is built without cache or always pulls its base image. True otherwise.
+     */
+    public boolean isFingerprintSupported(SingleImageConfiguration image) {
+        AbstractImageBuildConfiguration build = image.getBuild();
+        return !build.isNoCache() && !build.getPullAlways().orElse(false);
+    }
+
+    /**
+     * Computes the fingerprint of the inputs of the provided image. The Containerfile must have been filtered already.
+     *
+     * @param image        The image to compute the fingerprint for
+     * @param baseImageIds The IDs of the base images of this image that are built in the same execution
+     * @return The fingerprint as a hexadecimal string
+     * @throws MojoExecutionException In case the inputs of the image cannot be read
+     */
+    public String fingerprint(SingleImageConfiguration image, List<String> baseImageIds) throws MojoExecutionException {
+        AbstractImageBuildConfiguration build = image.getBuild();
+        MessageDigest digest = newDigest();
+
+        update(digest, "containerfile", hashFile(build.getTargetContainerFile()));
+        update(digest, "args", new TreeMap<>(build.getAllBuildArgs()).toString());
+        update(digest, "labels", new TreeMap<>(build.getLabels()).toString());
+        update(digest, "labelMode", String.valueOf(build.getLabelMode()));
+        update(digest, "format", String.valueOf(build.getFormat()));
+        update(digest, "squash", String.valueOf(build.getSquash()));
+        update(digest, "squashAll", String.valueOf(build.getSquashAll()));
+        update(digest, "layers", String.valueOf(build.getLayers()));
+        update(digest, "pull", String.valueOf(build.getPull().orElse(null)));
+        update(digest, "platform", build.getPlatform().orElse(""));
+        update(digest, "targetStage", build.getTargetStage().orElse(""));
+        update(digest, "imageNames", getTargetImageNames(image).toString());
+        update(digest, "baseImages", baseImageIds.toString());
+        update(digest, "root", String.valueOf(podmanConfig.getRoot()));
+        update(digest, "runRoot", String.valueOf(podmanConfig.getRunRoot()));
+        update(digest, "context", getContextFingerprint(image));
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the result of the last build of the provided image, provided that it was built with the same fingerprint.
+     *
+     * @param image       The image to return the last build for
+     * @param fingerprint The current fingerprint of the image
+     * @return The recorded build, or an empty Optional when the image was not built before or its inputs have changed
+     */
+    public Optional<BuildRecord> findBuildRecord(SingleImageConfiguration image, String fingerprint) {
+        Path recordFile = getRecordFile(image);
+        if (!Files.exists(recordFile)) {
+            log.debug("No previous build recorded for image " + image.getImageName());
+            return Optional.empty();
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(recordFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            log.warn("Failed to read build fingerprint from " + recordFile + ". Caught: " + e.getMessage());
+            return Optional.empty();
+        }
+
+        String imageId = properties.getProperty(IMAGE_ID_KEY);
+        if (!fingerprint.equals(properties.getProperty(FINGERPRINT_KEY)) || imageId == null) {
+            log.debug("Inputs of image " + image.getImageName() + " have changed since the last build.");
+            return Optional.empty();
+        }
+
+        Map<String, String> imageHashPerStage = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(STAGE_KEY_PREFIX)) {
+                imageHashPerStage.put(key.substring(STAGE_KEY_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+
+        return Optional.of(new BuildRecord(imageId, imageHashPerStage));
+    }
+
+    /**
+     * Records the result of a build of the provided image, so that a next build with the same fingerprint can be skipped.
+     *
+     * @param image       The image that was built
+     * @param fingerprint The fingerprint of the inputs of the build
+     * @throws MojoExecutionException In case the fingerprint cannot be written
+     */
+    public void recordBuild(SingleImageConfiguration image, String fingerprint) throws MojoExecutionException {
+        if (!image.getFinalImageHash().isPresent()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_KEY, fingerprint);
+        properties.setProperty(IMAGE_ID_KEY, image.getFinalImageHash().get());
+        for (Map.Entry<String, String> stageImage : image.getImageHashPerStage().entrySet()) {
+            properties.setProperty(STAGE_KEY_PREFIX + stageImage.getKey(), stageImage.getValue());
+        }
+
+        Path recordFile = getRecordFile(image);
+        try {
+            Files.createDirectories(recordFile.getParent());
+            try (OutputStream out = Files.newOutputStream(recordFile)) {
+                properties.store(out, "Build fingerprint of " + image.getImageName());
+            }
+        } catch (IOException e) {
+            String msg = "Failed to write build fingerprint to " + recordFile;
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+    }
+
+    private Path getRecordFile(SingleImageConfiguration image) {
+        // The source Containerfile makes the key unique for images resolved from a batch configuration
+        String key = image.getImageName() + "|" + image.getBuild().getSourceContainerFileDir().toAbsolutePath().normalize();
+        String name = image.getImageName() == null ? "image" : image.getImageName().replaceAll("[^a-zA-Z0-9._-]", "_");
+        String fileName = String.format("%s-%s.properties", name, toHex(newDigest().digest(key.getBytes(StandardCharsets.UTF_8))).substring(0, 12));
+
+        return Paths.get(mavenProject.getBuild().getDirectory(), FINGERPRINT_DIRECTORY, fileName);
+    }
+
+    private List<String> getTargetImageNames(SingleImageConfiguration image) {
+        List<String> imageNames = new ArrayList<>(image.getImageNames());
+        if (image.getStages() != null) {
+            Stream.of(image.getStages()).forEach(stage -> imageNames.addAll(image.getImageNamesByStage(stage.getName())));
+        }
+        return imageNames;
+    }
+
+
+    private String getContextFingerprint(SingleImageConfiguration image) throws MojoExecutionException {
+        Optional<Set<Path>> contextFiles = buildContextStager.getContextFiles(image);
+        if (!contextFiles.isPresent()) {
+            log.debug("Unable to determine the files used by image " + image.getImageName() + ". Hashing the complete build context.");
+            return getFullContextFingerprint();
+        }
+
+        Path contextDir = podmanConfig.getRunDirectory().toPath().toAbsolutePath().normalize();
+        MessageDigest digest = newDigest();
+        for (Path file : contextFiles.get()) {
+            update(digest, file.toString().replace('\\', '/'), getContextFileHash(contextDir.resolve(file)));
+        }
+
+        log.debug("Hashed " + contextFiles.get().size() + " files in build context " + contextDir + " for image " + image.getImageName());
+        return toHex(digest.digest());
+    }
+
+    private synchronized String getContextFileHash(Path file) throws MojoExecutionException {
+        String hash = contextFileHashes.get(file);
+        if (hash == null) {
+            hash = Files.isSymbolicLink(file) ? hashSymbolicLink(file) : hashFile(file);
+            contextFileHashes.put(file, hash);
+        }
+        return hash;
+    }
+
+    // All images of an execution share the same context, so it is only hashed once.
+    private synchronized String getFullContextFingerprint() throws MojoExecutionException {
+        if (fullContextFingerprint == null) {
+            Path contextDir = podmanConfig.getRunDirectory().toPath().toAbsolutePath().normalize();
+            Set<Path> excludedDirectories = getExcludedDirectories();
+            MessageDigest digest = newDigest();
+
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(contextDir)) {
+                files = paths.filter(Files::isRegularFile)
+                        .filter(path -> excludedDirectories.stream().noneMatch(path::startsWith))
+                        .filter(path -> !path.getFileName().toString().startsWith(CATALOG_FILE_PREFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            } catch (IOException e) {
+                String msg = "Failed to read build context " + contextDir;
+                log.error(msg, e);
+                throw new MojoExecutionException(msg, e);
+            }
+
+            for (Path file : files) {
+                update(digest, contextDir.relativize(file).toString(), hashFile(file));
+            }
+
+            fullContextFingerprint = toHex(digest.digest());
+            log.debug("Hashed " + files.size() + " files in build context " + contextDir);
+        }
+        return fullContextFingerprint;
+    }
+
+    private Set<Path> getExcludedDirectories() {
+        List<File> excluded = new ArrayList<>();
+        excluded.add(new File(podmanConfig.getRunDirectory(), GIT_DIRECTORY));
+        // The build directory contains the output of the build, such as jars, which is rarely identical between two
+        // builds. Only the output of this plugin can be excluded when the run directory is part of it.
+        File buildDirectory = new File(mavenProject.getBuild().getDirectory());
+        if (podmanConfig.getRunDirectory().toPath().toAbsolutePath().normalize().startsWith(buildDirectory.toPath().toAbsolutePath().normalize())) {
+            excluded.add(new File(buildDirectory, "podman"));
+        } else {
+            excluded.add(buildDirectory);
+        }
+        excluded.add(podmanConfig.getRoot());
+        excluded.add(podmanConfig.getRunRoot());
+
+        return excluded.stream()
+                .filter(Objects::nonNull)
+                .map(file -> file.toPath().toAbsolutePath().normalize())
+                .collect(Collectors.toSet());
+    }
+
+    private String hashFile(Path file) throws MojoExecutionException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            String msg = "Failed to compute fingerprint of " + file;
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+        return toHex(digest.digest());
+    }
+
+    private String hashSymbolicLink(Path link) throws MojoExecutionException {
+        try {
+            return toHex(newDigest().digest(Files.readSymbolicLink(link).toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            String msg = "Failed to compute fingerprint of " + link;
+            log.error(msg, e);
+            throw new MojoExecutionException(msg, e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String key, String value) {
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '=');
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Result of a previous build of an image
+     */
+    public static final class BuildRecord {
+
+        private final String imageId;
+        private final Map<String, String> imageHashPerStage;
+
+        public BuildRecord(String imageId, Map<String, String> imageHashPerStage) {
+            this.imageId = imageId;
+            this.imageHashPerStage = Collections.unmodifiableMap(imageHashPerStage);
+        }
+
+        /**
+         * Returns the ID of the final image
+         *
+         * @return The image ID
+         */
+        public String getImageId() {
+            return imageId;
+        }
+
+        /**
+         * Returns the image ID per stage, in case of a multistage Containerfile
+         *
+         * @return The image ID per stage
+         */
+        public Map<String, String> getImageHashPerStage() {
+            return imageHashPerStage;
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package nl.lexemmens.podman.service;
 
+import nl.lexemmens.podman.command.CommandOutputListener;
 import nl.lexemmens.podman.command.podman.*;
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -16,6 +25,11 @@ import java.util.regex.Pattern;
  */
 public class PodmanExecutorService {
 
+    private static final String OCI_TRANSPORT = "oci:";
+    private static final String DIGEST_FORMAT = "{{.Digest}}";
+    private static final String SIZE_FORMAT = "{{.Size}}";
+    private static final String ID_FORMAT = "{{.Id}}";
+
     private final Log log;
 
     private final CommandExecutorDelegate delegate;
@@ -45,10 +59,30 @@ public class PodmanExecutorService {
      * </p>
      *
      * @param image The {@link SingleImageConfiguration} containing the configuration of the image to build
-     * @return The last line of the build process, usually containing the image hash
+     * @return The output of the build process. The last line usually contains the image hash
      * @throws MojoExecutionException In case the container image could not be built.
      */
     public List<String> build(SingleImageConfiguration image) throws MojoExecutionException {
+        List<String> output = new ArrayList<>();
+        build(image, Collections.emptyList(), output::add);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Implementation of the 'podman build' command.
+     * </p>
+     * <p>
+     * Passes the output of the build to the provided listener while the build is running, rather than collecting
+     * it in memory. The last line of the output usually contains the image hash.
+     * </p>
+     *
+     * @param image          The {@link SingleImageConfiguration} containing the configuration of the image to build
+     * @param fullImageNames The full names the resulting image should be tagged with. May be empty.
+     * @param listener       The listener receiving the output of the build
+     * @throws MojoExecutionException In case the container image could not be built.
+     */
+    public void build(SingleImageConfiguration image, List<String> fullImageNames, CommandOutputListener listener) throws MojoExecutionException {
         PodmanBuildCommand.Builder builder = new PodmanBuildCommand.Builder(log, podmanConfig, delegate)
                 .setFormat(image.getBuild().getFormat().getValue())
                 .setContainerFile(image.getBuild().getTargetContainerFile())
@@ -86,9 +120,21 @@ public class PodmanExecutorService {
             builder.setTargetStage(targetStage.get());
         }
 
-        builder.addBuildArgs(image.getBuild().getArgs());
+        image.getBuild().getCacheFrom().forEach(builder::addCacheFrom);
+        image.getBuild().getCacheTo().ifPresent(builder::setCacheTo);
+        image.getBuild().getCacheTtl().ifPresent(builder::setCacheTtl);
+
+        if (image.getBuild().getLabelMode() == LabelMode.BUILD_OPTION) {
+            builder.addLabels(image.getBuild().getLabels());
+        }
+
+        image.getBuild().getStagedContextDir().ifPresent(builder::setContextDir);
+        image.getBuild().getOutputPrefix().ifPresent(builder::setOutputPrefix);
+
+        fullImageNames.forEach(builder::addTag);
+        builder.addBuildArgs(image.getBuild().getAllBuildArgs());
 
-        return builder.build().execute();
+        builder.build().execute(listener);
     }
 
     /**
@@ -101,13 +147,47 @@ public class PodmanExecutorService {
      * @throws MojoExecutionException In case the container image could not be tagged.
      */
     public void tag(String imageHash, String fullImageName) throws MojoExecutionException {
+        tag(imageHash, Collections.singletonList(fullImageName));
+    }
+
+    /**
+     * <p>
+     * Implementation of the 'podman tag' command, tagging an image with multiple names using a single command.
+     * </p>
+     *
+     * @param imageHash      The image hash as generated by the {@link #build(SingleImageConfiguration)} method
+     * @param fullImageNames The full names of the image. These will be the target names
+     * @throws MojoExecutionException In case the container image could not be tagged.
+     */
+    public void tag(String imageHash, List<String> fullImageNames) throws MojoExecutionException {
         new PodmanTagCommand.Builder(log, podmanConfig, delegate)
                 .setImageHash(imageHash)
-                .setFullImageName(fullImageName)
+                .setFullImageNames(fullImageNames)
                 .build()
                 .execute();
     }
 
+    /**
+     * <p>
+     * Implementation of the 'podman image exists' command.
+     * </p>
+     *
+     * @param image The name or ID of the image
+     * @return true when the image exists in local storage. False otherwise.
+     */
+    public boolean imageExists(String image) {
+        try {
+            new PodmanImageCommand.Builder(log, podmanConfig, delegate)
+                    .exists(image)
+                    .build()
+                    .execute();
+            return true;
+        } catch (MojoExecutionException e) {
+            log.debug("Image " + image + " does not exist in local storage.", e);
+            return false;
+        }
+    }
+
     /**
      * <p>
      * Implementation of the 'podman save' command.
@@ -129,6 +209,126 @@ public class PodmanExecutorService {
                 .execute();
     }
 
+    /**
+     * <p>
+     * Implementation of the 'podman save' command, writing the archive to the provided stream while it is being
+     * produced, instead of to a file.
+     * </p>
+     *
+     * @param outputStream  The stream to write the archive to. The stream is not closed.
+     * @param fullImageName The image to save
+     * @throws MojoExecutionException In case the container image could not be saved.
+     */
+    public void save(OutputStream outputStream, String fullImageName) throws MojoExecutionException {
+        new PodmanSaveCommand.Builder(log, podmanConfig, delegate)
+                .setFullImageName(fullImageName)
+                .build()
+                .execute(outputStream);
+    }
+
+    /**
+     * <p>
+     * Implementation of the 'podman save --multi-image-archive' command, writing a single archive containing all
+     * provided images to the provided stream. Layers shared by the images are stored only once.
+     * </p>
+     *
+     * @param outputStream   The stream to write the archive to. The stream is not closed.
+     * @param fullImageNames The images to save
+     * @throws MojoExecutionException In case the container images could not be saved.
+     */
+    public void save(OutputStream outputStream, List<String> fullImageNames) throws MojoExecutionException {
+        new PodmanSaveCommand.Builder(log, podmanConfig, delegate)
+                .setMultiImageArchive(fullImageNames)
+                .build()
+                .execute(outputStream);
+    }
+
+    /**
+     * <p>
+     * Copies an image from local storage into an OCI image layout directory, using the 'podman push' command. The
+     * image is referenced by its full name in the index of the layout. Blobs that already exist in the layout are
+     * not stored again.
+     * </p>
+     *
+     * @param fullImageName The image to copy
+     * @param layoutDir     The OCI image layout directory. Created when it does not exist.
+     * @throws MojoExecutionException In case the container image could not be copied.
+     */
+    public void pushToOciLayout(String fullImageName, Path layoutDir) throws MojoExecutionException {
+        new PodmanPushCommand.Builder(log, podmanConfig, delegate)
+                .setFullImageName(fullImageName)
+                .setDestination(OCI_TRANSPORT + layoutDir + ":" + fullImageName)
+                .build()
+                .execute();
+    }
+
+    /**
+     * Determines the manifest digest of an image in local storage.
+     *
+     * @param fullImageName The image to inspect
+     * @return The digest of the image, or an empty Optional in case it cannot be determined
+     */
+    public Optional<String> getImageDigest(String fullImageName) {
+        try {
+            return new PodmanImageCommand.Builder(log, podmanConfig, delegate)
+                    .inspect(fullImageName, DIGEST_FORMAT)
+                    .build()
+                    .execute()
+                    .stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .findFirst();
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the digest of image " + fullImageName + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Determines the ID of the image a name refers to in local storage.
+     *
+     * @param image The name or ID of the image to inspect
+     * @return The full ID of the image, or an empty Optional in case the image does not exist
+     */
+    public Optional<String> getImageId(String image) {
+        try {
+            return new PodmanImageCommand.Builder(log, podmanConfig, delegate)
+                    .inspect(image, ID_FORMAT)
+                    .build()
+                    .execute()
+                    .stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .findFirst();
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the ID of image " + image + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Determines the size of an image in local storage.
+     *
+     * @param image The name or ID of the image to inspect
+     * @return The size of the image in bytes, or an empty Optional in case it cannot be determined
+     */
+    public Optional<Long> getImageSize(String image) {
+        try {
+            return new PodmanImageCommand.Builder(log, podmanConfig, delegate)
+                    .inspect(image, SIZE_FORMAT)
+                    .build()
+                    .execute()
+                    .stream()
+                    .map(String::trim)
+                    .filter(line -> line.matches("\\d+"))
+                    .map(Long::valueOf)
+                    .findFirst();
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the size of image " + image + ".", e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * <p>
      * Implementation of the 'podman push' command.
@@ -144,6 +344,56 @@ public class PodmanExecutorService {
                 .execute();
     }
 
+    /**
+     * <p>
+     * Implementation of the 'podman push' command, which also determines the digest of the manifest that was pushed.
+     * </p>
+     *
+     * @param fullImageName The full name of the image including the registry
+     * @return The digest of the pushed manifest, or an empty Optional if podman did not report it
+     * @throws MojoExecutionException In case the container image could not be pushed.
+     */
+    public Optional<String> pushAndGetDigest(String fullImageName) throws MojoExecutionException {
+        Path digestFile;
+        try {
+            digestFile = Files.createTempFile("podman-push", ".digest");
+        } catch (IOException e) {
+            String msg = "Failed to push image " + fullImageName + ", because no file could be created to record its digest.";
+            log.error(msg);
+            throw new MojoExecutionException(msg, e);
+        }
+
+        try {
+            new PodmanPushCommand.Builder(log, podmanConfig, delegate)
+                    .setDigestFile(digestFile)
+                    .setFullImageName(fullImageName)
+                    .build()
+                    .execute();
+
+            return readDigest(digestFile, fullImageName);
+        } finally {
+            deleteDigestFile(digestFile);
+        }
+    }
+
+    private Optional<String> readDigest(Path digestFile, String fullImageName) {
+        try {
+            String digest = new String(Files.readAllBytes(digestFile), StandardCharsets.UTF_8).trim();
+            return digest.isEmpty() ? Optional.empty() : Optional.of(digest);
+        } catch (IOException e) {
+            log.debug("Unable to determine the digest of pushed image " + fullImageName + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    private void deleteDigestFile(Path digestFile) {
+        try {
+            Files.deleteIfExists(digestFile);
+        } catch (IOException e) {
+            log.debug("Failed to delete digest file " + digestFile + ".", e);
+        }
+    }
+
     /**
      * <p>
      * Implementation of the 'podman login' command.
@@ -0,0 +1,320 @@
+package nl.lexemmens.podman.service;
+
+import nl.lexemmens.podman.command.CommandOutputListener;
+import nl.lexemmens.podman.config.image.AbstractImageBuildConfiguration;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.enumeration.ContainerFormat;
+import nl.lexemmens.podman.enumeration.LabelMode;
+import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.CommandExecutorDelegate;
+import nl.lexemmens.podman.executor.PodmanRestClient;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Variant of the {@link PodmanExecutorService} that executes commands via the Libpod REST API of a running Podman
+ * service, rather than by starting a new Podman process for every command. This avoids initialising Podman's
+ * storage, reading its configuration and acquiring its storage locks for every command.
+ * </p>
+ * <p>
+ * Logging in to registries and copying images into an OCI image layout are still executed using the Podman command
+ * line, as the service has no equivalent for them. Credentials stored by <code>podman login</code> are used by the
+ * service as long as it runs as the same user.
+ * </p>
+ */
+public class PodmanRestExecutorService extends PodmanExecutorService {
+
+    private static final String EXTERNAL_CONTAINERFILE_DIR = ".podman-maven-plugin";
+    private static final String TAR_CONTENT_TYPE = "application/x-tar";
+    private static final String OCI_ARCHIVE = "oci-archive";
+    private static final String DOCKER_ARCHIVE = "docker-archive";
+    private static final String OCI_MANIFEST_TYPE = "application/vnd.oci.image.manifest.v1+json";
+    private static final String DOCKER_MANIFEST_TYPE = "application/vnd.docker.distribution.manifest.v2+json";
+    private static final String LATEST = "latest";
+    private static final String PULL_POLICY_ALWAYS = "always";
+    private static final String PULL_POLICY_MISSING = "missing";
+
+    private final Log log;
+    private final PodmanConfiguration podmanConfig;
+    private final PodmanRestClient restClient;
+    private final BuildContextStager buildContextStager;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param log                Used to access Maven's log system
+     * @param podmanConfig       Contains Podman specific configuration, including the URL of the Podman service
+     * @param delegate           A delegate executor that executes the commands that are not supported by the service
+     * @param restClient         The client used to access the Podman service
+     * @param buildContextStager Determines the content of a build context, the same way as Podman does
+     */
+    public PodmanRestExecutorService(Log log, PodmanConfiguration podmanConfig, CommandExecutorDelegate delegate, PodmanRestClient restClient, BuildContextStager buildContextStager) {
+        super(log, podmanConfig, delegate);
+        this.log = log;
+        this.podmanConfig = podmanConfig;
+        this.restClient = restClient;
+        this.buildContextStager = buildContextStager;
+    }
+
+    /**
+     * <p>
+     * Builds an image via the Podman service. The build context is sent to the service as a tar archive, which is
+     * created while it is being sent.
+     * </p>
+     * <p>
+     * The output of the build is passed to the listener line by line, the same way as the output of
+     * <code>podman build</code> is.
+     * </p>
+     *
+     * @param image          The {@link SingleImageConfiguration} containing the configuration of the image to build
+     * @param fullImageNames The full names the resulting image should be tagged with. May be empty.
+     * @param listener       The listener receiving the output of the build
+     * @throws MojoExecutionException In case the container image could not be built.
+     */
+    @Override
+    public void build(SingleImageConfiguration image, List<String> fullImageNames, CommandOutputListener listener) throws MojoExecutionException {
+        AbstractImageBuildConfiguration build = image.getBuild();
+        Path contextDir = build.getStagedContextDir()
+                .orElse(podmanConfig.getRunDirectory().toPath())
+                .toAbsolutePath()
+                .normalize();
+        Path containerFile = build.getTargetContainerFile().toAbsolutePath().normalize();
+        String containerFileInContext = containerFile.startsWith(contextDir)
+                ? toEntryName(contextDir.relativize(containerFile))
+                : EXTERNAL_CONTAINERFILE_DIR + "/" + containerFile.getFileName();
+
+        PodmanRestClient.Query query = new PodmanRestClient.Query()
+                .add("dockerfile", containerFileInContext)
+                .add("outputformat", build.getFormat() == ContainerFormat.DOCKER ? DOCKER_MANIFEST_TYPE : OCI_MANIFEST_TYPE)
+                .add("nocache", build.isNoCache())
+                .add("buildargs", new JSONObject(build.getAllBuildArgs()).toString());
+        fullImageNames.forEach(fullImageName -> query.add("t", fullImageName));
+
+        if (Boolean.TRUE == build.getSquashAll()) {
+            // The service squashes the base image layers as well when layers are disabled, which is what
+            // podman build --squash-all sends to a remote service
+            query.add("squash", true);
+            query.add("layers", false);
+        } else {
+            if (Boolean.TRUE == build.getSquash()) {
+                query.add("squash", true);
+            }
+            if (build.getLayers() != null) {
+                query.add("layers", build.getLayers());
+            }
+        }
+        if (build.getPull().isPresent() || build.getPullAlways().isPresent()) {
+            // The Libpod API only considers the pull policy, so an explicit false must be sent as such as well
+            boolean pull = build.getPull().orElse(false) || build.getPullAlways().orElse(false);
+            query.add("pullpolicy", pull ? PULL_POLICY_ALWAYS : PULL_POLICY_MISSING);
+        }
+        build.getPlatform().ifPresent(platform -> query.add("platform", platform));
+        build.getTargetStage().ifPresent(targetStage -> query.add("target", targetStage));
+        if (!build.getCacheFrom().isEmpty()) {
+            query.add("cachefrom", new JSONArray(build.getCacheFrom()).toString());
+        }
+        build.getCacheTo().ifPresent(cacheTo -> query.add("cacheto", new JSONArray(Collections.singletonList(cacheTo)).toString()));
+        build.getCacheTtl().ifPresent(cacheTtl -> query.add("cachettl", cacheTtl));
+        if (build.getLabelMode() == LabelMode.BUILD_OPTION && !build.getLabels().isEmpty()) {
+            query.add("labels", new JSONObject(build.getLabels()).toString());
+        }
+
+        log.debug("Building image from " + containerFile + " via the Podman service.");
+        String outputPrefix = build.getOutputPrefix().orElse("");
+        restClient.postStreaming("/build", query,
+                outputStream -> writeBuildContext(contextDir, containerFile, containerFileInContext, outputStream),
+                TAR_CONTENT_TYPE, message -> {
+                    String stream = message.optString("stream", null);
+                    if (stream != null) {
+                        for (String line : stream.split("\\r?\\n")) {
+                            if (!line.isEmpty()) {
+                                log.info(outputPrefix + line);
+                                listener.onLine(line);
+                            }
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public void tag(String imageHash, List<String> fullImageNames) throws MojoExecutionException {
+        for (String fullImageName : fullImageNames) {
+            int tagSeparator = fullImageName.lastIndexOf(':');
+            boolean hasTag = tagSeparator > fullImageName.lastIndexOf('/');
+
+            restClient.post("/images/" + imageHash + "/tag", new PodmanRestClient.Query()
+                    .add("repo", hasTag ? fullImageName.substring(0, tagSeparator) : fullImageName)
+                    .add("tag", hasTag ? fullImageName.substring(tagSeparator + 1) : LATEST));
+        }
+    }
+
+    @Override
+    public boolean imageExists(String image) {
+        try {
+            return restClient.exists("/images/" + image + "/exists");
+        } catch (MojoExecutionException e) {
+            log.debug("Image " + image + " does not exist in local storage.", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void save(OutputStream outputStream, String fullImageName) throws MojoExecutionException {
+        restClient.download("/images/" + fullImageName + "/get", new PodmanRestClient.Query().add("format", OCI_ARCHIVE), outputStream);
+    }
+
+    @Override
+    public void save(OutputStream outputStream, List<String> fullImageNames) throws MojoExecutionException {
+        PodmanRestClient.Query query = new PodmanRestClient.Query().add("format", DOCKER_ARCHIVE);
+        fullImageNames.forEach(fullImageName -> query.add("references", fullImageName));
+        restClient.download("/images/export", query, outputStream);
+    }
+
+    @Override
+    public Optional<String> getImageDigest(String fullImageName) {
+        try {
+            return Optional.ofNullable(restClient.getJson("/images/" + fullImageName + "/json").optString("Digest", null))
+                    .filter(digest -> !digest.isEmpty());
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the digest of image " + fullImageName + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<String> getImageId(String image) {
+        try {
+            return Optional.ofNullable(restClient.getJson("/images/" + image + "/json").optString("Id", null))
+                    .filter(id -> !id.isEmpty());
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the ID of image " + image + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Long> getImageSize(String image) {
+        try {
+            JSONObject inspect = restClient.getJson("/images/" + image + "/json");
+            return inspect.has("Size") ? Optional.of(inspect.getLong("Size")) : Optional.empty();
+        } catch (MojoExecutionException | JSONException e) {
+            log.debug("Unable to determine the size of image " + image + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void push(String fullImageName) throws MojoExecutionException {
+        pushAndGetDigest(fullImageName);
+    }
+
+    @Override
+    public Optional<String> pushAndGetDigest(String fullImageName) throws MojoExecutionException {
+        PodmanRestClient.Query query = new PodmanRestClient.Query();
+        if (podmanConfig.getTlsVerify() != TlsVerify.NOT_SPECIFIED) {
+            query.add("tlsVerify", podmanConfig.getTlsVerify() == TlsVerify.TRUE);
+        }
+
+        // Podman 4.4 and newer report the digest of the pushed manifest
+        AtomicReference<String> digest = new AtomicReference<>();
+        restClient.postStreaming("/images/" + fullImageName + "/push", query, null, null, message -> {
+            String stream = message.optString("stream", null);
+            if (stream != null && !stream.trim().isEmpty()) {
+                log.info(stream.trim());
+            }
+
+            String manifestDigest = message.optString("manifestdigest", null);
+            if (manifestDigest != null && !manifestDigest.isEmpty()) {
+                digest.set(manifestDigest);
+            }
+        });
+        return Optional.ofNullable(digest.get());
+    }
+
+    @Override
+    public void version() throws MojoExecutionException {
+        JSONObject version = restClient.getJson("/version");
+        log.info("Podman service version: " + version.optString("Version") + " (API version " + version.optString("ApiVersion") + ")");
+    }
+
+    @Override
+    public void removeLocalImage(String fullImageName) throws MojoExecutionException {
+        restClient.delete("/images/" + fullImageName);
+    }
+
+    private void writeBuildContext(Path contextDir, Path containerFile, String containerFileInContext, OutputStream outputStream) throws IOException {
+        List<Path> paths;
+        try {
+            // The same content as Podman sends when building from the context directory itself
+            paths = buildContextStager.listContext(contextDir);
+        } catch (MojoExecutionException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        // The tar stream must not close the request stream
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(CloseShieldOutputStream.wrap(outputStream));
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+        for (Path path : paths) {
+            addEntry(tar, contextDir.resolve(path), toEntryName(path));
+        }
+
+        if (!containerFile.startsWith(contextDir)) {
+            addEntry(tar, containerFile, containerFileInContext);
+        }
+
+        tar.finish();
+        tar.close();
+        log.debug("Sent " + paths.size() + " entries in build context " + contextDir + " to the Podman service.");
+    }
+
+    private static void addEntry(TarArchiveOutputStream tar, Path path, String entryName) throws IOException {
+        if (Files.isSymbolicLink(path)) {
+            TarArchiveEntry entry = new TarArchiveEntry(entryName, TarConstants.LF_SYMLINK);
+            entry.setLinkName(Files.readSymbolicLink(path).toString());
+            tar.putArchiveEntry(entry);
+            tar.closeArchiveEntry();
+            return;
+        }
+
+        // Also determines the type of the entry, adding a trailing slash to the names of directories
+        TarArchiveEntry entry = new TarArchiveEntry(path.toFile(), entryName);
+        if (entry.isDirectory()) {
+            tar.putArchiveEntry(entry);
+            tar.closeArchiveEntry();
+            return;
+        }
+
+        if (Files.isExecutable(path)) {
+            entry.setMode(0755);
+        }
+        tar.putArchiveEntry(entry);
+        Files.copy(path, tar);
+        tar.closeArchiveEntry();
+    }
+
+    private static String toEntryName(Path relativePath) {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+
+}
@@ -5,6 +5,7 @@ import nl.lexemmens.podman.command.Command;
 import nl.lexemmens.podman.command.chcon.ChConCommand;
 import nl.lexemmens.podman.command.podman.PodmanSystemCommand;
 import nl.lexemmens.podman.command.sestatus.SeStatusCommand;
+import nl.lexemmens.podman.command.stat.StatCommand;
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -15,10 +16,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * <p>
+ * Sets the SELinux security context of a custom Podman storage root, so that containers can access it.
+ * </p>
+ * <p>
+ * The SELinux status is only determined once per Maven session, and the security context of a storage root is only
+ * set once per session. The storage root is only relabelled recursively when its security context differs from the
+ * context of Podman's graphRoot.
+ * </p>
+ */
 public class SecurityContextService {
 
     private static final String TARGET_SECURITY_CONTEXT_TYPE = "data_home_t";
@@ -27,26 +39,58 @@ public class SecurityContextService {
 
     private static final Pattern GRAPH_ROOT_PATTERN = Pattern.compile("(graphRoot: )([a-zA-Z\\/\\.]+)");
     private static final String UNKNOWN = "unknown";
+    private static final String SELINUX_ENABLED_KEY = "selinux-enabled";
+    private static final String SECURITY_CONTEXT_KEY = "selinux-security-context:";
 
     private final Log log;
     private final PodmanConfiguration podmanCfg;
     private final CommandExecutorDelegate delegate;
+    private final SessionCache sessionCache;
 
     public SecurityContextService(Log log, PodmanConfiguration podmanConfiguration, CommandExecutorDelegate delegate) {
+        this(log, podmanConfiguration, delegate, new SessionCache());
+    }
+
+    /**
+     * Constructs a new instance of this service, which shares the SELinux status and the storage roots whose security
+     * context has been set with other executions in the same Maven session.
+     *
+     * @param log                 Provides access to Maven's log system
+     * @param podmanConfiguration Holds global configuration for Podman, including the storage root
+     * @param delegate            The executor delegate
+     * @param sessionCache        The cache of the current Maven session
+     */
+    public SecurityContextService(Log log, PodmanConfiguration podmanConfiguration, CommandExecutorDelegate delegate, SessionCache sessionCache) {
         this.podmanCfg = podmanConfiguration;
         this.log = log;
         this.delegate = delegate;
+        this.sessionCache = sessionCache;
     }
 
-    public void setSecurityContext() throws MojoExecutionException {
-        log.debug("Checking SELinux status...");
-        boolean seLinuxEnabled = isSELinuxEnabled();
+    // Synchronized, as images may be built concurrently and the storage location should not be relabelled in parallel.
+    public synchronized void setSecurityContext() throws MojoExecutionException {
+        String root = podmanCfg.getRoot() == null ? "default" : podmanCfg.getRoot().getAbsolutePath();
+        AtomicBoolean alreadySet = new AtomicBoolean(true);
+
+        // Only stored once the security context has been set successfully, so that a failure is retried
+        sessionCache.get(SECURITY_CONTEXT_KEY + root, () -> {
+            alreadySet.set(false);
+            boolean seLinuxEnabled = sessionCache.get(SELINUX_ENABLED_KEY, () -> {
+                log.debug("Checking SELinux status...");
+                return isSELinuxEnabled();
+            });
+
+            if (seLinuxEnabled) {
+                log.debug("SELinux is enabled");
+                doSetSecurityContext();
+            } else {
+                log.debug("Not setting security context because SELinux is disabled.");
+            }
+            return Boolean.TRUE;
+        });
 
-        if (seLinuxEnabled) {
-            log.debug("SELinux is enabled");
-            doSetSecurityContext();
-        } else {
-            log.debug("Not setting security context because SELinux is disabled.");
+        if (alreadySet.get()) {
+            log.debug("Security context has already been set during this session.");
         }
     }
 
@@ -121,8 +165,12 @@ public class SecurityContextService {
                 Matcher graphRootMatcher = GRAPH_ROOT_PATTERN.matcher(graphRoot);
                 if(graphRootMatcher.matches()) {
                     String graphRootLocation = graphRootMatcher.group(2);
-                    log.info("Determined graphRoot location to be: " + graphRootLocation + ". Executing chcon using this directory as reference...");
-                    executeChConCommand(graphRootLocation);
+                    if (hasSameSecurityContext(graphRootLocation, podmanCfg.getRoot().getAbsolutePath())) {
+                        log.info("Security context of " + podmanCfg.getRoot() + " already matches graphRoot location " + graphRootLocation + ". Skipping chcon.");
+                    } else {
+                        log.info("Determined graphRoot location to be: " + graphRootLocation + ". Executing chcon using this directory as reference...");
+                        executeChConCommand(graphRootLocation);
+                    }
                 } else {
                     log.warn("Failed to determine Podman's storage location from output " + graphRoot);
                 }
@@ -132,6 +180,31 @@ public class SecurityContextService {
         }
     }
 
+    private boolean hasSameSecurityContext(String referenceLocation, String location) {
+        Optional<String> referenceContext = getSecurityContext(referenceLocation);
+        Optional<String> context = getSecurityContext(location);
+        log.debug("Security context of " + referenceLocation + ": " + referenceContext.orElse(UNKNOWN) + ", of " + location + ": " + context.orElse(UNKNOWN));
+
+        return referenceContext.isPresent() && referenceContext.equals(context);
+    }
+
+    private Optional<String> getSecurityContext(String location) {
+        try {
+            return new StatCommand.Builder(log, delegate)
+                    .withSecurityContextFormat()
+                    .withFile(location)
+                    .build()
+                    .execute()
+                    .stream()
+                    .map(String::trim)
+                    .filter(context -> !context.isEmpty() && !context.equals("?"))
+                    .findFirst();
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the security context of " + location, e);
+            return Optional.empty();
+        }
+    }
+
     private void executeChConCommand(String referenceStorageLocation) throws MojoExecutionException {
         // If the directory is created, set the security context
         Command chconCommand = new ChConCommand.Builder(log, delegate)
@@ -2,7 +2,11 @@ package nl.lexemmens.podman.service;
 
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
+import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import nl.lexemmens.podman.executor.CommandExecutorDelegateImpl;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.executor.MeteredCommandExecutorDelegate;
+import nl.lexemmens.podman.executor.PodmanRestClient;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
@@ -25,6 +29,8 @@ public class ServiceHub {
     private final MavenProjectHelper mavenProjectHelper;
 
     private final SecurityContextService securityContextService;
+    private final ImageFingerprintService imageFingerprintService;
+    private final BuildContextStager buildContextStager;
 
     /**
      * <p>
@@ -39,14 +45,24 @@ public class ServiceHub {
      * @param mavenSettings       Access to Maven's settings file
      * @param settingsDecrypter   Access to Maven's settings decryption service
      * @param mavenProjectHelper  The MavenProjectHelper service
+     * @param metrics             Receives the metrics of all executed commands
+     * @param sessionCache        Shares results between all executions in the Maven session
      */
-    ServiceHub(Log log, MavenProject mavenProject, MavenFileFilter mavenFileFilter, PodmanConfiguration podmanConfig, SkopeoConfiguration skopeoConfiguration, Settings mavenSettings, SettingsDecrypter settingsDecrypter, MavenProjectHelper mavenProjectHelper) {
-        this.podmanExecutorService = new PodmanExecutorService(log, podmanConfig, new CommandExecutorDelegateImpl());
-        this.buildahExecutorService = new BuildahExecutorService(log, podmanConfig, new CommandExecutorDelegateImpl());
-        this.skopeoExecutorService = new SkopeoExecutorService(log, skopeoConfiguration, new CommandExecutorDelegateImpl());
+    ServiceHub(Log log, MavenProject mavenProject, MavenFileFilter mavenFileFilter, PodmanConfiguration podmanConfig, SkopeoConfiguration skopeoConfiguration, Settings mavenSettings, SettingsDecrypter settingsDecrypter, MavenProjectHelper mavenProjectHelper, ExecutionMetrics metrics, SessionCache sessionCache) {
+        CommandExecutorDelegate delegate = new MeteredCommandExecutorDelegate(new CommandExecutorDelegateImpl(), metrics);
+        this.buildContextStager = new BuildContextStager(log, mavenProject, podmanConfig);
+        if (podmanConfig.getServiceUrl() == null) {
+            this.podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+        } else {
+            PodmanRestClient restClient = new PodmanRestClient(log, podmanConfig.getServiceUrl(), metrics);
+            this.podmanExecutorService = new PodmanRestExecutorService(log, podmanConfig, delegate, restClient, buildContextStager);
+        }
+        this.buildahExecutorService = new BuildahExecutorService(log, podmanConfig, delegate);
+        this.skopeoExecutorService = new SkopeoExecutorService(log, skopeoConfiguration, delegate);
         this.containerfileDecorator = new ContainerfileDecorator(log, mavenFileFilter, mavenProject);
-        this.authenticationService = new AuthenticationService(log, podmanExecutorService, mavenSettings, settingsDecrypter);
-        this.securityContextService = new SecurityContextService(log, podmanConfig, new CommandExecutorDelegateImpl());
+        this.authenticationService = new AuthenticationService(log, podmanExecutorService, mavenSettings, settingsDecrypter, sessionCache);
+        this.securityContextService = new SecurityContextService(log, podmanConfig, delegate, sessionCache);
+        this.imageFingerprintService = new ImageFingerprintService(log, mavenProject, podmanConfig, buildContextStager);
         this.mavenProjectHelper = mavenProjectHelper;
     }
 
@@ -102,4 +118,22 @@ public class ServiceHub {
     public SecurityContextService getSecurityContextService() {
         return securityContextService;
     }
+
+    /**
+     * Returns a reference to the {@link ImageFingerprintService}
+     *
+     * @return The {@link ImageFingerprintService}
+     */
+    public ImageFingerprintService getImageFingerprintService() {
+        return imageFingerprintService;
+    }
+
+    /**
+     * Returns a reference to the {@link BuildContextStager}
+     *
+     * @return The {@link BuildContextStager}
+     */
+    public BuildContextStager getBuildContextStager() {
+        return buildContextStager;
+    }
 }
@@ -2,6 +2,7 @@ package nl.lexemmens.podman.service;
 
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
@@ -31,12 +32,15 @@ public class ServiceHubFactory {
      * @param mavenSettings     Access to the Maven Settings
      * @param settingsDecrypter Access to Maven's {@link SettingsDecrypter} service
      * @param mavenProjectHelper Access to Maven's {@link MavenProjectHelper} service
+     * @param metrics           Receives the metrics of all commands executed by the services
+     * @param sessionCache      Shares results between all executions in the Maven session
      * @return A new instance of the {@link ServiceHub}
      */
     public ServiceHub createServiceHub(Log log, MavenProject mavenProject, MavenFileFilter mavenFileFilter, PodmanConfiguration podmanConfig,
                                        SkopeoConfiguration skopeoConfig,
-                                       Settings mavenSettings, SettingsDecrypter settingsDecrypter, MavenProjectHelper mavenProjectHelper) {
-        return new ServiceHub(log, mavenProject, mavenFileFilter, podmanConfig, skopeoConfig, mavenSettings, settingsDecrypter, mavenProjectHelper);
+                                       Settings mavenSettings, SettingsDecrypter settingsDecrypter, MavenProjectHelper mavenProjectHelper,
+                                       ExecutionMetrics metrics, SessionCache sessionCache) {
+        return new ServiceHub(log, mavenProject, mavenFileFilter, podmanConfig, skopeoConfig, mavenSettings, settingsDecrypter, mavenProjectHelper, metrics, sessionCache);
     }
 
 }
@@ -0,0 +1,107 @@
+package nl.lexemmens.podman.service;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Holds results that are expensive to determine and remain valid during a Maven session, so that they can be shared
+ * between all modules and goals in a reactor build instead of being determined again by every execution of a goal.
+ * Examples are the registries present in the authentication files, the decrypted Maven settings and the SELinux
+ * status.
+ * </p>
+ * <p>
+ * Values are stored by key. Keys should contain everything a value depends on, such as the modification time of a
+ * file it was read from, so that a changed input leads to a new value. This class is thread safe, as modules may be
+ * built in parallel.
+ * </p>
+ */
+public final class SessionCache {
+
+    // Weak keys, so that the cache of a session can be garbage collected once the session has ended
+    private static final Map<MavenSession, SessionCache> CACHES = new WeakHashMap<>();
+
+    // Stands in for null values, which cannot be stored in a ConcurrentHashMap
+    private static final Object NULL = new Object();
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new, empty cache, which is not shared with other executions. Use {@link #forSession(MavenSession)}
+     * to obtain the cache of a Maven session.
+     */
+    public SessionCache() {
+        // Nothing to initialise
+    }
+
+    /**
+     * Returns the cache of a Maven session
+     *
+     * @param session The Maven session. May be null, in which case a new cache is returned.
+     * @return The cache shared by all executions within the session
+     */
+    public static SessionCache forSession(MavenSession session) {
+        if (session == null) {
+            return new SessionCache();
+        }
+
+        synchronized (CACHES) {
+            return CACHES.computeIfAbsent(session, key -> new SessionCache());
+        }
+    }
+
+    /**
+     * Returns the value stored under a key, loading and storing it first if the key is not present. A value is only
+     * loaded once, even when it is requested concurrently. Loading a value does not block access to other keys.
+     *
+     * @param key    The key of the value
+     * @param loader Loads the value. The value must not be modified after it has been returned.
+     * @param <T>    The type of the value
+     * @return The cached value
+     * @throws MojoExecutionException In case the value could not be loaded. Nothing is stored in that case.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Loader<T> loader) throws MojoExecutionException {
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            Object value = values.get(key);
+            if (value == null) {
+                value = loader.load();
+                values.put(key, value == null ? NULL : value);
+            }
+            return value == NULL ? null : (T) value;
+        }
+    }
+
+    /**
+     * Marks a key as done and returns whether it was not done before, which can be used to do something only once per
+     * session.
+     *
+     * @param key The key to mark as done
+     * @return true if the key was not marked as done before, false otherwise
+     */
+    public boolean markDone(String key) {
+        return values.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Loads a value to cache
+     *
+     * @param <T> The type of the value
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+
+        /**
+         * Loads the value
+         *
+         * @return The value. May be null.
+         * @throws MojoExecutionException In case the value could not be loaded
+         */
+        T load() throws MojoExecutionException;
+    }
+}
@@ -1,16 +1,26 @@
 package nl.lexemmens.podman.service;
 
 import nl.lexemmens.podman.command.skopeo.SkopeoCopyCommand;
+import nl.lexemmens.podman.command.skopeo.SkopeoInspectCommand;
+import nl.lexemmens.podman.command.skopeo.SkopeoSyncCommand;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
 /**
  * Enables executing the skopeo binary with specific arguments.
  */
 public class SkopeoExecutorService {
 
+    private static final String DIGEST_FORMAT = "{{.Digest}}";
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("^[a-z0-9]+:[a-f0-9]{32,}$");
+
     private final Log log;
     private final CommandExecutorDelegate delegate;
     private final SkopeoConfiguration skopeoConfiguration;
@@ -42,4 +52,46 @@ public class SkopeoExecutorService {
                 .build()
                 .execute();
     }
+
+    /**
+     * Implementation of the skopeo sync command, using a YAML file as source.
+     *
+     * @param sourceFile  YAML file listing the images to synchronise
+     * @param destination the registry and repository prefix the images are synchronised to
+     * @throws MojoExecutionException In case the skopeo sync command exits unsuccessfully.
+     */
+    public void sync(Path sourceFile, String destination) throws MojoExecutionException {
+        new SkopeoSyncCommand.Builder(log, skopeoConfiguration, delegate)
+                .setSourceFile(sourceFile)
+                .setDestination(destination)
+                .build()
+                .execute();
+    }
+
+    /**
+     * Determines the manifest digest of an image in a registry using the skopeo inspect command.
+     *
+     * @param fullImageName The full name of the image to inspect
+     * @param tlsVerify     Whether the TLS connection to the registry should be verified
+     * @return The digest of the image, or an empty Optional in case the image does not exist or cannot be inspected
+     */
+    public Optional<String> getDigest(String fullImageName, boolean tlsVerify) {
+        try {
+            List<String> output = new SkopeoInspectCommand.Builder(log, delegate)
+                    .setTlsVerify(tlsVerify)
+                    .setFormat(DIGEST_FORMAT)
+                    .setNoTags()
+                    .setImage(fullImageName)
+                    .build()
+                    .execute();
+
+            return output.stream()
+                    .map(String::trim)
+                    .filter(line -> DIGEST_PATTERN.matcher(line).matches())
+                    .findFirst();
+        } catch (MojoExecutionException e) {
+            log.debug("Unable to determine the digest of image " + fullImageName + ".", e);
+            return Optional.empty();
+        }
+    }
 }
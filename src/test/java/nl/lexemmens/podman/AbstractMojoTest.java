@@ -1,7 +1,10 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.command.CommandOutputListener;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
 import nl.lexemmens.podman.service.*;
 import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
@@ -11,6 +14,12 @@ import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.mockito.Mock;
 
 import java.io.File;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 
 public abstract class AbstractMojoTest {
 
@@ -59,4 +68,24 @@ public abstract class AbstractMojoTest {
     @Mock
     protected Log log;
 
+    /**
+     * Configures the mocked {@link PodmanExecutorService} to produce the provided build output for any image.
+     */
+    protected void stubBuildOutput(List<String> output) throws MojoExecutionException {
+        doAnswer(invocation -> streamBuildOutput(invocation.getArgument(2), output))
+                .when(podmanExecutorService).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+    }
+
+    /**
+     * Configures the mocked {@link PodmanExecutorService} to produce the provided build output for a specific image.
+     */
+    protected void stubBuildOutput(SingleImageConfiguration image, List<String> output) throws MojoExecutionException {
+        doAnswer(invocation -> streamBuildOutput(invocation.getArgument(2), output))
+                .when(podmanExecutorService).build(same(image), anyList(), isA(CommandOutputListener.class));
+    }
+
+    private static Void streamBuildOutput(CommandOutputListener listener, List<String> output) {
+        output.forEach(listener::onLine);
+        return null;
+    }
 }
@@ -9,7 +9,9 @@ import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.enumeration.ContainerFormat;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
 import nl.lexemmens.podman.service.ContainerfileDecorator;
+import nl.lexemmens.podman.service.SessionCache;
 import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
@@ -167,11 +169,11 @@ public class BatchBuildMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(mockBuild);
         when(mockBuild.getDirectory()).thenReturn("target");
 
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         assertDoesNotThrow(() -> buildMojo.execute());
     }
@@ -201,12 +203,12 @@ public class BatchBuildMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(mockBuild);
         when(mavenProject.getBasedir()).thenReturn(new File("src/test/resources/batch/subdir"));
         when(mockBuild.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         assertDoesNotThrow(() -> buildMojo.execute());
         assertEquals(1, buildMojo.resolvedImages.size());
@@ -245,12 +247,12 @@ public class BatchBuildMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(mockBuild);
         when(mockBuild.getDirectory()).thenReturn("target");
 
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         assertDoesNotThrow(() -> buildMojo.execute());
 
@@ -281,6 +283,34 @@ public class BatchBuildMojoTest extends AbstractMojoTest {
         assertEquals("1.0.0", image2.getBuild().getAllTags().get(0));
     }
 
+    @Test
+    public void testBatchBuildSkipsExcludedDirectories() throws MojoExecutionException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        BatchImageConfiguration image = new TestBatchImageConfigurationBuilder("sample-image-%d")
+                .setContainerfileDir("src/test/resources/batch")
+                .setExcludes(new String[]{"subdir"})
+                .setTags(new String[]{"1.0.0"})
+                .build();
+
+        configureMojo(podman, image);
+
+        Build mockBuild = Mockito.mock(Build.class);
+        when(mavenProject.getBuild()).thenReturn(mockBuild);
+        when(mockBuild.getDirectory()).thenReturn("target");
+
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
+        when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+
+        assertDoesNotThrow(() -> buildMojo.execute());
+
+        assertEquals(1, buildMojo.resolvedImages.size());
+        assertEquals("sample-image-batch", buildMojo.resolvedImages.get(0).getImageName());
+    }
+
 
     private void configureMojo(PodmanConfiguration podman, BatchImageConfiguration batch) {
         buildMojo.podman = podman;
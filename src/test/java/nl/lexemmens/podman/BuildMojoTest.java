@@ -1,13 +1,24 @@
 package nl.lexemmens.podman;
 
+import nl.lexemmens.podman.command.CommandOutputListener;
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
 import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.helper.ContainerCatalog;
 import nl.lexemmens.podman.service.ContainerfileDecorator;
+import nl.lexemmens.podman.service.ImageFingerprintService;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
@@ -22,6 +33,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -38,12 +50,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -56,6 +72,9 @@ public class BuildMojoTest extends AbstractMojoTest {
     @InjectMocks
     private BuildMojo buildMojo;
 
+    @Mock
+    private ImageFingerprintService imageFingerprintService;
+
     private ContainerfileDecorator containerfileDecorator;
 
     @Before
@@ -163,6 +182,32 @@ public class BuildMojoTest extends AbstractMojoTest {
         Assertions.assertThrows(MojoExecutionException.class, buildMojo::execute);
     }
 
+    @Test
+    public void testRemoteCacheDefaultsToRepositoryInPushRegistry() throws MojoExecutionException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .build();
+        image.getBuild().setRemoteCache(true);
+        image.getBuild().setCacheFrom(new String[]{"registry.example.com/base-cache"});
+        configureMojo(podman, image, true, false, false, true, true);
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+
+        buildMojo.execute();
+
+        // Configured repositories take precedence over the default cache repository
+        assertEquals(Collections.singletonList("registry.example.com/base-cache"), image.getBuild().getCacheFrom());
+        assertEquals(Optional.of("registry.example.com/sample-cache"), image.getBuild().getCacheTo());
+        verify(log, times(1)).info("Using remote layer cache registry.example.com/sample-cache for sample");
+    }
+
     @Test
     public void testBuildWithoutTag() throws MojoExecutionException, MavenFilteringException {
         PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
@@ -173,17 +218,17 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(1)).info("Tagging container images is skipped.");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
     }
 
     @Test
@@ -195,17 +240,17 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         Assertions.assertDoesNotThrow(() -> buildMojo.execute());
 
         verify(log, Mockito.times(1)).info("Tagging container images is skipped.");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
     }
 
     @Test
@@ -219,17 +264,17 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
+        stubBuildOutput(Collections.singletonList("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(1)).info("Tagging container images is skipped.");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
     }
 
     @Test
@@ -242,18 +287,18 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("sha256:sampleimagehash"));
+        stubBuildOutput(Collections.singletonList("sha256:sampleimagehash"));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(0)).info("Tagging container images is skipped.");
         verify(log, Mockito.times(1)).info("No tags specified. Skipping tagging of container images.");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
     }
 
     @Test
@@ -267,18 +312,18 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList("sha256:sampleimagehash"));
+        stubBuildOutput(Collections.singletonList("sha256:sampleimagehash"));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(0)).info("Tagging container images is skipped.");
         verify(log, Mockito.times(1)).info("No tags specified. Skipping tagging of container images.");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
     }
 
     @Test
@@ -296,21 +341,250 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList(imageHash));
+        stubBuildOutput(Collections.singletonList(imageHash));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(0)).info("Tagging container images is skipped.");
         verify(log, Mockito.times(0)).info("No tags specified. Skipping tagging of container images.");
-        verify(log, Mockito.times(1)).info("Tagging container image " + imageHash + " as " + expectedFullImageName);
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
-        verify(podmanExecutorService, times(1)).tag(imageHash, expectedFullImageName);
+        verify(log, Mockito.times(1)).info("Tagged container image " + imageHash + " as " + expectedFullImageName);
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList(expectedFullImageName)), isA(CommandOutputListener.class));
+        verifyContainerCatalog(expectedFullImageName);
+
+        ContainerCatalog structuredCatalog = ContainerCatalog.read(Paths.get("target", "container-catalog.json")).orElseThrow(AssertionError::new);
+        ContainerCatalog.Entry catalogEntry = structuredCatalog.getImage(expectedFullImageName).orElseThrow(AssertionError::new);
+        assertEquals(Optional.of(imageHash), catalogEntry.getImageId());
+        assertEquals(Optional.empty(), catalogEntry.getStage());
+        Assertions.assertTrue(catalogEntry.getBuildDurationMillis().isPresent());
+    }
+
+    @Test
+    public void testParallelBuildKeepsCatalogOrder() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration first = new TestSingleImageConfigurationBuilder("first")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        SingleImageConfiguration second = new TestSingleImageConfigurationBuilder("second")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, first, true, false, false, false, true);
+        buildMojo.images = Arrays.asList(first, second);
+        buildMojo.buildThreads = 2;
+
+        String firstHash = "ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76";
+        String secondHash = "8b6bf5a2b9a6e5b5c8b9a5f0b8b8e4c2d7a6f3e1c0b9a8f7e6d5c4b3a2f1e0d9";
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
+        when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
+        stubBuildOutput(first, Collections.singletonList(firstHash));
+        stubBuildOutput(second, Collections.singletonList(secondHash));
+
+        buildMojo.execute();
+
+        verify(log, Mockito.times(1)).info("Processing 2 items using 2 threads.");
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList("registry.example.com/first:1.0.0")), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList("registry.example.com/second:1.0.0")), isA(CommandOutputListener.class));
+        verifyContainerCatalog("registry.example.com/first:1.0.0", "registry.example.com/second:1.0.0");
+    }
+
+    @Test
+    public void testBuildAtEndDefersBuildUntilLastModule() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, image, true, false, false, false, true);
+        buildMojo.buildAtEnd = true;
+
+        MavenProject lastProject = Mockito.mock(MavenProject.class);
+        MavenSession session = Mockito.mock(MavenSession.class);
+        buildMojo.session = session;
+
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setGroupId("nl.lexemmens");
+        pluginDescriptor.setArtifactId("podman-maven-plugin");
+        MojoDescriptor mojoDescriptor = new MojoDescriptor();
+        mojoDescriptor.setGoal("build");
+        mojoDescriptor.setPluginDescriptor(pluginDescriptor);
+        buildMojo.mojoExecution = new MojoExecution(mojoDescriptor, "default-cli", MojoExecution.Source.CLI);
+
+        when(mavenProject.getId()).thenReturn("nl.lexemmens:first:jar:1.0.0");
+        when(lastProject.getId()).thenReturn("nl.lexemmens:last:jar:1.0.0");
+        when(session.getProjects()).thenReturn(Arrays.asList(mavenProject, lastProject));
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+
+        buildMojo.execute();
+
+        verify(log, Mockito.times(1)).info("Deferring the build of 1 container image(s) until the end of the reactor build.");
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
+        verify(podmanExecutorService, times(0)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+    }
+
+    @Test
+    public void testBuildAtEndFailsWhenProjectFinishedWithoutRegistering() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, image, true, false, false, false, true);
+        buildMojo.buildAtEnd = true;
+
+        MavenProject firstProject = Mockito.mock(MavenProject.class);
+        MavenSession session = Mockito.mock(MavenSession.class);
+        MavenExecutionResult result = Mockito.mock(MavenExecutionResult.class);
+        buildMojo.session = session;
+
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setGroupId("nl.lexemmens");
+        pluginDescriptor.setArtifactId("podman-maven-plugin");
+        MojoDescriptor mojoDescriptor = new MojoDescriptor();
+        mojoDescriptor.setGoal("build");
+        mojoDescriptor.setPluginDescriptor(pluginDescriptor);
+        buildMojo.mojoExecution = new MojoExecution(mojoDescriptor, "default-cli", MojoExecution.Source.CLI);
+
+        when(firstProject.getId()).thenReturn("nl.lexemmens:first:jar:1.0.0");
+        when(mavenProject.getId()).thenReturn("nl.lexemmens:last:jar:1.0.0");
+        when(session.getProjects()).thenReturn(Arrays.asList(firstProject, mavenProject));
+        when(session.getResult()).thenReturn(result);
+        when(result.getBuildSummary(firstProject)).thenReturn(new BuildSuccess(firstProject, 0));
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, buildMojo::execute);
+
+        assertEquals("The deferred build of the reactor cannot complete, because the following projects finished without executing the build goal: nl.lexemmens:first:jar:1.0.0", e.getMessage());
+        verify(podmanExecutorService, times(0)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+    }
+
+    @Test
+    public void testIncrementalBuildSkipsUnchangedImage() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, image, true, false, false, false, true);
+        buildMojo.incrementalBuild = true;
+
+        String imageHash = "ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76";
+        String expectedFullImageName = "registry.example.com/sample:1.0.0";
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
+        when(serviceHub.getImageFingerprintService()).thenReturn(imageFingerprintService);
+        when(imageFingerprintService.isFingerprintSupported(image)).thenReturn(true);
+        when(imageFingerprintService.fingerprint(image, Collections.emptyList())).thenReturn("fingerprint");
+        when(imageFingerprintService.findBuildRecord(image, "fingerprint")).thenReturn(Optional.of(new ImageFingerprintService.BuildRecord(imageHash, Collections.emptyMap())));
+        when(podmanExecutorService.imageExists(imageHash)).thenReturn(true);
+        when(podmanExecutorService.getImageId(expectedFullImageName)).thenReturn(Optional.of(imageHash));
+
+        buildMojo.execute();
+
+        verify(log, Mockito.times(1)).info("Container image sample is up to date (" + imageHash + "). Skipping build and tag.");
+        verify(podmanExecutorService, times(0)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(0)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList(expectedFullImageName)), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(0)).tag(anyString(), anyList());
+        verifyContainerCatalog(expectedFullImageName);
+    }
+
+    @Test
+    public void testIncrementalBuildTagsUnchangedImageAgainWhenTagWasMoved() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, image, true, false, false, false, true);
+        buildMojo.incrementalBuild = true;
+
+        String imageHash = "ca1f5f48ef43";
+        String expectedFullImageName = "registry.example.com/sample:1.0.0";
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
+        when(serviceHub.getImageFingerprintService()).thenReturn(imageFingerprintService);
+        when(imageFingerprintService.isFingerprintSupported(image)).thenReturn(true);
+        when(imageFingerprintService.fingerprint(image, Collections.emptyList())).thenReturn("fingerprint");
+        when(imageFingerprintService.findBuildRecord(image, "fingerprint")).thenReturn(Optional.of(new ImageFingerprintService.BuildRecord(imageHash, Collections.emptyMap())));
+        when(podmanExecutorService.imageExists(imageHash)).thenReturn(true);
+        when(podmanExecutorService.getImageId(expectedFullImageName)).thenReturn(Optional.of("0b9d3a2f5c6e7d8f9a0b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5e6f7a8b9c0d1e2f"));
+
+        buildMojo.execute();
+
+        verify(log, Mockito.times(1)).info("Container image " + expectedFullImageName + " no longer refers to " + imageHash + ". Tagging it again.");
+        verify(podmanExecutorService, times(1)).tag(imageHash, Collections.singletonList(expectedFullImageName));
+        verify(podmanExecutorService, times(0)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+        verifyContainerCatalog(expectedFullImageName);
+    }
+
+    @Test
+    public void testIncrementalBuildRebuildsMissingImage() throws MojoExecutionException, MavenFilteringException {
+        PodmanConfiguration podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.FALSE).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"1.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(podman, image, true, false, false, false, true);
+        buildMojo.incrementalBuild = true;
+
+        String imageHash = "ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76";
+        String expectedFullImageName = "registry.example.com/sample:1.0.0";
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
+        when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
+        when(serviceHub.getImageFingerprintService()).thenReturn(imageFingerprintService);
+        when(imageFingerprintService.isFingerprintSupported(image)).thenReturn(true);
+        when(imageFingerprintService.fingerprint(image, Collections.emptyList())).thenReturn("fingerprint");
+        when(imageFingerprintService.findBuildRecord(image, "fingerprint")).thenReturn(Optional.of(new ImageFingerprintService.BuildRecord("old-hash", Collections.emptyMap())));
+        when(podmanExecutorService.imageExists("old-hash")).thenReturn(false);
+        stubBuildOutput(Collections.singletonList(imageHash));
+
+        buildMojo.execute();
+
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList(expectedFullImageName)), isA(CommandOutputListener.class));
+        verify(imageFingerprintService, times(1)).recordBuild(image, "fingerprint");
         verifyContainerCatalog(expectedFullImageName);
     }
 
@@ -329,22 +603,22 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(Collections.singletonList(imageHash));
+        stubBuildOutput(Collections.singletonList(imageHash));
 
         buildMojo.execute();
 
         verify(log, Mockito.times(0)).info("Tagging container images is skipped.");
         verify(log, Mockito.times(0)).info("No tags specified. Skipping tagging of container images.");
-        verify(log, Mockito.times(1)).info("Tagging container image " + imageHash + " as registry.example.com/sample:latest");
-        verify(mavenFileFilter, Mockito.times(1)).copyFile(isA(MavenFileFilterRequest.class));
+        verify(log, Mockito.times(1)).info("Tagged container image " + imageHash + " as registry.example.com/sample:latest");
+        verify(mavenFileFilter, Mockito.times(1)).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
 
-        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class));
-        verify(podmanExecutorService, times(1)).tag(imageHash, expectedFullImageName);
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), anyList(), isA(CommandOutputListener.class));
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList(expectedFullImageName)), isA(CommandOutputListener.class));
         verifyContainerCatalog(expectedFullImageName);
     }
 
@@ -381,7 +655,7 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
 
         Assertions.assertDoesNotThrow(buildMojo::execute);
         verify(log, Mockito.times(1)).warn("No Containerfile was found at " + targetLocationAsString + File.separator + "Containerfile, however this will be ignored due to current plugin configuration.");
@@ -470,12 +744,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -497,8 +771,8 @@ public class BuildMojoTest extends AbstractMojoTest {
         verify(log, times(1)).info("Final image for stage phase2 is: d2efc6645cb");
 
         // Verify tagging image
-        verify(log, times(1)).info("Tagging container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:1.0.0");
-        verify(podmanExecutorService, times(1)).tag("d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f", "registry.example.com/sample:1.0.0");
+        verify(log, times(1)).info("Tagged container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:1.0.0");
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList("registry.example.com/sample:1.0.0")), isA(CommandOutputListener.class));
 
         verify(log, times(1)).info("Built container image.");
         verifyContainerCatalog("registry.example.com/sample:1.0.0");
@@ -529,12 +803,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -560,10 +834,10 @@ public class BuildMojoTest extends AbstractMojoTest {
         // Verify tagging image
         verify(log, times(1)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/image-name-number-1:0.2.1");
         verify(log, times(1)).info("Tagging container image d2efc6645cb from stage phase2 as registry.example.com/image-name-number-2:0.2.1");
-        verify(log, times(0)).info("Tagging container image d2efc6645cb as registry.example.com/sample:1.0.0");
+        verify(log, times(0)).info("Tagged container image d2efc6645cb as registry.example.com/sample:1.0.0");
 
-        verify(podmanExecutorService, times(1)).tag("7f55eab001a", "registry.example.com/image-name-number-1:0.2.1");
-        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", "registry.example.com/image-name-number-2:0.2.1");
+        verify(podmanExecutorService, times(1)).tag("7f55eab001a", Collections.singletonList("registry.example.com/image-name-number-1:0.2.1"));
+        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", Collections.singletonList("registry.example.com/image-name-number-2:0.2.1"));
 
         verify(log, times(1)).info("Built container image.");
 
@@ -597,11 +871,11 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -653,12 +927,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -684,7 +958,7 @@ public class BuildMojoTest extends AbstractMojoTest {
         verify(log, times(0)).warn("No image name configured for build stage: phase2. Image d2efc6645cb not tagged!");
 
         verify(log, times(0)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/image-name-number-1:0.2.1");
-        verify(log, times(1)).info("Tagging container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:0.2.1");
+        verify(log, times(1)).info("Tagged container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:0.2.1");
 
         verify(log, times(1)).info("Built container image.");
     }
@@ -713,12 +987,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -744,7 +1018,7 @@ public class BuildMojoTest extends AbstractMojoTest {
         verify(log, times(1)).warn("No image name configured for build stage: phase2. Image d2efc6645cb not tagged!");
 
         verify(log, times(1)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/sample:0.2.1");
-        verify(log, times(0)).info("Tagging container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:0.2.1");
+        verify(log, times(0)).info("Tagged container image d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f as registry.example.com/sample:0.2.1");
 
         verify(log, times(1)).info("Built container image.");
     }
@@ -774,12 +1048,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -803,10 +1077,10 @@ public class BuildMojoTest extends AbstractMojoTest {
         // Verify tagging image
         verify(log, times(1)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/image-name-number-1:0.2.1");
         verify(log, times(1)).info("Tagging container image d2efc6645cb from stage phase2 as registry.example.com/image-name-number-2:0.2.1");
-        verify(log, times(0)).info("Tagging container image d2efc6645cb as registry.example.com/sample:1.0.0");
+        verify(log, times(0)).info("Tagged container image d2efc6645cb as registry.example.com/sample:1.0.0");
 
-        verify(podmanExecutorService, times(1)).tag("7f55eab001a", "registry.example.com/image-name-number-1:0.2.1");
-        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", "registry.example.com/image-name-number-2:0.2.1");
+        verify(podmanExecutorService, times(1)).tag("7f55eab001a", Collections.singletonList("registry.example.com/image-name-number-1:0.2.1"));
+        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", Collections.singletonList("registry.example.com/image-name-number-2:0.2.1"));
 
         verify(log, times(1)).info("Built container image.");
 
@@ -841,12 +1115,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -871,8 +1145,8 @@ public class BuildMojoTest extends AbstractMojoTest {
         verify(log, times(1)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/image-name-number-1:0.2.1");
         verify(log, times(1)).info("Tagging container image d2efc6645cb from stage phase2 as registry.example.com/image-name-number-2:0.2.1");
 
-        verify(podmanExecutorService, times(1)).tag("7f55eab001a", "registry.example.com/image-name-number-1:0.2.1");
-        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", "registry.example.com/image-name-number-2:0.2.1");
+        verify(podmanExecutorService, times(1)).tag("7f55eab001a", Collections.singletonList("registry.example.com/image-name-number-1:0.2.1"));
+        verify(podmanExecutorService, times(1)).tag("d2efc6645cb", Collections.singletonList("registry.example.com/image-name-number-2:0.2.1"));
 
         verify(log, times(1)).info("Built container image.");
 
@@ -907,12 +1181,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -937,8 +1211,8 @@ public class BuildMojoTest extends AbstractMojoTest {
         verify(log, times(1)).info("Tagging container image b51d6faa80bc4cc9ea93ec3b3b3bdff9629500330df37295c72d388d17b9c303 from stage phase as registry.example.com/image-name-number-1:0.2.1");
         verify(log, times(1)).info("Tagging container image ba6cb6863b48c3487810458db4b88b238f086cef65078839d9efe30f1069bed7 from stage phase2 as registry.example.com/image-name-number-2:0.2.1");
 
-        verify(podmanExecutorService, times(1)).tag("b51d6faa80bc4cc9ea93ec3b3b3bdff9629500330df37295c72d388d17b9c303", "registry.example.com/image-name-number-1:0.2.1");
-        verify(podmanExecutorService, times(1)).tag("ba6cb6863b48c3487810458db4b88b238f086cef65078839d9efe30f1069bed7", "registry.example.com/image-name-number-2:0.2.1");
+        verify(podmanExecutorService, times(1)).tag("b51d6faa80bc4cc9ea93ec3b3b3bdff9629500330df37295c72d388d17b9c303", Collections.singletonList("registry.example.com/image-name-number-1:0.2.1"));
+        verify(podmanExecutorService, times(1)).tag("ba6cb6863b48c3487810458db4b88b238f086cef65078839d9efe30f1069bed7", Collections.singletonList("registry.example.com/image-name-number-2:0.2.1"));
 
         verify(log, times(1)).info("Built container image.");
 
@@ -995,12 +1269,12 @@ public class BuildMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getContainerfileDecorator()).thenReturn(containerfileDecorator);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         when(serviceHub.getSecurityContextService()).thenReturn(securityContextService);
         when(serviceHub.getMavenProjectHelper()).thenReturn(mavenProjectHelper);
-        when(podmanExecutorService.build(isA(SingleImageConfiguration.class))).thenReturn(buildOutputUnderTest);
+        stubBuildOutput(buildOutputUnderTest);
 
         buildMojo.execute();
 
@@ -1024,9 +1298,9 @@ public class BuildMojoTest extends AbstractMojoTest {
         // Verify tagging image
         verify(log, times(0)).info("Tagging container image 7f55eab001a from stage phase as registry.example.com/sample:0.2.1");
         verify(log, times(0)).info("Tagging container image d2efc6645cb from stage phase2 as registry.example.com/sample:0.2.1");
-        verify(log, times(1)).info("Tagging container image 7f55eab001adf2dfeas8adc03ef847dd3d2b4fa42b4fa418ca4cdeb6eaef8f3b as registry.example.com/sample:0.2.1");
+        verify(log, times(1)).info("Tagged container image 7f55eab001adf2dfeas8adc03ef847dd3d2b4fa42b4fa418ca4cdeb6eaef8f3b as registry.example.com/sample:0.2.1");
 
-        verify(podmanExecutorService, times(1)).tag("7f55eab001adf2dfeas8adc03ef847dd3d2b4fa42b4fa418ca4cdeb6eaef8f3b", "registry.example.com/sample:0.2.1");
+        verify(podmanExecutorService, times(1)).build(isA(SingleImageConfiguration.class), eq(Collections.singletonList("registry.example.com/sample:0.2.1")), isA(CommandOutputListener.class));
 
         verify(log, times(1)).info("Built container image.");
 
@@ -6,6 +6,8 @@ import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.service.SessionCache;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
@@ -69,7 +71,7 @@ public class CleanMojoTest extends AbstractMojoTest {
 
         configureMojo(false, false, customRoot);
 
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getBuildahExecutorService()).thenReturn(buildahExecutorService);
 
         cleanMojo.execute();
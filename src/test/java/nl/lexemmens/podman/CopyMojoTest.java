@@ -5,10 +5,16 @@ import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.config.skopeo.TestSkopeoConfigurationBuilder;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.service.SessionCache;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.MavenArtifactRepository;
 import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
@@ -18,8 +24,6 @@ import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.internal.impl.EnhancedLocalRepositoryManagerFactory;
 import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.LocalRepositoryManager;
@@ -34,6 +38,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -44,17 +49,24 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -86,9 +98,11 @@ public class CopyMojoTest extends AbstractMojoTest {
         copyMojo.registries = registries;
     }
 
+    private Path containerCatalogPath;
+
     @Before
     public void prepare() throws IOException, ArtifactResolutionException, NoLocalRepositoryManagerException {
-        Path containerCatalogPath = Paths.get("target/podman-test/container-catalog.txt");
+        containerCatalogPath = Paths.get("target/podman-test/container-catalog.txt");
         Files.createDirectories(containerCatalogPath);
         Files.copy(
                 ClassLoader.getSystemClassLoader().getResourceAsStream("copy/container-catalog.txt"),
@@ -105,18 +119,13 @@ public class CopyMojoTest extends AbstractMojoTest {
         artifactRepository2.setId("bar");
         List<ArtifactRepository> artifactRepositories = Arrays.asList(artifactRepository1, artifactRepository2);
 
-        Artifact containerCatalogArtifact = new DefaultArtifact("com.example", "foo", "container-catalog", "txt", "0.1.0");
-        containerCatalogArtifact = containerCatalogArtifact.setFile(containerCatalogPath.toFile());
-
         when(serviceHub.getSkopeoExecutorService()).thenReturn(skopeoExecutorService);
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
 
         when(mavenProject.getRemoteArtifactRepositories()).thenReturn(artifactRepositories);
         copyMojo.repositorySystem = mock(RepositorySystem.class);
-        ArtifactRequest artifactRequest = new ArtifactRequest();
-        ArtifactResult artifactResult = new ArtifactResult(artifactRequest);
-        artifactResult.setArtifact(containerCatalogArtifact);
-        when(copyMojo.repositorySystem.resolveArtifact(any(RepositorySystemSession.class), any(ArtifactRequest.class))).thenReturn(artifactResult);
+        when(copyMojo.repositorySystem.resolveArtifacts(any(RepositorySystemSession.class), anyCollection()))
+                .thenAnswer(invocation -> resolveCatalogs(invocation.getArgument(1)));
 
         DefaultRepositorySystemSession defaultRepositorySystemSession = new DefaultRepositorySystemSession();
         LocalRepository localRepository = new LocalRepository(new File("target/podman-test"));
@@ -136,15 +145,13 @@ public class CopyMojoTest extends AbstractMojoTest {
     @Test
     public void testLocalDisabled() throws ArtifactResolutionException, MojoExecutionException {
         configureMojo(false, false, true, null, null, "stage", "release", null, false, false, true);
-        // We can pass an empty ArtifactRequest, since the method is mocked anyway
-        ArtifactResult artifactResult = copyMojo.repositorySystem.resolveArtifact(copyMojo.repositorySystemSession, new ArtifactRequest());
-        when(copyMojo.repositorySystem.resolveArtifact(isA(RepositorySystemSession.class), isA(ArtifactRequest.class)))
+        when(copyMojo.repositorySystem.resolveArtifacts(isA(RepositorySystemSession.class), anyCollection()))
                 .thenAnswer(invocation -> {
                     RepositorySystemSession repositorySystemSession = invocation.getArgument(0);
                     LocalRepository localRepository = repositorySystemSession.getLocalRepository();
                     File localRepositoryDir = localRepository.getBasedir();
                     assertTrue(localRepositoryDir.getAbsolutePath().startsWith("/tmp"), "Since we disabled the local repository, a repository in /tmp must be used");
-                    return artifactResult;
+                    return resolveCatalogs(invocation.getArgument(1));
                 });
         assertDoesNotThrow(copyMojo::execute);
         verify(skopeoExecutorService, times(1)).copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
@@ -155,16 +162,15 @@ public class CopyMojoTest extends AbstractMojoTest {
     public void testSetSourceCatalogRepository() throws ArtifactResolutionException, MojoExecutionException {
         String sourceCatalogRepository = "bar";
         configureMojo(false, false, true, sourceCatalogRepository, null, "stage", "release", null, false, false, true);
-        // We can pass an empty ArtifactRequest, since the method is mocked anyway
-
-        ArtifactResult artifactResult = copyMojo.repositorySystem.resolveArtifact(copyMojo.repositorySystemSession, new ArtifactRequest());
-        when(copyMojo.repositorySystem.resolveArtifact(isA(RepositorySystemSession.class), isA(ArtifactRequest.class)))
+        when(copyMojo.repositorySystem.resolveArtifacts(isA(RepositorySystemSession.class), anyCollection()))
                 .thenAnswer(invocation -> {
-                    ArtifactRequest artifactRequest = invocation.getArgument(1);
-                    List<RemoteRepository> remoteRepositories = artifactRequest.getRepositories();
-                    assertEquals(1, remoteRepositories.size(), "Only one remote repository should be in");
-                    assertEquals(sourceCatalogRepository, remoteRepositories.get(0).getId(), "The ID should equal the sourceCatalogRepository specified");
-                    return artifactResult;
+                    Collection<ArtifactRequest> artifactRequests = invocation.getArgument(1);
+                    for (ArtifactRequest artifactRequest : artifactRequests) {
+                        List<RemoteRepository> remoteRepositories = artifactRequest.getRepositories();
+                        assertEquals(1, remoteRepositories.size(), "Only one remote repository should be in");
+                        assertEquals(sourceCatalogRepository, remoteRepositories.get(0).getId(), "The ID should equal the sourceCatalogRepository specified");
+                    }
+                    return resolveCatalogs(artifactRequests);
                 });
         assertDoesNotThrow(copyMojo::execute);
         verify(skopeoExecutorService, times(1)).copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
@@ -188,12 +194,178 @@ public class CopyMojoTest extends AbstractMojoTest {
     @Test
     public void testSkipCopyNoCatalogFile() throws ArtifactResolutionException, MojoExecutionException {
         configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
-        when(copyMojo.repositorySystem.resolveArtifact(any(RepositorySystemSession.class), any(ArtifactRequest.class)))
+        when(copyMojo.repositorySystem.resolveArtifacts(any(RepositorySystemSession.class), anyCollection()))
             .thenThrow(new ArtifactResolutionException(null, null, new ArtifactNotFoundException(null, null)));
         assertDoesNotThrow(copyMojo::execute);
         verify(skopeoExecutorService, times(0)).copy(anyString(), anyString());
     }
 
+    @Test
+    public void testCopySummaryIsReported() throws MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        assertDoesNotThrow(copyMojo::execute);
+        verify(log, times(1)).info("Copy summary: 2 copied, 0 skipped, 0 failed.");
+        verify(log, times(1)).info("  Copied:  dep1.stage.registry.example.com/foo/bar:0.1.0 -> dep1.release.registry.example.com/foo/bar:0.1.0");
+    }
+
+    @Test
+    public void testIdenticalSourceAndTargetAreSkipped() throws MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "dep2.stage", "dep2.release", null, false, false, false);
+        assertDoesNotThrow(copyMojo::execute);
+        verify(skopeoExecutorService, times(1)).copy("dep2.stage.registry.example.com/project/product:2.1.3", "dep2.release.registry.example.com/project/product:2.1.3");
+        verify(skopeoExecutorService, never()).copy(eq("dep1.stage.registry.example.com/foo/bar:0.1.0"), anyString());
+        verify(log, times(1)).info("Copy summary: 1 copied, 1 skipped, 0 failed.");
+    }
+
+    @Test
+    public void testParallelCopyWithRetries() throws MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        copyMojo.skopeo = new TestSkopeoConfigurationBuilder()
+                .openCopy()
+                .setSearchString("stage")
+                .setReplaceString("release")
+                .setThreads(2)
+                .setRetries(1)
+                .closeCopy()
+                .build();
+        doThrow(new MojoExecutionException("Execution failed")).when(skopeoExecutorService)
+                .copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
+
+        MojoExecutionException e = assertThrows(MojoExecutionException.class, copyMojo::execute);
+
+        assertEquals("Execution failed", e.getMessage());
+        verify(skopeoExecutorService, times(2)).copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
+        verify(skopeoExecutorService, times(1)).copy("dep2.stage.registry.example.com/project/product:2.1.3", "dep2.release.registry.example.com/project/product:2.1.3");
+        verify(log, times(1)).info("Copy summary: 1 copied, 0 skipped, 1 failed.");
+    }
+
+    @Test
+    public void testCopyUsingSync() throws MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        copyMojo.skopeo = new TestSkopeoConfigurationBuilder()
+                .openCopy()
+                .setSearchString("stage")
+                .setReplaceString("release")
+                .setSync(true)
+                .closeCopy()
+                .build();
+
+        assertDoesNotThrow(copyMojo::execute);
+
+        verify(skopeoExecutorService, times(1)).sync(isA(Path.class), eq("dep1.release.registry.example.com/foo"));
+        verify(skopeoExecutorService, times(1)).sync(isA(Path.class), eq("dep2.release.registry.example.com/project"));
+        verify(skopeoExecutorService, never()).copy(anyString(), anyString());
+        verify(log, times(1)).info("Copy summary: 2 copied, 0 skipped, 0 failed.");
+    }
+
+    @Test
+    public void testImagesWithMatchingDigestAreSkipped() throws MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        copyMojo.skopeo = new TestSkopeoConfigurationBuilder()
+                .openCopy()
+                .setSearchString("stage")
+                .setReplaceString("release")
+                .setSkipExisting(true)
+                .closeCopy()
+                .build();
+        when(skopeoExecutorService.getDigest("dep1.stage.registry.example.com/foo/bar:0.1.0", false)).thenReturn(Optional.of("sha256:aaaa"));
+        when(skopeoExecutorService.getDigest("dep1.release.registry.example.com/foo/bar:0.1.0", false)).thenReturn(Optional.of("sha256:aaaa"));
+        when(skopeoExecutorService.getDigest("dep2.stage.registry.example.com/project/product:2.1.3", false)).thenReturn(Optional.of("sha256:bbbb"));
+        when(skopeoExecutorService.getDigest("dep2.release.registry.example.com/project/product:2.1.3", false)).thenReturn(Optional.of("sha256:cccc"));
+
+        assertDoesNotThrow(copyMojo::execute);
+
+        verify(skopeoExecutorService, never()).copy(eq("dep1.stage.registry.example.com/foo/bar:0.1.0"), anyString());
+        verify(skopeoExecutorService, times(1)).copy("dep2.stage.registry.example.com/project/product:2.1.3", "dep2.release.registry.example.com/project/product:2.1.3");
+        verify(log, times(1)).info("Copy summary: 1 copied, 1 skipped, 0 failed.");
+        verify(log, times(1)).info("  Skipped: dep1.stage.registry.example.com/foo/bar:0.1.0 -> dep1.release.registry.example.com/foo/bar:0.1.0 (already present with digest sha256:aaaa)");
+    }
+
+    @Test
+    public void testReleaseCatalogsAreCached() throws ArtifactResolutionException, MojoExecutionException {
+        configureMojo(false, false, true, null, null, "stage", "release", null, false, false, true);
+        File catalogCacheDirectory = new File("target/podman-test/catalog-cache").getAbsoluteFile();
+        copyMojo.catalogCacheDirectory = catalogCacheDirectory;
+        when(mavenProject.getVersion()).thenReturn("0.1.0");
+        when(copyMojo.repositorySystem.resolveArtifacts(isA(RepositorySystemSession.class), anyCollection()))
+                .thenAnswer(invocation -> {
+                    RepositorySystemSession repositorySystemSession = invocation.getArgument(0);
+                    assertEquals(catalogCacheDirectory, repositorySystemSession.getLocalRepository().getBasedir(), "Catalogs of releases must be cached");
+                    return resolveCatalogs(invocation.getArgument(1));
+                });
+
+        assertDoesNotThrow(copyMojo::execute);
+
+        verify(skopeoExecutorService, times(1)).copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCatalogsOfReactorAreResolvedOnce() throws ArtifactResolutionException, MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        MavenProject otherProject = mock(MavenProject.class);
+        MavenSession session = mock(MavenSession.class);
+        when(mavenProject.getId()).thenReturn("com.example:foo:jar:0.1.0");
+        when(otherProject.getId()).thenReturn("com.example:bar:jar:0.1.0");
+        when(session.getProjects()).thenReturn(Arrays.asList(mavenProject, otherProject));
+        when(session.getGoals()).thenReturn(Collections.singletonList("nl.lexemmens:podman-maven-plugin:copy"));
+        copyMojo.session = session;
+        copyMojo.mojoExecution = getCopyExecution();
+
+        assertDoesNotThrow(copyMojo::execute);
+        copyMojo.project = otherProject;
+        assertDoesNotThrow(copyMojo::execute);
+
+        ArgumentCaptor<Collection<ArtifactRequest>> requests = ArgumentCaptor.forClass(Collection.class);
+        verify(copyMojo.repositorySystem, times(1)).resolveArtifacts(isA(RepositorySystemSession.class), requests.capture());
+        assertEquals(2, requests.getValue().size(), "The catalogs of both modules must be resolved together");
+        verify(skopeoExecutorService, times(2)).copy("dep1.stage.registry.example.com/foo/bar:0.1.0", "dep1.release.registry.example.com/foo/bar:0.1.0");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOnlyCatalogOfCurrentModuleIsResolvedWhenDeploying() throws ArtifactResolutionException, MojoExecutionException {
+        configureMojo(false, false, true, null, new String[]{}, "stage", "release", null, false, false, false);
+        MavenSession session = mock(MavenSession.class);
+        when(session.getGoals()).thenReturn(Collections.singletonList("deploy"));
+        copyMojo.session = session;
+        copyMojo.mojoExecution = getCopyExecution();
+
+        assertDoesNotThrow(copyMojo::execute);
+        assertDoesNotThrow(copyMojo::execute);
+
+        // The catalogs of modules that deploy later in the build are not available yet, so nothing may be shared
+        ArgumentCaptor<Collection<ArtifactRequest>> requests = ArgumentCaptor.forClass(Collection.class);
+        verify(copyMojo.repositorySystem, times(2)).resolveArtifacts(isA(RepositorySystemSession.class), requests.capture());
+        for (Collection<ArtifactRequest> request : requests.getAllValues()) {
+            assertEquals(1, request.size());
+        }
+    }
+
+    private static MojoExecution getCopyExecution() {
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setGroupId("nl.lexemmens");
+        pluginDescriptor.setArtifactId("podman-maven-plugin");
+        MojoDescriptor mojoDescriptor = new MojoDescriptor();
+        mojoDescriptor.setGoal("copy");
+        mojoDescriptor.setPluginDescriptor(pluginDescriptor);
+        return new MojoExecution(mojoDescriptor, "default-cli", MojoExecution.Source.CLI);
+    }
+
+    private List<ArtifactResult> resolveCatalogs(Collection<ArtifactRequest> requests) {
+        List<ArtifactResult> results = new ArrayList<>();
+        for (ArtifactRequest request : requests) {
+            ArtifactResult result = new ArtifactResult(request);
+            if ("txt".equals(request.getArtifact().getExtension())) {
+                result.setArtifact(request.getArtifact().setFile(containerCatalogPath.toFile()));
+            } else {
+                result.addException(new ArtifactNotFoundException(request.getArtifact(), null));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
     private static void cleanDir(Path dir) throws IOException {
         LinkedList<IOException> ioExceptions = new LinkedList<>();
         Files.list(dir).forEach(path -> {
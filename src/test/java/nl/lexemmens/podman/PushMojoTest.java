@@ -6,6 +6,9 @@ import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.helper.ContainerCatalog;
+import nl.lexemmens.podman.service.SessionCache;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
@@ -34,9 +37,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -52,6 +59,8 @@ public class PushMojoTest extends AbstractMojoTest {
     Map<String, String> testData = new HashMap<String, String>() {{
         put("podman-test", "push");
         put("podman-test-multistage", "push-multistage");
+        put("podman-test-structured", "push-structured");
+        put("podman-test-repositories", "push-repositories");
     }};
 
     @Before
@@ -126,7 +135,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
 
         Assertions.assertThrows(MojoExecutionException.class, pushMojo::execute);
 
@@ -150,7 +159,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         doNothing().when(podmanExecutorService).push(targetRegistry);
 
@@ -178,7 +187,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         doNothing().when(podmanExecutorService).push(targetRegistry);
         when(serviceHub.getAuthenticationService()).thenReturn(authenticationService);
@@ -208,7 +217,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         doNothing().when(podmanExecutorService).push(targetRegistry);
         when(serviceHub.getAuthenticationService()).thenReturn(authenticationService);
@@ -238,7 +247,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
         doNothing().when(podmanExecutorService).push(imageName);
         doNothing().when(podmanExecutorService).removeLocalImage(imageName);
@@ -264,7 +273,7 @@ public class PushMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         pushMojo.execute();
@@ -291,7 +300,7 @@ public class PushMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test-multistage");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         pushMojo.execute();
@@ -323,7 +332,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         // Simulate failure
@@ -352,7 +361,7 @@ public class PushMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         // Simulate failure
@@ -366,6 +375,167 @@ public class PushMojoTest extends AbstractMojoTest {
         verify(podmanExecutorService, times(2)).push(targetRegistry);
     }
 
+    @Test
+    public void testParallelPushContinuesAfterFailure() throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setTags(new String[]{"1.0.0"})
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .build();
+        configureMojo(image, true, false, false, "registry.example.com", false, true, 0);
+        pushMojo.pushThreads = 2;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test-repositories");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+
+        // The second push only completes once the third has been pushed, which must be started after the first failed
+        CountDownLatch thirdPushed = new CountDownLatch(1);
+        doThrow(new MojoExecutionException("Execution failed")).when(podmanExecutorService).push("registry.example.com/first:1.0.0");
+        doAnswer(invocation -> {
+            thirdPushed.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(podmanExecutorService).push("registry.example.com/second:1.0.0");
+        doAnswer(invocation -> {
+            thirdPushed.countDown();
+            return null;
+        }).when(podmanExecutorService).push("registry.example.com/third:1.0.0");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, pushMojo::execute);
+
+        Assertions.assertEquals("Execution failed", e.getMessage());
+        Assertions.assertEquals(0, thirdPushed.getCount());
+        verify(podmanExecutorService, times(1)).push("registry.example.com/first:1.0.0");
+        verify(podmanExecutorService, times(1)).push("registry.example.com/second:1.0.0");
+        verify(podmanExecutorService, times(1)).push("registry.example.com/third:1.0.0");
+        verify(log, times(1)).info("Successfully pushed container image registry.example.com/third:1.0.0 to registry.example.com");
+    }
+
+    @Test
+    public void testParallelPushCompletesPushInProgressAfterFailure() throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir("src/test/resources/multistagecontainerfile")
+                .setTags(new String[]{"0.2.1"})
+                .setCreateLatestTag(false)
+                .setUseCustomImageNameForMultiStageContainerfile(true)
+                .addCustomImageNameForBuildStage("phase", "image-name-number-1")
+                .addCustomImageNameForBuildStage("phase2", "image-name-number-2")
+                .build();
+        configureMojo(image, true, false, false, "registry.example.com", false, true, 1);
+        pushMojo.pushThreads = 2;
+        pushMojo.pushThreadsPerRegistry = 1;
+        pushMojo.failFast = true;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test-multistage");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+
+        // Only fail once the other repository is being pushed, which must then still complete
+        CountDownLatch otherPushStarted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            otherPushStarted.countDown();
+            return null;
+        }).when(podmanExecutorService).push("registry.example.com/image-name-number-2:0.2.1");
+        doAnswer(invocation -> {
+            otherPushStarted.await(5, TimeUnit.SECONDS);
+            throw new MojoExecutionException("Execution failed");
+        }).when(podmanExecutorService).push("registry.example.com/image-name-number-1:0.2.1");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, pushMojo::execute);
+
+        Assertions.assertEquals("Execution failed", e.getMessage());
+        verify(podmanExecutorService, times(2)).push("registry.example.com/image-name-number-1:0.2.1");
+        verify(podmanExecutorService, times(1)).push("registry.example.com/image-name-number-2:0.2.1");
+        verify(log, times(1)).info("Successfully pushed container image registry.example.com/image-name-number-2:0.2.1 to registry.example.com");
+    }
+
+    @Test
+    public void testPushAtEndPushesWhenReactorIsComplete() throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir("src/test/resources/multistagecontainerfile")
+                .setTags(new String[]{"0.2.1"})
+                .setCreateLatestTag(false)
+                .setUseCustomImageNameForMultiStageContainerfile(true)
+                .addCustomImageNameForBuildStage("phase", "image-name-number-1")
+                .addCustomImageNameForBuildStage("phase2", "image-name-number-2")
+                .build();
+        configureMojo(image, true, false, false, "registry.example.com", false, true, 0);
+        pushMojo.pushAtEnd = true;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test-multistage");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(podmanExecutorService.imageExists(isA(String.class))).thenReturn(true);
+
+        pushMojo.execute();
+
+        verify(podmanExecutorService, times(1)).push("registry.example.com/image-name-number-1:0.2.1");
+        verify(podmanExecutorService, times(1)).push("registry.example.com/image-name-number-2:0.2.1");
+        verify(log, times(1)).info("All images have been successfully pushed to the registry");
+    }
+
+    @Test
+    public void testPushAtEndPushesNothingWhenImageIsMissing() throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir("src/test/resources/multistagecontainerfile")
+                .setTags(new String[]{"0.2.1"})
+                .setCreateLatestTag(false)
+                .setUseCustomImageNameForMultiStageContainerfile(true)
+                .addCustomImageNameForBuildStage("phase", "image-name-number-1")
+                .addCustomImageNameForBuildStage("phase2", "image-name-number-2")
+                .build();
+        configureMojo(image, true, false, false, "registry.example.com", false, true, 0);
+        pushMojo.pushAtEnd = true;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test-multistage");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(podmanExecutorService.imageExists("registry.example.com/image-name-number-1:0.2.1")).thenReturn(true);
+        when(podmanExecutorService.imageExists("registry.example.com/image-name-number-2:0.2.1")).thenReturn(false);
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, pushMojo::execute);
+
+        Assertions.assertEquals("Not pushing the container images of the reactor, because the following images do not exist locally: registry.example.com/image-name-number-2:0.2.1", e.getMessage());
+        verify(podmanExecutorService, times(0)).push(isA(String.class));
+    }
+
+    @Test
+    public void testPushRecordsDigestAndSkipsUnchangedImages() throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setTags(new String[]{"1.0.0"})
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .build();
+        configureMojo(image, true, false, false, "registry.example.com", false, true, 0);
+        pushMojo.skipUnchanged = true;
+
+        Path catalogPath = Paths.get("target", "podman-test-structured", "container-catalog.json");
+        ContainerCatalog catalog = new ContainerCatalog("nl.lexemmens", "sample", "1.0.0");
+        ContainerCatalog.Entry pushedImage = new ContainerCatalog.Entry("registry.example.com/sample:1.0.0", "abcdef", null);
+        pushedImage.setDigest("sha256:111");
+        catalog.add(pushedImage);
+        catalog.add(new ContainerCatalog.Entry("registry.example.com/tool:1.0.0", "012345", null));
+        catalog.write(catalogPath);
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test-structured");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(podmanExecutorService.pushAndGetDigest("registry.example.com/tool:1.0.0")).thenReturn(Optional.of("sha256:222"));
+
+        pushMojo.execute();
+
+        verify(log, times(1)).info("Container image registry.example.com/sample:1.0.0 has already been pushed (sha256:111). Skipping push.");
+        verify(podmanExecutorService, times(0)).pushAndGetDigest("registry.example.com/sample:1.0.0");
+        verify(podmanExecutorService, times(0)).push(isA(String.class));
+
+        ContainerCatalog updatedCatalog = ContainerCatalog.read(catalogPath).orElseThrow(AssertionError::new);
+        Assertions.assertEquals(Optional.of("sha256:111"), updatedCatalog.getImage("registry.example.com/sample:1.0.0").flatMap(ContainerCatalog.Entry::getDigest));
+        Assertions.assertEquals(Optional.of("sha256:222"), updatedCatalog.getImage("registry.example.com/tool:1.0.0").flatMap(ContainerCatalog.Entry::getDigest));
+    }
+
     private void configureMojo(SingleImageConfiguration image, boolean skipAuth, boolean skipAll, boolean skipPush, String targetRegistry, boolean deleteLocalImageAfterPush, boolean failOnMissingContainerFile, int retries) {
         pushMojo.podman = new TestPodmanConfigurationBuilder().setTlsVerify(TlsVerify.NOT_SPECIFIED).build();
         pushMojo.skip = skipAll;
@@ -5,7 +5,13 @@ import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuild
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.config.skopeo.SkopeoConfiguration;
+import nl.lexemmens.podman.enumeration.SaveCompression;
+import nl.lexemmens.podman.enumeration.SaveMode;
 import nl.lexemmens.podman.enumeration.TlsVerify;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
@@ -13,6 +19,8 @@ import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.settings.Settings;
 import org.apache.maven.settings.crypto.SettingsDecrypter;
 import org.apache.maven.shared.filtering.MavenFileFilter;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,12 +31,26 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -118,14 +140,15 @@ public class SaveMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         Assertions.assertDoesNotThrow(saveMojo::execute);
 
         verify(log, times(1)).info("Registry authentication is skipped.");
         verify(log, times(0)).info("Saving container images is skipped.");
-        verify(podmanExecutorService, times(1)).save(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString(), "registry.example.com/sample:1.0.0");
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq("registry.example.com/sample:1.0.0"));
+        Assertions.assertTrue(Files.exists(Paths.get(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString())));
     }
 
     @Test
@@ -141,14 +164,15 @@ public class SaveMojoTest extends AbstractMojoTest {
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target/podman-test");
         when(mavenProject.getVersion()).thenReturn("1.0.0");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         Assertions.assertDoesNotThrow(saveMojo::execute);
 
         verify(log, times(1)).info("Registry authentication is skipped.");
         verify(log, times(0)).info("Saving container images is skipped.");
-        verify(podmanExecutorService, times(1)).save(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString(), "sample:1.0.0");
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq("sample:1.0.0"));
+        Assertions.assertTrue(Files.exists(Paths.get(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString())));
     }
 
     @Test
@@ -164,7 +188,7 @@ public class SaveMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         saveMojo.execute();
@@ -173,7 +197,8 @@ public class SaveMojoTest extends AbstractMojoTest {
         verify(log, times(1)).info("Exporting container images to local disk ...");
         verify(log, times(1)).warn("Detected multistage Containerfile, but no custom image names have been specified. Falling back to exporting final image.");
         verify(log, times(1)).info("Exporting image sample:1.0.0 to " + target.resolve("sample_1_0_0.tar.gz").normalize().toFile().getAbsolutePath());
-        verify(podmanExecutorService, times(1)).save(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString(), "registry.example.com/sample:1.0.0");
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq("registry.example.com/sample:1.0.0"));
+        Assertions.assertTrue(Files.exists(Paths.get(target.resolve("sample_1_0_0.tar.gz").normalize().toAbsolutePath().toString())));
         verify(log, times(1)).info("Container images exported successfully.");
     }
 
@@ -193,7 +218,7 @@ public class SaveMojoTest extends AbstractMojoTest {
 
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
-        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class))).thenReturn(serviceHub);
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
         when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
 
         saveMojo.execute();
@@ -202,12 +227,203 @@ public class SaveMojoTest extends AbstractMojoTest {
         verify(log, times(1)).info("Exporting container images to local disk ...");
         verify(log, times(0)).warn("Detected multistage Containerfile, but no custom image names have been specified. Falling back to exporting final image.");
         verify(log, times(1)).info("Exporting image image-name-number-1:0.2.1 to " + target.resolve("image_name_number_1_0_2_1.tar.gz").normalize().toFile().getAbsolutePath());
-        verify(podmanExecutorService, times(1)).save(target.resolve("image_name_number_1_0_2_1.tar.gz").normalize().toFile().getAbsolutePath(), "registry.example.com/image-name-number-1:0.2.1");
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq("registry.example.com/image-name-number-1:0.2.1"));
+        Assertions.assertTrue(Files.exists(Paths.get(target.resolve("image_name_number_1_0_2_1.tar.gz").normalize().toFile().getAbsolutePath())));
         verify(log, times(1)).info("Exporting image image-name-number-2:0.2.1 to " + target.resolve("image_name_number_2_0_2_1.tar.gz").normalize().toFile().getAbsolutePath());
-        verify(podmanExecutorService, times(1)).save(target.resolve("image_name_number_2_0_2_1.tar.gz").normalize().toFile().getAbsolutePath(), "registry.example.com/image-name-number-2:0.2.1");
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq("registry.example.com/image-name-number-2:0.2.1"));
+        Assertions.assertTrue(Files.exists(Paths.get(target.resolve("image_name_number_2_0_2_1.tar.gz").normalize().toFile().getAbsolutePath())));
         verify(log, times(1)).info("Container images exported successfully.");
     }
 
+    @Test
+    public void testSaveCompressedWithChecksum() throws MojoExecutionException, IOException, NoSuchAlgorithmException {
+        Path target = Paths.get(".", "target", "podman");
+        byte[] archiveContent = "image archive".getBytes(StandardCharsets.UTF_8);
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"2.0.0", "3.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(image, false, false, "registry.example.com", true);
+        saveMojo.saveThreads = 2;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(archiveContent);
+            return null;
+        }).when(podmanExecutorService).save(isA(OutputStream.class), anyString());
+
+        saveMojo.execute();
+
+        for (String archiveName : new String[]{"sample_2_0_0.tar.gz", "sample_3_0_0.tar.gz"}) {
+            Path archive = target.resolve(archiveName).normalize();
+            try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(archive))) {
+                Assertions.assertArrayEquals(archiveContent, IOUtils.toByteArray(inputStream));
+            }
+            Assertions.assertEquals(sha256Hex(Files.readAllBytes(archive)) + "  " + archiveName + "\n",
+                    new String(Files.readAllBytes(target.resolve(archiveName + ".sha256")), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testSaveZstdCompressed() throws MojoExecutionException, IOException {
+        Path target = Paths.get(".", "target", "podman");
+        byte[] archiveContent = "image archive".getBytes(StandardCharsets.UTF_8);
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"5.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(image, false, false, "registry.example.com", true);
+        saveMojo.compression = SaveCompression.ZSTD;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(archiveContent);
+            return null;
+        }).when(podmanExecutorService).save(isA(OutputStream.class), anyString());
+
+        saveMojo.execute();
+
+        try (InputStream inputStream = new ZstdCompressorInputStream(Files.newInputStream(target.resolve("sample_5_0_0.tar.zst")))) {
+            Assertions.assertArrayEquals(archiveContent, IOUtils.toByteArray(inputStream));
+        }
+    }
+
+    @Test
+    public void testSaveUncompressed() throws MojoExecutionException {
+        Path target = Paths.get(".", "target", "podman");
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(DEFAULT_CONTAINERFILE_DIR)
+                .setTags(new String[]{"4.0.0"})
+                .setCreateLatestTag(false)
+                .build();
+        configureMojo(image, false, false, "registry.example.com", true);
+        saveMojo.compression = SaveCompression.NONE;
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+
+        saveMojo.execute();
+
+        verify(log, times(1)).info("Exporting image sample:4.0.0 to " + target.resolve("sample_4_0_0.tar").normalize().toAbsolutePath());
+        Assertions.assertTrue(Files.exists(target.resolve("sample_4_0_0.tar")));
+        Assertions.assertTrue(Files.exists(target.resolve("sample_4_0_0.tar.sha256")));
+    }
+
+    @Test
+    public void testSaveMultiImageArchive() throws MojoExecutionException, IOException {
+        Path target = Paths.get(".", "target", "podman");
+
+        SingleImageConfiguration image = multistageImage();
+        configureMojo(image, false, false, "registry.example.com", true);
+        saveMojo.mode = SaveMode.MULTI_IMAGE_ARCHIVE;
+        saveMojo.archiveName = "multi-image";
+
+        List<String> expectedImages = Arrays.asList("registry.example.com/image-name-number-1:0.2.1", "registry.example.com/image-name-number-2:0.2.1");
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        when(podmanExecutorService.getImageDigest("registry.example.com/image-name-number-1:0.2.1")).thenReturn(Optional.of("sha256:aaa"));
+        when(podmanExecutorService.getImageDigest("registry.example.com/image-name-number-2:0.2.1")).thenReturn(Optional.empty());
+
+        saveMojo.execute();
+
+        verify(podmanExecutorService, times(1)).save(isA(OutputStream.class), eq(expectedImages));
+        verify(podmanExecutorService, times(0)).save(isA(OutputStream.class), anyString());
+        verify(log, times(1)).warn("Unable to determine the digest of image registry.example.com/image-name-number-2:0.2.1. It is listed in the index without a digest.");
+        Assertions.assertTrue(Files.exists(target.resolve("multi-image.tar.gz")));
+        Assertions.assertTrue(Files.exists(target.resolve("multi-image.tar.gz.sha256")));
+
+        JSONObject index = readIndex(target.resolve("multi-image-index.json"));
+        Assertions.assertEquals("MULTI_IMAGE_ARCHIVE", index.getString("mode"));
+        Assertions.assertEquals("multi-image.tar.gz", index.getString("path"));
+        JSONArray images = index.getJSONArray("images");
+        Assertions.assertEquals(2, images.length());
+        Assertions.assertEquals(expectedImages.get(0), images.getJSONObject(0).getString("name"));
+        Assertions.assertEquals("sha256:aaa", images.getJSONObject(0).getString("localDigest"));
+        Assertions.assertFalse(images.getJSONObject(0).has("digest"));
+        Assertions.assertFalse(images.getJSONObject(1).has("localDigest"));
+    }
+
+    @Test
+    public void testSaveOciLayout() throws MojoExecutionException, IOException {
+        Path target = Paths.get(".", "target", "podman");
+        Path layoutDir = target.resolve("oci-layout").normalize().toAbsolutePath();
+
+        SingleImageConfiguration image = multistageImage();
+        configureMojo(image, false, false, "registry.example.com", true);
+        saveMojo.mode = SaveMode.OCI_LAYOUT;
+        saveMojo.archiveName = "oci-layout";
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+        when(serviceHubFactory.createServiceHub(isA(Log.class), isA(MavenProject.class), isA(MavenFileFilter.class), isA(PodmanConfiguration.class), isA(SkopeoConfiguration.class), isA(Settings.class), isA(SettingsDecrypter.class), isA(MavenProjectHelper.class), isA(ExecutionMetrics.class), isA(SessionCache.class))).thenReturn(serviceHub);
+        when(serviceHub.getPodmanExecutorService()).thenReturn(podmanExecutorService);
+        JSONArray manifests = new JSONArray();
+        doAnswer(invocation -> {
+            String fullImageName = invocation.getArgument(0);
+            Path layout = invocation.getArgument(1);
+            manifests.put(new JSONObject()
+                    .put("digest", "sha256:" + manifests.length())
+                    .put("annotations", new JSONObject().put("org.opencontainers.image.ref.name", fullImageName)));
+            Files.createDirectories(layout);
+            Files.write(layout.resolve("index.json"), new JSONObject().put("manifests", manifests).toString().getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(podmanExecutorService).pushToOciLayout(anyString(), any(Path.class));
+
+        saveMojo.execute();
+
+        verify(podmanExecutorService, times(1)).pushToOciLayout("registry.example.com/image-name-number-1:0.2.1", layoutDir);
+        verify(podmanExecutorService, times(1)).pushToOciLayout("registry.example.com/image-name-number-2:0.2.1", layoutDir);
+        verify(podmanExecutorService, times(0)).save(isA(OutputStream.class), anyString());
+
+        JSONObject index = readIndex(target.resolve("oci-layout-index.json"));
+        Assertions.assertEquals("OCI_LAYOUT", index.getString("mode"));
+        Assertions.assertEquals("oci-layout", index.getString("path"));
+        JSONArray images = index.getJSONArray("images");
+        Assertions.assertEquals("registry.example.com/image-name-number-1:0.2.1", images.getJSONObject(0).getString("name"));
+        Assertions.assertEquals("sha256:0", images.getJSONObject(0).getString("digest"));
+        Assertions.assertEquals("registry.example.com/image-name-number-2:0.2.1", images.getJSONObject(1).getString("name"));
+        Assertions.assertEquals("sha256:1", images.getJSONObject(1).getString("digest"));
+    }
+
+    private static SingleImageConfiguration multistageImage() {
+        return new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir("src/test/resources/multistagecontainerfile")
+                .setTags(new String[]{"0.2.1"})
+                .setCreateLatestTag(false)
+                .setUseCustomImageNameForMultiStageContainerfile(true)
+                .addCustomImageNameForBuildStage("phase", "image-name-number-1")
+                .addCustomImageNameForBuildStage("phase2", "image-name-number-2")
+                .build();
+    }
+
+    private static JSONObject readIndex(Path indexPath) throws IOException {
+        return new JSONObject(new String(Files.readAllBytes(indexPath), StandardCharsets.UTF_8));
+    }
+
+    private static String sha256Hex(byte[] bytes) throws NoSuchAlgorithmException {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
     private void configureMojo(SingleImageConfiguration image, boolean skipAll, boolean skipSave, String pushRegistry, boolean failOnMissingContainerfile) {
         List<SingleImageConfiguration> images = Collections.singletonList(image);
 
@@ -219,5 +435,10 @@ public class SaveMojoTest extends AbstractMojoTest {
         saveMojo.images = images;
         saveMojo.failOnMissingContainerfile = failOnMissingContainerfile;
         saveMojo.targetDirectory = new File("./target/podman");
+        saveMojo.compression = SaveCompression.GZIP;
+        saveMojo.compressionLevel = 6;
+        saveMojo.writeChecksum = true;
+        saveMojo.saveThreads = 1;
+        saveMojo.mode = SaveMode.ARCHIVE_PER_IMAGE;
     }
 }
\ No newline at end of file
@@ -104,6 +104,11 @@ public class TestBatchImageConfigurationBuilder {
         return this;
     }
 
+    public TestBatchImageConfigurationBuilder setExcludes(String[] excludes) {
+        image.getBuild().setExcludes(excludes);
+        return this;
+    }
+
     public TestBatchImageConfigurationBuilder setPullAlways(boolean pullAlways) {
         image.getBuild().setPullAlways(pullAlways);
         return this;
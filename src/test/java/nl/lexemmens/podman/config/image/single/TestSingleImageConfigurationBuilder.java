@@ -2,6 +2,7 @@ package nl.lexemmens.podman.config.image.single;
 
 import nl.lexemmens.podman.config.image.StageConfiguration;
 import nl.lexemmens.podman.enumeration.ContainerFormat;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
@@ -94,6 +95,11 @@ public class TestSingleImageConfigurationBuilder {
         return this;
     }
 
+    public TestSingleImageConfigurationBuilder setLabelMode(LabelMode labelMode) {
+        image.getBuild().setLabelMode(labelMode);
+        return this;
+    }
+
     public TestSingleImageConfigurationBuilder initAndValidate(MavenProject mavenProject, Log log, boolean failOnMissingContainerfile) throws MojoExecutionException {
         image.initAndValidate(mavenProject, log, failOnMissingContainerfile);
         return this;
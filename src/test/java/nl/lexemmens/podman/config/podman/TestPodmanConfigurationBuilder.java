@@ -36,6 +36,11 @@ public class TestPodmanConfigurationBuilder {
         return this;
     }
 
+    public TestPodmanConfigurationBuilder setServiceUrl(String serviceUrl) {
+        podman.serviceUrl = serviceUrl;
+        return this;
+    }
+
     public TestPodmanConfigurationBuilder initAndValidate(MavenProject project, Log log) throws MojoExecutionException {
         podman.initAndValidate(project, log);
         return this;
@@ -46,4 +46,24 @@ public class TestSkopeoCopyConfigurationBuilder {
         copy.disableLocal = disableLocal;
         return this;
     }
+
+    public TestSkopeoCopyConfigurationBuilder setThreads(int threads) {
+        copy.threads = threads;
+        return this;
+    }
+
+    public TestSkopeoCopyConfigurationBuilder setRetries(int retries) {
+        copy.retries = retries;
+        return this;
+    }
+
+    public TestSkopeoCopyConfigurationBuilder setSync(boolean sync) {
+        copy.sync = sync;
+        return this;
+    }
+
+    public TestSkopeoCopyConfigurationBuilder setSkipExisting(boolean skipExisting) {
+        copy.skipExisting = skipExisting;
+        return this;
+    }
 }
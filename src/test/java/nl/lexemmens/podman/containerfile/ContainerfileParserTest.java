@@ -0,0 +1,104 @@
+package nl.lexemmens.podman.containerfile;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public class ContainerfileParserTest {
+
+    @Test
+    public void testStagesOfMultistageContainerfile() throws IOException {
+        Containerfile containerfile = ContainerfileParser.parse(Paths.get("src/test/resources/multistagecontainerfile/Containerfile"));
+
+        Assertions.assertEquals(Arrays.asList("base", "phase", "phase2"), containerfile.getStageNames());
+        Assertions.assertEquals("${container.base.image}", containerfile.getStages().get(0).getFrom().getBaseImage());
+        Assertions.assertEquals("base", containerfile.getStages().get(1).getFrom().getBaseImage());
+        Assertions.assertEquals(3, containerfile.getStages().get(1).getInstructions().size());
+        Assertions.assertTrue(containerfile.getStage("PHASE2").isPresent());
+        Assertions.assertFalse(containerfile.getStage("unknown").isPresent());
+    }
+
+    @Test
+    public void testContinuationLinesAndLowercaseInstructions() {
+        Containerfile containerfile = ContainerfileParser.parse("arg BASE=\"registry.example.com/base:1.0.0\"\n"
+                + "from --platform=linux/arm64 \\\n"
+                + "    # A comment between continued lines\n"
+                + "    ${BASE} \\\n"
+                + "    as builder\n"
+                + "run make \\\n"
+                + "    install\n");
+
+        Assertions.assertEquals(Collections.singletonMap("BASE", "registry.example.com/base:1.0.0"), containerfile.getGlobalArgs());
+
+        Stage stage = containerfile.getStages().get(0);
+        Assertions.assertEquals(Optional.of("builder"), stage.getName());
+        Assertions.assertEquals("${BASE}", stage.getFrom().getBaseImage());
+        Assertions.assertEquals(Optional.of("linux/arm64"), stage.getFrom().getPlatform());
+
+        Instruction from = stage.getInstructions().get(0);
+        Assertions.assertEquals("FROM", from.getKeyword());
+        Assertions.assertEquals(2, from.getFirstLine());
+        Assertions.assertEquals(5, from.getLastLine());
+
+        Instruction run = stage.getInstructions().get(1);
+        Assertions.assertEquals("RUN make     install", run.toString());
+        Assertions.assertEquals(7, run.getLastLine());
+    }
+
+    @Test
+    public void testHeredocsArePartOfTheirInstruction() {
+        Containerfile containerfile = ContainerfileParser.parse("FROM scratch AS base\n"
+                + "RUN <<EOF\n"
+                + "FROM nothing AS ignored\n"
+                + "EOF\n"
+                + "COPY <<-\"FIRST\" <<SECOND /target/\n"
+                + "\tfirst\n"
+                + "\tFIRST\n"
+                + "second\n"
+                + "SECOND\n"
+                + "FROM base\n");
+
+        Assertions.assertEquals(Collections.singletonList("base"), containerfile.getStageNames());
+        Assertions.assertEquals(2, containerfile.getStages().size());
+
+        List<Instruction> instructions = containerfile.getInstructions();
+        Assertions.assertEquals(4, instructions.size());
+        Assertions.assertEquals(Collections.singletonList("FROM nothing AS ignored\n"), instructions.get(1).getHeredocs());
+        Assertions.assertEquals(4, instructions.get(1).getLastLine());
+        Assertions.assertEquals(Arrays.asList("first\n", "second\n"), instructions.get(2).getHeredocs());
+        Assertions.assertEquals(10, instructions.get(3).getFirstLine());
+    }
+
+    @Test
+    public void testEscapeDirective() {
+        Containerfile containerfile = ContainerfileParser.parse("# escape=`\n"
+                + "FROM mcr.microsoft.com/windows/servercore `\n"
+                + "    AS windows\n"
+                + "COPY . C:\\app\\\n");
+
+        Assertions.assertEquals(Collections.singletonList("windows"), containerfile.getStageNames());
+        Assertions.assertEquals("C:\\app\\", containerfile.getInstructions().get(1).getArguments().substring(2));
+    }
+
+    @Test
+    public void testSameContentsAreParsedOnce() {
+        String contents = "FROM registry.example.com/base:1.0.0 AS cached\n";
+
+        Assertions.assertSame(ContainerfileParser.parse(contents), ContainerfileParser.parse(new String(contents)));
+    }
+
+    @Test
+    public void testFromInstructionFromBuildOutput() {
+        Optional<FromInstruction> from = FromInstruction.parse("7e72c870614c842cefe268dec15cd84d8abd64be16a0c4f76d4883846b1e6104 AS phase");
+
+        Assertions.assertTrue(from.isPresent());
+        Assertions.assertEquals(Optional.of("phase"), from.get().getStageName());
+        Assertions.assertFalse(FromInstruction.parse("--platform=linux/amd64").isPresent());
+    }
+}
@@ -5,7 +5,11 @@ import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.zeroturnaround.exec.ProcessExecutor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class CommandExecutorDelegateTest {
@@ -27,6 +31,66 @@ public class CommandExecutorDelegateTest {
         Assertions.assertEquals("hello world", outputLine);
     }
 
+    @Test
+    public void testStreamingCommand() throws MojoExecutionException {
+        CommandExecutorDelegate delegate = new CommandExecutorDelegateImpl();
+
+        ProcessExecutor pe = new ProcessExecutor()
+                .directory(new File("."))
+                .command("printf", "hello\\nworld")
+                .readOutput(true)
+                .exitValueNormal();
+
+        List<String> output = new ArrayList<>();
+        delegate.executeCommand(pe, output::add);
+
+        Assertions.assertEquals(Arrays.asList("hello", "world"), output);
+    }
+
+    @Test
+    public void testFailedStreamingCommandReportsLastLines() {
+        CommandExecutorDelegate delegate = new CommandExecutorDelegateImpl();
+
+        ProcessExecutor pe = new ProcessExecutor()
+                .directory(new File("."))
+                .command("sh", "-c", "for i in $(seq 1 100); do echo line $i; done; echo failure >&2; exit 1")
+                .readOutput(true)
+                .exitValueNormal();
+
+        List<String> output = new ArrayList<>();
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () -> delegate.executeCommand(pe, output::add));
+
+        Assertions.assertEquals(100, output.size());
+        Assertions.assertTrue(e.getMessage().contains("line 100"));
+        Assertions.assertTrue(e.getMessage().contains("failure"));
+        Assertions.assertFalse(e.getMessage().contains("line 10" + System.lineSeparator()));
+    }
+
+    @Test
+    public void testBinaryOutputCommand() throws MojoExecutionException {
+        CommandExecutorDelegate delegate = new CommandExecutorDelegateImpl();
+
+        ProcessExecutor pe = new ProcessExecutor()
+                .directory(new File("."))
+                .command("printf", "\\000\\001\\377\\n\\n")
+                .readOutput(true)
+                .exitValueNormal();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        delegate.executeCommand(pe, output);
+
+        Assertions.assertArrayEquals(new byte[]{0, 1, (byte) 0xff, '\n', '\n'}, output.toByteArray());
+    }
+
+    @Test
+    public void testBinaryOutputIsNotSupportedByDefault() {
+        CommandExecutorDelegate delegate = processExecutor -> Collections.singletonList("output");
+
+        ProcessExecutor pe = new ProcessExecutor().command("echo", "output");
+
+        Assertions.assertThrows(MojoExecutionException.class, () -> delegate.executeCommand(pe, new ByteArrayOutputStream()));
+    }
+
     @Test
     public void testFailedCommand() throws MojoExecutionException {
         CommandExecutorDelegate delegate = new CommandExecutorDelegateImpl();
@@ -0,0 +1,104 @@
+package nl.lexemmens.podman.executor;
+
+import nl.lexemmens.podman.command.CommandOutputListener;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.zeroturnaround.exec.ProcessExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ExecutionMetricsTest {
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private CommandExecutorDelegate delegate;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testCommandName() {
+        Assertions.assertEquals("podman build", MeteredCommandExecutorDelegate.getCommandName(new ProcessExecutor("podman", "--root=/tmp/root", "build", "--tls-verify=true", ".")));
+        Assertions.assertEquals("skopeo copy", MeteredCommandExecutorDelegate.getCommandName(new ProcessExecutor("/usr/bin/skopeo", "copy", "a", "b")));
+        Assertions.assertEquals("chcon", MeteredCommandExecutorDelegate.getCommandName(new ProcessExecutor("chcon", "-Rt", "container_file_t", "/tmp")));
+        Assertions.assertEquals("podman", MeteredCommandExecutorDelegate.getCommandName(new ProcessExecutor("podman", "--version")));
+    }
+
+    @Test
+    public void testCommandsAreAttributedToImage() throws MojoExecutionException {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        MeteredCommandExecutorDelegate meteredDelegate = new MeteredCommandExecutorDelegate(delegate, metrics);
+        ProcessExecutor build = new ProcessExecutor("podman", "build", ".");
+        ProcessExecutor push = new ProcessExecutor("podman", "push", "sample:1.0.0");
+
+        doAnswer(invocation -> {
+            CommandOutputListener listener = invocation.getArgument(1);
+            listener.onLine("STEP 1/1: FROM scratch");
+            listener.onLine("COMMIT");
+            return null;
+        }).when(delegate).executeCommand(eq(build), any(CommandOutputListener.class));
+        when(delegate.executeCommand(push)).thenThrow(new MojoExecutionException("push failed"));
+
+        metrics.forImage("sample", () -> meteredDelegate.executeCommand(build, line -> { }));
+        Assertions.assertThrows(MojoExecutionException.class, () -> metrics.forImage("sample", () -> meteredDelegate.executeCommand(push)));
+        meteredDelegate.executeCommand(build, line -> { });
+
+        JSONObject json = metrics.toJson();
+        JSONObject buildMetrics = json.getJSONObject("commands").getJSONObject("podman build");
+        Assertions.assertEquals(2, buildMetrics.getLong("executions"));
+        Assertions.assertEquals(0, buildMetrics.getLong("failures"));
+        Assertions.assertEquals(4, buildMetrics.getLong("outputLines"));
+        Assertions.assertEquals(60, buildMetrics.getLong("outputBytes"));
+
+        JSONObject pushMetrics = json.getJSONObject("commands").getJSONObject("podman push");
+        Assertions.assertEquals(1, pushMetrics.getLong("executions"));
+        Assertions.assertEquals(1, pushMetrics.getLong("failures"));
+
+        JSONObject imageMetrics = json.getJSONObject("images").getJSONObject("sample");
+        Assertions.assertEquals(2, imageMetrics.getLong("commands"));
+        Assertions.assertEquals(1, imageMetrics.getLong("failures"));
+        Assertions.assertEquals(1, json.getJSONObject("images").length());
+    }
+
+    @Test
+    public void testRetriesAreAttributedToImage() throws MojoExecutionException {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        RetryPolicy retryPolicy = new RetryPolicy(log, 3, 1, 1, millis -> { }, metrics);
+        AtomicInteger attempts = new AtomicInteger();
+
+        metrics.forImage("sample", () -> retryPolicy.execute("push sample", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new MojoExecutionException("failed");
+            }
+        }));
+        metrics.recordRetry();
+
+        JSONObject json = metrics.toJson();
+        Assertions.assertEquals(3, json.getLong("retries"));
+        Assertions.assertEquals(2, json.getJSONObject("images").getJSONObject("sample").getLong("retries"));
+        Assertions.assertEquals(0, json.getJSONObject("images").getJSONObject("sample").getLong("failures"));
+    }
+}
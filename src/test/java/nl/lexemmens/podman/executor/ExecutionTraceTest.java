@@ -0,0 +1,121 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ExecutionTraceTest {
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testConcurrentSpansAreRecordedOnSeparateTracks() throws MojoExecutionException {
+        ExecutionTrace trace = ExecutionTrace.start();
+        try (ExecutionTrace.Span span = ExecutionTrace.span("build", "goal")) {
+            new ParallelTaskExecutor(log, 2, "podman-build").execute(Arrays.asList("image-a", "image-b"), Function.identity(),
+                    image -> ExecutionTrace.inSpan(image, "image", () -> sleep(100)));
+        } finally {
+            trace.stop();
+        }
+
+        JSONArray events = trace.getEvents(7);
+        List<JSONObject> spans = new ArrayList<>();
+        Set<String> threadNames = new HashSet<>();
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.getJSONObject(i);
+            Assertions.assertEquals(7, event.getInt("pid"));
+            if ("X".equals(event.getString("ph"))) {
+                spans.add(event);
+            } else {
+                threadNames.add(event.getJSONObject("args").getString("name"));
+            }
+        }
+
+        Assertions.assertEquals(3, spans.size());
+        Assertions.assertTrue(threadNames.contains("podman-build-1"));
+        Assertions.assertTrue(threadNames.contains("podman-build-2"));
+
+        JSONObject imageA = find(spans, "image-a");
+        JSONObject imageB = find(spans, "image-b");
+        JSONObject goal = find(spans, "build");
+        Assertions.assertNotEquals(imageA.getLong("tid"), imageB.getLong("tid"));
+        Assertions.assertTrue(imageA.getLong("dur") >= 100_000);
+        Assertions.assertTrue(goal.getLong("ts") <= Math.min(imageA.getLong("ts"), imageB.getLong("ts")));
+        // The images were processed concurrently, so their spans overlap
+        Assertions.assertTrue(imageA.getLong("ts") < imageB.getLong("ts") + imageB.getLong("dur"));
+        Assertions.assertTrue(imageB.getLong("ts") < imageA.getLong("ts") + imageA.getLong("dur"));
+    }
+
+    @Test
+    public void testSpansOnTrackOfOtherThread() throws InterruptedException {
+        ExecutionTrace trace = ExecutionTrace.start();
+        ExecutionTrace.Track track = ExecutionTrace.track();
+        Thread outputThread = new Thread(() -> track.begin("stage builder", "stage").close());
+        outputThread.start();
+        outputThread.join();
+        trace.stop();
+
+        JSONArray events = trace.getEvents(1);
+        JSONObject stage = find(toList(events), "stage builder");
+        Assertions.assertEquals(Thread.currentThread().getId(), stage.getLong("tid"));
+        Assertions.assertEquals("stage", stage.getString("cat"));
+    }
+
+    @Test
+    public void testNothingIsRecordedWithoutActiveTrace() {
+        ExecutionTrace trace = ExecutionTrace.start();
+        trace.stop();
+
+        ExecutionTrace.span("build", "phase").close();
+
+        Assertions.assertEquals(0, trace.getEvents(1).length());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<JSONObject> toList(JSONArray events) {
+        List<JSONObject> result = new ArrayList<>();
+        for (int i = 0; i < events.length(); i++) {
+            result.add(events.getJSONObject(i));
+        }
+        return result;
+    }
+
+    private static JSONObject find(List<JSONObject> events, String name) {
+        return events.stream()
+                .filter(event -> "X".equals(event.getString("ph")) && name.equals(event.getString("name")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No span named " + name));
+    }
+}
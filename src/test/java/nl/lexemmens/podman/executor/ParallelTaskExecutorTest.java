@@ -0,0 +1,199 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelTaskExecutorTest {
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testSequentialExecutionStopsAtFirstFailure() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 1, "test");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(Arrays.asList("a", "b", "c"), Function.identity(), item -> {
+                    processed.add(item);
+                    if ("b".equals(item)) {
+                        throw new MojoExecutionException("failed " + item);
+                    }
+                }));
+
+        Assertions.assertEquals("failed b", e.getMessage());
+        Assertions.assertEquals(new java.util.HashSet<>(Arrays.asList("a", "b")), processed);
+    }
+
+    @Test
+    public void testParallelExecutionRunsTasksConcurrently() throws MojoExecutionException {
+        CountDownLatch latch = new CountDownLatch(2);
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test");
+
+        // Both tasks can only complete when they are running at the same time
+        executor.execute(Arrays.asList("a", "b"), Function.identity(), item -> {
+            latch.countDown();
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new MojoExecutionException("Tasks did not run concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted", e);
+            }
+        });
+
+        verify(log, times(1)).info("Processing 2 items using 2 threads.");
+    }
+
+    @Test
+    public void testParallelExecutionReportsAllFailures() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 4, "test");
+        List<String> items = Arrays.asList("a", "b", "c", "d");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(items, Function.identity(), item -> {
+                    processed.add(item);
+                    if ("a".equals(item) || "c".equals(item)) {
+                        throw new MojoExecutionException("failed " + item);
+                    }
+                }));
+
+        Assertions.assertEquals("2 of 4 items failed: a, c", e.getMessage());
+        Assertions.assertEquals(2, e.getSuppressed().length);
+        Assertions.assertEquals(new java.util.HashSet<>(items), processed);
+        verify(log, times(1)).error("Failed to process a: failed a");
+        verify(log, times(1)).error("Failed to process c: failed c");
+    }
+
+    @Test
+    public void testParallelExecutionRethrowsSingleFailure() {
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(Arrays.asList("a", "b"), Function.identity(), item -> {
+                    if ("b".equals(item)) {
+                        throw new MojoExecutionException("failed " + item);
+                    }
+                }));
+
+        Assertions.assertEquals("failed b", e.getMessage());
+    }
+
+    @Test
+    public void testDependenciesAreProcessedFirst() throws MojoExecutionException {
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        Map<String, List<String>> dependencies = new HashMap<>();
+        dependencies.put("app", Collections.singletonList("base"));
+        dependencies.put("tool", Arrays.asList("base", "app"));
+
+        new ParallelTaskExecutor(log, 1, "test").execute(Arrays.asList("tool", "app", "base"), dependencies, Function.identity(), processed::add);
+        Assertions.assertEquals(Arrays.asList("base", "app", "tool"), processed);
+
+        processed.clear();
+        new ParallelTaskExecutor(log, 3, "test").execute(Arrays.asList("tool", "app", "base"), dependencies, Function.identity(), processed::add);
+        Assertions.assertEquals(Arrays.asList("base", "app", "tool"), processed);
+    }
+
+    @Test
+    public void testDependentsOfFailedItemAreSkipped() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        Map<String, List<String>> dependencies = new HashMap<>();
+        dependencies.put("app", Collections.singletonList("base"));
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(Arrays.asList("base", "app", "other"), dependencies, Function.identity(), item -> {
+                    processed.add(item);
+                    if ("base".equals(item)) {
+                        throw new MojoExecutionException("failed " + item);
+                    }
+                }));
+
+        Assertions.assertEquals("1 of 3 items failed: base. Skipped 1 dependent items: app", e.getMessage());
+        Assertions.assertEquals(new java.util.HashSet<>(Arrays.asList("base", "other")), processed);
+        verify(log, times(1)).warn("Skipping app because base failed.");
+    }
+
+    @Test
+    public void testNoTasksAreStartedAfterFailureWhenStoppingOnFailure() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test", true);
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(Arrays.asList("failing", "slow", "c", "d"), Function.identity(), item -> {
+                    processed.add(item);
+                    try {
+                        if ("failing".equals(item)) {
+                            slowStarted.await(5, TimeUnit.SECONDS);
+                            throw new MojoExecutionException("failed " + item);
+                        } else if ("slow".equals(item)) {
+                            slowStarted.countDown();
+                            release.await(500, TimeUnit.MILLISECONDS);
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+
+        Assertions.assertEquals("1 of 4 items failed: failing. Did not start 2 items: c, d", e.getMessage());
+        Assertions.assertEquals(new java.util.HashSet<>(Arrays.asList("failing", "slow")), processed);
+    }
+
+    @Test
+    public void testCyclicDependenciesAreRejected() {
+        Map<String, List<String>> dependencies = new HashMap<>();
+        dependencies.put("a", Collections.singletonList("b"));
+        dependencies.put("b", Collections.singletonList("a"));
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test");
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                executor.execute(Arrays.asList("a", "b", "c"), dependencies, Function.identity(), item -> {
+                    throw new MojoExecutionException("Should not be called");
+                }));
+
+        Assertions.assertEquals("Cyclic dependency detected between: a, b", e.getMessage());
+    }
+
+    @Test
+    public void testEmptyItems() {
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(log, 2, "test");
+        Assertions.assertDoesNotThrow(() -> executor.execute(Collections.<String>emptyList(), Function.identity(), item -> {
+            throw new MojoExecutionException("Should not be called");
+        }));
+    }
+}
@@ -0,0 +1,61 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class RegistryConcurrencyLimiterTest {
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testGetRegistry() {
+        Assertions.assertEquals("registry.example.com", RegistryConcurrencyLimiter.getRegistry("registry.example.com/sample:1.0.0"));
+        Assertions.assertEquals("localhost:5000", RegistryConcurrencyLimiter.getRegistry("localhost:5000/sample:1.0.0"));
+        Assertions.assertEquals("localhost", RegistryConcurrencyLimiter.getRegistry("localhost/sample"));
+        Assertions.assertEquals("docker.io", RegistryConcurrencyLimiter.getRegistry("library/sample:1.0.0"));
+        Assertions.assertEquals("docker.io", RegistryConcurrencyLimiter.getRegistry("sample"));
+    }
+
+    @Test
+    public void testConcurrencyIsLimitedPerRegistry() throws MojoExecutionException {
+        RegistryConcurrencyLimiter limiter = new RegistryConcurrencyLimiter(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        new ParallelTaskExecutor(log, 4, "test").execute(
+                Arrays.asList("registry.example.com/a", "registry.example.com/b", "registry.example.com/c", "registry.example.com/d"),
+                Function.identity(),
+                image -> limiter.execute(image, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                }));
+
+        Assertions.assertEquals(1, maxRunning.get());
+    }
+}
@@ -0,0 +1,76 @@
+package nl.lexemmens.podman.executor;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class RetryPolicyTest {
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testRetriesWithIncreasingDelay() throws MojoExecutionException {
+        List<Long> delays = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        RetryPolicy retryPolicy = new RetryPolicy(log, 3, 100, 1000, delays::add);
+
+        retryPolicy.execute("do something", () -> {
+            if (attempts.incrementAndGet() < 4) {
+                throw new MojoExecutionException("failed");
+            }
+        });
+
+        Assertions.assertEquals(4, attempts.get());
+        Assertions.assertEquals(3, delays.size());
+        assertBetween(50, 100, delays.get(0));
+        assertBetween(100, 200, delays.get(1));
+        assertBetween(200, 400, delays.get(2));
+    }
+
+    @Test
+    public void testDelayIsCapped() {
+        RetryPolicy retryPolicy = new RetryPolicy(log, 100, 100, 1000, millis -> { });
+
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Assertions.assertTrue(retryPolicy.getDelay(attempt) <= 1000);
+        }
+        assertBetween(500, 1000, retryPolicy.getDelay(99));
+    }
+
+    @Test
+    public void testLastFailureIsThrown() {
+        AtomicInteger attempts = new AtomicInteger();
+        RetryPolicy retryPolicy = new RetryPolicy(log, 2, 0, 0, millis -> Assertions.fail("Should not sleep"));
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () ->
+                retryPolicy.execute("do something", () -> {
+                    throw new MojoExecutionException("failure " + attempts.incrementAndGet());
+                }));
+
+        Assertions.assertEquals("failure 3", e.getMessage());
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        Assertions.assertTrue(actual >= min && actual <= max, "Expected " + actual + " to be between " + min + " and " + max);
+    }
+}
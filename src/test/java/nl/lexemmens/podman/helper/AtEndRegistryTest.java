@@ -0,0 +1,53 @@
+package nl.lexemmens.podman.helper;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AtEndRegistryTest {
+
+    private static final List<String> PROJECTS = Arrays.asList("first", "second", "third");
+
+    @Test
+    public void testWorkIsReturnedOnceAllProjectsHaveRegistered() {
+        AtEndRegistry<String> registry = new AtEndRegistry<>();
+
+        Assertions.assertEquals(Collections.emptyList(), registry.register("first", "a", PROJECTS));
+        Assertions.assertEquals(Collections.emptyList(), registry.register("third", null, PROJECTS));
+        Assertions.assertEquals(Arrays.asList("a", "b"), registry.register("second", "b", PROJECTS));
+    }
+
+    @Test
+    public void testWorkOfEveryExecutionIsKept() {
+        AtEndRegistry<String> registry = new AtEndRegistry<>();
+
+        Assertions.assertEquals(Collections.emptyList(), registry.register("first", "a", PROJECTS));
+        Assertions.assertEquals(Collections.emptyList(), registry.register("first", "a2", PROJECTS));
+        Assertions.assertEquals(Collections.emptyList(), registry.register("second", null, PROJECTS));
+        Assertions.assertEquals(Arrays.asList("a", "a2", "c"), registry.register("third", "c", PROJECTS));
+    }
+
+    @Test
+    public void testPendingProjects() {
+        AtEndRegistry<String> registry = new AtEndRegistry<>();
+
+        registry.register("first", "a", PROJECTS);
+        Assertions.assertEquals(Arrays.asList("second", "third"), Arrays.asList(registry.getPendingProjects(PROJECTS).toArray()));
+
+        registry.register("second", null, PROJECTS);
+        registry.register("third", null, PROJECTS);
+        Assertions.assertTrue(registry.getPendingProjects(PROJECTS).isEmpty());
+    }
+
+    @Test
+    public void testWorkRegisteredAfterCompletionIsReturnedRightAway() {
+        AtEndRegistry<String> registry = new AtEndRegistry<>();
+
+        Assertions.assertEquals(Collections.singletonList("c"), registry.register("third", "c", Collections.singletonList("third")));
+        Assertions.assertEquals(Collections.singletonList("a"), registry.register("first", "a", PROJECTS));
+        Assertions.assertEquals(Collections.emptyList(), registry.register("second", null, PROJECTS));
+    }
+}
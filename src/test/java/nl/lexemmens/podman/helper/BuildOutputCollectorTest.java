@@ -0,0 +1,151 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class BuildOutputCollectorTest {
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private MavenProject mavenProject;
+
+    @Mock
+    private Build build;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testFinalImageHashIsLastLine() throws MojoExecutionException {
+        SingleImageConfiguration image = image("src/test/resources");
+        BuildOutputCollector collector = new BuildOutputCollector(log, image);
+
+        Arrays.asList("STEP 1: FROM scratch", "--> ab579b718da", "ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76").forEach(collector::onLine);
+
+        assertEquals(Optional.of("ca1f5f48ef431c0818d5e8797dfe707557bdc728fe7c3027c75de18f934a3b76"), collector.complete());
+        assertTrue(image.getImageHashPerStage().isEmpty());
+        verify(log, never()).debug("Processing line: 'STEP 1: FROM scratch'");
+    }
+
+    @Test
+    public void testLayerCacheUsageIsLogged() throws MojoExecutionException {
+        BuildOutputCollector collector = new BuildOutputCollector(log, image("src/test/resources"));
+
+        Arrays.asList("STEP 1/4: FROM registry.example.com/base:1.0.0",
+                "STEP 2/4: RUN dnf install -y java",
+                "--> Cache pulled from remote registry.example.com/sample-cache:5e0d5d2a1f6e",
+                "--> Using cache 5e0d5d2a1f6e3b7c9a8d",
+                "STEP 3/4: COPY app.jar /app/",
+                "--> Using cache 9c1a7b3d2e4f5a6b7c8d",
+                "STEP 4/4: LABEL version=1.0.1",
+                "--> 1b2c3d4e5f6a",
+                "1b2c3d4e5f6a7b8c9d0e1f2a3b4c5d6e7f8a9b0c1d2e3f4a5b6c7d8e9f0a1b2c").forEach(collector::onLine);
+        collector.complete();
+
+        verify(log, times(1)).debug("Layer cache hit (remote): STEP 2/4: RUN dnf install -y java");
+        verify(log, times(1)).debug("Layer cache hit: STEP 3/4: COPY app.jar /app/");
+        verify(log, times(1)).debug("Layer cache miss: STEP 4/4: LABEL version=1.0.1");
+        verify(log, times(1)).info("Layer cache: 2 of 3 steps cached, 1 of which pulled from a remote cache.");
+    }
+
+    @Test
+    public void testOutputPrefixIsLogged() throws MojoExecutionException {
+        SingleImageConfiguration image = image("src/test/resources/multistagecontainerfile");
+        image.getBuild().setOutputPrefix("[sample] ");
+        BuildOutputCollector collector = new BuildOutputCollector(log, image);
+
+        Arrays.asList("STEP 1/2: FROM scratch AS base",
+                "STEP 2/2: COPY app.jar /app/",
+                "--> Using cache 7e72c8706149c1a7b3d2",
+                "7e72c870614f5a6b7c8d9e0f1a2b3c4d5e6f7a8b9c0d1e2f3a4b5c6d7e8f9a0b").forEach(collector::onLine);
+        collector.complete();
+
+        verify(log, times(1)).debug("[sample] Layer cache hit: STEP 2/2: COPY app.jar /app/");
+        verify(log, times(1)).info("[sample] Layer cache: 1 of 1 steps cached, 0 of which pulled from a remote cache.");
+        verify(log, times(1)).info("[sample] Final image for stage base is: 7e72c8706149c1a7b3d2");
+    }
+
+    @Test
+    public void testNoOutput() throws MojoExecutionException {
+        BuildOutputCollector collector = new BuildOutputCollector(log, image("src/test/resources"));
+
+        assertFalse(collector.complete().isPresent());
+    }
+
+    @Test
+    public void testStageHashesAreRecorded() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image("src/test/resources/multistagecontainerfile");
+        BuildOutputCollector collector = new BuildOutputCollector(log, image);
+
+        try (Stream<String> lines = Files.lines(Paths.get("src/test/resources/multistagecontainerfile/samplebuildoutput.txt"))) {
+            lines.forEach(collector::onLine);
+        }
+
+        Map<String, String> expectedHashes = new HashMap<>();
+        expectedHashes.put("base", "7e72c870614");
+        expectedHashes.put("phase", "7f55eab001a");
+        expectedHashes.put("phase2", "d2efc6645cb");
+
+        assertEquals(Optional.of("d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f"), collector.complete());
+        assertEquals(expectedHashes, image.getImageHashPerStage());
+        verify(log, times(1)).info("Final image for stage phase is: 7f55eab001a");
+    }
+
+    @Test
+    public void testStageWithoutHash() throws MojoExecutionException {
+        SingleImageConfiguration image = image("src/test/resources/multistagecontainerfile");
+        BuildOutputCollector collector = new BuildOutputCollector(log, image);
+
+        Arrays.asList("STEP 1: FROM scratch AS base", "d2efc6645cbb6ea012f8adcaaab6b03ef847dd3d2b4fa418ca4cde57eff28a7f").forEach(collector::onLine);
+        collector.complete();
+
+        assertTrue(image.getImageHashPerStage().isEmpty());
+        verify(log, times(1)).warn("No image hash found for stage: 'base'");
+    }
+
+    private SingleImageConfiguration image(String containerFileDir) throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+
+        return new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(containerFileDir)
+                .setTags(new String[]{"1.0.0"})
+                .initAndValidate(mavenProject, log, true)
+                .build();
+    }
+}
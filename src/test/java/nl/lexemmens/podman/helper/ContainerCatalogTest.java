@@ -0,0 +1,67 @@
+package nl.lexemmens.podman.helper;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class ContainerCatalogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws MojoExecutionException, IOException {
+        Path catalogPath = temporaryFolder.getRoot().toPath().resolve("container-catalog.json");
+
+        ContainerCatalog catalog = new ContainerCatalog("nl.lexemmens", "sample", "1.0.0");
+        ContainerCatalog.Entry finalImage = new ContainerCatalog.Entry("registry.example.com/sample:1.0.0", "abcdef", null);
+        finalImage.setDigest("sha256:123");
+        finalImage.setSize(1024L);
+        finalImage.setBuildDurationMillis(2500L);
+        catalog.add(finalImage);
+        catalog.add(new ContainerCatalog.Entry("registry.example.com/tool:1.0.0", "012345", "tool"));
+        catalog.write(catalogPath);
+
+        ContainerCatalog readCatalog = ContainerCatalog.read(catalogPath).orElseThrow(AssertionError::new);
+
+        Assertions.assertEquals("nl.lexemmens", readCatalog.getGroupId());
+        Assertions.assertEquals("sample", readCatalog.getArtifactId());
+        Assertions.assertEquals("1.0.0", readCatalog.getVersion());
+        Assertions.assertEquals(2, readCatalog.getImages().size());
+
+        ContainerCatalog.Entry readFinalImage = readCatalog.getImage("registry.example.com/sample:1.0.0").orElseThrow(AssertionError::new);
+        Assertions.assertEquals(Optional.of("abcdef"), readFinalImage.getImageId());
+        Assertions.assertEquals(Optional.empty(), readFinalImage.getStage());
+        Assertions.assertEquals(Optional.of("sha256:123"), readFinalImage.getDigest());
+        Assertions.assertEquals(Optional.of(1024L), readFinalImage.getSize());
+        Assertions.assertEquals(Optional.of(2500L), readFinalImage.getBuildDurationMillis());
+
+        ContainerCatalog.Entry readStageImage = readCatalog.getImage("registry.example.com/tool:1.0.0").orElseThrow(AssertionError::new);
+        Assertions.assertEquals(Optional.of("tool"), readStageImage.getStage());
+        Assertions.assertEquals(Optional.empty(), readStageImage.getDigest());
+        Assertions.assertEquals(Optional.empty(), readStageImage.getSize());
+    }
+
+    @Test
+    public void testReadMissingCatalog() throws MojoExecutionException {
+        Path catalogPath = temporaryFolder.getRoot().toPath().resolve("container-catalog.json");
+
+        Assertions.assertEquals(Optional.empty(), ContainerCatalog.read(catalogPath));
+    }
+
+    @Test
+    public void testReadInvalidCatalogThrowsException() throws IOException {
+        Path catalogPath = temporaryFolder.newFile("container-catalog.json").toPath();
+        Files.write(catalogPath, "Container Catalog\nregistry.example.com/sample:1.0.0".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertThrows(MojoExecutionException.class, () -> ContainerCatalog.read(catalogPath));
+    }
+}
@@ -0,0 +1,116 @@
+package nl.lexemmens.podman.helper;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ContainerfileFinderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    private Path root;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        root = temporaryFolder.newFolder("project").toPath();
+        for (String containerFile : Arrays.asList("Containerfile", "services/a/Containerfile", "services/b/deep/Containerfile",
+                "legacy/Containerfile", "node_modules/module/Containerfile", "target/Containerfile", "out/Containerfile")) {
+            Files.createDirectories(root.resolve(containerFile).getParent());
+            Files.write(root.resolve(containerFile), "FROM scratch".getBytes());
+        }
+        Files.createDirectories(root.resolve("services/c"));
+        Files.write(root.resolve("services/c/Dockerfile"), "FROM scratch".getBytes());
+    }
+
+    @Test
+    public void testDefaultExcludesAreSkipped() throws MojoExecutionException {
+        List<Path> containerFiles = new ContainerfileFinder.Builder(log, root, "Containerfile")
+                .setUseDefaultExcludes(true, root.resolve("out"))
+                .build()
+                .find();
+
+        Assertions.assertEquals(Arrays.asList("Containerfile", "legacy/Containerfile", "services/a/Containerfile", "services/b/deep/Containerfile"), relativize(containerFiles));
+    }
+
+    @Test
+    public void testIncludesExcludesAndMaxDepth() throws MojoExecutionException {
+        List<Path> containerFiles = new ContainerfileFinder.Builder(log, root, "Containerfile")
+                .setIncludes(new String[]{"services/**", "legacy/**"})
+                .setExcludes(new String[]{"legacy"})
+                .setMaxDepth(2)
+                .setUseDefaultExcludes(false, null)
+                .build()
+                .find();
+
+        Assertions.assertEquals(Arrays.asList("services/a/Containerfile"), relativize(containerFiles));
+    }
+
+    @Test
+    public void testUnchangedDirectoriesAreReadFromIndex() throws MojoExecutionException, IOException {
+        Path indexDirectory = temporaryFolder.newFolder("index").toPath();
+        try (Stream<Path> directories = Files.walk(root)) {
+            for (Path directory : directories.filter(Files::isDirectory).collect(Collectors.toList())) {
+                Files.setLastModifiedTime(directory, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+            }
+        }
+
+        ContainerfileFinder finder = new ContainerfileFinder.Builder(log, root, "Containerfile")
+                .setIndexDirectory(indexDirectory)
+                .build();
+        List<Path> firstResult = finder.find();
+
+        Files.createDirectories(root.resolve("services/d"));
+        Files.write(root.resolve("services/d/Containerfile"), "FROM scratch".getBytes());
+        List<Path> secondResult = finder.find();
+
+        Assertions.assertEquals(firstResult.size() + 1, secondResult.size());
+        Assertions.assertTrue(secondResult.contains(root.resolve("services/d/Containerfile")));
+        // Of the 9 directories searched, only services and the new services/d are listed again
+        verify(log).debug(argThat((CharSequence message) -> message.toString().startsWith("Searched 9 directories")
+                && message.toString().endsWith("7 of which did not change since the previous search.")));
+    }
+
+    @Test
+    public void testParallelSearchFindsSameContainerfiles() throws MojoExecutionException {
+        List<Path> sequential = new ContainerfileFinder.Builder(log, root, "Containerfile").build().find();
+        List<Path> parallel = new ContainerfileFinder.Builder(log, root, "Containerfile").setThreads(4).build().find();
+
+        Assertions.assertEquals(sequential, parallel);
+    }
+
+    private List<String> relativize(List<Path> containerFiles) {
+        return containerFiles.stream()
+                .map(containerFile -> root.relativize(containerFile).toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,104 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ExecutionMetricsWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testMetricsOfGoalsAreMerged() throws IOException, MojoExecutionException {
+        File jsonFile = new File(temporaryFolder.getRoot(), "podman/metrics.json");
+        File prometheusFile = new File(temporaryFolder.getRoot(), "podman.prom");
+        ExecutionMetricsWriter writer = new ExecutionMetricsWriter(log);
+
+        ExecutionMetrics buildMetrics = new ExecutionMetrics();
+        buildMetrics.forImage("sample", () -> buildMetrics.recordCommand("podman build", 2_000_000_000L, true, 10, 200));
+        writer.write("my-module", "build", buildMetrics, jsonFile, prometheusFile);
+
+        ExecutionMetrics pushMetrics = new ExecutionMetrics();
+        pushMetrics.recordCommand("podman push", 1_500_000_000L, false, 1, 20);
+        pushMetrics.recordRetry();
+        writer.write("my-module", "push", pushMetrics, jsonFile, prometheusFile);
+
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(jsonFile.toPath()), StandardCharsets.UTF_8));
+        JSONObject goals = json.getJSONObject("goals");
+        Assertions.assertEquals(1, goals.getJSONObject("build").getJSONObject("commands").getJSONObject("podman build").getLong("executions"));
+        Assertions.assertEquals(1, goals.getJSONObject("push").getJSONObject("commands").getJSONObject("podman push").getLong("failures"));
+        Assertions.assertEquals(1, goals.getJSONObject("push").getLong("retries"));
+
+        List<String> lines = Files.readAllLines(prometheusFile.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertTrue(lines.contains("# TYPE podman_maven_plugin_command_duration_seconds gauge"));
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_command_duration_seconds{module=\"my-module\",goal=\"build\",command=\"podman build\"} 2.0"));
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_command_failures{module=\"my-module\",goal=\"push\",command=\"podman push\"} 1"));
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_image_command_duration_seconds{module=\"my-module\",goal=\"build\",image=\"sample\"} 2.0"));
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_goal_retries{module=\"my-module\",goal=\"push\"} 1"));
+    }
+
+    @Test
+    public void testPrometheusSeriesOfOtherModulesAreKept() throws IOException, MojoExecutionException {
+        File prometheusFile = new File(temporaryFolder.getRoot(), "podman.prom");
+        ExecutionMetricsWriter writer = new ExecutionMetricsWriter(log);
+
+        ExecutionMetrics firstMetrics = new ExecutionMetrics();
+        firstMetrics.recordCommand("podman build", 1_000_000_000L, true, 1, 10);
+        writer.write("first", "build", firstMetrics, new File(temporaryFolder.getRoot(), "first/metrics.json"), prometheusFile);
+
+        ExecutionMetrics secondMetrics = new ExecutionMetrics();
+        secondMetrics.recordCommand("podman build", 3_000_000_000L, true, 1, 10);
+        File secondJsonFile = new File(temporaryFolder.getRoot(), "second/metrics.json");
+        writer.write("second", "build", secondMetrics, secondJsonFile, prometheusFile);
+
+        ExecutionMetrics rerunMetrics = new ExecutionMetrics();
+        rerunMetrics.recordCommand("podman build", 2_000_000_000L, true, 1, 10);
+        writer.write("second", "build", rerunMetrics, secondJsonFile, prometheusFile);
+
+        List<String> lines = Files.readAllLines(prometheusFile.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, lines.stream().filter("# TYPE podman_maven_plugin_command_duration_seconds gauge"::equals).count());
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_command_duration_seconds{module=\"first\",goal=\"build\",command=\"podman build\"} 1.0"));
+        Assertions.assertTrue(lines.contains("podman_maven_plugin_command_duration_seconds{module=\"second\",goal=\"build\",command=\"podman build\"} 2.0"));
+        Assertions.assertFalse(lines.contains("podman_maven_plugin_command_duration_seconds{module=\"second\",goal=\"build\",command=\"podman build\"} 3.0"));
+    }
+
+    @Test
+    public void testUnreadableMetricsAreReplaced() throws IOException {
+        File jsonFile = temporaryFolder.newFile("metrics.json");
+        Files.write(jsonFile.toPath(), "not json".getBytes(StandardCharsets.UTF_8));
+
+        new ExecutionMetricsWriter(log).write("my-module", "save", new ExecutionMetrics(), jsonFile, null);
+
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(jsonFile.toPath()), StandardCharsets.UTF_8));
+        Assertions.assertTrue(json.getJSONObject("goals").has("save"));
+    }
+}
@@ -0,0 +1,94 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.executor.ExecutionTrace;
+import nl.lexemmens.podman.service.SessionCache;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ExecutionTraceWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testTracesOfModulesAreCombined() throws IOException {
+        File traceFile = new File(temporaryFolder.getRoot(), "podman/trace.json");
+        ExecutionTraceWriter writer = new ExecutionTraceWriter(log);
+        SessionCache sessionCache = new SessionCache();
+
+        writer.write("module-a", trace("build"), traceFile, sessionCache);
+        writer.write("module-b", trace("build"), traceFile, sessionCache);
+        writer.write("module-a", trace("push"), traceFile, sessionCache);
+
+        JSONArray events = readEvents(traceFile);
+        Map<String, Integer> pidPerModule = new HashMap<>();
+        Map<String, Integer> pidPerSpan = new HashMap<>();
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.getJSONObject(i);
+            if ("process_name".equals(event.getString("name"))) {
+                pidPerModule.put(event.getJSONObject("args").getString("name"), event.getInt("pid"));
+            } else if ("X".equals(event.getString("ph"))) {
+                pidPerSpan.merge(event.getString("name"), event.getInt("pid"), (first, second) -> first.equals(second) ? first : -1);
+            }
+        }
+
+        Assertions.assertEquals(2, pidPerModule.size());
+        Assertions.assertEquals(-1, pidPerSpan.get("build"));
+        Assertions.assertEquals(pidPerModule.get("module-a"), pidPerSpan.get("push"));
+        Assertions.assertNotEquals(pidPerModule.get("module-a"), pidPerModule.get("module-b"));
+    }
+
+    @Test
+    public void testTraceOfPreviousSessionIsReplaced() throws IOException {
+        File traceFile = new File(temporaryFolder.getRoot(), "podman/trace.json");
+        ExecutionTraceWriter writer = new ExecutionTraceWriter(log);
+
+        writer.write("module-a", trace("build"), traceFile, new SessionCache());
+        writer.write("module-a", trace("push"), traceFile, new SessionCache());
+
+        JSONArray events = readEvents(traceFile);
+        for (int i = 0; i < events.length(); i++) {
+            Assertions.assertNotEquals("build", events.getJSONObject(i).getString("name"));
+        }
+    }
+
+    private static JSONArray readEvents(File traceFile) throws IOException {
+        return new JSONObject(new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8)).getJSONArray("traceEvents");
+    }
+
+    private static ExecutionTrace trace(String goal) {
+        ExecutionTrace trace = ExecutionTrace.start();
+        ExecutionTrace.span(goal, "goal").close();
+        trace.stop();
+        return trace;
+    }
+}
@@ -0,0 +1,130 @@
+package nl.lexemmens.podman.helper;
+
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ImageDependencyHelperTest {
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private MavenProject mavenProject;
+
+    @Mock
+    private Build build;
+
+    private ImageDependencyHelper imageDependencyHelper;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        imageDependencyHelper = new ImageDependencyHelper(log, imageName -> "registry.example.com/" + imageName);
+    }
+
+    @Test
+    public void testDependenciesAreDetermined() throws MojoExecutionException {
+        SingleImageConfiguration app = image("app");
+        SingleImageConfiguration tool = image("tool");
+        SingleImageConfiguration base = image("base");
+
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies =
+                imageDependencyHelper.determineDependencies(Arrays.asList(app, tool, base));
+
+        assertEquals(Arrays.asList(app, tool, base), Arrays.asList(dependencies.keySet().toArray()));
+        assertEquals(Collections.singletonList(base), dependencies.get(app));
+        assertEquals(Collections.singletonList(base), dependencies.get(tool));
+        assertTrue(dependencies.get(base).isEmpty());
+    }
+
+    @Test
+    public void testFullImageNamesAreResolvedPerImage() throws MojoExecutionException {
+        SingleImageConfiguration app = image("app");
+        SingleImageConfiguration base = image("base");
+
+        // The base image is pushed to another registry than the one the app refers to
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies = new ImageDependencyHelper(log,
+                (image, imageName) -> (image == base ? "other.example.com/" : "registry.example.com/") + imageName)
+                .determineDependencies(Arrays.asList(app, base));
+
+        assertTrue(dependencies.get(app).isEmpty());
+    }
+
+    @Test
+    public void testBuildArgumentOverridesArgDefault() throws MojoExecutionException {
+        SingleImageConfiguration app = image("app", Collections.singletonMap("BASE_TAG", "2.0.0"));
+        SingleImageConfiguration base = image("base");
+
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies =
+                imageDependencyHelper.determineDependencies(Arrays.asList(app, base));
+
+        assertTrue(dependencies.get(app).isEmpty());
+    }
+
+    @Test
+    public void testUnresolvableReferenceIsReported() throws MojoExecutionException {
+        SingleImageConfiguration unresolved = image("unresolved");
+        SingleImageConfiguration base = image("base");
+
+        Map<SingleImageConfiguration, List<SingleImageConfiguration>> dependencies =
+                imageDependencyHelper.determineDependencies(Arrays.asList(unresolved, base));
+
+        assertTrue(dependencies.get(unresolved).isEmpty());
+        verify(log, times(1)).warn("Unable to resolve base image ${MISSING_BASE_IMAGE} in "
+                + unresolved.getBuild().getSourceContainerFileDir() + ". It is not taken into account to determine the build order.");
+    }
+
+    @Test
+    public void testCycleIsReported() throws MojoExecutionException {
+        SingleImageConfiguration cycleA = image("cycle-a");
+        SingleImageConfiguration cycleB = image("cycle-b");
+        List<SingleImageConfiguration> images = Arrays.asList(cycleA, cycleB);
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () -> imageDependencyHelper.determineDependencies(images));
+
+        assertEquals("Detected a cycle in the base images of the container images to build: cycle-a -> cycle-b -> cycle-a", e.getMessage());
+    }
+
+    private SingleImageConfiguration image(String name) throws MojoExecutionException {
+        return image(name, null);
+    }
+
+    private SingleImageConfiguration image(String name, Map<String, String> args) throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/dependencies-test");
+
+        return new TestSingleImageConfigurationBuilder(name)
+                .setContainerfileDir("src/test/resources/dependencies/" + name)
+                .setTags(new String[]{"1.0.0"})
+                .setBuildArgs(args)
+                .initAndValidate(mavenProject, log, true)
+                .build();
+    }
+}
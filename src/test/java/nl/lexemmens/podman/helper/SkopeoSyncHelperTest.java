@@ -0,0 +1,65 @@
+package nl.lexemmens.podman.helper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SkopeoSyncHelperTest {
+
+    @Test
+    public void testPlanGroupsImagesByDestination() {
+        Map<String, String> images = new LinkedHashMap<>();
+        images.put("stage.example.com/foo/bar:1.0.0", "release.example.com/foo/bar:1.0.0");
+        images.put("stage.example.com/foo/baz:2.0.0", "release.example.com/foo/baz:2.0.0");
+        images.put("stage.example.com/other/qux:1.0.0", "release.example.com/other/qux:1.0.0");
+
+        SkopeoSyncHelper.SyncPlan plan = new SkopeoSyncHelper(true).plan(images);
+
+        assertEquals(Arrays.asList("release.example.com/foo", "release.example.com/other"), Arrays.asList(plan.getSyncGroups().keySet().toArray()));
+        assertEquals(2, plan.getSyncGroups().get("release.example.com/foo").size());
+        assertEquals(Collections.emptyMap(), plan.getRemainingImages());
+    }
+
+    @Test
+    public void testImagesThatCannotBeSynchronisedRemain() {
+        Map<String, String> images = new LinkedHashMap<>();
+        images.put("stage.example.com/foo/bar:1.0.0", "release.example.com/foo/renamed:1.0.0");
+        images.put("stage.example.com/foo/bar:2.0.0", "release.example.com/foo/bar:2.0.1");
+        images.put("stage.example.com/foo/bar@sha256:abc", "release.example.com/foo/bar@sha256:abc");
+        images.put("foo/bar:1.0.0", "release.example.com/foo/bar:1.0.0");
+        images.put("stage.example.com/bar:1.0.0", "bar:1.0.0");
+
+        SkopeoSyncHelper.SyncPlan plan = new SkopeoSyncHelper(true).plan(images);
+
+        assertEquals(Collections.emptyMap(), plan.getSyncGroups());
+        assertEquals(images, plan.getRemainingImages());
+    }
+
+    @Test
+    public void testToYaml() {
+        assertEquals(Arrays.asList(
+                "stage.example.com:",
+                "  tls-verify: false",
+                "  images:",
+                "    foo/bar:",
+                "      - \"1.0.0\"",
+                "      - \"1.0.1\"",
+                "    foo/baz:",
+                "      - \"2.0.0\"",
+                "localhost:5000:",
+                "  tls-verify: false",
+                "  images:",
+                "    qux:",
+                "      - \"latest\""
+        ), new SkopeoSyncHelper(false).toYaml(Arrays.asList(
+                "stage.example.com/foo/bar:1.0.0",
+                "stage.example.com/foo/bar:1.0.1",
+                "stage.example.com/foo/baz:2.0.0",
+                "localhost:5000/qux:latest")));
+    }
+}
@@ -226,6 +226,35 @@ public class AuthenticationServiceTest {
         verify(log, Mockito.times(1)).debug("Authenticating not-present-registry.example.com");
     }
 
+    @Test
+    public void testSettingsAndAuthFilesAreReadOncePerSession() throws MojoExecutionException {
+        Path customAuthFile = Paths.get("src", "test", "resources", "configwithoutauth.json").toAbsolutePath();
+        env.set("REGISTRY_AUTH_FILE", customAuthFile.toString());
+
+        // Set the XDG_RUNTIME_DIR to something else, so that it does not conflict wiht the test
+        env.set("XDG_RUNTIME_DIR", "/path/does/not/exist");
+
+        String registryName = "not-present-registry.example.com";
+
+        Server server = new Server();
+        server.setId(registryName);
+        server.setUsername("username");
+        server.setPassword("password");
+
+        List<Server> serverList = Collections.singletonList(server);
+
+        when(settings.getServer(registryName)).thenReturn(server);
+        when(settingsDecrypter.decrypt(isA(SettingsDecryptionRequest.class))).thenReturn(createSettingsDecryptionResult(serverList, new ArrayList<>()));
+
+        SessionCache sessionCache = new SessionCache();
+        new AuthenticationService(log, podmanExecutorService, settings, settingsDecrypter, sessionCache).authenticate(new String[]{registryName});
+        new AuthenticationService(log, podmanExecutorService, settings, settingsDecrypter, sessionCache).authenticate(new String[]{registryName});
+
+        verify(settingsDecrypter, times(1)).decrypt(isA(SettingsDecryptionRequest.class));
+        verify(log, times(1)).debug("No authenticated registries were found.");
+        verify(podmanExecutorService, times(2)).login(registryName, "username", "password");
+    }
+
     @Test
     public void testConfigFileWithoutAuthsSection() {
         Path customAuthFile = Paths.get("src", "test", "resources", "configwithoutauth.json").toAbsolutePath();
@@ -0,0 +1,147 @@
+package nl.lexemmens.podman.service;
+
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class BuildContextStagerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private MavenProject mavenProject;
+
+    @Mock
+    private Build build;
+
+    private Path contextDir;
+    private Path outputDir;
+    private PodmanConfiguration podmanConfig;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        contextDir = temporaryFolder.newFolder("context").toPath();
+        outputDir = contextDir.resolve("target");
+        for (String file : Arrays.asList("Containerfile", "app.txt", "config/app.properties", "config/secret.key", "lib/a.jar", "lib/b.jar",
+                "lib/sources/a-sources.jar", "docs/README.md", "target/classes/App.class")) {
+            Files.createDirectories(contextDir.resolve(file).getParent());
+            Files.write(contextDir.resolve(file), file.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(contextDir.resolve(".containerignore"), "# Secrets\n**/*.key\nlib/*\n!lib/a.jar\n".getBytes(StandardCharsets.UTF_8));
+
+        podmanConfig = new TestPodmanConfigurationBuilder().setRunDirectory(contextDir.toFile()).build();
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn(outputDir.toString());
+    }
+
+    @Test
+    public void testOnlyReferencedFilesAreStaged() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image("FROM scratch AS builder\n"
+                + "COPY --chown=1000 app.txt /app/\n"
+                + "COPY [\"config\", \"/app/config\"]\n"
+                + "ADD lib/*.jar https://example.com/extra.jar /app/lib/\n"
+                + "FROM scratch\n"
+                + "COPY --from=builder /app /app\n");
+
+        new BuildContextStager(log, mavenProject, podmanConfig).stageContext(image);
+
+        assertTrue(image.getBuild().getStagedContextDir().isPresent());
+        Path stagedContextDir = image.getBuild().getStagedContextDir().get();
+        assertTrue(stagedContextDir.startsWith(outputDir.resolve("podman/context")));
+        assertEquals(Arrays.asList("app.txt", "config/app.properties", "lib/a.jar"), listFiles(stagedContextDir));
+        verify(log).info(argThat((CharSequence message) -> message.toString().startsWith("Staged build context")
+                && message.toString().contains("3 files") && message.toString().contains("instead of 8 files")));
+    }
+
+    @Test
+    public void testStagedContextIsUpdated() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image("FROM scratch\nCOPY app.txt config/ /app/\n");
+        BuildContextStager stager = new BuildContextStager(log, mavenProject, podmanConfig);
+        stager.stageContext(image);
+        Path stagedContextDir = image.getBuild().getStagedContextDir().get();
+
+        Files.delete(contextDir.resolve("config/app.properties"));
+        Files.write(contextDir.resolve("app.txt"), "version 2".getBytes(StandardCharsets.UTF_8));
+        stager.stageContext(image);
+
+        assertEquals(Arrays.asList("app.txt"), listFiles(stagedContextDir));
+        assertEquals("version 2", new String(Files.readAllBytes(stagedContextDir.resolve("app.txt")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompleteContextIsUsedWhenSourcesAreUnknown() throws MojoExecutionException {
+        SingleImageConfiguration copyAll = image("FROM scratch\nCOPY . /app/\n");
+        new BuildContextStager(log, mavenProject, podmanConfig).stageContext(copyAll);
+        assertFalse(copyAll.getBuild().getStagedContextDir().isPresent());
+
+        SingleImageConfiguration copyArg = image("FROM scratch\nARG VERSION\nCOPY lib/app-${VERSION}.jar /app/\n");
+        new BuildContextStager(log, mavenProject, podmanConfig).stageContext(copyArg);
+        assertFalse(copyArg.getBuild().getStagedContextDir().isPresent());
+    }
+
+    private SingleImageConfiguration image(String containerFile) throws MojoExecutionException {
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(contextDir.toString())
+                .setTags(new String[]{"1.0.0"})
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        image.getBuild().setStageContext(true);
+
+        try {
+            Files.createDirectories(outputDir);
+            Files.write(image.getBuild().getTargetContainerFile(), containerFile.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return image;
+    }
+
+    private static List<String> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> directory.relativize(path).toString().replace('\\', '/'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -2,10 +2,12 @@ package nl.lexemmens.podman.service;
 
 import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
 import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.filtering.FilterWrapper;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.apache.maven.shared.filtering.MavenFileFilterRequest;
 import org.apache.maven.shared.filtering.MavenFilteringException;
@@ -21,8 +23,13 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -61,7 +68,7 @@ public class ContainerfileDecoratorTest {
 
     @Test
     public void testFailedFilteringThrowsExcepton() throws MavenFilteringException, MojoExecutionException {
-        doThrow(new MavenFilteringException("Some exception message!")).when(mavenFileFilter).copyFile(isA(MavenFileFilterRequest.class));
+        doThrow(new MavenFilteringException("Some exception message!")).when(mavenFileFilter).getDefaultFilterWrappers(isA(MavenFileFilterRequest.class));
         when(mavenProject.getBuild()).thenReturn(build);
         when(build.getDirectory()).thenReturn("target");
 
@@ -114,24 +121,109 @@ public class ContainerfileDecoratorTest {
         Assertions.assertEquals("LABEL testLabelKey=\"testLabelValue\" ", lastLine);
     }
 
+    @Test
+    public void testLabelsAreNotAddedWhenPassedAsBuildOption() throws IOException, MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test")
+                .setContainerfileDir("src/test/resources")
+                .setLabels(Collections.singletonMap("testLabelKey", "testLabelValue"))
+                .setLabelMode(LabelMode.BUILD_OPTION)
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        Assertions.assertDoesNotThrow(() -> containerfileDecorator.decorateContainerfile(image));
+
+        verify(log, Mockito.times(1)).debug("Labels are passed to Podman as build option and are not added to the Containerfile");
+        Assertions.assertArrayEquals(Files.readAllBytes(Paths.get("src/test/resources/Containerfile")), Files.readAllBytes(Paths.get("target/podman-test/Containerfile")));
+    }
+
     @Test
     public void testDecorationWithLabelsNoTargetFile() throws IOException, MojoExecutionException {
         when(mavenProject.getBuild()).thenReturn(build);
-        when(build.getDirectory()).thenReturn("target");
+        when(build.getDirectory()).thenReturn("target/podman-test");
 
         Files.createDirectories(Paths.get("target/podman-test"));
         Files.deleteIfExists(Paths.get("target/podman-test/Containerfile"));
-        Files.copy(Paths.get("src/test/resources/Containerfile"), Paths.get("target/podman-test/Containerfile"));
 
         SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test")
                 .setContainerfileDir("src/test/resources")
                 .setLabels(Collections.singletonMap("testLabelKey", "testLabelValue"))
                 .initAndValidate(mavenProject, log, true)
                 .build();
-        Assertions.assertThrows(MojoExecutionException.class, () -> containerfileDecorator.decorateContainerfile(image));
+        Assertions.assertDoesNotThrow(() -> containerfileDecorator.decorateContainerfile(image));
+
+        List<String> collect = Files.lines(Paths.get("target/podman-test/Containerfile")).collect(Collectors.toList());
+        Assertions.assertEquals("FROM ${container.base.image}", collect.get(0));
+        Assertions.assertEquals("LABEL testLabelKey=\"testLabelValue\" ", collect.get(1));
+    }
+
+    @Test
+    public void testDecorationAppliesFilters() throws IOException, MojoExecutionException, MavenFilteringException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+        when(mavenFileFilter.getDefaultFilterWrappers(isA(MavenFileFilterRequest.class))).thenReturn(Collections.singletonList(new FilterWrapper() {
+            @Override
+            public Reader getReader(Reader reader) {
+                return new StringReader("FROM registry.example.com/base:1.0.0\n");
+            }
+        }));
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test")
+                .setContainerfileDir("src/test/resources")
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        containerfileDecorator.decorateContainerfile(image);
+
+        Assertions.assertEquals("FROM registry.example.com/base:1.0.0\n",
+                new String(Files.readAllBytes(Paths.get("target/podman-test/Containerfile")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLabelsAreAddedAfterContinuedFromInstruction() throws IOException, MojoExecutionException, MavenFilteringException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+        when(mavenFileFilter.getDefaultFilterWrappers(isA(MavenFileFilterRequest.class))).thenReturn(Collections.singletonList(new FilterWrapper() {
+            @Override
+            public Reader getReader(Reader reader) {
+                return new StringReader("from --platform=linux/amd64 \\\n    registry.example.com/base:1.0.0 as base\nRUN echo FROM\n");
+            }
+        }));
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test")
+                .setContainerfileDir("src/test/resources")
+                .setLabels(Collections.singletonMap("testLabelKey", "testLabelValue"))
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        containerfileDecorator.decorateContainerfile(image);
+
+        List<String> lines = Files.readAllLines(image.getBuild().getTargetContainerFile());
+        Assertions.assertEquals(4, lines.size());
+        Assertions.assertEquals("    registry.example.com/base:1.0.0 as base", lines.get(1));
+        Assertions.assertEquals("LABEL testLabelKey=\"testLabelValue\" ", lines.get(2));
+        Assertions.assertEquals("RUN echo FROM", lines.get(3));
+    }
+
+    @Test
+    public void testUnchangedContainerfileIsNotRewritten() throws IOException, MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target/podman-test");
+
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test")
+                .setContainerfileDir("src/test/resources")
+                .setLabels(Collections.singletonMap("testLabelKey", "testLabelValue"))
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        Files.deleteIfExists(image.getBuild().getTargetContainerFile());
+        containerfileDecorator.decorateContainerfile(image);
+
+        Path targetContainerfile = image.getBuild().getTargetContainerFile();
+        FileTime lastModified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(targetContainerfile, lastModified);
 
-        verify(log, Mockito.times(1)).debug(eq("Filtering Containerfile. Source: " + image.getBuild().getSourceContainerFileDir() + ", target: " + image.getBuild().getTargetContainerFile()));
-        verify(log, Mockito.times(1)).error(eq("Failed to add labels (LABEL testLabelKey=\"testLabelValue\" ) to Containerfile: " + image.getBuild().getTargetContainerFile()), isA(Exception.class));
+        containerfileDecorator.decorateContainerfile(image);
 
+        Assertions.assertEquals(lastModified, Files.getLastModifiedTime(targetContainerfile));
+        verify(log, Mockito.times(1)).debug("Containerfile " + targetContainerfile + " is up to date.");
     }
 }
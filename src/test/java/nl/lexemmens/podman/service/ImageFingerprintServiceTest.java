@@ -0,0 +1,186 @@
+package nl.lexemmens.podman.service;
+
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class ImageFingerprintServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private MavenProject mavenProject;
+
+    @Mock
+    private Build build;
+
+    private Path contextDir;
+    private Path outputDir;
+    private PodmanConfiguration podmanConfig;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        contextDir = temporaryFolder.newFolder("context").toPath();
+        outputDir = contextDir.resolve("target");
+        Files.createDirectories(outputDir);
+        Files.write(contextDir.resolve("Containerfile"), "FROM scratch\nCOPY app.txt /\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputDir.resolve("Containerfile"), "FROM scratch\nCOPY app.txt /\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(contextDir.resolve("app.txt"), "version 1".getBytes(StandardCharsets.UTF_8));
+
+        podmanConfig = new TestPodmanConfigurationBuilder().setRunDirectory(contextDir.toFile()).build();
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn(outputDir.toString());
+    }
+
+    @Test
+    public void testFingerprintIsStable() throws MojoExecutionException {
+        SingleImageConfiguration image = image(false);
+
+        String first = service().fingerprint(image, Collections.emptyList());
+        String second = service().fingerprint(image, Collections.emptyList());
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testFingerprintChangesWithInputs() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image(false);
+        String original = service().fingerprint(image, Collections.emptyList());
+
+        assertNotEquals(original, service().fingerprint(image, Collections.singletonList("base-image-id")));
+
+        image.getBuild().setArgs(Collections.singletonMap("key", "value"));
+        String withArgs = service().fingerprint(image, Collections.emptyList());
+        assertNotEquals(original, withArgs);
+
+        Files.write(contextDir.resolve("app.txt"), "version 2".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(withArgs, service().fingerprint(image, Collections.emptyList()));
+    }
+
+    @Test
+    public void testFingerprintIgnoresEmptyBuildArgProperties() throws MojoExecutionException {
+        SingleImageConfiguration image = image(false);
+        String original = service().fingerprint(image, Collections.emptyList());
+
+        // Not passed to podman build either
+        System.setProperty("podman.buildArg.empty", "");
+        try {
+            assertEquals(original, service().fingerprint(image, Collections.emptyList()));
+        } finally {
+            System.clearProperty("podman.buildArg.empty");
+        }
+    }
+
+    @Test
+    public void testFingerprintIgnoresPluginOutput() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image(false);
+        String original = service().fingerprint(image, Collections.emptyList());
+
+        Files.createDirectories(outputDir.resolve("podman"));
+        Files.write(outputDir.resolve("podman").resolve("image.tar.gz"), new byte[]{1, 2, 3});
+        Files.write(outputDir.resolve("container-catalog.txt"), "[containers]".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(original, service().fingerprint(image, Collections.emptyList()));
+    }
+
+    @Test
+    public void testFingerprintOnlyCoversUsedFiles() throws MojoExecutionException, IOException {
+        SingleImageConfiguration image = image(false);
+        String original = service().fingerprint(image, Collections.emptyList());
+
+        Files.write(contextDir.resolve("unused.txt"), "unused".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputDir.resolve("app.jar"), new byte[]{1, 2, 3});
+        assertEquals(original, service().fingerprint(image, Collections.emptyList()));
+
+        Files.write(contextDir.resolve(".containerignore"), "app.txt\n".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(original, service().fingerprint(image, Collections.emptyList()));
+    }
+
+    @Test
+    public void testFingerprintOfCompleteContextExcludesBuildDirectory() throws MojoExecutionException, IOException {
+        Files.write(outputDir.resolve("Containerfile"), "FROM scratch\nCOPY . /\n".getBytes(StandardCharsets.UTF_8));
+        SingleImageConfiguration image = image(false);
+        String original = service().fingerprint(image, Collections.emptyList());
+
+        Files.write(outputDir.resolve("app.jar"), new byte[]{1, 2, 3});
+        assertEquals(original, service().fingerprint(image, Collections.emptyList()));
+
+        Files.write(contextDir.resolve("other.txt"), "other".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(original, service().fingerprint(image, Collections.emptyList()));
+    }
+
+    @Test
+    public void testRecordAndFindBuild() throws MojoExecutionException {
+        SingleImageConfiguration image = image(false);
+        image.setFinalImageHash("sha256:final");
+        image.getImageHashPerStage().put("builder", "sha256:builder");
+
+        ImageFingerprintService service = service();
+        service.recordBuild(image, "fingerprint-1");
+
+        Optional<ImageFingerprintService.BuildRecord> record = service.findBuildRecord(image, "fingerprint-1");
+        assertTrue(record.isPresent());
+        assertEquals("sha256:final", record.get().getImageId());
+        assertEquals(Collections.singletonMap("builder", "sha256:builder"), record.get().getImageHashPerStage());
+
+        assertFalse(service.findBuildRecord(image, "fingerprint-2").isPresent());
+    }
+
+    @Test
+    public void testNoCacheIsNotSupported() throws MojoExecutionException {
+        ImageFingerprintService service = service();
+
+        assertTrue(service.isFingerprintSupported(image(false)));
+        assertFalse(service.isFingerprintSupported(image(true)));
+    }
+
+    private ImageFingerprintService service() {
+        return new ImageFingerprintService(log, mavenProject, podmanConfig, new BuildContextStager(log, mavenProject, podmanConfig));
+    }
+
+    private SingleImageConfiguration image(boolean noCache) throws MojoExecutionException {
+        return new TestSingleImageConfigurationBuilder("sample")
+                .setContainerfileDir(contextDir.toString())
+                .setTags(new String[]{"1.0.0"})
+                .setNoCache(noCache)
+                .initAndValidate(mavenProject, log, true)
+                .build();
+    }
+}
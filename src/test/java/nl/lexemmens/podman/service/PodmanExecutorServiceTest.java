@@ -5,6 +5,7 @@ import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuild
 import nl.lexemmens.podman.config.podman.PodmanConfiguration;
 import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
 import nl.lexemmens.podman.enumeration.CGroupManager;
+import nl.lexemmens.podman.enumeration.LabelMode;
 import nl.lexemmens.podman.executor.CommandExecutorDelegate;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.model.Build;
@@ -22,7 +23,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.zeroturnaround.exec.ProcessExecutor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Paths;
 import java.util.*;
 
 import static nl.lexemmens.podman.enumeration.ContainerFormat.DOCKER;
@@ -143,6 +147,19 @@ public class PodmanExecutorServiceTest {
         Assertions.assertEquals("podman push --tls-verify=true registry.example.com/sample/1.0.0", delegate.getCommandAsString());
     }
 
+    @Test
+    public void testPushAndGetDigest() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        // The delegate does not write the digest file, so the digest remains unknown
+        Assertions.assertEquals(Optional.empty(), podmanExecutorService.pushAndGetDigest("registry.example.com/sample:1.0.0"));
+        Assertions.assertTrue(delegate.getCommandAsString().matches("podman push --tls-verify=true --digestfile=\\S+\\.digest registry.example.com/sample:1.0.0"),
+                delegate.getCommandAsString());
+    }
+
     @Test
     public void testVersion() throws MojoExecutionException {
         PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
@@ -165,6 +182,17 @@ public class PodmanExecutorServiceTest {
         Assertions.assertEquals("podman tag this_is_an_image_hash registry.example.com/sample/1.0.0", delegate.getCommandAsString());
     }
 
+    @Test
+    public void testTagMultipleNames() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+        podmanExecutorService.tag("this_is_an_image_hash", Arrays.asList("registry.example.com/sample:1.0.0", "registry.example.com/sample:latest"));
+
+        Assertions.assertEquals("podman tag this_is_an_image_hash registry.example.com/sample:1.0.0 registry.example.com/sample:latest", delegate.getCommandAsString());
+    }
+
     @Test
     public void testRemoveLocalImage() throws MojoExecutionException {
         PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
@@ -176,6 +204,28 @@ public class PodmanExecutorServiceTest {
         Assertions.assertEquals("podman rmi registry.example.com/sample/1.0.0", delegate.getCommandAsString());
     }
 
+    @Test
+    public void testImageExists() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        Assertions.assertTrue(podmanExecutorService.imageExists("registry.example.com/sample:1.0.0"));
+        Assertions.assertEquals("podman image exists registry.example.com/sample:1.0.0", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testImageDoesNotExist() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, processExecutor -> {
+            throw new MojoExecutionException("exit code 1");
+        });
+
+        Assertions.assertFalse(podmanExecutorService.imageExists("registry.example.com/sample:1.0.0"));
+    }
+
     @Test
     public void testSave() throws MojoExecutionException {
         PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
@@ -187,6 +237,61 @@ public class PodmanExecutorServiceTest {
         Assertions.assertEquals("podman save --format=oci-archive --output=image_arhive.tar.gz registry.example.com/sample/1.0.0", delegate.getCommandAsString());
     }
 
+    @Test
+    public void testSaveToStream() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+        podmanExecutorService.save(new ByteArrayOutputStream(), "registry.example.com/sample/1.0.0");
+
+        Assertions.assertEquals("podman save --format=oci-archive registry.example.com/sample/1.0.0", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testSaveMultiImageArchive() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+        podmanExecutorService.save(new ByteArrayOutputStream(), Arrays.asList("registry.example.com/sample:1.0.0", "registry.example.com/tool:1.0.0"));
+
+        Assertions.assertEquals("podman save --format=docker-archive --multi-image-archive registry.example.com/sample:1.0.0 registry.example.com/tool:1.0.0", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testPushToOciLayout() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+        podmanExecutorService.pushToOciLayout("registry.example.com/sample:1.0.0", new File("/tmp/layout").toPath());
+
+        Assertions.assertEquals("podman push --tls-verify=true registry.example.com/sample:1.0.0 oci:/tmp/layout:registry.example.com/sample:1.0.0", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testGetImageDigest() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("sha256:abc"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        Assertions.assertEquals(Optional.of("sha256:abc"), podmanExecutorService.getImageDigest("registry.example.com/sample:1.0.0"));
+        Assertions.assertEquals("podman image inspect --format={{.Digest}} registry.example.com/sample:1.0.0", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testGetImageSize() throws MojoExecutionException {
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("123456"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        Assertions.assertEquals(Optional.of(123456L), podmanExecutorService.getImageSize("abcdef"));
+        Assertions.assertEquals("podman image inspect --format={{.Size}} abcdef", delegate.getCommandAsString());
+    }
+
     @Test
     public void testBuildOciFormat() throws MojoExecutionException {
         when(mavenProject.getBuild()).thenReturn(build);
@@ -208,6 +313,100 @@ public class PodmanExecutorServiceTest {
                 delegate.getCommandAsString());
     }
 
+    @Test
+    public void testBuildWithStagedContext() throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test_image")
+                .setContainerfileDir("src/test/resources")
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        image.getBuild().setStagedContextDir(Paths.get("target/podman/context/test_image"));
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("this_would_normally_be_an_image_hash"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        podmanExecutorService.build(image);
+
+        Assertions.assertEquals("podman build --tls-verify=true --format=oci --file=" + image.getBuild().getTargetContainerFile() + " --no-cache=false "
+                + Paths.get("target/podman/context/test_image"), delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testBuildWithLabelsAsBuildOption() throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+
+        Map<String, String> labels = new HashMap<>();
+        labels.put("version", "1.0.0");
+        labels.put("commit", "abc123");
+
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test_image")
+                .setContainerfileDir("src/test/resources")
+                .setLabels(labels)
+                .setLabelMode(LabelMode.BUILD_OPTION)
+                .initAndValidate(mavenProject, log, true)
+                .build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("this_would_normally_be_an_image_hash"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        podmanExecutorService.build(image);
+
+        Assertions.assertEquals("podman build --tls-verify=true --format=oci --file=" + image.getBuild().getTargetContainerFile() + " --no-cache=false "
+                + "--label=commit=abc123 --label=version=1.0.0 .", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testBuildWithRemoteCache() throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test_image")
+                .setContainerfileDir("src/test/resources")
+                .initAndValidate(mavenProject, log, true)
+                .build();
+        image.getBuild().setCacheFrom(new String[]{"registry.example.com/test_image-cache", "registry.example.com/base-cache"});
+        image.getBuild().setCacheTo("registry.example.com/test_image-cache");
+        image.getBuild().setCacheTtl("168h");
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("this_would_normally_be_an_image_hash"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        podmanExecutorService.build(image);
+
+        Assertions.assertEquals("podman build --tls-verify=true --format=oci --file=" + image.getBuild().getTargetContainerFile() + " --no-cache=false "
+                + "--cache-from=registry.example.com/test_image-cache --cache-from=registry.example.com/base-cache "
+                + "--cache-to=registry.example.com/test_image-cache --cache-ttl=168h .", delegate.getCommandAsString());
+    }
+
+    @Test
+    public void testBuildWithTags() throws MojoExecutionException {
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn("target");
+
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder().setTlsVerify(TRUE).initAndValidate(mavenProject, log).build();
+        SingleImageConfiguration image = new TestSingleImageConfigurationBuilder("test_image")
+                .setContainerfileDir("src/test/resources")
+                .initAndValidate(mavenProject, log, true)
+                .build();
+
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList("this_would_normally_be_an_image_hash"));
+        podmanExecutorService = new PodmanExecutorService(log, podmanConfig, delegate);
+
+        List<String> output = new ArrayList<>();
+        podmanExecutorService.build(image, Arrays.asList("registry.example.com/test_image:1.0.0", "registry.example.com/test_image:latest"), output::add);
+
+        Assertions.assertEquals("podman build --tls-verify=true --format=oci --file=" + image.getBuild().getTargetContainerFile() + " --no-cache=false "
+                        + "--tag=registry.example.com/test_image:1.0.0 --tag=registry.example.com/test_image:latest .",
+                delegate.getCommandAsString());
+        Assertions.assertEquals(Collections.singletonList("this_would_normally_be_an_image_hash"), output);
+    }
+
     @Test
     public void testBuildOciFormatWithCgroupFs() throws MojoExecutionException {
         when(mavenProject.getBuild()).thenReturn(build);
@@ -671,6 +870,11 @@ public class PodmanExecutorServiceTest {
             return processOutput;
         }
 
+        @Override
+        public void executeCommand(ProcessExecutor processExecutor, OutputStream outputStream) {
+            executedCommands = processExecutor.getCommand();
+        }
+
         String getCommandAsString() {
             return StringUtils.join(executedCommands, " ");
         }
@@ -0,0 +1,286 @@
+package nl.lexemmens.podman.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.lexemmens.podman.config.image.single.SingleImageConfiguration;
+import nl.lexemmens.podman.config.image.single.TestSingleImageConfigurationBuilder;
+import nl.lexemmens.podman.config.podman.PodmanConfiguration;
+import nl.lexemmens.podman.config.podman.TestPodmanConfigurationBuilder;
+import nl.lexemmens.podman.executor.ExecutionMetrics;
+import nl.lexemmens.podman.executor.PodmanRestClient;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static nl.lexemmens.podman.enumeration.TlsVerify.FALSE;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class PodmanRestExecutorServiceTest {
+
+    private static final String API_PREFIX = "/v4.0.0/libpod";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Mock
+    private MavenProject mavenProject;
+
+    @Mock
+    private Build build;
+
+    private HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, Response> responses = new ConcurrentHashMap<>();
+    private volatile byte[] lastRequestBody;
+
+    private Path contextDir;
+    private PodmanRestExecutorService podmanExecutorService;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        contextDir = temporaryFolder.newFolder("context").toPath();
+        Path outputDir = contextDir.resolve("target");
+        Files.createDirectories(outputDir.resolve("podman"));
+        Files.createDirectories(contextDir.resolve(".git"));
+        Files.write(contextDir.resolve("Containerfile"), "FROM scratch\nCOPY app.txt /\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputDir.resolve("Containerfile"), "FROM scratch\nCOPY app.txt /\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputDir.resolve("podman").resolve("image.tar.gz"), new byte[]{1, 2, 3});
+        Files.write(contextDir.resolve(".git").resolve("config"), new byte[]{1});
+        Files.write(contextDir.resolve("app.txt"), "app".getBytes(StandardCharsets.UTF_8));
+        Files.write(contextDir.resolve(".containerignore"), ".git\ntarget/podman\n".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(contextDir.resolve("empty"));
+        Files.createSymbolicLink(contextDir.resolve("linked"), contextDir.resolve("empty"));
+
+        when(mavenProject.getBuild()).thenReturn(build);
+        when(build.getDirectory()).thenReturn(outputDir.toString());
+
+        String serviceUrl = "tcp://127.0.0.1:" + server.getAddress().getPort();
+        PodmanConfiguration podmanConfig = new TestPodmanConfigurationBuilder()
+                .setTlsVerify(FALSE)
+                .setRunDirectory(contextDir.toFile())
+                .setServiceUrl(serviceUrl)
+                .build();
+        BuildContextStager buildContextStager = new BuildContextStager(log, mavenProject, podmanConfig);
+        podmanExecutorService = new PodmanRestExecutorService(log, podmanConfig, null, new PodmanRestClient(log, serviceUrl, new ExecutionMetrics()), buildContextStager);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testBuildStreamsOutputAndSendsContext() throws MojoExecutionException, IOException {
+        responses.put("/build", new Response(200, "{\"stream\":\"STEP 1/2: FROM scratch\\n\"}\n"
+                + "{\"stream\":\"STEP 2/2: COPY app.txt /\\nCOMMIT\\n\"}\n"
+                + "{\"stream\":\"--\\u003e 4ad1d6e6d5b0\\n\"}\n"
+                + "{\"stream\":\"4ad1d6e6d5b0a1b2c3d4e5f6\\n\"}\n"));
+
+        List<String> output = new ArrayList<>();
+        podmanExecutorService.build(image(), Collections.singletonList("registry.example.com/sample:1.0.0"), output::add);
+
+        Assertions.assertEquals(Arrays.asList("STEP 1/2: FROM scratch", "STEP 2/2: COPY app.txt /", "COMMIT", "--> 4ad1d6e6d5b0", "4ad1d6e6d5b0a1b2c3d4e5f6"), output);
+
+        String request = requests.get(0);
+        Assertions.assertTrue(request.startsWith("POST /build?dockerfile=target/Containerfile&outputformat=application/vnd.oci.image.manifest.v1+json&nocache=false&buildargs={}"), request);
+        Assertions.assertTrue(request.endsWith("&t=registry.example.com/sample:1.0.0"), request);
+
+        // The .containerignore file is applied the same way as by podman build
+        Set<String> entries = new HashSet<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(lastRequestBody))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                entries.add(entry.getName());
+                if ("app.txt".equals(entry.getName())) {
+                    Assertions.assertEquals("app", new String(IOUtils.toByteArray(tar), StandardCharsets.UTF_8));
+                } else if ("linked".equals(entry.getName())) {
+                    Assertions.assertTrue(entry.isSymbolicLink());
+                    Assertions.assertEquals(contextDir.resolve("empty").toString(), entry.getLinkName());
+                }
+            }
+        }
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(".containerignore", "Containerfile", "app.txt", "empty/", "linked", "target/", "target/Containerfile")), entries);
+    }
+
+    @Test
+    public void testBuildSendsSquashAndPullOptions() throws MojoExecutionException {
+        responses.put("/build", new Response(200, "{\"stream\":\"COMMIT\\n\"}\n"));
+
+        podmanExecutorService.build(image(new TestSingleImageConfigurationBuilder("sample").setSquash(true).setLayers(true).setPull(false)),
+                Collections.emptyList(), line -> {
+                });
+        podmanExecutorService.build(image(new TestSingleImageConfigurationBuilder("sample").setSquashAll(true).setPullAlways(true)),
+                Collections.emptyList(), line -> {
+                });
+
+        Assertions.assertTrue(requests.get(0).endsWith("&squash=true&layers=true&pullpolicy=missing"), requests.get(0));
+        Assertions.assertTrue(requests.get(1).endsWith("&squash=true&layers=false&pullpolicy=always"), requests.get(1));
+    }
+
+    @Test
+    public void testBuildFailsOnReportedError() throws MojoExecutionException {
+        responses.put("/build", new Response(200, "{\"stream\":\"STEP 1/2: FROM scratch\\n\"}\n{\"error\":\"no such file app.txt\"}\n"));
+        SingleImageConfiguration image = image();
+        List<String> output = Collections.emptyList();
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () -> podmanExecutorService.build(image, output, line -> {
+        }));
+        Assertions.assertEquals("Podman service reported an error for POST /build: no such file app.txt", e.getMessage());
+    }
+
+    @Test
+    public void testTag() throws MojoExecutionException {
+        responses.put("/images/abcdef/tag", new Response(201, ""));
+
+        podmanExecutorService.tag("abcdef", Arrays.asList("registry.example.com:5000/sample:1.0.0", "registry.example.com:5000/sample"));
+
+        Assertions.assertEquals(Arrays.asList(
+                "POST /images/abcdef/tag?repo=registry.example.com:5000/sample&tag=1.0.0",
+                "POST /images/abcdef/tag?repo=registry.example.com:5000/sample&tag=latest"), requests);
+    }
+
+    @Test
+    public void testImageExistsAndDigest() {
+        responses.put("/images/sample:1.0.0/exists", new Response(204, ""));
+        responses.put("/images/sample:1.0.0/json", new Response(200, "{\"Id\":\"abcdef\",\"Digest\":\"sha256:123\"}"));
+
+        Assertions.assertTrue(podmanExecutorService.imageExists("sample:1.0.0"));
+        Assertions.assertFalse(podmanExecutorService.imageExists("sample:2.0.0"));
+        Assertions.assertEquals(Optional.of("sha256:123"), podmanExecutorService.getImageDigest("sample:1.0.0"));
+        Assertions.assertEquals(Optional.empty(), podmanExecutorService.getImageDigest("sample:2.0.0"));
+    }
+
+    @Test
+    public void testPush() throws MojoExecutionException {
+        responses.put("/images/registry.example.com/sample:1.0.0/push", new Response(200, "{\"stream\":\"Copying blob 1234\\n\"}\n"));
+        responses.put("/images/registry.example.com/sample:2.0.0/push", new Response(500, "{\"cause\":\"unauthorized\",\"message\":\"authentication required\",\"response\":500}"));
+
+        podmanExecutorService.push("registry.example.com/sample:1.0.0");
+        Assertions.assertEquals("POST /images/registry.example.com/sample:1.0.0/push?tlsVerify=false", requests.get(0));
+
+        MojoExecutionException e = Assertions.assertThrows(MojoExecutionException.class, () -> podmanExecutorService.push("registry.example.com/sample:2.0.0"));
+        Assertions.assertEquals("Podman service returned HTTP 500 for POST /images/registry.example.com/sample:2.0.0/push: authentication required", e.getMessage());
+    }
+
+    @Test
+    public void testPushReportsDigestAndImageSize() throws MojoExecutionException {
+        responses.put("/images/registry.example.com/sample:1.0.0/push", new Response(200, "{\"stream\":\"Copying blob 1234\\n\"}\n{\"manifestdigest\":\"sha256:456\"}\n"));
+        responses.put("/images/abcdef/json", new Response(200, "{\"Id\":\"abcdef\",\"Size\":1024}"));
+
+        Assertions.assertEquals(Optional.of("sha256:456"), podmanExecutorService.pushAndGetDigest("registry.example.com/sample:1.0.0"));
+        Assertions.assertEquals(Optional.of(1024L), podmanExecutorService.getImageSize("abcdef"));
+        Assertions.assertEquals(Optional.empty(), podmanExecutorService.getImageSize("unknown"));
+    }
+
+    @Test
+    public void testSaveAndRemove() throws MojoExecutionException {
+        responses.put("/images/sample:1.0.0/get", new Response(200, "archive"));
+        responses.put("/images/export", new Response(200, "multi-image archive"));
+        responses.put("/images/sample:1.0.0", new Response(200, "{}"));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        podmanExecutorService.save(archive, "sample:1.0.0");
+        Assertions.assertEquals("archive", new String(archive.toByteArray(), StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream multiImageArchive = new ByteArrayOutputStream();
+        podmanExecutorService.save(multiImageArchive, Arrays.asList("sample:1.0.0", "tool:1.0.0"));
+        Assertions.assertEquals("multi-image archive", new String(multiImageArchive.toByteArray(), StandardCharsets.UTF_8));
+
+        podmanExecutorService.removeLocalImage("sample:1.0.0");
+
+        Assertions.assertEquals(Arrays.asList(
+                "GET /images/sample:1.0.0/get?format=oci-archive",
+                "GET /images/export?format=docker-archive&references=sample:1.0.0&references=tool:1.0.0",
+                "DELETE /images/sample:1.0.0"), requests);
+    }
+
+    private SingleImageConfiguration image() throws MojoExecutionException {
+        return image(new TestSingleImageConfigurationBuilder("sample"));
+    }
+
+    private SingleImageConfiguration image(TestSingleImageConfigurationBuilder builder) throws MojoExecutionException {
+        return builder
+                .setContainerfileDir(contextDir.toString())
+                .setTags(new String[]{"1.0.0"})
+                .initAndValidate(mavenProject, log, true)
+                .build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath().substring(API_PREFIX.length());
+        String query = exchange.getRequestURI().getRawQuery();
+        requests.add(exchange.getRequestMethod() + " " + URLDecoder.decode(path, "UTF-8")
+                + (query == null ? "" : "?" + URLDecoder.decode(query, "UTF-8")));
+        lastRequestBody = IOUtils.toByteArray(exchange.getRequestBody());
+
+        Response response = responses.getOrDefault(path, new Response(404, "{\"message\":\"not found\"}"));
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        if (response.status == 204) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+        exchange.close();
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
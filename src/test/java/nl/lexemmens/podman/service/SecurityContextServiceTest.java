@@ -88,10 +88,58 @@ public class SecurityContextServiceTest {
                 "for this location. Refer to the documentation of this plugin if you run into any issues.");
     }
 
+    @Test
+    public void testSetSecurityContextSkipsChconWhenContextMatches() throws MojoExecutionException {
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate("enabled");
+        delegate.setSecurityContext("/var/lib/containers/storage", "system_u:object_r:container_var_lib_t:s0");
+        delegate.setSecurityContext("/tmp/.containers", "system_u:object_r:container_var_lib_t:s0");
+        PodmanConfiguration podmanCfg = new TestPodmanConfigurationBuilder().setRoot(new File("/tmp/.containers")).build();
+
+        SecurityContextService securityContextService = new SecurityContextService(log, podmanCfg, delegate);
+        securityContextService.setSecurityContext();
+
+        assertEquals(0, countExecutions(delegate, "chcon"));
+        verify(log, times(1)).info("Security context of /tmp/.containers already matches graphRoot location /var/lib/containers/storage. Skipping chcon.");
+    }
+
+    @Test
+    public void testSetSecurityContextRelabelsWhenContextDiffers() throws MojoExecutionException {
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate("enabled");
+        delegate.setSecurityContext("/var/lib/containers/storage", "system_u:object_r:container_var_lib_t:s0");
+        delegate.setSecurityContext("/tmp/.containers", "unconfined_u:object_r:user_tmp_t:s0");
+        PodmanConfiguration podmanCfg = new TestPodmanConfigurationBuilder().setRoot(new File("/tmp/.containers")).build();
+
+        SecurityContextService securityContextService = new SecurityContextService(log, podmanCfg, delegate);
+        securityContextService.setSecurityContext();
+
+        assertEquals(1, countExecutions(delegate, "chcon"));
+    }
+
+    @Test
+    public void testSetSecurityContextOncePerExecution() throws MojoExecutionException {
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate("enabled");
+        PodmanConfiguration podmanCfg = new TestPodmanConfigurationBuilder().setRoot(new File("/tmp/.containers")).build();
+
+        SecurityContextService securityContextService = new SecurityContextService(log, podmanCfg, delegate);
+        securityContextService.setSecurityContext();
+        securityContextService.setSecurityContext();
+        securityContextService.setSecurityContext();
+
+        assertEquals(1, countExecutions(delegate, "sestatus"));
+        assertEquals(1, countExecutions(delegate, "podman"));
+        assertEquals(1, countExecutions(delegate, "chcon"));
+        verify(log, times(2)).debug("Security context has already been set during this session.");
+    }
+
+    private static long countExecutions(InterceptorCommandExecutorDelegate delegate, String executable) {
+        return delegate.getExecutedCommands().stream().filter(command -> command.get(0).equals(executable)).count();
+    }
+
     private static class InterceptorCommandExecutorDelegate implements CommandExecutorDelegate {
 
         private final String seLinuxStatus;
         private final List<String> processOutput;
+        private final Map<String, String> securityContexts = new HashMap<>();
         private final List<List<String>> executedCommands = new ArrayList<>();
 
         InterceptorCommandExecutorDelegate(String seLinuxStatus) {
@@ -99,6 +147,10 @@ public class SecurityContextServiceTest {
             this.processOutput = new ArrayList<>();
         }
 
+        void setSecurityContext(String location, String securityContext) {
+            securityContexts.put(location, securityContext);
+        }
+
         @Override
         public List<String> executeCommand(ProcessExecutor processExecutor) {
             executedCommands.add(processExecutor.getCommand());
@@ -108,6 +160,12 @@ public class SecurityContextServiceTest {
                 return sestatusOutput;
             }
 
+            if(processExecutor.getCommand().contains("stat")) {
+                List<String> command = processExecutor.getCommand();
+                String securityContext = securityContexts.get(command.get(command.size() - 1));
+                return securityContext == null ? new ArrayList<>() : Collections.singletonList(securityContext);
+            }
+
             if(processExecutor.getCommand().contains("podman")) {
                 List<String> sestatusOutput = new ArrayList<>();
                 sestatusOutput.add("graphRoot: /var/lib/containers/storage");
@@ -0,0 +1,72 @@
+package nl.lexemmens.podman.service;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+@RunWith(MockitoJUnitRunner.class)
+public class SessionCacheTest {
+
+    @Mock
+    private MavenSession session;
+
+    @Mock
+    private MavenSession otherSession;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testCacheIsSharedWithinSession() {
+        Assertions.assertSame(SessionCache.forSession(session), SessionCache.forSession(session));
+        Assertions.assertNotSame(SessionCache.forSession(session), SessionCache.forSession(otherSession));
+        Assertions.assertNotSame(SessionCache.forSession(null), SessionCache.forSession(null));
+    }
+
+    @Test
+    public void testValueIsLoadedOnce() throws MojoExecutionException {
+        SessionCache sessionCache = new SessionCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        Assertions.assertEquals("value1", sessionCache.get("key", () -> "value" + loads.incrementAndGet()));
+        Assertions.assertEquals("value1", sessionCache.get("key", () -> "value" + loads.incrementAndGet()));
+        Assertions.assertNull(sessionCache.get("null-key", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        Assertions.assertNull(sessionCache.get("null-key", () -> "not loaded"));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws MojoExecutionException {
+        SessionCache sessionCache = new SessionCache();
+
+        Assertions.assertThrows(MojoExecutionException.class, () -> sessionCache.get("key", () -> {
+            throw new MojoExecutionException("failed");
+        }));
+        Assertions.assertEquals("value", sessionCache.get("key", () -> "value"));
+    }
+
+    @Test
+    public void testMarkDone() {
+        SessionCache sessionCache = new SessionCache();
+
+        Assertions.assertTrue(sessionCache.markDone("podman-version"));
+        Assertions.assertFalse(sessionCache.markDone("podman-version"));
+        Assertions.assertTrue(sessionCache.markDone("other"));
+    }
+}
@@ -16,10 +16,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.zeroturnaround.exec.ProcessExecutor;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 
@@ -91,6 +93,56 @@ public class SkopeoExecutorServiceTest {
         )));
     }
 
+    @Test
+    public void testSync() throws MojoExecutionException {
+        SkopeoConfiguration skopeoConfiguration = new TestSkopeoConfigurationBuilder()
+                .openCopy()
+                .setDestTlsVerify(true)
+                .closeCopy()
+                .build();
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate();
+        SkopeoExecutorService skopeoExecutorService = new SkopeoExecutorService(log, skopeoConfiguration, delegate);
+        skopeoExecutorService.sync(Paths.get("target", "sync.yaml"), "dep.release.registry.example.com/foo");
+        assertEquals(delegate.getExecutedCommands(), Collections.singletonList(Arrays.asList(
+                "skopeo",
+                "sync",
+                "--src=yaml",
+                "--dest=docker",
+                "--dest-tls-verify=true",
+                Paths.get("target", "sync.yaml").toString(),
+                "dep.release.registry.example.com/foo"
+        )));
+    }
+
+    @Test
+    public void testGetDigest() {
+        SkopeoConfiguration skopeoConfiguration = new TestSkopeoConfigurationBuilder().build();
+        String digest = "sha256:0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+        InterceptorCommandExecutorDelegate delegate = new InterceptorCommandExecutorDelegate(Collections.singletonList(digest));
+        SkopeoExecutorService skopeoExecutorService = new SkopeoExecutorService(log, skopeoConfiguration, delegate);
+
+        assertEquals(Optional.of(digest), skopeoExecutorService.getDigest("dep.release.registry.example.com/foo:1.0.0", true));
+        assertEquals(delegate.getExecutedCommands(), Collections.singletonList(Arrays.asList(
+                "skopeo",
+                "inspect",
+                "--tls-verify=true",
+                "--format={{.Digest}}",
+                "--no-tags",
+                "docker://dep.release.registry.example.com/foo:1.0.0"
+        )));
+    }
+
+    @Test
+    public void testGetDigestOfMissingImage() {
+        SkopeoConfiguration skopeoConfiguration = new TestSkopeoConfigurationBuilder().build();
+        CommandExecutorDelegate delegate = processExecutor -> {
+            throw new MojoExecutionException("manifest unknown");
+        };
+        SkopeoExecutorService skopeoExecutorService = new SkopeoExecutorService(log, skopeoConfiguration, delegate);
+
+        assertEquals(Optional.empty(), skopeoExecutorService.getDigest("dep.release.registry.example.com/foo:1.0.0", false));
+    }
+
 
     private static class InterceptorCommandExecutorDelegate implements CommandExecutorDelegate {
 
@@ -98,7 +150,11 @@ public class SkopeoExecutorServiceTest {
         private final List<List<String>> executedCommands = new ArrayList<>();
 
         InterceptorCommandExecutorDelegate() {
-            this.processOutput = new ArrayList<>();
+            this(new ArrayList<>());
+        }
+
+        InterceptorCommandExecutorDelegate(List<String> processOutput) {
+            this.processOutput = processOutput;
         }
 
         @Override